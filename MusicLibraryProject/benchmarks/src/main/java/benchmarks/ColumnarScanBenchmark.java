@@ -0,0 +1,80 @@
+/*
+ * File: ColumnarScanBenchmark.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: JMH benchmarks of a full-scan title search over 100K and 1M songs,
+ * in the object-list layout (an ArrayList<Song>, lowercasing every title as
+ * the original MusicStore search did) and in the columnar layout (the
+ * COLUMNAR search engine). Both return the matching songs, so the scores
+ * divided into the song count give the scan throughput of each layout.
+ */
+
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import database.MusicStore;
+import database.SearchEngine;
+import model.Song;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ColumnarScanBenchmark {
+
+	@Param({"100000", "1000000"})
+	public int songs;
+
+	@Param({"midnight paper", "love"})
+	public String query;
+
+	private MusicStore store;
+	private ArrayList<Song> inventory;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		this.store = new MusicStore(SyntheticLibrary.catalog(this.songs));
+		// Measure the scans, not the result cache
+		this.store.setQueryCacheCapacity(0);
+		this.inventory = this.store.searchSongsByTitle("");
+		// Build the columnar catalog up front
+		this.store.setSearchEngine(SearchEngine.COLUMNAR);
+		this.store.searchSongsByTitle("warm up");
+	}
+
+	@Benchmark
+	public List<Song> objectListScan() {
+		String target = this.query.toLowerCase(Locale.ROOT);
+		ArrayList<Song> list = new ArrayList<Song>();
+		for (Song song : this.inventory) {
+			if (song.getTitle().toLowerCase(Locale.ROOT).contains(target)) {
+				list.add(song);
+			}
+		}
+		return list;
+	}
+
+	@Benchmark
+	public List<Song> columnarScan() {
+		return this.store.searchSongsByTitle(this.query);
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * File: LibraryBenchmark.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: JMH benchmarks of the LibraryModel operations a user triggers
+ * most, on libraries holding 1K, 100K and 1M songs: adding and removing an
+ * album, playing a song (which refreshes Most Recently / Most Frequently
+ * Played), rating a song, refreshing the genre playlists, searching
+ * songs by genre, and adding an album and rating its songs in one batch.
+ *
+ * Each operation is measured by itself (single invocations), with the
+ * library restored around it, so the cost reported is the cost of one call
+ * at that library size. Operations that scale badly with the library show
+ * up directly as their time grows faster than the size parameter.
+ */
+
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.Album;
+import model.InstanceRegistry;
+import model.LibraryModel;
+import model.Song;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, batchSize = 1)
+@Measurement(iterations = 20, batchSize = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class LibraryBenchmark {
+
+	@Param({"1000", "100000", "1000000"})
+	public int songs;
+
+	private LibraryModel library;
+	private Album extra;
+	private ArrayList<Song> played;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		ArrayList<Album> albums = SyntheticLibrary.catalog(this.songs);
+		this.library = SyntheticLibrary.library(albums);
+		this.extra = SyntheticLibrary.extraAlbum();
+
+		// Songs to play / rate, spread over the library
+		this.played = new ArrayList<Song>();
+		for (int a = 0; a < albums.size(); a += Math.max(1, albums.size() / 64)) {
+			Album album = albums.get(a);
+			this.played.add(InstanceRegistry.song(album.getSongs().get(0), album.getTitle(), album.getArtist()));
+		}
+	}
+
+	private Song nextSong() {
+		this.next = (this.next + 1) % this.played.size();
+		return this.played.get(this.next);
+	}
+
+	@Benchmark
+	public boolean addAlbumWithAllSongs() {
+		return this.library.addAlbumWithAllSongs(this.extra);
+	}
+
+	@Benchmark
+	public void batchAddAlbumAndRate() {
+		this.library.batch(b -> {
+			b.addAlbumWithAllSongs(this.extra);
+			for (String title : this.extra.getSongs()) {
+				b.setRating(new Song(title, this.extra.getTitle(), this.extra.getArtist()), 5);
+			}
+		});
+	}
+
+	@TearDown(Level.Invocation)
+	public void restore() {
+		// Undo addAlbumWithAllSongs / batchAddAlbumAndRate (no-op for the
+		// other benchmarks)
+		this.library.removeAlbum(this.extra);
+	}
+
+	@Benchmark
+	public Song playSong() {
+		return this.library.playSong(nextSong());
+	}
+
+	@Benchmark
+	public void setRating() {
+		this.library.setRating(nextSong(), 1 + this.next % 5);
+	}
+
+	@Benchmark
+	public void updateGenreLists() {
+		this.library.updateGenreLists();
+	}
+
+	@Benchmark
+	public ArrayList<Song> searchSongsByGenre() {
+		return this.library.searchSongsByGenre("Rock");
+	}
+
+	/**
+	 * Removing needs the extra album in the library first, so it has its
+	 * own state adding it before every invocation.
+	 */
+	@State(Scope.Benchmark)
+	public static class WithExtraAlbum {
+		@Setup(Level.Invocation)
+		public void add(LibraryBenchmark benchmark) {
+			benchmark.library.addAlbumWithAllSongs(benchmark.extra);
+		}
+	}
+
+	@Benchmark
+	public boolean removeAlbum(WithExtraAlbum state) {
+		return this.library.removeAlbum(this.extra);
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * File: StoreSearchBenchmark.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: JMH benchmarks of the MusicStore searches on synthetic catalogs
+ * of 1K, 100K and 1M songs: a selective and a broad title search, an
+ * artist search, the first page of a paginated search, a fuzzy search, an
+ * autocompletion, a faceted (genre and year range) filter, a
+ * field-qualified query and a relevance-ranked top 10. Indexes are built
+ * during setup and the result cache is turned off, so only the queries
+ * themselves are measured; the artist search is also measured once more on
+ * a store answering it from its cache. The selective title, artist, album
+ * and field-qualified queries are taken from the catalog (SyntheticLibrary),
+ * and setup checks they match, so no size times an empty search.
+ */
+
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import database.FacetFilter;
+import database.MusicStore;
+import model.Album;
+import model.FacetResult;
+import model.SearchPage;
+import model.Song;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class StoreSearchBenchmark {
+
+	@Param({"1000", "100000", "1000000"})
+	public int songs;
+
+	private MusicStore store;
+	private MusicStore cached;
+
+	// Queries taken from the catalog, so every size times searches that hit
+	private String song_title;
+	private String artist;
+	private String album_title;
+	private String query;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		ArrayList<Album> catalog = SyntheticLibrary.catalog(this.songs);
+		this.song_title = SyntheticLibrary.songTitleQuery(catalog);
+		this.artist = SyntheticLibrary.artistQuery(catalog);
+		this.album_title = SyntheticLibrary.albumTitleQuery(catalog);
+		this.query = SyntheticLibrary.songQuery(catalog);
+		this.store = new MusicStore(catalog);
+		this.store.setQueryCacheCapacity(0);
+		this.cached = new MusicStore(catalog);
+		this.cached.searchSongsByArtist(this.artist);
+		requireHits(this.song_title, this.store.searchSongsByTitle(this.song_title));
+		requireHits(this.artist, this.store.searchSongsByArtist(this.artist));
+		requireHits(this.album_title, this.store.searchAlbumsByTitle(this.album_title));
+		requireHits(this.query, this.store.searchSongs(this.query));
+		// Build every index up front
+		this.store.searchSongsByTitle("warm up");
+		this.store.searchAlbumsByTitle("warm up");
+		this.store.completeSongTitles("w", 1);
+		this.store.filterSongs(FacetFilter.all(), 1);
+		this.store.rankSongs("warm up", 1);
+	}
+
+	private static void requireHits(String query, List<?> results) {
+		if (results.isEmpty()) {
+			throw new IllegalStateException("Benchmark query matches nothing: " + query);
+		}
+	}
+
+	@Benchmark
+	public List<Song> searchSongsByTitleSelective() {
+		return this.store.searchSongsByTitle(this.song_title);
+	}
+
+	@Benchmark
+	public List<Song> searchSongsByTitleBroad() {
+		return this.store.searchSongsByTitle("love");
+	}
+
+	@Benchmark
+	public List<Song> searchSongsByArtist() {
+		return this.store.searchSongsByArtist(this.artist);
+	}
+
+	@Benchmark
+	public List<Song> cachedSearchSongsByArtist() {
+		return this.cached.searchSongsByArtist(this.artist);
+	}
+
+	@Benchmark
+	public List<Album> searchAlbumsByTitle() {
+		return this.store.searchAlbumsByTitle(this.album_title);
+	}
+
+	@Benchmark
+	public SearchPage<Song> searchSongsByTitleFirstPage() {
+		return this.store.searchSongsByTitle("love", null, 20);
+	}
+
+	@Benchmark
+	public List<Song> fuzzySearchSongsByTitle() {
+		return this.store.fuzzySearchSongsByTitle("midnigt papr", 10);
+	}
+
+	@Benchmark
+	public List<String> completeSongTitles() {
+		return this.store.completeSongTitles("sil", 10);
+	}
+
+	@Benchmark
+	public List<Song> searchSongsWithQuery() {
+		return this.store.searchSongs(this.query);
+	}
+
+	@Benchmark
+	public FacetResult<Song> filterSongsByGenreAndYears() {
+		return this.store.filterSongs(FacetFilter.genre("Rock").and(FacetFilter.years(1990, 1999)), 20);
+	}
+
+	@Benchmark
+	public List<Song> rankSongsTop10() {
+		return this.store.rankSongs("love midnight rain", 10);
+	}
+}
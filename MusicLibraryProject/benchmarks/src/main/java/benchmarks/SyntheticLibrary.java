@@ -0,0 +1,100 @@
+/*
+ * File: SyntheticLibrary.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file generates the catalogs and user libraries the JMH
+ * benchmarks run on, at any scale, from bench.SyntheticCatalog. The same
+ * seed always yields the same data, so results stay comparable between
+ * commits.
+ *
+ * Libraries are filled through the public API in a single batch, so the
+ * automatic playlists are refreshed once, at the end.
+ */
+
+package benchmarks;
+
+import java.util.ArrayList;
+
+import bench.SyntheticCatalog;
+import model.Album;
+import model.LibraryModel;
+
+final class SyntheticLibrary {
+	static final long SEED = 42;
+
+	private SyntheticLibrary() {
+	}
+
+	/**
+	 * @param  songs   Number of songs in the catalog
+	 * @return albums  Generated albums, holding that many songs
+	 */
+	static ArrayList<Album> catalog(int songs) {
+		return SyntheticCatalog.albums(songs, SEED);
+	}
+
+	/**
+	 * Builds a library holding every song of the given albums, with the
+	 * albums themselves.
+	 *
+	 * @param  albums   Albums to put in the library
+	 * @return library  The filled LibraryModel
+	 */
+	static LibraryModel library(ArrayList<Album> albums) {
+		LibraryModel library = new LibraryModel();
+		library.batch(b -> {
+			for (Album album : albums) {
+				b.addAlbumWithAllSongs(album);
+			}
+		});
+		return library;
+	}
+
+	/**
+	 * Search queries drawn from the catalog itself, so that they match at
+	 * every catalog size: the middle album's title (without its number),
+	 * its artist, its longest (most selective) song title, and a query
+	 * language search combining them. All lower case.
+	 */
+	static String albumTitleQuery(ArrayList<Album> albums) {
+		String title = middle(albums).getTitle();
+		return title.substring(0, title.lastIndexOf(' ')).toLowerCase();
+	}
+
+	static String artistQuery(ArrayList<Album> albums) {
+		return middle(albums).getArtist().toLowerCase();
+	}
+
+	static String songTitleQuery(ArrayList<Album> albums) {
+		String longest = "";
+		for (String title : middle(albums).getSongs()) {
+			if (title.length() > longest.length()) {
+				longest = title;
+			}
+		}
+		return longest.toLowerCase();
+	}
+
+	static String songQuery(ArrayList<Album> albums) {
+		Album album = middle(albums);
+		String word = songTitleQuery(albums).split(" ")[0];
+		return "artist:\"" + artistQuery(albums) + "\" year:>=" + album.getYear() + " genre:\""
+				+ album.getGenre().toLowerCase() + "\" " + word;
+	}
+
+	private static Album middle(ArrayList<Album> albums) {
+		return albums.get(albums.size() / 2);
+	}
+
+	/**
+	 * An album that is not part of the generated catalog, for add / remove
+	 * benchmarks.
+	 */
+	static Album extraAlbum() {
+		Album album = new Album("Benchmark Extra", "Benchmark Artist", "Pop", "2025");
+		for (int t = 0; t < SyntheticCatalog.SONGS_PER_ALBUM; t++) {
+			album.addSong("Extra Track " + t);
+		}
+		return album;
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * File: UserManagerBenchmark.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: JMH benchmarks of saving and loading users.dat through the
+ * UserManager, for one user whose library holds 1K, 100K or 1M songs. The
+ * file is written to a temporary directory, never to src/PasswordStorage.
+ */
+
+package benchmarks;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.UserAccount;
+import model.UserManager;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, batchSize = 1)
+@Measurement(iterations = 5, batchSize = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class UserManagerBenchmark {
+
+	@Param({"1000", "100000", "1000000"})
+	public int songs;
+
+	private Path directory;
+	private Path file;
+	private UserManager manager;
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("unchecked")
+	public void setup() throws IOException, ReflectiveOperationException {
+		this.directory = Files.createTempDirectory("users");
+		this.file = this.directory.resolve("users.dat");
+		this.manager = new UserManager(this.file.toString());
+
+		// Register a user owning a generated library, without the library
+		// being rebuilt song by song
+		UserAccount user = new UserAccount("benchmark", "benchmark");
+		Field library = UserAccount.class.getDeclaredField("library");
+		library.setAccessible(true);
+		library.set(user, SyntheticLibrary.library(SyntheticLibrary.catalog(this.songs)));
+		Field users = UserManager.class.getDeclaredField("users");
+		users.setAccessible(true);
+		((Map<String, UserAccount>) users.get(this.manager)).put("benchmark", user);
+		this.manager.save();
+	}
+
+	@TearDown(Level.Trial)
+	public void cleanUp() throws IOException {
+		Files.deleteIfExists(this.file);
+		Files.deleteIfExists(this.directory);
+	}
+
+	@Benchmark
+	public void save() {
+		this.manager.save();
+	}
+
+	@Benchmark
+	public UserManager load() {
+		return new UserManager(this.file.toString());
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * File: Autocomplete.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This program measures MusicStore autocompletion (PrefixTrie) on a
+ * synthetic catalog (1,000,000 songs by default): the one-off trie build,
+ * then the average latency of top-10 song title completions for prefixes
+ * of one to six characters taken from real titles.
+ *
+ * Usage: java -Xmx3g -cp bin bench.Autocomplete [songs]
+ */
+
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import database.MusicStore;
+import model.Album;
+
+public final class Autocomplete {
+	private static final int LOOKUPS = 100_000;
+	private static final int K = 10;
+
+	public static void main(String[] args) {
+		int songs = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+		ArrayList<Album> albums = SyntheticCatalog.albums(songs, 42);
+		MusicStore store = new MusicStore(albums);
+
+		long start = System.nanoTime();
+		store.completeSongTitles("", K);
+		System.out.printf("Songs: %d | Trie build: %.1f ms%n", songs, (System.nanoTime() - start) / 1e6);
+
+		List<String> titles = store.streamSongsByTitle("").limit(10_000).map(song -> song.getTitle()).toList();
+		Random random = new Random(7);
+		System.out.println("prefix length   avg us/lookup");
+		for (int length = 1; length <= 6; length++) {
+			String[] prefixes = new String[LOOKUPS];
+			for (int i = 0; i < LOOKUPS; i++) {
+				String title = titles.get(random.nextInt(titles.size()));
+				prefixes[i] = title.substring(0, Math.min(length, title.length()));
+			}
+			long completions = 0;
+			for (int i = 0; i < LOOKUPS / 10; i++) {
+				completions += store.completeSongTitles(prefixes[i], K).size();
+			}
+			start = System.nanoTime();
+			for (String prefix : prefixes) {
+				completions += store.completeSongTitles(prefix, K).size();
+			}
+			long nanos = System.nanoTime() - start;
+			System.out.printf("%13d %15.2f%n", length, nanos / 1e3 / LOOKUPS);
+			if (completions == 0) {
+				System.out.println("No completions found.");
+			}
+		}
+	}
+}
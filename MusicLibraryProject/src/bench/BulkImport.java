@@ -0,0 +1,87 @@
+/*
+ * File: BulkImport.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This program measures MusicStore.importCatalog on a synthetic
+ * catalog (1,000,000 songs by default) written out as a CSV dump and as a
+ * JSON-lines dump. For each it reports the import summary (rows/s while
+ * streaming the dump), the total time including the new catalog version's
+ * indexes, and the heap retained by the store afterwards.
+ *
+ * Usage: java -Xmx3g -cp bin bench.BulkImport [songs]
+ */
+
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import database.CatalogImporter;
+import database.MusicStore;
+import model.Album;
+
+public final class BulkImport {
+
+	public static void main(String[] args) throws IOException {
+		int songs = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+		ArrayList<Album> albums = SyntheticCatalog.albums(songs, 42);
+		Path dir = Files.createTempDirectory("import");
+		Path csv = dir.resolve("catalog.csv");
+		Path json = dir.resolve("catalog.jsonl");
+		write(albums, csv, json);
+		albums = null;
+		System.out.printf("Songs: %d | CSV: %.1f MB | JSON lines: %.1f MB%n", songs,
+				Files.size(csv) / 1e6, Files.size(json) / 1e6);
+
+		for (Path file : new Path[] {csv, json}) {
+			long base = usedHeap();
+			long start = System.nanoTime();
+			MusicStore store = new MusicStore(new ArrayList<Album>());
+			CatalogImporter importer = store.importCatalog(file);
+			long nanos = System.nanoTime() - start;
+			System.out.printf("%-13s %s%n", file.getFileName() + ":", importer.getReport());
+			System.out.printf("%-13s total with indexes: %.1f ms | heap: %.1f MB | matches: %d%n", "",
+					nanos / 1e6, (usedHeap() - base) / 1e6, store.searchSongsByTitle("river").size());
+		}
+	}
+
+	private static void write(ArrayList<Album> albums, Path csv, Path json) throws IOException {
+		try (BufferedWriter csv_writer = Files.newBufferedWriter(csv);
+				BufferedWriter json_writer = Files.newBufferedWriter(json)) {
+			csv_writer.write("title,artist,genre,year,tracks");
+			csv_writer.newLine();
+			for (Album album : albums) {
+				StringBuilder row = new StringBuilder();
+				row.append(album.getTitle()).append(',').append(album.getArtist()).append(',')
+						.append(album.getGenre()).append(',').append(album.getYear());
+				StringBuilder tracks = new StringBuilder();
+				for (String song : album.getSongs()) {
+					row.append(',').append(song);
+					tracks.append((tracks.length() == 0) ? "\"" : ", \"").append(song).append('"');
+				}
+				csv_writer.write(row.toString());
+				csv_writer.newLine();
+				json_writer.write("{\"title\": \"" + album.getTitle() + "\", \"artist\": \"" + album.getArtist()
+						+ "\", \"genre\": \"" + album.getGenre() + "\", \"year\": " + album.getYear()
+						+ ", \"tracks\": [" + tracks + "]}");
+				json_writer.newLine();
+			}
+		}
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * File: ColumnarScan.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This program measures full-scan search throughput (songs scanned
+ * per second) on a synthetic catalog (1,000,000 songs by default), for the
+ * object-list layout (an ArrayList<Song>, lowercasing each title as the
+ * original MusicStore search did, then with the lowercase titles already
+ * cached) against the COLUMNAR search engine (ColumnarCatalog). The TRIGRAM
+ * engine is timed too, as the indexed reference.
+ *
+ * Usage: java -Xmx3g -cp bin bench.ColumnarScan [songs]
+ */
+
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import database.MusicStore;
+import database.SearchEngine;
+import model.Album;
+import model.Song;
+
+public final class ColumnarScan {
+	// Selective, broad, and shorter than a trigram
+	private static final String[] QUERIES = {"midnight paper", "love", "ri"};
+	private static final int ROUNDS = 10;
+
+	public static void main(String[] args) {
+		int songs = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+		ArrayList<Album> albums = SyntheticCatalog.albums(songs, 42);
+		MusicStore store = new MusicStore(albums);
+		// Measure the scans, not the result cache
+		store.setQueryCacheCapacity(0);
+		ArrayList<Song> inventory = new ArrayList<Song>(store.searchSongsByTitle(""));
+		ArrayList<String> lowercase = new ArrayList<String>(inventory.size());
+		for (Song song : inventory) {
+			lowercase.add(song.getTitle().toLowerCase(Locale.ROOT));
+		}
+
+		long start = System.nanoTime();
+		store.setSearchEngine(SearchEngine.COLUMNAR);
+		store.searchSongsByTitle("");
+		System.out.printf("Songs: %d | Columnar build: %.1f ms%n", inventory.size(), (System.nanoTime() - start) / 1e6);
+
+		System.out.println("query            objects M/s   cached M/s   columnar M/s   trigram M/s   hits");
+		for (String query : QUERIES) {
+			String target = query.toLowerCase(Locale.ROOT);
+			double objects = throughput(inventory.size(), () -> scanObjects(inventory, target));
+			double cached = throughput(inventory.size(), () -> scanCached(lowercase, target));
+			store.setSearchEngine(SearchEngine.COLUMNAR);
+			double columnar = throughput(inventory.size(), () -> store.searchSongsByTitle(query).size());
+			store.setSearchEngine(SearchEngine.TRIGRAM);
+			double trigram = throughput(inventory.size(), () -> store.searchSongsByTitle(query).size());
+			System.out.printf("%-16s %11.1f %12.1f %14.1f %13.1f %6d%n", query, objects, cached, columnar, trigram,
+					scanObjects(inventory, target));
+		}
+	}
+
+	/**
+	 * Runs the search a few times to warm up, then ROUNDS more times.
+	 *
+	 * @return rate  Millions of songs scanned per second
+	 */
+	private static double throughput(int songs, Search search) {
+		long hits = 0;
+		for (int i = 0; i < 3; i++) {
+			hits += search.run();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++) {
+			hits += search.run();
+		}
+		long nanos = System.nanoTime() - start;
+		if (hits < 0) {
+			System.out.println(hits);
+		}
+		return (double) songs * ROUNDS / nanos * 1e3;
+	}
+
+	private static int scanObjects(List<Song> inventory, String target) {
+		int hits = 0;
+		for (Song song : inventory) {
+			if (song.getTitle().toLowerCase(Locale.ROOT).contains(target)) {
+				hits++;
+			}
+		}
+		return hits;
+	}
+
+	private static int scanCached(List<String> lowercase, String target) {
+		int hits = 0;
+		for (String title : lowercase) {
+			if (title.contains(target)) {
+				hits++;
+			}
+		}
+		return hits;
+	}
+
+	private interface Search {
+		int run();
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * File: FacetScan.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This program measures faceted filtering on a synthetic catalog
+ * (1,000,000 songs by default): the one-off build of the bitmap posting
+ * lists (FacetIndex), then the average time of a few genre / year / artist
+ * filters answered with bitmap operations, facet counts included, against
+ * rescanning every album and creating its songs, as searchSongsByGenre did.
+ *
+ * Usage: java -Xmx3g -cp bin bench.FacetScan [songs]
+ */
+
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import database.FacetFilter;
+import database.MusicStore;
+import model.Album;
+import model.InstanceRegistry;
+import model.Song;
+
+public final class FacetScan {
+	private static final int ROUNDS = 20;
+
+	public static void main(String[] args) {
+		int songs = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+		ArrayList<Album> albums = SyntheticCatalog.albums(songs, 42);
+		MusicStore store = new MusicStore(albums);
+		List<Album> stock = store.searchAlbumsByTitle("");
+
+		long start = System.nanoTime();
+		store.filterSongs(FacetFilter.all(), 1);
+		System.out.printf("Songs: %d | Facet build: %.1f ms%n", songs, (System.nanoTime() - start) / 1e6);
+
+		System.out.println("filter                                           bitmap ms   scan ms    matches");
+		measure(store, stock, FacetFilter.genre("Rock"),
+				album -> album.getGenre().equals("Rock"));
+		measure(store, stock, FacetFilter.genre("Rock").and(FacetFilter.years(1990, 1999)),
+				album -> album.getGenre().equals("Rock") && year(album) >= 1990 && year(album) <= 1999);
+		measure(store, stock, FacetFilter.genre("Rock").or(FacetFilter.genre("Jazz"))
+				.and(FacetFilter.artist("Artist 7").not()),
+				album -> (album.getGenre().equals("Rock") || album.getGenre().equals("Jazz"))
+						&& !album.getArtist().equals("Artist 7"));
+	}
+
+	private static void measure(MusicStore store, List<Album> stock, FacetFilter filter, AlbumTest test) {
+		long matches = 0;
+		for (int i = 0; i < 3; i++) {
+			matches += store.filterSongs(filter, 10).getTotal() + scan(stock, test).size();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++) {
+			matches += store.filterSongs(filter, 10).getTotal();
+		}
+		double bitmap = (System.nanoTime() - start) / 1e6 / ROUNDS;
+		start = System.nanoTime();
+		int total = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			total = scan(stock, test).size();
+		}
+		double scan = (System.nanoTime() - start) / 1e6 / ROUNDS;
+		if (matches < 0) {
+			System.out.println(matches);
+		}
+		System.out.printf("%-48s %9.2f %9.2f %10d%n", filter, bitmap, scan, total);
+	}
+
+	private static ArrayList<Song> scan(List<Album> stock, AlbumTest test) {
+		ArrayList<Song> result = new ArrayList<Song>();
+		for (Album album : stock) {
+			if (test.matches(album)) {
+				for (String song : album.getSongs()) {
+					result.add(InstanceRegistry.song(song, album.getTitle(), album.getArtist()));
+				}
+			}
+		}
+		return result;
+	}
+
+	private static int year(Album album) {
+		return Integer.parseInt(album.getYear());
+	}
+
+	private interface AlbumTest {
+		boolean matches(Album album);
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * File: FuzzySearch.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This program compares MusicStore.fuzzySearchSongsByTitle (trigram
+ * candidates plus bounded edit distance, see FuzzyIndex) against a naive
+ * scan computing the edit distance of the query to every song title, on a
+ * synthetic catalog (1,000,000 songs by default). Both use the same
+ * distance and edit bound, so the index should find what the scan finds.
+ *
+ * Usage: java -Xmx3g -cp bin bench.FuzzySearch [songs]
+ */
+
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import database.FuzzyIndex;
+import database.MusicStore;
+import model.Album;
+import model.Song;
+
+public final class FuzzySearch {
+	// Misspelled forms of phrases built from SyntheticCatalog's word list
+	private static final String[] QUERIES = {
+		"lvoe", "rivr of gold", "midnight shadw", "brokn heart", "silvr storm", "summr citty"
+	};
+	private static final int LIMIT = 10;
+
+	public static void main(String[] args) {
+		int songs = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+		ArrayList<Album> albums = SyntheticCatalog.albums(songs, 42);
+		MusicStore store = new MusicStore(albums);
+		List<Song> catalog = store.streamSongsByTitle("").toList();
+		System.out.println("Songs: " + catalog.size() + " | Result limit: " + LIMIT);
+
+		// Warm up both paths
+		for (String query : QUERIES) {
+			store.fuzzySearchSongsByTitle(query, LIMIT);
+			scan(catalog, query);
+		}
+
+		System.out.println("query                index ms   scan ms   index hits   scan hits");
+		for (String query : QUERIES) {
+			long start = System.nanoTime();
+			int hits = store.fuzzySearchSongsByTitle(query, LIMIT).size();
+			long index_nanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			int scan_hits = scan(catalog, query);
+			long scan_nanos = System.nanoTime() - start;
+			System.out.printf("%-18s %10.2f %9.1f %12d %11d%n", query, index_nanos / 1e6, scan_nanos / 1e6,
+					hits, Math.min(scan_hits, LIMIT));
+		}
+	}
+
+	/**
+	 * The naive approach: the bounded edit distance against every title.
+	 *
+	 * @return hits  Number of titles within the query's edit bound
+	 */
+	private static int scan(List<Song> catalog, String query) {
+		String target = query.toLowerCase(Locale.ROOT);
+		int edits = FuzzyIndex.maxEdits(target);
+		int hits = 0;
+		for (Song song : catalog) {
+			if (FuzzyIndex.distance(target, song.getTitle().toLowerCase(Locale.ROOT)) <= edits) {
+				hits++;
+			}
+		}
+		return hits;
+	}
+}
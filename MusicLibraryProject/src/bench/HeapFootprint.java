@@ -0,0 +1,99 @@
+/*
+ * File: HeapFootprint.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This program compares the retained heap of a synthetic catalog
+ * (1,000,000 songs by default) stored with plain per-row strings against
+ * the same catalog stored as Song objects, whose album and artist fields are
+ * interned through the SymbolTable.
+ *
+ * Both layouts are fed fresh String instances for every field of every row,
+ * as a file parser or a users.dat deserialization would produce them.
+ *
+ * Usage: java -Xmx2g -cp bin bench.HeapFootprint [songs]
+ */
+
+package bench;
+
+import java.util.ArrayList;
+
+import model.Album;
+import model.Song;
+import model.SymbolTable;
+
+public final class HeapFootprint {
+
+	/**
+	 * The old layout of Song: three independent String references per row.
+	 */
+	private static final class PlainSong {
+		final String title;
+		final String album;
+		final String artist;
+
+		PlainSong(String title, String album, String artist) {
+			this.title = title;
+			this.album = album;
+			this.artist = artist;
+		}
+	}
+
+	public static void main(String[] args) {
+		int songs = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+		ArrayList<Album> albums = SyntheticCatalog.albums(songs, 42);
+		int symbols_before = SymbolTable.size();
+
+		long start = usedHeap();
+		PlainSong[] plain = new PlainSong[songs];
+		int i = 0;
+		for (Album album : albums) {
+			for (String title : album.getSongs()) {
+				plain[i++] = new PlainSong(new String(title), new String(album.getTitle()),
+						new String(album.getArtist()));
+			}
+		}
+		long plain_bytes = usedHeap() - start;
+		int check = plain.length;
+		plain = null;
+
+		start = usedHeap();
+		Song[] encoded = new Song[songs];
+		i = 0;
+		for (Album album : albums) {
+			for (String title : album.getSongs()) {
+				encoded[i++] = new Song(new String(title), new String(album.getTitle()),
+						new String(album.getArtist()));
+			}
+		}
+		long encoded_bytes = usedHeap() - start;
+		check += encoded.length;
+
+		System.out.println("Songs: " + songs + " | Albums: " + albums.size()
+				+ " | Interned values: " + SymbolTable.size() + " (" + symbols_before + " before rows)");
+		System.out.printf("Per-row strings:     %8.1f MB  (%5.1f bytes/song)%n",
+				plain_bytes / 1e6, (double) plain_bytes / songs);
+		System.out.printf("Interned:            %8.1f MB  (%5.1f bytes/song)%n",
+				encoded_bytes / 1e6, (double) encoded_bytes / songs);
+		System.out.printf("Saved:               %8.1f MB  (%4.1f%%)%n",
+				(plain_bytes - encoded_bytes) / 1e6, 100.0 * (plain_bytes - encoded_bytes) / plain_bytes);
+		if (check != 2 * songs) {
+			System.out.println("Unexpected row count: " + check);
+		}
+	}
+
+	/**
+	 * Heap in use after encouraging a full collection.
+	 */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * File: LazyStartup.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This program compares an eagerly parsed MusicStore with a lazy
+ * one (MusicStore.lazy) over a synthetic catalog written out as album files
+ * (200,000 songs by default, in a temporary resources directory). It reports
+ * the startup time of each, the time until the first song search returns,
+ * and the heap retained after that search.
+ *
+ * Usage: java -Xmx3g -cp bin bench.LazyStartup [songs] [cached albums]
+ */
+
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import database.CatalogLoader;
+import database.MusicStore;
+import model.Album;
+
+public final class LazyStartup {
+
+	public static void main(String[] args) throws IOException {
+		int songs = (args.length > 0) ? Integer.parseInt(args[0]) : 200_000;
+		int cached = (args.length > 1) ? Integer.parseInt(args[1]) : MusicStore.LAZY_CACHE_ALBUMS;
+		Path resources = write(SyntheticCatalog.albums(songs, 42));
+		System.out.println("Songs: " + songs + " | Album files: " + resources.toFile().list().length
+				+ " | Lazy cache: " + cached + " albums");
+
+		long base = usedHeap();
+		long start = System.nanoTime();
+		MusicStore eager = new MusicStore(new CatalogLoader(resources).load());
+		long startup = System.nanoTime() - start;
+		int found = eager.searchSongsByTitle("river").size();
+		long first = System.nanoTime() - start;
+		report("Eager", startup, first, usedHeap() - base, found);
+		eager = null;
+
+		base = usedHeap();
+		start = System.nanoTime();
+		MusicStore lazy = MusicStore.lazy(resources, cached);
+		startup = System.nanoTime() - start;
+		found = lazy.searchSongsByTitle("river").size();
+		first = System.nanoTime() - start;
+		report("Lazy", startup, first, usedHeap() - base, found);
+		if (lazy.getCachedAlbumCount() > cached) {
+			System.out.println("Cache exceeded its bound: " + lazy.getCachedAlbumCount());
+		}
+	}
+
+	private static void report(String name, long startup, long first, long heap, int found) {
+		System.out.printf("%-6s startup: %7.1f ms | first song search: %7.1f ms | heap: %7.1f MB | matches: %d%n",
+				name, startup / 1e6, first / 1e6, heap / 1e6, found);
+	}
+
+	/**
+	 * Writes the albums as an albums.txt index and one Title_Artist.txt file
+	 * per album, in a new temporary directory.
+	 */
+	private static Path write(ArrayList<Album> albums) throws IOException {
+		Path dir = Files.createTempDirectory("resources");
+		try (BufferedWriter index = Files.newBufferedWriter(dir.resolve(CatalogLoader.INDEX_FILE))) {
+			for (Album album : albums) {
+				index.write(album.getTitle() + "," + album.getArtist());
+				index.newLine();
+				Path file = dir.resolve(album.getTitle() + "_" + album.getArtist() + ".txt");
+				try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+					writer.write(album.getTitle() + "," + album.getArtist() + "," + album.getGenre() + ","
+							+ album.getYear());
+					writer.newLine();
+					for (String song : album.getSongs()) {
+						writer.write(song);
+						writer.newLine();
+					}
+				}
+			}
+		}
+		return dir;
+	}
+
+	/**
+	 * Heap in use after encouraging a full collection.
+	 */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
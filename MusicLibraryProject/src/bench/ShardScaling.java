@@ -0,0 +1,83 @@
+/*
+ * File: ShardScaling.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This program measures how MusicStore song-title search throughput
+ * scales with the number of index shards, on a synthetic catalog (1,000,000
+ * songs by default). The shard count doubles from 1 up to the number of
+ * available cores; each configuration answers the same query mix for a
+ * fixed time after a warm-up, and its results are checked against the
+ * single-shard store so the merge order is verified as well.
+ *
+ * Usage: java -Xmx3g -cp bin bench.ShardScaling [songs] [seconds]
+ */
+
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import database.MusicStore;
+import model.Album;
+import model.Song;
+
+public final class ShardScaling {
+	private static final String[] QUERIES = {
+		"love", "river", "night", "gold", "heart of", "silver storm", "dream", "on the"
+	};
+
+	public static void main(String[] args) {
+		int songs = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+		double seconds = (args.length > 1) ? Double.parseDouble(args[1]) : 3;
+		int cores = Runtime.getRuntime().availableProcessors();
+		ArrayList<Album> albums = SyntheticCatalog.albums(songs, 42);
+
+		MusicStore single = new MusicStore(albums, 1);
+		List<List<Song>> expected = new ArrayList<List<Song>>();
+		for (String query : QUERIES) {
+			expected.add(single.searchSongsByTitle(query));
+		}
+
+		System.out.println("Songs: " + songs + " | Cores: " + cores + " | Queries: " + QUERIES.length);
+		System.out.println("shards   queries/s   speedup");
+		double baseline = 0;
+		for (int shards = 1; shards <= cores; shards *= 2) {
+			MusicStore store = (shards == 1) ? single : new MusicStore(albums, shards);
+			// Measure the searches, not the result cache
+			store.setQueryCacheCapacity(0);
+			for (int q = 0; q < QUERIES.length; q++) {
+				if (!store.searchSongsByTitle(QUERIES[q]).equals(expected.get(q))) {
+					System.out.println("Result mismatch for \"" + QUERIES[q] + "\" at " + shards + " shards");
+				}
+			}
+			run(store, seconds / 3);
+			double throughput = run(store, seconds);
+			if (shards == 1) {
+				baseline = throughput;
+			}
+			System.out.printf("%6d  %10.1f   %6.2fx%n", store.getShardCount(), throughput, throughput / baseline);
+		}
+	}
+
+	/**
+	 * Runs the query mix repeatedly for the given time.
+	 *
+	 * @return throughput  Queries answered per second
+	 */
+	private static double run(MusicStore store, double seconds) {
+		long end = System.nanoTime() + (long) (seconds * 1e9);
+		long start = System.nanoTime();
+		long queries = 0;
+		long results = 0;
+		while (System.nanoTime() < end) {
+			for (String query : QUERIES) {
+				results += store.searchSongsByTitle(query).size();
+				queries++;
+			}
+		}
+		if (results < 0) {
+			System.out.println(results);
+		}
+		return queries / ((System.nanoTime() - start) / 1e9);
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * File: SyntheticCatalog.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file generates large, deterministic catalogs for the
+ * benchmark programs in this package, since the resources directory only
+ * holds fifteen albums. Titles and names are built from a small word list,
+ * with roughly ten songs per album, twenty albums per artist, a dozen
+ * genres and sixty-five release years.
+ *
+ * Every generated string is a new instance, as it would be when parsed
+ * from a file line by line, so sharing only happens where the program
+ * itself deduplicates.
+ */
+
+package bench;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import model.Album;
+
+public final class SyntheticCatalog {
+	public static final int SONGS_PER_ALBUM = 10;
+	public static final int ALBUMS_PER_ARTIST = 20;
+
+	private static final String[] WORDS = {
+		"love", "night", "rain", "fire", "heart", "river", "dream", "blue",
+		"gold", "road", "home", "light", "shadow", "summer", "city", "wild",
+		"broken", "morning", "ocean", "stone", "dance", "echo", "silver", "storm",
+		"angel", "lonely", "sweet", "midnight", "electric", "paper", "velvet", "dust"
+	};
+	private static final String[] GENRES = {
+		"Pop", "Rock", "Jazz", "Blues", "Folk", "Latin", "Country", "Soul",
+		"Alternative", "Electronic", "Classical", "Singer/Songwriter"
+	};
+
+	private SyntheticCatalog() {
+	}
+
+	/**
+	 * Generates albums holding (about) the requested number of songs.
+	 *
+	 * @param  songs   Total number of songs to generate
+	 * @param  seed    Random seed, the same seed always yields the same catalog
+	 * @return albums  ArrayList of generated (unfrozen) albums
+	 */
+	public static ArrayList<Album> albums(int songs, long seed) {
+		Random random = new Random(seed);
+		int album_count = Math.max(1, songs / SONGS_PER_ALBUM);
+		ArrayList<Album> albums = new ArrayList<Album>(album_count);
+		for (int a = 0; a < album_count; a++) {
+			int artist = a / ALBUMS_PER_ARTIST;
+			Album album = new Album(phrase(random, 2) + " " + a, "Artist " + artist,
+					new String(GENRES[random.nextInt(GENRES.length)]),
+					Integer.toString(1960 + random.nextInt(65)));
+			int tracks = (a == album_count - 1) ? songs - a * SONGS_PER_ALBUM : SONGS_PER_ALBUM;
+			for (int t = 0; t < tracks; t++) {
+				album.addSong(phrase(random, 1 + random.nextInt(3)));
+			}
+			albums.add(album);
+		}
+		return albums;
+	}
+
+	/**
+	 * Builds a capitalized phrase of random words, e.g. "Midnight Paper Rain".
+	 */
+	static String phrase(Random random, int words) {
+		StringBuilder builder = new StringBuilder();
+		for (int w = 0; w < words; w++) {
+			String word = WORDS[random.nextInt(WORDS.length)];
+			if (w > 0) {
+				builder.append(' ');
+			}
+			builder.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+		}
+		return builder.toString();
+	}
+}
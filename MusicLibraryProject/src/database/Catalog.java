@@ -0,0 +1,351 @@
+/*
+ * File: Catalog.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file holds one immutable version of the MusicStore's
+ * catalog: its albums, its songs, and the search indexes built over them.
+ * The MusicStore publishes a new Catalog whenever the resources change,
+ * by swapping a single reference, so a search that picked up a Catalog
+ * keeps a consistent view for as long as it runs and never blocks on, or
+ * observes, a reload in progress.
+ *
+ * Functions:
+ * - fromSnapshot(CatalogSnapshot snapshot, long version, int shards): Catalog backed
+ *   by a memory-mapped snapshot, materializing albums and songs lazily.
+ * - fromAlbums(List<Album> albums, long version, int shards): Catalog over in-memory
+ *   albums.
+ * - fromLazy(LazyAlbums lazy, long version, int shards): Catalog reading album track
+ *   lists on demand, whose song indexes are built in the background.
+ * - songTitles() / songArtists() / albumTitles() / albumArtists(): Sharded trigram
+ *   indexes (ShardedIndex), built on first use. Song and album indexes are built
+ *   separately, so album searches never wait for the (larger) song indexes.
+ * - songTitles(SearchEngine engine) / songArtists(...) / albumTitles(...) /
+ *   albumArtists(...): The same columns searched by the chosen engine, the
+ *   trigram indexes or the columnar copy (ColumnarCatalog, built on first use).
+ * - albumFacets() / songFacets(): Genre, year and artist posting lists
+ *   (FacetIndex) over album and song ordinals, built on first use.
+ * - songRanker(): BM25 relevance ranking of songs (SongRanker) over titles,
+ *   artists and album titles, built on first use.
+ * - songTitleTrie() / albumTitleTrie() / artistTrie(): Autocomplete tries
+ *   (PrefixTrie), built on first use. Artists are weighted by song count.
+ */
+
+package database;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import model.Album;
+import model.InstanceRegistry;
+import model.Song;
+
+final class Catalog {
+	final long version;
+	final int shards;
+	final List<Album> albums;
+	final List<Song> songs;
+	final LazyAlbums lazy;
+
+	// Strings the indexes are built from, read straight from the snapshot
+	// when one is open so that searching doesn't materialize every object.
+	private final List<String> song_title_column;
+	private final List<String> song_artist_column;
+	private final List<Integer> song_album_column;
+	private final List<String> album_title_column;
+	private final List<String> album_artist_column;
+	private final List<String> album_genre_column;
+	private final List<String> album_year_column;
+
+	// Trigram indexes, ordinals refer to positions in songs / albums.
+	// Built on the first search rather than when the catalog is published.
+	private ShardedIndex song_titles;
+	private ShardedIndex song_artists;
+	private ShardedIndex album_titles;
+	private ShardedIndex album_artists;
+	private PrefixTrie song_title_trie;
+	private PrefixTrie album_title_trie;
+	private PrefixTrie artist_trie;
+	private ColumnarCatalog columns;
+	private FacetIndex album_facets;
+	private FacetIndex song_facets;
+	private SongRanker song_ranker;
+	private final Object song_lock = new Object();
+	private final Object trie_lock = new Object();
+	private final Object album_lock = new Object();
+	private final Object column_lock = new Object();
+	private final Object facet_lock = new Object();
+	private final Object ranker_lock = new Object();
+
+	private Catalog(long version, int shards, List<Album> albums, List<Song> songs, LazyAlbums lazy,
+			List<String> song_title_column, List<String> song_artist_column, List<Integer> song_album_column,
+			List<String> album_title_column, List<String> album_artist_column, List<String> album_genre_column,
+			List<String> album_year_column) {
+		this.version = version;
+		this.shards = shards;
+		this.albums = albums;
+		this.songs = songs;
+		this.lazy = lazy;
+		this.song_title_column = song_title_column;
+		this.song_artist_column = song_artist_column;
+		this.song_album_column = song_album_column;
+		this.album_title_column = album_title_column;
+		this.album_artist_column = album_artist_column;
+		this.album_genre_column = album_genre_column;
+		this.album_year_column = album_year_column;
+	}
+
+	static Catalog fromSnapshot(CatalogSnapshot snapshot, long version, int shards) {
+		return new Catalog(version, shards, snapshot.albums(), snapshot.songs(), null,
+				snapshot.songTitles(), snapshot.songArtists(), snapshot.songAlbums(),
+				snapshot.albumTitles(), snapshot.albumArtists(), snapshot.albumGenres(), snapshot.albumYears());
+	}
+
+	/**
+	 * Freezes and shares each album, then creates the catalog's songs from
+	 * the albums' track lists, in album order.
+	 */
+	static Catalog fromAlbums(List<Album> albums, long version, int shards) {
+		ArrayList<Album> stock = new ArrayList<Album>(albums.size());
+		ArrayList<String> album_titles = new ArrayList<String>(albums.size());
+		ArrayList<String> album_artists = new ArrayList<String>(albums.size());
+		ArrayList<String> album_genres = new ArrayList<String>(albums.size());
+		ArrayList<String> album_years = new ArrayList<String>(albums.size());
+		ArrayList<Song> songs = new ArrayList<Song>();
+		ArrayList<String> titles = new ArrayList<String>();
+		ArrayList<String> artists = new ArrayList<String>();
+		ArrayList<Integer> song_albums = new ArrayList<Integer>();
+		for (Album album : albums) {
+			album = InstanceRegistry.album(album.freeze());
+			stock.add(album);
+			album_titles.add(album.getTitle());
+			album_artists.add(album.getArtist());
+			album_genres.add(album.getGenre());
+			album_years.add(album.getYear());
+			for (String song : album.getSongs()) {
+				Song add_song = InstanceRegistry.song(song, album.getTitle(), album.getArtist());
+				songs.add(add_song);
+				titles.add(add_song.getTitle());
+				artists.add(add_song.getArtist());
+				song_albums.add(stock.size() - 1);
+			}
+		}
+		return new Catalog(version, shards, Collections.unmodifiableList(stock), Collections.unmodifiableList(songs), null,
+				titles, artists, song_albums, album_titles, album_artists, album_genres, album_years);
+	}
+
+	/**
+	 * Headers are read up front; the song table, then the song indexes, are
+	 * built on a background thread so the first song search finds them ready.
+	 */
+	static Catalog fromLazy(LazyAlbums lazy, long version, int shards) {
+		Catalog catalog = new Catalog(version, shards, lazy.albums(), lazy.songs(), lazy,
+				lazy.songTitles(), lazy.songArtists(), lazy.songAlbums(), lazy.albumTitles(), lazy.albumArtists(),
+				lazy.albumGenres(), lazy.albumYears());
+		lazy.songTable().thenRunAsync(catalog::songTitles);
+		return catalog;
+	}
+
+	ShardedIndex songTitles() {
+		buildSongIndexes();
+		return this.song_titles;
+	}
+
+	ShardedIndex songArtists() {
+		buildSongIndexes();
+		return this.song_artists;
+	}
+
+	ShardedIndex albumTitles() {
+		buildAlbumIndexes();
+		return this.album_titles;
+	}
+
+	ShardedIndex albumArtists() {
+		buildAlbumIndexes();
+		return this.album_artists;
+	}
+
+	ColumnSearch songTitles(SearchEngine engine) {
+		return (engine == SearchEngine.COLUMNAR) ? columns().songTitles() : songTitles();
+	}
+
+	ColumnSearch songArtists(SearchEngine engine) {
+		return (engine == SearchEngine.COLUMNAR) ? columns().songArtists() : songArtists();
+	}
+
+	ColumnSearch albumTitles(SearchEngine engine) {
+		return (engine == SearchEngine.COLUMNAR) ? columns().albumTitles() : albumTitles();
+	}
+
+	ColumnSearch albumArtists(SearchEngine engine) {
+		return (engine == SearchEngine.COLUMNAR) ? columns().albumArtists() : albumArtists();
+	}
+
+	ColumnarCatalog columns() {
+		synchronized (this.column_lock) {
+			if (this.columns == null) {
+				this.columns = new ColumnarCatalog(this.song_title_column, this.song_artist_column,
+						this.song_album_column, this.album_title_column, this.album_artist_column);
+			}
+			return this.columns;
+		}
+	}
+
+	/**
+	 * Facet indexes over album ordinals and song ordinals, built on first
+	 * use. A song takes the genre, year and artist of its album.
+	 */
+	FacetIndex albumFacets() {
+		buildFacets();
+		return this.album_facets;
+	}
+
+	FacetIndex songFacets() {
+		buildFacets();
+		return this.song_facets;
+	}
+
+	private void buildFacets() {
+		synchronized (this.facet_lock) {
+			if (this.album_facets == null) {
+				this.album_facets = new FacetIndex(this.album_genre_column, this.album_year_column,
+						this.album_artist_column);
+				this.song_facets = new FacetIndex(bySong(this.album_genre_column), bySong(this.album_year_column),
+						this.song_artist_column);
+			}
+		}
+	}
+
+	/**
+	 * Relevance ranking over song titles, artists and album titles, built on
+	 * first use. Album title matches are found in the album index, then
+	 * widened to the albums' songs.
+	 */
+	SongRanker songRanker() {
+		synchronized (this.ranker_lock) {
+			if (this.song_ranker == null) {
+				int[] starts = albumStarts();
+				List<SongRanker.Field> fields = List.of(
+						new SongRanker.Field(songTitles().keys(), term -> songTitles().search(term),
+								SongRanker.TITLE_WEIGHT),
+						new SongRanker.Field(songArtists().keys(), term -> songArtists().search(term),
+								SongRanker.ARTIST_WEIGHT),
+						new SongRanker.Field(bySong(albumTitles().keys()),
+								term -> songsOf(albumTitles().search(term), starts), SongRanker.ALBUM_WEIGHT));
+				this.song_ranker = new SongRanker(this.song_album_column.size(), fields);
+			}
+			return this.song_ranker;
+		}
+	}
+
+	/**
+	 * This helper function returns the ordinal of each album's first song
+	 * (songs are stored album by album), plus the song count at the end.
+	 */
+	private int[] albumStarts() {
+		int[] starts = new int[this.album_title_column.size() + 1];
+		int next = 0;
+		for (int i = 0; i < this.song_album_column.size(); i++) {
+			int album = this.song_album_column.get(i);
+			while (next <= album) {
+				starts[next++] = i;
+			}
+		}
+		while (next < starts.length) {
+			starts[next++] = this.song_album_column.size();
+		}
+		return starts;
+	}
+
+	/**
+	 * Ascending song ordinals of the given ascending album ordinals.
+	 */
+	private static int[] songsOf(int[] albums, int[] starts) {
+		int count = 0;
+		for (int album : albums) {
+			count += starts[album + 1] - starts[album];
+		}
+		int[] songs = new int[count];
+		int next = 0;
+		for (int album : albums) {
+			for (int song = starts[album]; song < starts[album + 1]; song++) {
+				songs[next++] = song;
+			}
+		}
+		return songs;
+	}
+
+	/**
+	 * This helper function views an album column as a song column.
+	 */
+	private List<String> bySong(List<String> album_column) {
+		return new AbstractList<String>() {
+			public String get(int index) {
+				return album_column.get(song_album_column.get(index));
+			}
+
+			public int size() {
+				return song_album_column.size();
+			}
+		};
+	}
+
+	PrefixTrie songTitleTrie() {
+		buildTries();
+		return this.song_title_trie;
+	}
+
+	PrefixTrie albumTitleTrie() {
+		buildTries();
+		return this.album_title_trie;
+	}
+
+	PrefixTrie artistTrie() {
+		buildTries();
+		return this.artist_trie;
+	}
+
+	private void buildTries() {
+		synchronized (this.trie_lock) {
+			if (this.song_title_trie == null) {
+				PrefixTrie songs = new PrefixTrie();
+				PrefixTrie artists = new PrefixTrie();
+				for (int i = 0; i < this.song_title_column.size(); i++) {
+					songs.add(this.song_title_column.get(i));
+					artists.add(this.song_artist_column.get(i));
+				}
+				PrefixTrie albums = new PrefixTrie();
+				for (String title : this.album_title_column) {
+					albums.add(title);
+				}
+				this.album_title_trie = albums;
+				this.artist_trie = artists;
+				this.song_title_trie = songs;
+			}
+		}
+	}
+
+	/**
+	 * These helper functions build the trigram indexes the first time one of
+	 * them is needed.
+	 */
+	private void buildSongIndexes() {
+		synchronized (this.song_lock) {
+			if (this.song_titles == null) {
+				this.song_titles = new ShardedIndex(this.song_title_column, this.shards);
+				this.song_artists = new ShardedIndex(this.song_artist_column, this.shards);
+			}
+		}
+	}
+
+	private void buildAlbumIndexes() {
+		synchronized (this.album_lock) {
+			if (this.album_titles == null) {
+				this.album_titles = new ShardedIndex(this.album_title_column, this.shards);
+				this.album_artists = new ShardedIndex(this.album_artist_column, this.shards);
+			}
+		}
+	}
+}
@@ -0,0 +1,491 @@
+/*
+ * File: CatalogImporter.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file bulk imports albums into the MusicStore from a single
+ * large dump, instead of one Title_Artist.txt file per album listed in
+ * albums.txt. The dump is read line by line through a buffered reader, one
+ * album per line, and handed over in batches of BATCH_SIZE albums, so the
+ * importer's own memory stays constant whatever the size of the file.
+ *
+ * Two formats are accepted, chosen by file extension:
+ * - .csv: title,artist,genre,year,track 1,track 2,... (RFC 4180 quoting, so
+ *   titles may hold commas). A first non-blank line starting with "title,"
+ *   is taken as a column header and skipped.
+ * - .jsonl / .ndjson: one JSON object per line, e.g.
+ *   {"title": "21", "artist": "Adele", "genre": "Pop", "year": 2011,
+ *    "tracks": ["Rolling in the Deep", "Rumour Has It"]}
+ * Blank lines are ignored in both.
+ *
+ * Malformed lines, albums missing a title, artist, genre or year, albums
+ * without tracks, and albums already in the catalog (or earlier in the
+ * dump, compared by folded title and artist) are rejected. Each rejection
+ * is counted, and the first MAX_DIAGNOSTICS are kept with their line number.
+ *
+ * Functions:
+ * - run(Collection<Album> existing, Consumer<List<Album>> batches): Streams the
+ *   dump, passing every batch of accepted albums to the consumer.
+ * - getRowCount() / getAlbumCount() / getSongCount() / getRejectedCount():
+ *   Counts from the last run.
+ * - getDiagnostics(): Line numbers and reasons of the first rejections.
+ * - getMillis() / getRowsPerSecond() / getReport(): Timing of the last run.
+ */
+
+package database;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import model.Album;
+
+public class CatalogImporter {
+	public static final int BATCH_SIZE = 4096;
+	public static final int MAX_DIAGNOSTICS = 100;
+
+	private final Path file;
+	private final boolean json;
+	private long rows;
+	private long album_count;
+	private long song_count;
+	private long rejected;
+	private ArrayList<String> diagnostics = new ArrayList<String>();
+	private long nanos;
+
+	/**
+	 * @param file  Path of the .csv or .jsonl dump to import
+	 */
+	public CatalogImporter(Path file) {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		if (name.endsWith(".csv")) {
+			this.json = false;
+		} else if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+			this.json = true;
+		} else {
+			throw new IllegalArgumentException("Unsupported import format (expected .csv or .jsonl): " + file);
+		}
+		this.file = file;
+	}
+
+	/**
+	 * Reads the whole dump. Accepted albums are collected into batches of
+	 * BATCH_SIZE, each passed to the consumer as soon as it fills (the last
+	 * one possibly smaller), in file order. Counters and diagnostics of a
+	 * previous run are reset.
+	 *
+	 * @param  existing     Albums already in the catalog, which the dump may not repeat
+	 * @param  batches      Receives each batch of accepted (unfrozen) albums
+	 * @throws IOException  if the file cannot be read
+	 */
+	public void run(Collection<Album> existing, Consumer<List<Album>> batches) throws IOException {
+		long start = System.nanoTime();
+		this.rows = 0;
+		this.album_count = 0;
+		this.song_count = 0;
+		this.rejected = 0;
+		this.diagnostics = new ArrayList<String>();
+
+		HashSet<String> keys = new HashSet<String>();
+		for (Album album : existing) {
+			keys.add(key(album));
+		}
+
+		ArrayList<Album> batch = new ArrayList<Album>(BATCH_SIZE);
+		try (BufferedReader reader = Files.newBufferedReader(this.file)) {
+			String line;
+			long number = 0;
+			boolean first = true;
+			while ((line = reader.readLine()) != null) {
+				number++;
+				if (line.isBlank()) {
+					continue;
+				}
+				// Only the first non-blank line may be the column header
+				boolean header = first && !this.json && line.toLowerCase(Locale.ROOT).startsWith("title,");
+				first = false;
+				if (header) {
+					continue;
+				}
+				this.rows++;
+				Album album;
+				try {
+					album = this.json ? parseJson(line) : parseCsv(line);
+				} catch (IllegalArgumentException e) {
+					reject(number, e.getMessage());
+					continue;
+				}
+				if (!keys.add(key(album))) {
+					reject(number, "duplicate album " + album.getTitle() + " by " + album.getArtist());
+					continue;
+				}
+				batch.add(album);
+				this.album_count++;
+				this.song_count += album.getSongs().size();
+				if (batch.size() == BATCH_SIZE) {
+					batches.accept(batch);
+					batch = new ArrayList<Album>(BATCH_SIZE);
+				}
+			}
+		}
+		if (!batch.isEmpty()) {
+			batches.accept(batch);
+		}
+		this.nanos = System.nanoTime() - start;
+	}
+
+	/**
+	 * @return rows  Non-blank data lines read, accepted or not
+	 */
+	public long getRowCount() {
+		return this.rows;
+	}
+
+	public long getAlbumCount() {
+		return this.album_count;
+	}
+
+	public long getSongCount() {
+		return this.song_count;
+	}
+
+	public long getRejectedCount() {
+		return this.rejected;
+	}
+
+	/**
+	 * @return diagnostics  "line N: reason" for the first MAX_DIAGNOSTICS rejected lines
+	 */
+	public List<String> getDiagnostics() {
+		return new ArrayList<String>(this.diagnostics);
+	}
+
+	public long getMillis() {
+		return this.nanos / 1_000_000;
+	}
+
+	public double getRowsPerSecond() {
+		return (this.nanos == 0) ? 0 : this.rows * 1e9 / this.nanos;
+	}
+
+	/**
+	 * @return report  String summary of the last run
+	 */
+	public String getReport() {
+		return String.format("import: %d rows in %d ms (%.0f rows/s) | albums: %d | songs: %d | rejected: %d",
+				this.rows, getMillis(), getRowsPerSecond(), this.album_count, this.song_count, this.rejected);
+	}
+
+	private void reject(long line, String reason) {
+		this.rejected++;
+		if (this.diagnostics.size() < MAX_DIAGNOSTICS) {
+			this.diagnostics.add("line " + line + ": " + reason);
+		}
+	}
+
+	/**
+	 * This helper function builds an album from its fields, checking that
+	 * none is missing.
+	 */
+	private static Album album(String title, String artist, String genre, String year, List<String> tracks) {
+		if (isBlank(title) || isBlank(artist) || isBlank(genre) || isBlank(year)) {
+			throw new IllegalArgumentException("missing title, artist, genre or year");
+		}
+		Album album = new Album(title.trim(), artist.trim(), genre.trim(), year.trim());
+		for (String track : tracks) {
+			if (!isBlank(track)) {
+				album.addSong(track.trim());
+			}
+		}
+		if (album.getSongs().isEmpty()) {
+			throw new IllegalArgumentException("album " + title.trim() + " has no tracks");
+		}
+		return album;
+	}
+
+	private static boolean isBlank(String value) {
+		return value == null || value.isBlank();
+	}
+
+	private static String key(Album album) {
+		return album.getTitleKey() + "\u0000" + album.getArtistKey();
+	}
+
+	/**
+	 * This helper function splits one CSV line into its fields: title,
+	 * artist, genre, year, then the tracks.
+	 */
+	static Album parseCsv(String line) {
+		ArrayList<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		int i = 0;
+		while (true) {
+			field.setLength(0);
+			if (i < line.length() && line.charAt(i) == '"') {
+				// Quoted field, "" standing for a quote
+				i++;
+				while (true) {
+					if (i >= line.length()) {
+						throw new IllegalArgumentException("unterminated quoted field");
+					}
+					char c = line.charAt(i++);
+					if (c == '"') {
+						if (i < line.length() && line.charAt(i) == '"') {
+							field.append('"');
+							i++;
+						} else {
+							break;
+						}
+					} else {
+						field.append(c);
+					}
+				}
+				if (i < line.length() && line.charAt(i) != ',') {
+					throw new IllegalArgumentException("unexpected character after quoted field at column " + (i + 1));
+				}
+			} else {
+				while (i < line.length() && line.charAt(i) != ',') {
+					field.append(line.charAt(i++));
+				}
+			}
+			fields.add(field.toString());
+			if (i >= line.length()) {
+				break;
+			}
+			i++; // the comma
+		}
+		if (fields.size() < 4) {
+			throw new IllegalArgumentException("expected title,artist,genre,year,tracks... but found "
+					+ fields.size() + " field(s)");
+		}
+		return album(fields.get(0), fields.get(1), fields.get(2), fields.get(3), fields.subList(4, fields.size()));
+	}
+
+	/**
+	 * This helper function reads one JSON line into an album. Unknown keys
+	 * are ignored; the year may be a string or a number.
+	 */
+	static Album parseJson(String line) {
+		JsonReader reader = new JsonReader(line);
+		Object value = reader.value();
+		reader.end();
+		if (!(value instanceof Map)) {
+			throw new IllegalArgumentException("expected a JSON object");
+		}
+		Map<?, ?> object = (Map<?, ?>) value;
+		ArrayList<String> tracks = new ArrayList<String>();
+		Object list = object.get("tracks");
+		if (list instanceof List) {
+			for (Object track : (List<?>) list) {
+				if (!(track instanceof String)) {
+					throw new IllegalArgumentException("track titles must be strings");
+				}
+				tracks.add((String) track);
+			}
+		} else if (list != null) {
+			throw new IllegalArgumentException("\"tracks\" must be an array");
+		}
+		return album(text(object.get("title")), text(object.get("artist")), text(object.get("genre")),
+				text(object.get("year")), tracks);
+	}
+
+	private static String text(Object value) {
+		if (value instanceof Double && (Double) value == Math.rint((Double) value)) {
+			return String.valueOf(((Double) value).longValue());
+		}
+		return (value == null || value instanceof Map || value instanceof List) ? null : value.toString();
+	}
+
+	/**
+	 * Minimal JSON reader for a single line: objects become maps, arrays
+	 * lists, numbers doubles.
+	 */
+	private static final class JsonReader {
+		private final String text;
+		private int position;
+
+		JsonReader(String text) {
+			this.text = text;
+		}
+
+		Object value() {
+			skipSpaces();
+			if (this.position >= this.text.length()) {
+				throw error("unexpected end of line");
+			}
+			char c = this.text.charAt(this.position);
+			switch (c) {
+				case '{':
+					return object();
+				case '[':
+					return array();
+				case '"':
+					return string();
+				case 't':
+					return literal("true", Boolean.TRUE);
+				case 'f':
+					return literal("false", Boolean.FALSE);
+				case 'n':
+					return literal("null", null);
+				default:
+					return number();
+			}
+		}
+
+		void end() {
+			skipSpaces();
+			if (this.position != this.text.length()) {
+				throw error("unexpected content after the JSON value");
+			}
+		}
+
+		private Map<String, Object> object() {
+			LinkedHashMap<String, Object> object = new LinkedHashMap<String, Object>();
+			this.position++;
+			skipSpaces();
+			if (peek() == '}') {
+				this.position++;
+				return object;
+			}
+			while (true) {
+				skipSpaces();
+				if (peek() != '"') {
+					throw error("expected a key");
+				}
+				String key = string();
+				skipSpaces();
+				expect(':');
+				object.put(key, value());
+				skipSpaces();
+				if (peek() == ',') {
+					this.position++;
+				} else {
+					expect('}');
+					return object;
+				}
+			}
+		}
+
+		private List<Object> array() {
+			ArrayList<Object> array = new ArrayList<Object>();
+			this.position++;
+			skipSpaces();
+			if (peek() == ']') {
+				this.position++;
+				return array;
+			}
+			while (true) {
+				array.add(value());
+				skipSpaces();
+				if (peek() == ',') {
+					this.position++;
+				} else {
+					expect(']');
+					return array;
+				}
+			}
+		}
+
+		private String string() {
+			StringBuilder value = new StringBuilder();
+			this.position++;
+			while (true) {
+				if (this.position >= this.text.length()) {
+					throw error("unterminated string");
+				}
+				char c = this.text.charAt(this.position++);
+				if (c == '"') {
+					return value.toString();
+				}
+				if (c != '\\') {
+					value.append(c);
+					continue;
+				}
+				if (this.position >= this.text.length()) {
+					throw error("unterminated string");
+				}
+				char escape = this.text.charAt(this.position++);
+				switch (escape) {
+					case 'n':
+						value.append('\n');
+						break;
+					case 't':
+						value.append('\t');
+						break;
+					case 'r':
+						value.append('\r');
+						break;
+					case 'b':
+						value.append('\b');
+						break;
+					case 'f':
+						value.append('\f');
+						break;
+					case 'u':
+						if (this.position + 4 > this.text.length()) {
+							throw error("bad unicode escape");
+						}
+						try {
+							value.append((char) Integer.parseInt(this.text.substring(this.position, this.position + 4), 16));
+						} catch (NumberFormatException e) {
+							throw error("bad unicode escape");
+						}
+						this.position += 4;
+						break;
+					default:
+						// \" \\ \/
+						value.append(escape);
+				}
+			}
+		}
+
+		private Double number() {
+			int start = this.position;
+			while (this.position < this.text.length() && "+-.eE0123456789".indexOf(this.text.charAt(this.position)) >= 0) {
+				this.position++;
+			}
+			try {
+				return Double.valueOf(this.text.substring(start, this.position));
+			} catch (NumberFormatException e) {
+				throw error("unexpected character '" + this.text.charAt(start) + "'");
+			}
+		}
+
+		private Object literal(String word, Object value) {
+			if (!this.text.startsWith(word, this.position)) {
+				throw error("unexpected character '" + this.text.charAt(this.position) + "'");
+			}
+			this.position += word.length();
+			return value;
+		}
+
+		private char peek() {
+			return (this.position < this.text.length()) ? this.text.charAt(this.position) : '\0';
+		}
+
+		private void expect(char c) {
+			if (peek() != c) {
+				throw error("expected '" + c + "'");
+			}
+			this.position++;
+		}
+
+		private void skipSpaces() {
+			while (this.position < this.text.length() && Character.isWhitespace(this.text.charAt(this.position))) {
+				this.position++;
+			}
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException("malformed JSON, " + message + " at column " + (this.position + 1));
+		}
+	}
+}
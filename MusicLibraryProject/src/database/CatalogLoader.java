@@ -0,0 +1,264 @@
+/*
+ * File: CatalogLoader.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file loads the album files found in a resources directory
+ * for the MusicStore. Rather than walking every file in the directory once
+ * per line of albums.txt, it lists the directory a single time and builds
+ * a (title, artist) -> file map, then parses the matched album files in
+ * parallel with buffered readers.
+ *
+ * Functions:
+ * - load(): Returns the albums referenced in albums.txt, in the same order
+ *   as their lines in albums.txt. Albums referenced without an associated
+ *   .txt file are skipped, as before.
+ * - reload(List<Album> previous, Set<String> changed): Same as load(), but only
+ *   parses the album files that changed, reusing previous albums for the rest.
+ * - albumFiles(): The album files load() would parse, in order, without parsing them.
+ * - getScanMillis() / getIndexMillis() / getParseMillis(): Time spent in each
+ *   load phase during the last call to load().
+ * - getReport(): A one line summary of the per-phase timings.
+ *
+ * - parseAlbum(Path file): Helper function that reads a single album file
+ *   (header line, then one song title per line) into an Album.
+ */
+
+package database;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import model.Album;
+
+public class CatalogLoader {
+	public static final String INDEX_FILE = "albums.txt";
+
+	private Path directory;
+	private long scan_nanos;
+	private long index_nanos;
+	private long parse_nanos;
+	private int parsed_count;
+
+	/**
+	 * @param directory  Path of the resources directory holding albums.txt
+	 *                   and the Title_Artist.txt album files
+	 */
+	public CatalogLoader(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Loads every album listed in albums.txt that has an associated album
+	 * file. The directory is listed once (scan phase), albums.txt is read
+	 * (index phase), then the album files are parsed in parallel (parse
+	 * phase). Results keep the albums.txt ordering regardless of which
+	 * file finished parsing first.
+	 *
+	 * @return albums  ArrayList of loaded albums, in albums.txt order
+	 */
+	public ArrayList<Album> load() {
+		return load(new HashMap<String, Album>(), new HashSet<String>());
+	}
+	
+	/**
+	 * Reloads the albums after a change in the directory. Albums whose file
+	 * is not named in changed are taken from previous instead of being read
+	 * again, so only new or modified album files are parsed. albums.txt is
+	 * always re-read, as it decides which albums are listed and in what order.
+	 *
+	 * @param  previous  Albums of the currently loaded catalog
+	 * @param  changed   File names created or modified since previous was loaded
+	 * @return albums    ArrayList of albums, in albums.txt order
+	 */
+	public ArrayList<Album> reload(List<Album> previous, Set<String> changed) {
+		HashMap<String, Album> reusable = new HashMap<String, Album>();
+		for (Album album : previous) {
+			reusable.put(key(album.getTitle(), album.getArtist()), album);
+		}
+		return load(reusable, changed);
+	}
+	
+	/**
+	 * @return count  Number of album files parsed by the last load / reload
+	 */
+	public int getParsedCount() {
+		return this.parsed_count;
+	}
+	
+	/**
+	 * Lists the album files referenced by albums.txt, in albums.txt order,
+	 * without reading them (scan and index phases only). Used by the lazy
+	 * MusicStore, which reads each file's header now and its songs later.
+	 *
+	 * @return files  ArrayList of album file paths, in albums.txt order
+	 */
+	public ArrayList<Path> albumFiles() {
+		ArrayList<Path> files = new ArrayList<Path>();
+		resolve(new ArrayList<String>(), files);
+		return files;
+	}
+	
+	private ArrayList<Album> load(Map<String, Album> reusable, Set<String> changed) {
+		ArrayList<Album> albums = new ArrayList<Album>();
+		this.parsed_count = 0;
+		ArrayList<String> keys = new ArrayList<String>();
+		ArrayList<Path> ordered = new ArrayList<Path>();
+		resolve(keys, ordered);
+		
+		// Unchanged files keep their already parsed album
+		ArrayList<Album> reused = new ArrayList<Album>();
+		for (int i = 0; i < ordered.size(); i++) {
+			boolean unchanged = !changed.contains(ordered.get(i).getFileName().toString());
+			reused.add(unchanged ? reusable.get(keys.get(i)) : null);
+		}
+
+		// Parse phase: each slot is filled independently, so order is kept
+		long start = System.nanoTime();
+		Album[] parsed = new Album[ordered.size()];
+		IntStream.range(0, parsed.length).parallel()
+			.forEach(i -> parsed[i] = (reused.get(i) != null) ? reused.get(i) : parseAlbum(ordered.get(i)));
+		for (Album album : reused) {
+			if (album == null) {
+				this.parsed_count++;
+			}
+		}
+		for (Album album : parsed) {
+			if (album != null) {
+				albums.add(album);
+			}
+		}
+		this.parse_nanos = System.nanoTime() - start;
+
+		return albums;
+	}
+
+	/**
+	 * This helper function runs the scan and index phases: it lists the
+	 * directory once, then resolves each albums.txt line to its album file,
+	 * adding the (title, artist) key and file of every match in order.
+	 */
+	private void resolve(List<String> keys, List<Path> ordered) {
+		// Scan phase: one pass over the directory, keyed by (title, artist)
+		long start = System.nanoTime();
+		HashMap<String, Path> album_files = new HashMap<String, Path>();
+		Path album_indexes = null;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory)) {
+			for (Path file : stream) {
+				String name = file.getFileName().toString();
+				if (name.equals(INDEX_FILE)) {
+					album_indexes = file;
+				} else if (name.endsWith(".txt")) {
+					int split = name.indexOf('_');
+					if (split < 0) {
+						System.out.println("Album-Load Function Error: " + name + " | missing '_' separator");
+						continue;
+					}
+					String title = name.substring(0, split);
+					String artist = name.substring(split + 1, name.length() - 4);
+					album_files.put(key(title, artist), file);
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("Error With resources Read | " + e);
+		}
+		this.scan_nanos = System.nanoTime() - start;
+
+		if (album_indexes == null) {
+			this.index_nanos = 0;
+			return;
+		}
+
+		// Index phase: resolve each albums.txt line to its file, keeping order
+		start = System.nanoTime();
+		try (BufferedReader reader = Files.newBufferedReader(album_indexes)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] next_album = line.split(",");
+				if (next_album.length < 2) {
+					continue;
+				}
+				String key = key(next_album[0], next_album[1]);
+				Path file = album_files.get(key);
+				if (file != null) {
+					keys.add(key);
+					ordered.add(file);
+				}
+			}
+		} catch (Exception e) {
+			System.out.println("Error With albums.txt Read | " + e);
+		}
+		this.index_nanos = System.nanoTime() - start;
+	}
+
+	public long getScanMillis() {
+		return this.scan_nanos / 1_000_000;
+	}
+
+	public long getIndexMillis() {
+		return this.index_nanos / 1_000_000;
+	}
+
+	public long getParseMillis() {
+		return this.parse_nanos / 1_000_000;
+	}
+
+	/**
+	 * @return report  String summary of the last load's per-phase timings
+	 */
+	public String getReport() {
+		return "scan: " + getScanMillis() + " ms | index: " + getIndexMillis()
+				+ " ms | parse: " + getParseMillis() + " ms";
+	}
+
+	/**
+	 * This helper function reads only the header line of an album file.
+	 *
+	 * @param  file    Path to the album .txt file
+	 * @return header  {title, artist, genre, year}, or null if the file could not be read
+	 */
+	static String[] parseHeader(Path file) {
+		try (BufferedReader reader = Files.newBufferedReader(file)) {
+			String[] header = reader.readLine().split(",");
+			return (header.length < 4) ? null : header;
+		} catch (Exception e) {
+			System.out.println("Error: " + file.getFileName() + " | " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * This helper function reads a single album file, whose first line is
+	 * the header (title,artist,genre,year) followed by one song title per line.
+	 *
+	 * @param  file   Path to the album .txt file
+	 * @return album  Parsed Album, or null if the file could not be read
+	 */
+	static Album parseAlbum(Path file) {
+		try (BufferedReader reader = Files.newBufferedReader(file)) {
+			String[] header = reader.readLine().split(",");
+			Album album = new Album(header[0], header[1], header[2], header[3]);
+			String name;
+			while ((name = reader.readLine()) != null) {
+				album.addSong(name);
+			}
+			return album;
+		} catch (Exception e) {
+			System.out.println("Error: " + file.getFileName() + " | " + e);
+			return null;
+		}
+	}
+
+	private static String key(String title, String artist) {
+		return title + "\u0000" + artist;
+	}
+}
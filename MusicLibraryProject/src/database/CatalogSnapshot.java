@@ -0,0 +1,407 @@
+/*
+ * File: CatalogSnapshot.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file implements a compiled, binary form of the resources
+ * catalog that the MusicStore can open through a memory-mapped FileChannel
+ * instead of re-reading every album .txt file on each launch. Album and
+ * Song objects are only created when they are first accessed.
+ *
+ * File layout (big-endian):
+ *   header   MAGIC, FORMAT, fingerprint (long), string count, album count,
+ *            track count
+ *   albums   album count x (title id, artist id, genre id, year id,
+ *            first track, track count)
+ *   tracks   track count x (title id, album ordinal)
+ *   offsets  (string count + 1) x byte offset into the string data
+ *   strings  UTF-8 bytes of every distinct string, back to back
+ *
+ * The fingerprint is computed from the names and modification times of the
+ * .txt files in the resources directory, so the snapshot is only recompiled
+ * (through CatalogLoader) once one of them changes.
+ *
+ * Functions:
+ * - open(Path resources, Path file): Maps the snapshot file, compiling it
+ *   first if it is missing or out of date.
+ * - compile(List<Album> albums, long fingerprint, Path file): Writes albums
+ *   into the binary format.
+ * - fingerprint(Path resources): Fingerprint of the resources directory.
+ * - albums() / songs(): Lazily materialized list views of the catalog.
+ * - albumTitles() / albumArtists() / albumGenres() / albumYears() /
+ *   songTitles() / songArtists(): String views that read the string table directly, without creating objects.
+ * - songAlbums(): Album ordinal of every song, read from the track table.
+ */
+
+package database;
+
+import java.io.DataOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import model.Album;
+import model.InstanceRegistry;
+import model.Song;
+
+public class CatalogSnapshot {
+	private static final int MAGIC = 0x4D534331; // "MSC1"
+	private static final int FORMAT = 1;
+	private static final int HEADER_BYTES = 32;
+	private static final int ALBUM_INTS = 6;
+	private static final int TRACK_INTS = 2;
+
+	private ByteBuffer buffer;
+	private long fingerprint;
+	private int string_count;
+	private int album_count;
+	private int track_count;
+	private int albums_pos;
+	private int tracks_pos;
+	private int offsets_pos;
+	private int strings_pos;
+	private boolean recompiled;
+
+	// Decoded / materialized entries, filled in on first access
+	private String[] strings;
+	private Album[] album_cache;
+	private Song[] song_cache;
+
+	private CatalogSnapshot(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+			throw new IOException("Not a catalog snapshot");
+		}
+		this.fingerprint = buffer.getLong(8);
+		this.string_count = buffer.getInt(16);
+		this.album_count = buffer.getInt(20);
+		this.track_count = buffer.getInt(24);
+		this.albums_pos = HEADER_BYTES;
+		this.tracks_pos = this.albums_pos + this.album_count * ALBUM_INTS * 4;
+		this.offsets_pos = this.tracks_pos + this.track_count * TRACK_INTS * 4;
+		this.strings_pos = this.offsets_pos + (this.string_count + 1) * 4;
+		if (this.strings_pos > buffer.limit()
+				|| this.strings_pos + buffer.getInt(this.strings_pos - 4) != buffer.limit()) {
+			throw new IOException("Truncated catalog snapshot");
+		}
+
+		this.strings = new String[this.string_count];
+		this.album_cache = new Album[this.album_count];
+		this.song_cache = new Song[this.track_count];
+	}
+
+	/**
+	 * Opens the snapshot file for the resources directory. If the file is
+	 * missing, unreadable, or its fingerprint no longer matches the .txt
+	 * files in resources, the catalog is reloaded through CatalogLoader and
+	 * the file is rewritten before being mapped.
+	 *
+	 * @param  resources  Path to the resources directory
+	 * @param  file       Path of the snapshot file
+	 * @return snapshot   The mapped CatalogSnapshot
+	 * @throws IOException if the snapshot can neither be read nor written
+	 */
+	public static CatalogSnapshot open(Path resources, Path file) throws IOException {
+		long fingerprint = fingerprint(resources);
+		if (Files.isRegularFile(file)) {
+			try {
+				CatalogSnapshot snapshot = map(file);
+				if (snapshot.fingerprint == fingerprint) {
+					return snapshot;
+				}
+			} catch (IOException e) {
+				System.out.println("Snapshot unreadable, recompiling | " + e);
+			}
+		}
+		CatalogLoader loader = new CatalogLoader(resources);
+		compile(loader.load(), fingerprint, file);
+		CatalogSnapshot snapshot = map(file);
+		snapshot.recompiled = true;
+		return snapshot;
+	}
+
+	/**
+	 * Writes the albums into the snapshot format. The file is written next
+	 * to its destination, then moved into place so readers never observe a
+	 * partially written snapshot.
+	 *
+	 * @param albums       Albums to compile, in catalog order
+	 * @param fingerprint  Fingerprint of the sources the albums came from
+	 * @param file         Destination path of the snapshot
+	 */
+	public static void compile(List<Album> albums, long fingerprint, Path file) throws IOException {
+		HashMap<String, Integer> ids = new HashMap<String, Integer>();
+		ArrayList<byte[]> table = new ArrayList<byte[]>();
+		int[] album_records = new int[albums.size() * ALBUM_INTS];
+		ArrayList<int[]> track_records = new ArrayList<int[]>();
+
+		for (int a = 0; a < albums.size(); a++) {
+			Album album = albums.get(a);
+			List<String> songs = album.getSongs();
+			int base = a * ALBUM_INTS;
+			album_records[base] = intern(album.getTitle(), ids, table);
+			album_records[base + 1] = intern(album.getArtist(), ids, table);
+			album_records[base + 2] = intern(album.getGenre(), ids, table);
+			album_records[base + 3] = intern(album.getYear(), ids, table);
+			album_records[base + 4] = track_records.size();
+			album_records[base + 5] = songs.size();
+			for (String song : songs) {
+				track_records.add(new int[] {intern(song, ids, table), a});
+			}
+		}
+
+		Path parent = file.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path temp = Files.createTempFile(parent, "catalog", ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT);
+			out.writeLong(fingerprint);
+			out.writeInt(table.size());
+			out.writeInt(albums.size());
+			out.writeInt(track_records.size());
+			out.writeInt(0); // reserved
+			for (int value : album_records) {
+				out.writeInt(value);
+			}
+			for (int[] track : track_records) {
+				out.writeInt(track[0]);
+				out.writeInt(track[1]);
+			}
+			int offset = 0;
+			for (byte[] bytes : table) {
+				out.writeInt(offset);
+				offset += bytes.length;
+			}
+			out.writeInt(offset);
+			for (byte[] bytes : table) {
+				out.write(bytes);
+			}
+		}
+		try {
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+	}
+
+	/**
+	 * Computes a fingerprint over the name and modification time of every
+	 * .txt file in the resources directory.
+	 *
+	 * @param  resources    Path to the resources directory
+	 * @return fingerprint  Order independent hash of the directory's sources
+	 */
+	public static long fingerprint(Path resources) throws IOException {
+		long fingerprint = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(resources, "*.txt")) {
+			for (Path file : stream) {
+				long entry = file.getFileName().toString().hashCode() * 31L
+						+ Files.getLastModifiedTime(file).toMillis();
+				// Mix each entry before summing, so order does not matter
+				// but swapped modification times still change the result.
+				entry ^= entry >>> 33;
+				entry *= 0xff51afd7ed558ccdL;
+				entry ^= entry >>> 33;
+				fingerprint += entry;
+			}
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * @return true if open() had to recompile the snapshot from the .txt files
+	 */
+	public boolean wasRecompiled() {
+		return this.recompiled;
+	}
+
+	public int getAlbumCount() {
+		return this.album_count;
+	}
+
+	public int getSongCount() {
+		return this.track_count;
+	}
+
+	/**
+	 * @return list  Read-only view of the catalog's albums, in catalog order
+	 */
+	public List<Album> albums() {
+		return new AbstractList<Album>() {
+			public Album get(int index) {
+				return album(index);
+			}
+			public int size() {
+				return album_count;
+			}
+		};
+	}
+
+	/**
+	 * @return list  Read-only view of every song in the catalog, in catalog order
+	 */
+	public List<Song> songs() {
+		return new AbstractList<Song>() {
+			public Song get(int index) {
+				return song(index);
+			}
+			public int size() {
+				return track_count;
+			}
+		};
+	}
+
+	public List<String> albumTitles() {
+		return albumColumn(0);
+	}
+
+	public List<String> albumArtists() {
+		return albumColumn(1);
+	}
+
+	public List<String> albumGenres() {
+		return albumColumn(2);
+	}
+
+	public List<String> albumYears() {
+		return albumColumn(3);
+	}
+
+	public List<String> songTitles() {
+		return new AbstractList<String>() {
+			public String get(int index) {
+				return string(trackInt(index, 0));
+			}
+			public int size() {
+				return track_count;
+			}
+		};
+	}
+
+	public List<String> songArtists() {
+		return new AbstractList<String>() {
+			public String get(int index) {
+				return string(albumInt(trackInt(index, 1), 1));
+			}
+			public int size() {
+				return track_count;
+			}
+		};
+	}
+
+	/**
+	 * @return list  Album ordinal of every song, in catalog order
+	 */
+	public List<Integer> songAlbums() {
+		return new AbstractList<Integer>() {
+			public Integer get(int index) {
+				return trackInt(index, 1);
+			}
+			public int size() {
+				return track_count;
+			}
+		};
+	}
+
+	/**
+	 * Materializes (and caches) the album at the ordinal, with its songs, as
+	 * a frozen shared instance.
+	 */
+	private synchronized Album album(int ordinal) {
+		if (ordinal < 0 || ordinal >= this.album_count) {
+			throw new IndexOutOfBoundsException(ordinal);
+		}
+		Album album = this.album_cache[ordinal];
+		if (album == null) {
+			album = new Album(string(albumInt(ordinal, 0)), string(albumInt(ordinal, 1)),
+					string(albumInt(ordinal, 2)), string(albumInt(ordinal, 3)));
+			int first = albumInt(ordinal, 4);
+			int count = albumInt(ordinal, 5);
+			for (int t = first; t < first + count; t++) {
+				album.addSong(string(trackInt(t, 0)));
+			}
+			album = InstanceRegistry.album(album.freeze());
+			this.album_cache[ordinal] = album;
+		}
+		return album;
+	}
+
+	/**
+	 * Materializes (and caches) the canonical song at the ordinal.
+	 */
+	private synchronized Song song(int ordinal) {
+		if (ordinal < 0 || ordinal >= this.track_count) {
+			throw new IndexOutOfBoundsException(ordinal);
+		}
+		Song song = this.song_cache[ordinal];
+		if (song == null) {
+			int album = trackInt(ordinal, 1);
+			song = InstanceRegistry.song(string(trackInt(ordinal, 0)), string(albumInt(album, 0)), string(albumInt(album, 1)));
+			this.song_cache[ordinal] = song;
+		}
+		return song;
+	}
+
+	private List<String> albumColumn(int field) {
+		return new AbstractList<String>() {
+			public String get(int index) {
+				return string(albumInt(index, field));
+			}
+			public int size() {
+				return album_count;
+			}
+		};
+	}
+
+	private int albumInt(int ordinal, int field) {
+		return this.buffer.getInt(this.albums_pos + (ordinal * ALBUM_INTS + field) * 4);
+	}
+
+	private int trackInt(int ordinal, int field) {
+		return this.buffer.getInt(this.tracks_pos + (ordinal * TRACK_INTS + field) * 4);
+	}
+
+	/**
+	 * Decodes (and caches) the string table entry with the given id.
+	 */
+	private String string(int id) {
+		String value = this.strings[id];
+		if (value == null) {
+			int start = this.buffer.getInt(this.offsets_pos + id * 4);
+			int end = this.buffer.getInt(this.offsets_pos + (id + 1) * 4);
+			byte[] bytes = new byte[end - start];
+			this.buffer.get(this.strings_pos + start, bytes);
+			value = new String(bytes, StandardCharsets.UTF_8);
+			this.strings[id] = value;
+		}
+		return value;
+	}
+
+	private static int intern(String value, HashMap<String, Integer> ids, ArrayList<byte[]> table) {
+		Integer id = ids.get(value);
+		if (id == null) {
+			id = table.size();
+			ids.put(value, id);
+			table.add(value.getBytes(StandardCharsets.UTF_8));
+		}
+		return id;
+	}
+
+	private static CatalogSnapshot map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new CatalogSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+}
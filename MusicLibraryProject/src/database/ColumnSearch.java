@@ -0,0 +1,29 @@
+/*
+ * File: ColumnSearch.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file defines what the MusicStore needs from a searchable
+ * column of the catalog (song titles, album artists...), so the same search
+ * functions can run on the trigram indexes (ShardedIndex) or on the columnar
+ * scan engine (ColumnarCatalog), see SearchEngine.
+ */
+
+package database;
+
+import java.util.stream.IntStream;
+
+interface ColumnSearch {
+
+	/**
+	 * @param  query   String to search for, not case sensitive
+	 * @return result  Ascending ordinals of the values containing the query
+	 */
+	int[] search(String query);
+
+	/**
+	 * @param  query   String to search for, not case sensitive
+	 * @param  from    First ordinal to consider
+	 * @return stream  Lazily evaluated ascending ordinals of the matches
+	 */
+	IntStream stream(String query, int from);
+}
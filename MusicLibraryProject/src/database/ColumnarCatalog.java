@@ -0,0 +1,242 @@
+/*
+ * File: ColumnarCatalog.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file holds a columnar (structure of arrays) copy of a
+ * Catalog for the COLUMNAR search engine. Instead of a list of Song objects,
+ * each pointing at three Strings, a row is a position in parallel int arrays
+ * of title, artist and album ids. Ids refer to dictionaries of the distinct
+ * values, whose folded (see Collation) UTF-8 bytes are packed back to back
+ * in a single byte array.
+ *
+ * A "contains" search runs two sequential kernels: one pass over the packed
+ * bytes marks the dictionary entries holding the query, then one pass over
+ * the id column collects the rows whose id is marked. Both walk contiguous
+ * primitive arrays front to back, with no pointer to follow per row, and
+ * duplicated values (an artist on thousands of songs) are only matched once.
+ *
+ * Functions:
+ * - songTitles() / songArtists() / albumTitles() / albumArtists(): Searchable
+ *   columns (ColumnSearch), returning the same ordinals as the trigram
+ *   indexes.
+ * - songAlbum(int song): Album ordinal of a song row.
+ */
+
+package database;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+final class ColumnarCatalog {
+	// Artists are shared by the song and album rows
+	private final Dictionary song_title_dictionary;
+	private final Dictionary album_title_dictionary;
+	private final Dictionary artist_dictionary;
+
+	// Song rows
+	private final int[] song_titles;
+	private final int[] song_artists;
+	private final int[] song_albums; // album ordinals
+
+	// Album rows
+	private final int[] album_titles;
+	private final int[] album_artists;
+
+	/**
+	 * Encodes the catalog columns, positions in the lists becoming row
+	 * ordinals.
+	 *
+	 * @param song_title_column    Title of every song
+	 * @param song_artist_column   Artist of every song
+	 * @param song_album_column    Album ordinal of every song
+	 * @param album_title_column   Title of every album
+	 * @param album_artist_column  Artist of every album
+	 */
+	ColumnarCatalog(List<String> song_title_column, List<String> song_artist_column, List<Integer> song_album_column,
+			List<String> album_title_column, List<String> album_artist_column) {
+		Dictionary.Builder song_titles = new Dictionary.Builder();
+		Dictionary.Builder album_titles = new Dictionary.Builder();
+		Dictionary.Builder artists = new Dictionary.Builder();
+
+		int songs = song_title_column.size();
+		this.song_titles = new int[songs];
+		this.song_artists = new int[songs];
+		this.song_albums = new int[songs];
+		for (int i = 0; i < songs; i++) {
+			this.song_titles[i] = song_titles.id(song_title_column.get(i));
+			this.song_artists[i] = artists.id(song_artist_column.get(i));
+			this.song_albums[i] = song_album_column.get(i);
+		}
+
+		int albums = album_title_column.size();
+		this.album_titles = new int[albums];
+		this.album_artists = new int[albums];
+		for (int i = 0; i < albums; i++) {
+			this.album_titles[i] = album_titles.id(album_title_column.get(i));
+			this.album_artists[i] = artists.id(album_artist_column.get(i));
+		}
+
+		this.song_title_dictionary = song_titles.build();
+		this.album_title_dictionary = album_titles.build();
+		this.artist_dictionary = artists.build();
+	}
+
+	ColumnSearch songTitles() {
+		return new Column(this.song_title_dictionary, this.song_titles);
+	}
+
+	ColumnSearch songArtists() {
+		return new Column(this.artist_dictionary, this.song_artists);
+	}
+
+	ColumnSearch albumTitles() {
+		return new Column(this.album_title_dictionary, this.album_titles);
+	}
+
+	ColumnSearch albumArtists() {
+		return new Column(this.artist_dictionary, this.album_artists);
+	}
+
+	int songAlbum(int song) {
+		return this.song_albums[song];
+	}
+
+	/**
+	 * One id column with its dictionary.
+	 */
+	private static final class Column implements ColumnSearch {
+		private final Dictionary dictionary;
+		private final int[] ids;
+
+		Column(Dictionary dictionary, int[] ids) {
+			this.dictionary = dictionary;
+			this.ids = ids;
+		}
+
+		@Override
+		public int[] search(String query) {
+			boolean[] marked = this.dictionary.contains(query);
+			int[] ids = this.ids;
+			int[] result = new int[16];
+			int count = 0;
+			for (int i = 0; i < ids.length; i++) {
+				if (marked[ids[i]]) {
+					if (count == result.length) {
+						result = Arrays.copyOf(result, Math.min(ids.length, count * 2));
+					}
+					result[count++] = i;
+				}
+			}
+			return Arrays.copyOf(result, count);
+		}
+
+		@Override
+		public IntStream stream(String query, int from) {
+			boolean[] marked = this.dictionary.contains(query);
+			return IntStream.range(Math.min(from, this.ids.length), this.ids.length)
+					.filter(i -> marked[this.ids[i]]);
+		}
+	}
+
+	/**
+	 * Distinct values of a column, in order of first appearance, with their
+	 * folded UTF-8 bytes packed into one array: entry i occupies bytes
+	 * [offsets[i], offsets[i + 1]).
+	 */
+	private static final class Dictionary {
+		private final byte[] bytes;
+		private final int[] offsets;
+
+		private Dictionary(byte[] bytes, int[] offsets) {
+			this.bytes = bytes;
+			this.offsets = offsets;
+		}
+
+		/**
+		 * Marks the entries containing the query, ignoring case and accents,
+		 * in a single pass over the packed bytes: each occurrence of the
+		 * query's first byte is compared in place, and a match skips the rest
+		 * of its entry.
+		 * UTF-8 never starts a character inside another one, so a byte match
+		 * is exactly a String.contains() match of the folded values.
+		 *
+		 * @param  query   String to search for
+		 * @return marked  marked[id] is true if entry id contains the query
+		 */
+		boolean[] contains(String query) {
+			byte[] needle = NGramIndex.normalize(query).getBytes(StandardCharsets.UTF_8);
+			int entries = this.offsets.length - 1;
+			boolean[] marked = new boolean[entries];
+			if (needle.length == 0) {
+				Arrays.fill(marked, true);
+				return marked;
+			}
+			byte[] bytes = this.bytes;
+			int[] offsets = this.offsets;
+			byte first = needle[0];
+			int entry = 0;
+			int last = bytes.length - needle.length;
+			for (int p = 0; p <= last; p++) {
+				if (bytes[p] != first) {
+					continue;
+				}
+				while (offsets[entry + 1] <= p) {
+					entry++;
+				}
+				int end = offsets[entry + 1];
+				if (p + needle.length > end) {
+					// Would run into the next entry
+					p = end - 1;
+					continue;
+				}
+				int n = 1;
+				while (n < needle.length && bytes[p + n] == needle[n]) {
+					n++;
+				}
+				if (n == needle.length) {
+					marked[entry] = true;
+					p = end - 1;
+				}
+			}
+			return marked;
+		}
+
+		private static final class Builder {
+			private final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+			private final ArrayList<byte[]> values = new ArrayList<byte[]>();
+			private long length;
+
+			int id(String value) {
+				Integer id = this.ids.get(value);
+				if (id == null) {
+					id = this.values.size();
+					this.ids.put(value, id);
+					byte[] encoded = NGramIndex.normalize(value).getBytes(StandardCharsets.UTF_8);
+					this.values.add(encoded);
+					this.length += encoded.length;
+				}
+				return id;
+			}
+
+			Dictionary build() {
+				if (this.length > Integer.MAX_VALUE) {
+					throw new IllegalStateException("Column too large to pack: " + this.length + " bytes.");
+				}
+				byte[] bytes = new byte[(int) this.length];
+				int[] offsets = new int[this.values.size() + 1];
+				int position = 0;
+				for (int i = 0; i < this.values.size(); i++) {
+					byte[] value = this.values.get(i);
+					System.arraycopy(value, 0, bytes, position, value.length);
+					position += value.length;
+					offsets[i + 1] = position;
+				}
+				return new Dictionary(bytes, offsets);
+			}
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * File: FacetFilter.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file represents a boolean filter over the facets of a
+ * FacetIndex (genre, release year, artist), such as
+ *   genre("Rock").and(years(1990, 1999)).and(artist("Adele").not())
+ * Filters are immutable expression trees; a FacetIndex evaluates one into a
+ * RoaringBitmap of matching ordinals with one bitmap operation per node.
+ * Genre and artist values are matched without regard to case or accents.
+ *
+ * Functions:
+ * - all(): Matches everything.
+ * - genre(String genre) / artist(String artist) / year(int year) /
+ *   years(int from, int to): Single facet values, years inclusive.
+ * - and(FacetFilter other) / or(FacetFilter other) / not(): Combinations.
+ * - toString(): The expression, e.g. (genre:rock AND year:1990..1999).
+ */
+
+package database;
+
+public abstract class FacetFilter {
+
+	FacetFilter() {
+	}
+
+	/**
+	 * Evaluates the filter against an index.
+	 *
+	 * @param  index    Facets to filter
+	 * @return matches  Ordinals matching the filter
+	 */
+	abstract RoaringBitmap evaluate(FacetIndex index);
+
+	public static FacetFilter all() {
+		return new Term("all", null, 0, 0);
+	}
+
+	public static FacetFilter genre(String genre) {
+		return new Term("genre", check(genre), 0, 0);
+	}
+
+	public static FacetFilter artist(String artist) {
+		return new Term("artist", check(artist), 0, 0);
+	}
+
+	public static FacetFilter year(int year) {
+		return years(year, year);
+	}
+
+	/**
+	 * @param  from    First year matched
+	 * @param  to      Last year matched
+	 * @return filter  Filter matching every year in [from, to]
+	 */
+	public static FacetFilter years(int from, int to) {
+		if (from > to) {
+			throw new IllegalArgumentException("Year range is empty: " + from + ".." + to);
+		}
+		return new Term("year", null, from, to);
+	}
+
+	public FacetFilter and(FacetFilter other) {
+		return new Combination(this, check(other), "AND");
+	}
+
+	public FacetFilter or(FacetFilter other) {
+		return new Combination(this, check(other), "OR");
+	}
+
+	public FacetFilter not() {
+		return new Not(this);
+	}
+
+	private static <T> T check(T value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Facet filter values cannot be null.");
+		}
+		return value;
+	}
+
+	/**
+	 * A single facet value or year range.
+	 */
+	private static final class Term extends FacetFilter {
+		private final String facet;
+		private final String value;
+		private final int from;
+		private final int to;
+
+		Term(String facet, String value, int from, int to) {
+			this.facet = facet;
+			this.value = value;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		RoaringBitmap evaluate(FacetIndex index) {
+			switch (this.facet) {
+			case "genre":
+				return index.genre(this.value);
+			case "artist":
+				return index.artist(this.value);
+			case "year":
+				return index.years(this.from, this.to);
+			default:
+				return index.all();
+			}
+		}
+
+		@Override
+		public String toString() {
+			if (this.value != null) {
+				return this.facet + ":" + NGramIndex.normalize(this.value);
+			}
+			if (this.facet.equals("year")) {
+				return (this.from == this.to) ? "year:" + this.from : "year:" + this.from + ".." + this.to;
+			}
+			return this.facet;
+		}
+	}
+
+	private static final class Combination extends FacetFilter {
+		private final FacetFilter left;
+		private final FacetFilter right;
+		private final String operator;
+
+		Combination(FacetFilter left, FacetFilter right, String operator) {
+			this.left = left;
+			this.right = right;
+			this.operator = operator;
+		}
+
+		@Override
+		RoaringBitmap evaluate(FacetIndex index) {
+			RoaringBitmap left = this.left.evaluate(index);
+			// A NOT on the right is a difference, no complement needed
+			if (this.operator.equals("AND") && this.right instanceof Not) {
+				return left.andNot(((Not) this.right).filter.evaluate(index));
+			}
+			RoaringBitmap right = this.right.evaluate(index);
+			return this.operator.equals("AND") ? left.and(right) : left.or(right);
+		}
+
+		@Override
+		public String toString() {
+			return "(" + this.left + " " + this.operator + " " + this.right + ")";
+		}
+	}
+
+	private static final class Not extends FacetFilter {
+		private final FacetFilter filter;
+
+		Not(FacetFilter filter) {
+			this.filter = filter;
+		}
+
+		@Override
+		RoaringBitmap evaluate(FacetIndex index) {
+			return index.all().andNot(this.filter.evaluate(index));
+		}
+
+		@Override
+		public String toString() {
+			return "NOT " + this.filter;
+		}
+	}
+}
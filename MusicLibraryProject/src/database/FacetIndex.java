@@ -0,0 +1,253 @@
+/*
+ * File: FacetIndex.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file indexes the genre, release year and artist of a list of
+ * albums or songs (by ordinal) as compressed posting lists (RoaringBitmap),
+ * one per distinct value. A FacetFilter is answered with bitmap operations
+ * instead of rescanning the objects.
+ *
+ * Facet counts (the number of matches per value, shown next to results)
+ * are computed whichever way is cheaper: intersecting the matches with each
+ * value's bitmap, which costs about the same for any number of matches, or
+ * walking the matches and looking up each one's value, which wins when
+ * there are few matches or many values (artists).
+ *
+ * Genres and artists are keyed by their folded form (see Collation), under
+ * the first spelling seen. Years that are not a number are left out of the
+ * year facet.
+ *
+ * Functions:
+ * - select(FacetFilter filter): Ordinals matching a filter.
+ * - result(RoaringBitmap matches, IntFunction<T> lookup, int limit): The first
+ *   limit matches with the facet counts of all of them (FacetResult).
+ * - genre(String genre) / artist(String artist) / years(int from, int to) /
+ *   all(): Posting lists of single facet values.
+ * - genreCounts(RoaringBitmap matches) / yearCounts(...) / artistCounts(...):
+ *   Matches per facet value.
+ * - size(): Number of ordinals indexed.
+ */
+
+package database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import model.FacetResult;
+
+public class FacetIndex {
+	private final int size;
+	private final RoaringBitmap all;
+	private final Facet<String> genres;
+	private final Facet<Integer> years;
+	private final Facet<String> artists;
+
+	/**
+	 * Builds the posting lists in one pass over each column, so every
+	 * bitmap receives its ordinals in ascending order.
+	 *
+	 * @param genres   Genre of each ordinal
+	 * @param years    Release year of each ordinal
+	 * @param artists  Artist of each ordinal
+	 */
+	public FacetIndex(List<String> genres, List<String> years, List<String> artists) {
+		this.size = genres.size();
+		this.all = RoaringBitmap.range(0, this.size);
+		this.genres = new Facet<String>(genres, NGramIndex::normalize);
+		this.years = new Facet<Integer>(years, FacetIndex::parseYear);
+		this.artists = new Facet<String>(artists, NGramIndex::normalize);
+	}
+
+	public RoaringBitmap select(FacetFilter filter) {
+		if (filter == null) {
+			throw new IllegalArgumentException("Facet filter cannot be null.");
+		}
+		return filter.evaluate(this);
+	}
+
+	/**
+	 * @param  matches  Ordinals of the results
+	 * @param  lookup   Function resolving an ordinal to its result
+	 * @param  limit    Maximum number of results returned
+	 * @return result   First limit results in ordinal order, with the total
+	 *                  and the facet counts of every match
+	 */
+	public <T> FacetResult<T> result(RoaringBitmap matches, IntFunction<T> lookup, int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("Result limit must be at least 1.");
+		}
+		ArrayList<T> items = new ArrayList<T>(Math.min(limit, 64));
+		matches.stream().limit(limit).forEach(ordinal -> items.add(lookup.apply(ordinal)));
+		return new FacetResult<T>(items, matches.cardinality(), genreCounts(matches), yearCounts(matches),
+				artistCounts(matches));
+	}
+
+	public RoaringBitmap genre(String genre) {
+		return this.genres.get(NGramIndex.normalize(genre));
+	}
+
+	public RoaringBitmap artist(String artist) {
+		return this.artists.get(NGramIndex.normalize(artist));
+	}
+
+	/**
+	 * @return bitmap  Ordinals released in [from, to]
+	 */
+	public RoaringBitmap years(int from, int to) {
+		RoaringBitmap result = RoaringBitmap.empty();
+		for (int id = 0; id < this.years.keys.size(); id++) {
+			int year = this.years.keys.get(id);
+			if (year >= from && year <= to) {
+				result = result.or(this.years.bitmaps[id]);
+			}
+		}
+		return result;
+	}
+
+	public RoaringBitmap all() {
+		return this.all;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return counts  Matches per genre, most matches first
+	 */
+	public Map<String, Integer> genreCounts(RoaringBitmap matches) {
+		return this.genres.namedCounts(matches);
+	}
+
+	/**
+	 * @return counts  Matches per artist, most matches first
+	 */
+	public Map<String, Integer> artistCounts(RoaringBitmap matches) {
+		return this.artists.namedCounts(matches);
+	}
+
+	/**
+	 * @return counts  Matches per year, in year order
+	 */
+	public Map<Integer, Integer> yearCounts(RoaringBitmap matches) {
+		int[] counts = this.years.counts(matches);
+		Integer[] ids = new Integer[counts.length];
+		for (int id = 0; id < ids.length; id++) {
+			ids[id] = id;
+		}
+		Arrays.sort(ids, (a, b) -> Integer.compare(this.years.keys.get(a), this.years.keys.get(b)));
+		LinkedHashMap<Integer, Integer> result = new LinkedHashMap<Integer, Integer>();
+		for (int id : ids) {
+			if (counts[id] > 0) {
+				result.put(this.years.keys.get(id), counts[id]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * This helper function reads a year, returning null if it is not one.
+	 */
+	private static Integer parseYear(String year) {
+		try {
+			return Integer.parseInt(year.trim());
+		} catch (NumberFormatException | NullPointerException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Posting lists of one facet, with the value id of every ordinal (-1 if
+	 * it has none) for counting by walking the matches.
+	 */
+	private static final class Facet<K> {
+		private final int[] ids;
+		private final ArrayList<K> keys = new ArrayList<K>();
+		private final ArrayList<String> names = new ArrayList<String>();
+		private final HashMap<K, Integer> key_ids = new HashMap<K, Integer>();
+		private final RoaringBitmap[] bitmaps;
+		private final int intersection_cost;
+
+		Facet(List<String> column, Function<String, K> key_of) {
+			this.ids = new int[column.size()];
+			HashMap<String, Integer> value_ids = new HashMap<String, Integer>();
+			ArrayList<RoaringBitmap.Builder> builders = new ArrayList<RoaringBitmap.Builder>();
+			for (int i = 0; i < this.ids.length; i++) {
+				String value = column.get(i);
+				Integer id = value_ids.get(value);
+				if (id == null) {
+					K key = key_of.apply(value);
+					id = (key == null) ? -1 : this.key_ids.computeIfAbsent(key, k -> {
+						this.keys.add(k);
+						this.names.add(value);
+						builders.add(new RoaringBitmap.Builder());
+						return this.keys.size() - 1;
+					});
+					value_ids.put(value, id);
+				}
+				this.ids[i] = id;
+				if (id >= 0) {
+					builders.get(id).add(i);
+				}
+			}
+			this.bitmaps = new RoaringBitmap[builders.size()];
+			int cost = 0;
+			for (int id = 0; id < this.bitmaps.length; id++) {
+				this.bitmaps[id] = builders.get(id).build();
+				cost += this.bitmaps[id].intersectionCost();
+			}
+			this.intersection_cost = cost;
+		}
+
+		RoaringBitmap get(K key) {
+			Integer id = this.key_ids.get(key);
+			return (id == null) ? RoaringBitmap.empty() : this.bitmaps[id];
+		}
+
+		/**
+		 * @return counts  Matches per value id
+		 */
+		int[] counts(RoaringBitmap matches) {
+			int[] counts = new int[this.bitmaps.length];
+			if (matches.cardinality() < this.intersection_cost) {
+				matches.forEach(ordinal -> {
+					int id = this.ids[ordinal];
+					if (id >= 0) {
+						counts[id]++;
+					}
+				});
+			} else {
+				for (int id = 0; id < counts.length; id++) {
+					counts[id] = matches.andCardinality(this.bitmaps[id]);
+				}
+			}
+			return counts;
+		}
+
+		/**
+		 * @return counts  Matches per shown value, most first, then by name
+		 */
+		Map<String, Integer> namedCounts(RoaringBitmap matches) {
+			int[] counts = counts(matches);
+			ArrayList<Integer> present = new ArrayList<Integer>();
+			for (int id = 0; id < counts.length; id++) {
+				if (counts[id] > 0) {
+					present.add(id);
+				}
+			}
+			present.sort((a, b) -> (counts[a] != counts[b]) ? Integer.compare(counts[b], counts[a])
+					: this.names.get(a).compareTo(this.names.get(b)));
+			LinkedHashMap<String, Integer> result = new LinkedHashMap<String, Integer>();
+			for (int id : present) {
+				result.put(this.names.get(id), counts[id]);
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,241 @@
+/*
+ * File: FuzzyIndex.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file answers typo-tolerant searches ("Addele", "Rollin in
+ * the deep") over the trigram postings of a ShardedIndex, without building
+ * any structure of its own. A value matches when some part of it is within
+ * a small number of edits (insertions, deletions, substitutions) of the
+ * query, i.e. the plain substring search with typos allowed.
+ *
+ * A value within k edits of the query still shares at least G - 3k of the
+ * query's G distinct trigrams (each edit touches at most three of them).
+ * Values are counted from the postings, into a buffer each thread reuses
+ * (only the values a posting touches are counted and reset, so a search
+ * costs its postings rather than the catalog size); the ones reaching that
+ * bound are verified with a bounded edit distance, most shared trigrams
+ * first, until the time budget runs out. Queries too short for the bound (a few
+ * characters with one edit) verify every value instead, within the budget.
+ * Matches are ranked by edit distance, then by how close the value's length
+ * is to the query's, then by ordinal.
+ *
+ * Functions:
+ * - search(String query, int limit): Ranked ordinals of up to limit matches,
+ *   within the default time budget.
+ * - search(String query, int limit, long budget_nanos): Same, with a budget.
+ * - maxEdits(String query): Edits allowed for a query of that length.
+ * - distance(String query, String value): Fewest edits turning the query into
+ *   a substring of the value.
+ */
+
+package database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class FuzzyIndex {
+	public static final long BUDGET_NANOS = 50_000_000L;
+
+	private final ShardedIndex index;
+
+	// Shared trigram counts of each thread's current shard search. Only the
+	// touched entries are ever nonzero between searches, and they are reset
+	// one by one, so a search costs its postings, not the shard's size.
+	private static final ThreadLocal<int[]> COUNTS = ThreadLocal.withInitial(() -> new int[0]);
+
+	/**
+	 * @param index  Trigram index whose values (and ordinals) are searched
+	 */
+	public FuzzyIndex(ShardedIndex index) {
+		this.index = index;
+	}
+
+	public int[] search(String query, int limit) {
+		return search(query, limit, BUDGET_NANOS);
+	}
+
+	/**
+	 * Returns the best matches of the query, ignoring case. Shards are
+	 * searched in parallel and share the time budget; candidates left
+	 * unverified when it runs out are dropped.
+	 *
+	 * @param  query         String to search for, possibly misspelled
+	 * @param  limit         Maximum number of matches returned
+	 * @param  budget_nanos  Time allowed for verifying candidates
+	 * @return result        Ordinals of the matches, best first
+	 */
+	public int[] search(String query, int limit, long budget_nanos) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("Result limit must be at least 1.");
+		}
+		String target = NGramIndex.normalize(query);
+		long deadline = System.nanoTime() + budget_nanos;
+		List<Match> matches = IntStream.range(0, this.index.getShardCount()).parallel()
+				.mapToObj(s -> searchShard(s, target, deadline))
+				.flatMap(List::stream)
+				.sorted()
+				.limit(limit)
+				.collect(Collectors.toList());
+		int[] result = new int[matches.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = matches.get(i).ordinal;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns how many edits a query of this length may contain: none up to
+	 * 3 characters, 1 up to 7, then 2.
+	 */
+	public static int maxEdits(String query) {
+		int length = query.length();
+		return (length <= 3) ? 0 : (length <= 7) ? 1 : 2;
+	}
+
+	/**
+	 * Returns the fewest edits turning the query into a substring of the
+	 * value (Sellers' algorithm: the match may start and end anywhere in
+	 * the value for free). Both are compared as given.
+	 *
+	 * @param  query     String to search for
+	 * @param  value     String searched in
+	 * @return distance  Minimum edit distance of the query to a substring
+	 */
+	public static int distance(String query, String value) {
+		int m = query.length();
+		int[] column = new int[m + 1];
+		for (int i = 0; i <= m; i++) {
+			column[i] = i;
+		}
+		int best = m;
+		for (int j = 0; j < value.length() && best > 0; j++) {
+			char c = value.charAt(j);
+			int diagonal = column[0];
+			for (int i = 1; i <= m; i++) {
+				int above = column[i];
+				int cost = (query.charAt(i - 1) == c) ? 0 : 1;
+				column[i] = Math.min(diagonal + cost, Math.min(above, column[i - 1]) + 1);
+				diagonal = above;
+			}
+			best = Math.min(best, column[m]);
+		}
+		return best;
+	}
+
+	/**
+	 * This helper function finds the matches within one shard: counts the
+	 * query trigrams each value shares, then verifies the candidates
+	 * reaching the bound, most shared trigrams first.
+	 */
+	private List<Match> searchShard(int s, String target, long deadline) {
+		NGramIndex shard = this.index.shard(s);
+		int base = this.index.base(s);
+		ArrayList<Match> matches = new ArrayList<Match>();
+
+		// Distinct trigrams of the query
+		HashSet<Long> grams = new HashSet<Long>();
+		for (int g = 0; g + NGramIndex.GRAM <= target.length(); g++) {
+			grams.add(NGramIndex.gram(target, g));
+		}
+		int edits = maxEdits(target);
+		int bound = grams.size() - NGramIndex.GRAM * edits;
+
+		if (bound < 1) {
+			// Too short for the trigrams to bound the edits: verify every
+			// value, for as long as the budget allows
+			for (int i = 0; i < shard.size(); i++) {
+				if ((i & 255) == 255 && System.nanoTime() > deadline) {
+					break;
+				}
+				String key = shard.key(i);
+				int distance = (edits == 0) ? (key.contains(target) ? 0 : 1) : distance(target, key);
+				if (distance <= edits) {
+					matches.add(new Match(base + i, distance, Math.abs(key.length() - target.length())));
+				}
+			}
+			return matches;
+		}
+
+		int[] counts = COUNTS.get();
+		if (counts.length < shard.size()) {
+			counts = new int[shard.size()];
+			COUNTS.set(counts);
+		}
+		int[] touched = new int[16];
+		int touched_count = 0;
+		for (long gram : grams) {
+			for (int ordinal : shard.postings(gram)) {
+				if (counts[ordinal]++ == 0) {
+					if (touched_count == touched.length) {
+						touched = Arrays.copyOf(touched, touched_count * 2);
+					}
+					touched[touched_count++] = ordinal;
+				}
+			}
+		}
+
+		// Bucket the candidates by shared trigram count, best bucket first
+		int[][] buckets = new int[grams.size() + 1][];
+		int[] sizes = new int[grams.size() + 1];
+		for (int t = 0; t < touched_count; t++) {
+			int count = counts[touched[t]];
+			if (count >= bound) {
+				if (buckets[count] == null) {
+					buckets[count] = new int[8];
+				} else if (sizes[count] == buckets[count].length) {
+					buckets[count] = Arrays.copyOf(buckets[count], sizes[count] * 2);
+				}
+				buckets[count][sizes[count]++] = touched[t];
+			}
+			counts[touched[t]] = 0;
+		}
+
+		int verified = 0;
+		for (int count = grams.size(); count >= bound; count--) {
+			for (int b = 0; b < sizes[count]; b++) {
+				// Checking the clock every candidate would cost more than the checks
+				if ((++verified & 255) == 0 && System.nanoTime() > deadline) {
+					return matches;
+				}
+				int ordinal = buckets[count][b];
+				String key = shard.key(ordinal);
+				int distance = distance(target, key);
+				if (distance <= edits) {
+					matches.add(new Match(base + ordinal, distance, Math.abs(key.length() - target.length())));
+				}
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * A verified match, ordered by distance, then length difference, then
+	 * ordinal.
+	 */
+	private static final class Match implements Comparable<Match> {
+		final int ordinal;
+		final int distance;
+		final int length_gap;
+
+		Match(int ordinal, int distance, int length_gap) {
+			this.ordinal = ordinal;
+			this.distance = distance;
+			this.length_gap = length_gap;
+		}
+
+		@Override
+		public int compareTo(Match other) {
+			if (this.distance != other.distance) {
+				return Integer.compare(this.distance, other.distance);
+			}
+			if (this.length_gap != other.length_gap) {
+				return Integer.compare(this.length_gap, other.length_gap);
+			}
+			return Integer.compare(this.ordinal, other.ordinal);
+		}
+	}
+}
@@ -0,0 +1,278 @@
+/*
+ * File: LazyAlbums.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file backs the lazy MusicStore mode. At construction it only
+ * reads the header line (title, artist, genre, year) of every album file.
+ * An album's track list is read the first time the album itself is needed,
+ * and kept in a bounded least-recently-used cache, so the heap holds the
+ * headers plus a fixed number of full albums however large the catalog is.
+ *
+ * Song searches need every song title, so a background task reads the track
+ * lists once, keeping only a compact table of titles and album ordinals
+ * (no Album objects); songs are created from it on demand.
+ *
+ * Functions:
+ * - albums() / albumTitles() / albumArtists() / albumGenres() / albumYears():
+ *   Album list (loading track lists on access) and its header columns.
+ * - songs() / songTitles() / songArtists() / songAlbums(): Song list and
+ *   columns (songAlbums() being album ordinals), waiting for
+ *   the background song table if it is not complete yet.
+ * - songTable(): The background task reading the song table.
+ * - getCachedCount(): Number of albums currently held in the cache.
+ * - getFailedFiles(): Album files whose track list could not be read.
+ */
+
+package database;
+
+import java.io.BufferedReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import model.Album;
+import model.InstanceRegistry;
+import model.Song;
+import model.SymbolTable;
+
+final class LazyAlbums {
+	private final Path[] files;
+	private final String[] titles;
+	private final String[] artists;
+	private final String[] genres;
+	private final String[] years;
+	private final LinkedHashMap<Integer, Album> cache;
+	private final Set<String> failed_files;
+	private final CompletableFuture<SongTable> song_table;
+
+	/**
+	 * Reads the header of each album file (in parallel), dropping files
+	 * whose header cannot be read, and starts reading the song table in
+	 * the background.
+	 *
+	 * @param album_files  Album files, in catalog order
+	 * @param cache_size   Maximum number of albums kept with their track lists
+	 */
+	LazyAlbums(List<Path> album_files, int cache_size) {
+		String[][] headers = new String[album_files.size()][];
+		IntStream.range(0, headers.length).parallel()
+			.forEach(i -> headers[i] = CatalogLoader.parseHeader(album_files.get(i)));
+
+		ArrayList<Path> kept = new ArrayList<Path>(headers.length);
+		ArrayList<String> kept_titles = new ArrayList<String>(headers.length);
+		ArrayList<String> kept_artists = new ArrayList<String>(headers.length);
+		ArrayList<String> kept_genres = new ArrayList<String>(headers.length);
+		ArrayList<String> kept_years = new ArrayList<String>(headers.length);
+		for (int i = 0; i < headers.length; i++) {
+			if (headers[i] != null) {
+				kept.add(album_files.get(i));
+				kept_titles.add(SymbolTable.intern(headers[i][0]));
+				kept_artists.add(SymbolTable.intern(headers[i][1]));
+				kept_genres.add(SymbolTable.intern(headers[i][2]));
+				kept_years.add(SymbolTable.intern(headers[i][3]));
+			}
+		}
+		this.files = kept.toArray(new Path[0]);
+		this.titles = kept_titles.toArray(new String[0]);
+		this.artists = kept_artists.toArray(new String[0]);
+		this.genres = kept_genres.toArray(new String[0]);
+		this.years = kept_years.toArray(new String[0]);
+
+		// Access ordered, so the eldest entry is the least recently used album
+		this.cache = new LinkedHashMap<Integer, Album>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Album> eldest) {
+				return size() > cache_size;
+			}
+		};
+		this.failed_files = Collections.synchronizedSet(new LinkedHashSet<String>());
+		this.song_table = CompletableFuture.supplyAsync(this::readSongTable);
+	}
+
+	List<Album> albums() {
+		return new AbstractList<Album>() {
+			public Album get(int index) {
+				return album(index);
+			}
+
+			public int size() {
+				return files.length;
+			}
+		};
+	}
+
+	List<String> albumTitles() {
+		return List.of(this.titles);
+	}
+
+	List<String> albumArtists() {
+		return List.of(this.artists);
+	}
+
+	List<String> albumGenres() {
+		return List.of(this.genres);
+	}
+
+	List<String> albumYears() {
+		return List.of(this.years);
+	}
+
+	List<Song> songs() {
+		return new AbstractList<Song>() {
+			public Song get(int index) {
+				SongTable table = songTable().join();
+				int album = table.albums[index];
+				return InstanceRegistry.song(table.titles[index], titles[album], artists[album]);
+			}
+
+			public int size() {
+				return songTable().join().titles.length;
+			}
+		};
+	}
+
+	List<String> songTitles() {
+		return new AbstractList<String>() {
+			public String get(int index) {
+				return songTable().join().titles[index];
+			}
+
+			public int size() {
+				return songTable().join().titles.length;
+			}
+		};
+	}
+
+	List<String> songArtists() {
+		return new AbstractList<String>() {
+			public String get(int index) {
+				return artists[songTable().join().albums[index]];
+			}
+
+			public int size() {
+				return songTable().join().titles.length;
+			}
+		};
+	}
+
+	List<Integer> songAlbums() {
+		return new AbstractList<Integer>() {
+			public Integer get(int index) {
+				return songTable().join().albums[index];
+			}
+
+			public int size() {
+				return songTable().join().titles.length;
+			}
+		};
+	}
+
+	CompletableFuture<SongTable> songTable() {
+		return this.song_table;
+	}
+
+	int getCachedCount() {
+		synchronized (this.cache) {
+			return this.cache.size();
+		}
+	}
+
+	/**
+	 * @return files  Names of the album files whose track list could not be
+	 *                read so far, in the order they failed
+	 */
+	List<String> getFailedFiles() {
+		synchronized (this.failed_files) {
+			return new ArrayList<String>(this.failed_files);
+		}
+	}
+
+	/**
+	 * This helper function returns the album at an ordinal, reading its file
+	 * if it is not cached. The album is frozen and shared, so the same
+	 * instance comes back for as long as any caller still holds it. If the
+	 * track list cannot be read, the album keeps its header (title, artist,
+	 * genre, year) without tracks, and the file is recorded as failed.
+	 */
+	private Album album(int ordinal) {
+		synchronized (this.cache) {
+			Album album = this.cache.get(ordinal);
+			if (album != null) {
+				return album;
+			}
+		}
+		// Read outside the lock so a slow file doesn't hold up cache hits
+		Album album = CatalogLoader.parseAlbum(this.files[ordinal]);
+		if (album == null) {
+			this.failed_files.add(this.files[ordinal].getFileName().toString());
+			album = new Album(this.titles[ordinal], this.artists[ordinal], this.genres[ordinal], this.years[ordinal]);
+		}
+		album = InstanceRegistry.album(album.freeze());
+		synchronized (this.cache) {
+			this.cache.put(ordinal, album);
+		}
+		return album;
+	}
+
+	/**
+	 * This helper function reads the track lists of all album files (in
+	 * parallel), keeping only each song's title and album ordinal.
+	 */
+	private SongTable readSongTable() {
+		String[][] tracks = new String[this.files.length][];
+		IntStream.range(0, tracks.length).parallel().forEach(i -> tracks[i] = readTracks(this.files[i]));
+		int count = 0;
+		for (String[] album : tracks) {
+			count += album.length;
+		}
+		SongTable table = new SongTable(count);
+		int next = 0;
+		for (int a = 0; a < tracks.length; a++) {
+			for (String title : tracks[a]) {
+				table.titles[next] = title;
+				table.albums[next++] = a;
+			}
+		}
+		return table;
+	}
+
+	private String[] readTracks(Path file) {
+		ArrayList<String> tracks = new ArrayList<String>();
+		try (BufferedReader reader = Files.newBufferedReader(file)) {
+			reader.readLine(); // header, already read
+			String name;
+			while ((name = reader.readLine()) != null) {
+				tracks.add(name);
+			}
+		} catch (Exception e) {
+			System.out.println("Error: " + file.getFileName() + " | " + e);
+			this.failed_files.add(file.getFileName().toString());
+		}
+		return tracks.toArray(new String[0]);
+	}
+
+	/**
+	 * Every song of the catalog as two parallel arrays: its title, and the
+	 * ordinal of the album it belongs to.
+	 */
+	static final class SongTable {
+		final String[] titles;
+		final int[] albums;
+
+		SongTable(int count) {
+			this.titles = new String[count];
+			this.albums = new int[count];
+		}
+	}
+}
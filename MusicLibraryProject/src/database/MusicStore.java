@@ -8,12 +8,24 @@
  * only recognize files (albums) if their data is present in the resources
  * directory's albums.txt file.
  * 
+ * The loaded albums, songs and search indexes form one immutable Catalog
+ * version. Reloads build a complete new version on the side and publish it
+ * with a single atomic reference swap, so searches never wait on a reload
+ * and never see a partially built catalog.
+ * 
  * Functions:
- * - Default Constructor: Reads the project's resources directory's associated 
- * albums.txt file, and populates the internal inventory and album stock variables 
- * with appropriately indicated songs and albums. If an album data is referenced
- * in albums.txt, but does not have an associated .txt file, the constructor will 
- * ignore it and move on to the next.
+ * - Default Constructor: Opens the compiled catalog snapshot (CatalogSnapshot) of
+ * the project's resources directory, recompiling it from the albums.txt file and
+ * album files when they have changed, and uses it to back the internal inventory 
+ * and album stock variables. If the snapshot cannot be used, the albums are read
+ * directly through CatalogLoader instead. If an album data is referenced in 
+ * albums.txt, but does not have an associated .txt file, it is ignored.
+ * - MusicStore(Path resources): Same as the default constructor, for another
+ *   resources directory.
+ * - MusicStore(Path resources, int shards) / MusicStore(List<Album> albums, int shards):
+ *   Split the search indexes into the given number of shards (ShardedIndex), which
+ *   every search fans out across in parallel. By default one shard per core is used
+ *   once the catalog is large enough to benefit.
  * - searchSongsByTitle(String title): Returns a list of songs whose titles match 
  * 	 the input string.
  * - searchSongsByArtist(String artist): Returns a list of songs whose artists match
@@ -22,203 +34,781 @@
  *   the input string.
  * - searchAlbumsByArtist(String artist): Returns a list of albums whose titles match
  *   the input string.
+ * - streamSongsByTitle(...) / streamSongsByArtist(...) / streamAlbumsByTitle(...) /
+ *   streamAlbumsByArtist(...): Lazily evaluated Stream versions of the searches.
+ * - searchSongsByTitle(title, token, limit) (and the other three searches): Return 
+ *   a single SearchPage of results, resumed from a continuation token.
+ *   
+ * - fuzzySearchSongsByTitle(title, limit) (and the other three searches): Typo 
+ *   tolerant searches (FuzzyIndex), returning the closest matches first.
+ * - completeSongTitles(prefix, k) / completeAlbumTitles(...) / completeArtists(...):
+ *   Top k autocompletions of a prefix (PrefixTrie).
+ * - searchSongs(String query) / searchSongs(query, token, limit): Songs matching a
+ *   field-qualified query (SongQuery), e.g. artist:adele year:>=2010 rolling, run
+ *   through a QueryPlan driven by the most selective index.
+ * - rankSongs(String query, int k): The k songs most relevant to free text, by
+ *   BM25 over title, artist and album (SongRanker), best first.
+ * - planSongQuery(String query): The QueryPlan of a query, whose explain() shows
+ *   the chosen plan and the candidates left after each stage.
+ * - filterAlbums(FacetFilter filter, int limit) / filterSongs(...): Albums or songs
+ *   matching a genre / year / artist filter, answered from bitmap posting lists
+ *   (FacetIndex), with the facet counts of all matches (FacetResult).
  *   
- * - loadAlbum(String title, String artist): Helper function that loads albums files 
- *   that match the configuration album.txt file contents.
- * - loadSongs(): Helper function that loads songs from all the loaded albums via 
- *   loadAlbum.
+ * - MusicStore(List<Album> albums): Builds a store over in-memory albums instead.
+ * - lazy(Path resources, int cached_albums): Builds a store that reads only album
+ *   headers at startup and loads track lists on demand into a bounded cache
+ *   (getCachedAlbumCount()).
+ * - getLoadReport(): Returns the snapshot open time, or the per-phase load timings
+ *   recorded by CatalogLoader.
+ * - reload(Set<String> changed_files): Re-parses the changed album files and
+ *   publishes the result as a new catalog version.
+ * - reloadAll(): Same as reload(), re-parsing every album file.
+ * - importCatalog(Path file): Streams a CSV / JSON-lines dump of albums into a
+ *   new catalog version (CatalogImporter), reporting throughput and rejected rows.
+ * - startWatching() / stopWatching(): Start / stop a background thread reloading
+ *   the catalog whenever files in the resources directory change.
+ * - getShardCount(): Number of shards the song indexes are split into.
+ * - setSearchEngine(SearchEngine engine) / getSearchEngine(): Choose whether the
+ *   substring searches run on the trigram indexes or on sequential scans of
+ *   the columnar catalog (ColumnarCatalog). Results are the same either way.
+ * - getCatalogVersion() / getLastReloadMillis(): Current catalog version, and
+ *   how long the last reload took.
+ * - getQueryCacheStats(): Statistics of the cache (QueryCache) answering repeated
+ *   searchSongsByTitle / ...ByArtist / searchAlbumsByTitle / ...ByArtist calls
+ *   until the next catalog version.
+ * - setQueryCacheCapacity(int capacity): Replaces that cache with an empty one
+ *   of another size (0 turns caching off).
+ * - publish(...): Helper function building and swapping in the next catalog version.
+ * - watch(WatchService service): Helper function run by the watcher thread.
  */
 
 package database;
 
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Scanner;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 import model.Album;
+import model.FacetResult;
+import model.InstanceRegistry;
+import model.SearchPage;
 import model.Song;
 
 public class MusicStore {
-	private ArrayList<Song> inventory;
-	private ArrayList<Album> album_stock;
-	private File[] files;
+	public static final String SNAPSHOT_FILE = ".catalog.bin";
+	public static final int LAZY_CACHE_ALBUMS = 256;
+	
+	// Quiet period after the last file event before a reload starts, so that
+	// an editor's save (or copying in several files) causes a single reload.
+	private static final long DEBOUNCE_MILLIS = 150;
+	
+	private final AtomicReference<Catalog> catalog = new AtomicReference<Catalog>();
+	private final Object reload_lock = new Object();
+	private final Path resources;
+	private final Path snapshot_file;
+	private final int shards;
+	private final int cached_albums; // 0 unless the store is lazy
+	private String load_report;
+	private volatile long last_reload_nanos;
+	private volatile SearchEngine engine = SearchEngine.TRIGRAM;
+	
+	// Ordinals matched by recent list searches, for the current catalog version
+	private volatile QueryCache<int[]> query_cache = new QueryCache<int[]>(QueryCache.DEFAULT_CAPACITY);
+	
+	private WatchService watcher;
+	private Thread watch_thread;
 	
 	public MusicStore() {
-		this.album_stock = new ArrayList<Album>();
-		this.inventory = new ArrayList<Song>();
-		
-		Path path = Paths.get("resources");
-		File catalogue = new File(path.toAbsolutePath().toString());
-		
-		
-		File[] file_list = catalogue.listFiles();
-		this.files = file_list;
-		
-		// Find albums.txt file
-		File album_indexes = null; 
-		for (File file : this.files) {
-			if (file.getName().equals("albums.txt")) {
-				album_indexes = file;
-			}
+		this(Paths.get("resources"));
+	}
+	
+	/**
+	 * Builds a store over the albums of the given resources directory. The
+	 * compiled snapshot is kept next to the directory.
+	 * 
+	 * @param resources  Path of the directory holding albums.txt and the album files
+	 */
+	public MusicStore(Path resources) {
+		this(resources, ShardedIndex.AUTO_SHARDS);
+	}
+	
+	/**
+	 * @param resources  Path of the directory holding albums.txt and the album files
+	 * @param shards     Number of index shards searches fan out across, or 
+	 *                   ShardedIndex.AUTO_SHARDS
+	 */
+	public MusicStore(Path resources, int shards) {
+		this(resources, shards, 0);
+	}
+	
+	/**
+	 * Builds a lazy store over the given resources directory: only albums.txt
+	 * and the header line of each album file are read at startup. An album's
+	 * track list is read when the album is first returned, and the most
+	 * recently used albums are kept in a cache of the given size. Song
+	 * searches use a title index that is built in the background; one that 
+	 * arrives before it is complete waits for it.
+	 * 
+	 * @param  resources      Path of the directory holding albums.txt and the album files
+	 * @param  cached_albums  Maximum number of albums kept with their track lists
+	 * @return store          The lazy MusicStore
+	 */
+	public static MusicStore lazy(Path resources, int cached_albums) {
+		if (cached_albums < 1) {
+			throw new IllegalArgumentException("The album cache must hold at least 1 album.");
 		}
-		
-		// If albums.txt file found, get each associated album data by line
-		// and use tokenized data to populate album_stock with loadAlbum.
-		if (album_indexes != null) {
-			try {
-				Scanner index_scanner = new Scanner(album_indexes);
-				while(index_scanner.hasNextLine()) {
-					String[] next_album = index_scanner.nextLine().split(",");
-					loadAlbum(next_album[0], next_album[1]);
+		return new MusicStore(resources, ShardedIndex.AUTO_SHARDS, cached_albums);
+	}
+	
+	private MusicStore(Path resources, int shards, int cached_albums) {
+		if (shards < 0) {
+			throw new IllegalArgumentException("Shard count cannot be negative.");
+		}
+		this.shards = shards;
+		this.cached_albums = cached_albums;
+		this.resources = resources.toAbsolutePath();
+		this.snapshot_file = this.resources.resolveSibling(SNAPSHOT_FILE);
+		long start = System.nanoTime();
+		if (cached_albums > 0) {
+			// Lazy: skip the snapshot, read headers only
+			CatalogLoader loader = new CatalogLoader(this.resources);
+			LazyAlbums lazy = new LazyAlbums(loader.albumFiles(), cached_albums);
+			this.catalog.set(Catalog.fromLazy(lazy, 1, shards));
+			this.load_report = "lazy: " + lazy.albums().size() + " album headers: " 
+					+ (System.nanoTime() - start) / 1_000_000 + " ms";
+			return;
+		}
+		try {
+			// Map the compiled catalog; it is only rebuilt from the .txt files
+			// when their modification times no longer match the snapshot.
+			CatalogSnapshot snapshot = CatalogSnapshot.open(this.resources, this.snapshot_file);
+			this.catalog.set(Catalog.fromSnapshot(snapshot, 1, shards));
+			this.load_report = (snapshot.wasRecompiled() ? "snapshot recompiled" : "snapshot mapped")
+					+ ": " + (System.nanoTime() - start) / 1_000_000 + " ms";
+		} catch (Exception e) {
+			System.out.println("Error With Catalog Snapshot | " + e);
+			
+			// Index the resources directory once, then parse the albums listed
+			// in albums.txt in parallel (order of albums.txt is preserved).
+			CatalogLoader loader = new CatalogLoader(this.resources);
+			this.catalog.set(Catalog.fromAlbums(loader.load(), 1, shards));
+			this.load_report = loader.getReport();
+		}
+	}
+	
+	/**
+	 * Builds a store over an in-memory list of albums instead of the
+	 * resources directory, e.g. for generated catalogs. The albums are
+	 * frozen, as the store shares them with its callers. Such a store has
+	 * no directory to reload from.
+	 * 
+	 * @param albums  Albums making up the catalog, in catalog order
+	 */
+	public MusicStore(List<Album> albums) {
+		this(albums, ShardedIndex.AUTO_SHARDS);
+	}
+	
+	/**
+	 * @param albums  Albums making up the catalog, in catalog order
+	 * @param shards  Number of index shards searches fan out across, or 
+	 *                ShardedIndex.AUTO_SHARDS
+	 */
+	public MusicStore(List<Album> albums, int shards) {
+		if (shards < 0) {
+			throw new IllegalArgumentException("Shard count cannot be negative.");
+		}
+		this.shards = shards;
+		this.cached_albums = 0;
+		this.resources = null;
+		this.snapshot_file = null;
+		this.catalog.set(Catalog.fromAlbums(albums, 1, shards));
+		this.load_report = "in-memory: " + albums.size() + " albums";
+	}
+	
+	/**
+	 * Returns how the catalog was loaded: the snapshot open / recompile time,
+	 * or the per-phase timings (directory scan, albums.txt index, album parse)
+	 * when falling back to the .txt files. A lazy store also lists the album
+	 * files whose track list could not be read when it was needed.
+	 * 
+	 * @return load_report  String summary of load timings
+	 */
+	public String getLoadReport() {
+		LazyAlbums lazy = this.catalog.get().lazy;
+		if (lazy != null && !lazy.getFailedFiles().isEmpty()) {
+			return this.load_report + " | unreadable album files: " + String.join(", ", lazy.getFailedFiles());
+		}
+		return this.load_report;
+	}
+	
+	/**
+	 * @return shards  Number of shards the song indexes are split into
+	 */
+	public int getShardCount() {
+		return this.catalog.get().songTitles().getShardCount();
+	}
+	
+	/**
+	 * Switches the substring searches (lists, streams and pages) to another
+	 * engine. Fuzzy searches and completions are not affected.
+	 * 
+	 * @param engine  SearchEngine to use from now on
+	 */
+	public void setSearchEngine(SearchEngine engine) {
+		if (engine == null) {
+			throw new IllegalArgumentException("Search engine cannot be null.");
+		}
+		this.engine = engine;
+	}
+	
+	public SearchEngine getSearchEngine() {
+		return this.engine;
+	}
+	
+	/**
+	 * @return count  Number of albums whose track lists the lazy cache holds,
+	 *                always 0 for stores that are not lazy
+	 */
+	public int getCachedAlbumCount() {
+		Catalog catalog = this.catalog.get();
+		return (catalog.lazy == null) ? 0 : catalog.lazy.getCachedCount();
+	}
+	
+	/**
+	 * @return version  Version of the catalog searches currently run on,
+	 *                  starting at 1 and increased by every reload
+	 */
+	public long getCatalogVersion() {
+		return this.catalog.get().version;
+	}
+	
+	/**
+	 * @return millis  Duration of the last reload, or 0 if none happened yet
+	 */
+	public long getLastReloadMillis() {
+		return this.last_reload_nanos / 1_000_000;
+	}
+	
+	/**
+	 * @return stats  Hits, misses, evictions and invalidations of the cache
+	 *                behind the list searches
+	 */
+	public QueryCache.Stats getQueryCacheStats() {
+		return this.query_cache.getStats();
+	}
+	
+	/**
+	 * @param capacity  Number of search results to keep, 0 to turn caching off
+	 */
+	public void setQueryCacheCapacity(int capacity) {
+		this.query_cache = new QueryCache<int[]>(capacity);
+	}
+	
+	/**
+	 * Bulk imports the albums of a CSV or JSON-lines dump (see CatalogImporter)
+	 * and publishes them, after the current albums, as a new catalog version.
+	 * Albums are frozen and registered batch by batch as the dump streams in;
+	 * the new version's indexes are built once the whole dump is read. The
+	 * load report becomes the import summary.
+	 * 
+	 * Imported albums have no album file in the resources directory, so a
+	 * later reload from the directory drops them again.
+	 * 
+	 * @param  file         Path of the .csv or .jsonl dump
+	 * @return importer     The finished CatalogImporter, holding the counts,
+	 *                      throughput and rejected-row diagnostics of the import
+	 * @throws IOException  if the dump cannot be read
+	 * @throws IllegalStateException if the store is lazy
+	 */
+	public CatalogImporter importCatalog(Path file) throws IOException {
+		if (this.cached_albums > 0) {
+			throw new IllegalStateException("Lazy stores only hold albums from their resources directory.");
+		}
+		CatalogImporter importer = new CatalogImporter(file);
+		synchronized (this.reload_lock) {
+			Catalog current = this.catalog.get();
+			ArrayList<Album> albums = new ArrayList<Album>(current.albums);
+			importer.run(current.albums, batch -> {
+				for (Album album : batch) {
+					albums.add(InstanceRegistry.album(album.freeze()));
 				}
-				index_scanner.close();
-			} catch (Exception e) {
-				System.out.println("Error With albums.txt Read | " + e);
+			});
+			if (importer.getAlbumCount() > 0) {
+				Catalog next = Catalog.fromAlbums(albums, current.version + 1, this.shards);
+				next.albumTitles(this.engine);
+				next.songTitles(this.engine);
+				this.catalog.set(next);
 			}
-			// Load inventory with songs from found albums (now in album_stock)
-			loadSongs();
+			this.load_report = importer.getReport();
+		}
+		return importer;
+	}
+	
+	/**
+	 * Reloads the catalog from the resources directory. Only the album files
+	 * named in changed_files are parsed again, every other album is carried
+	 * over from the current version. The new version, including its search
+	 * indexes, is fully built before it replaces the current one, so searches
+	 * running meanwhile keep using the previous version. The snapshot is then
+	 * recompiled so the next start maps the new catalog.
+	 * 
+	 * @param  changed_files  Names of the files created or modified in the directory
+	 * @return version        The newly published catalog version
+	 * @throws IllegalStateException if the store was built from in-memory albums
+	 */
+	public long reload(Set<String> changed_files) {
+		if (this.resources == null) {
+			throw new IllegalStateException("In-memory stores have no resources directory to reload.");
+		}
+		// Reloads run one at a time; the lock is separate from the watcher
+		// methods' so stopWatching() can wait for a reload in progress.
+		synchronized (this.reload_lock) {
+			return publish(changed_files);
+		}
+	}
+	
+	/**
+	 * Reloads the catalog as reload(Set) does, but parses every album file
+	 * again instead of carrying any over. The watcher uses it when the file
+	 * system dropped events (OVERFLOW), as the changed files are unknown.
+	 * 
+	 * @return version  The newly published catalog version
+	 * @throws IllegalStateException if the store was built from in-memory albums
+	 */
+	public long reloadAll() {
+		if (this.resources == null) {
+			throw new IllegalStateException("In-memory stores have no resources directory to reload.");
+		}
+		synchronized (this.reload_lock) {
+			return publish(null);
+		}
+	}
+	
+	/**
+	 * This helper function builds the next catalog version from the current
+	 * one and swaps it in. A null changed_files re-parses every album file.
+	 */
+	private long publish(Set<String> changed_files) {
+		long start = System.nanoTime();
+		Catalog current = this.catalog.get();
+		CatalogLoader loader = new CatalogLoader(this.resources);
+		if (this.cached_albums > 0) {
+			// Headers are cheap to re-read; track lists reload on demand
+			Catalog next = Catalog.fromLazy(new LazyAlbums(loader.albumFiles(), this.cached_albums),
+					current.version + 1, this.shards);
+			next.albumTitles(this.engine);
+			next.songTitles(this.engine);
+			this.catalog.set(next);
+			this.last_reload_nanos = System.nanoTime() - start;
+			this.load_report = "lazy reload: " + getLastReloadMillis() + " ms";
+			return next.version;
+		}
+		ArrayList<Album> albums = (changed_files == null) ? loader.load()
+				: loader.reload(current.albums, changed_files);
+		Catalog next = Catalog.fromAlbums(albums, current.version + 1, this.shards);
+		next.albumTitles(this.engine);
+		next.songTitles(this.engine);
+		this.catalog.set(next);
+		this.last_reload_nanos = System.nanoTime() - start;
+		this.load_report = "reloaded " + loader.getParsedCount() + " album files: "
+				+ getLastReloadMillis() + " ms";
+		
+		try {
+			CatalogSnapshot.compile(albums, CatalogSnapshot.fingerprint(this.resources), this.snapshot_file);
+		} catch (IOException e) {
+			System.out.println("Error With Catalog Snapshot | " + e);
+		}
+		return next.version;
+	}
+	
+	/**
+	 * Starts watching the resources directory on a background (daemon) thread.
+	 * Created, modified and deleted .txt files trigger a reload of the catalog
+	 * once no further change has arrived for a short quiet period. Calling
+	 * it while already watching does nothing.
+	 * 
+	 * @throws IOException if the directory cannot be watched
+	 * @throws IllegalStateException if the store was built from in-memory albums
+	 */
+	public synchronized void startWatching() throws IOException {
+		if (this.resources == null) {
+			throw new IllegalStateException("In-memory stores have no resources directory to watch.");
+		}
+		if (this.watch_thread != null) {
+			return;
+		}
+		WatchService service = FileSystems.getDefault().newWatchService();
+		this.resources.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+		this.watcher = service;
+		this.watch_thread = new Thread(() -> watch(service), "music-store-watcher");
+		this.watch_thread.setDaemon(true);
+		this.watch_thread.start();
+	}
+	
+	/**
+	 * Stops the background thread started by startWatching(), if any.
+	 */
+	public synchronized void stopWatching() {
+		if (this.watch_thread == null) {
+			return;
+		}
+		try {
+			this.watcher.close();
+			this.watch_thread.join();
+		} catch (IOException e) {
+			System.out.println("Error With Resources Watcher | " + e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
+		this.watcher = null;
+		this.watch_thread = null;
 	}
 	
 	/**
-	 * This function creates a deep copy list of songs with titles that match
-	 * the input parameter, based on ones currently in the inventory.
+	 * This function creates a list of songs with titles that match the input
+	 * parameter, based on ones currently in the inventory. Songs are immutable
+	 * and shared, so the list holds the inventory's own instances.
 	 * 
 	 * @param  title	String representation of a song title
 	 * @return list		ArrayList of songs with titles that match the input
 	 */
 	public ArrayList<Song> searchSongsByTitle(String title) {
+		Catalog catalog = this.catalog.get();
 		ArrayList<Song> list = new ArrayList<Song>();
-		for (Song song : this.inventory) {
-			if (song.getTitle().toLowerCase().equals(title.toLowerCase()) ||
-					song.getTitle().toLowerCase().contains(title.toLowerCase())) {
-				Song jingle = new Song(song.getTitle(), song.getAlbum(), song.getArtist());
-				list.add(jingle);
-			}
+		for (int ordinal : this.query_cache.computeIfAbsent("song title", title, catalog.version,
+				() -> catalog.songTitles(this.engine).search(title))) {
+			list.add(catalog.songs.get(ordinal));
 		}
 		return list;
 	}
 	
 	/**
-	 * This function creates a deep copy list of songs with artists that match
-	 * the input parameter, based on ones currently in the inventory.
+	 * This function creates a list of the (shared) songs with artists that
+	 * match the input parameter, based on ones currently in the inventory.
 	 * @param  artist	String representation of an artist
 	 * @return list		ArrayList of songs with artists that match the input
 	 */
 	public ArrayList<Song> searchSongsByArtist(String artist) {
+		Catalog catalog = this.catalog.get();
 		ArrayList<Song> list = new ArrayList<Song>();
-		for (Song song : this.inventory) {
-			if (song.getArtist().toLowerCase().equals(artist.toLowerCase()) ||
-					song.getArtist().toLowerCase().contains(artist.toLowerCase())) {
-				Song jingle = new Song(song.getTitle(), song.getAlbum(), song.getArtist());
-				list.add(jingle);
-			}
+		for (int ordinal : this.query_cache.computeIfAbsent("song artist", artist, catalog.version,
+				() -> catalog.songArtists(this.engine).search(artist))) {
+			list.add(catalog.songs.get(ordinal));
 		}
 		return list;
 	}
 	
 	/**
-	 * This function creates a deep copy list of albums with titles that match 
-	 * the input parameter, based on ones currently in the album stock.
+	 * This function creates a list of albums with titles that match the input
+	 * parameter, based on ones currently in the album stock. Store albums are
+	 * frozen (immutable) and shared, so they are not copied.
 	 * 
 	 * @param  title	String representation of an album title
 	 * @return list	    ArrayList of albums with titles that match the input
 	 */
 	public ArrayList<Album> searchAlbumsByTitle(String title) {
+		Catalog catalog = this.catalog.get();
 		ArrayList<Album> list = new ArrayList<Album>();
-		for (Album album : this.album_stock) {
-			if(album.getTitle().toLowerCase().equals(title.toLowerCase()) ||
-					album.getTitle().toLowerCase().contains(title.toLowerCase())) {
-				Album target = new Album(album.getTitle(), album.getArtist(), album.getGenre(), album.getYear());
-				for (String song : album.getSongs()) {
-					target.addSong(song);
-				}
-				list.add(target);
-			}
+		for (int ordinal : this.query_cache.computeIfAbsent("album title", title, catalog.version,
+				() -> catalog.albumTitles(this.engine).search(title))) {
+			list.add(catalog.albums.get(ordinal));
 		}
 		return list;
 	}
 	
 	/**
-	 * This function creates a deep copy list of albums with artists that match
-	 * the input parameter, based on ones currently in the album stock. 
+	 * This function creates a list of the (frozen, shared) albums with artists
+	 * that match the input parameter, based on ones currently in the album stock.
 	 * 
 	 * @param  artist	String representation of an album artist
 	 * @return list		ArrayList of albums with artists that match the input
 	 */
 	public ArrayList<Album> searchAlbumsByArtist(String artist) {
+		Catalog catalog = this.catalog.get();
 		ArrayList<Album> list = new ArrayList<Album>();
-		for (Album album : this.album_stock) {
-			if(album.getArtist().toLowerCase().equals(artist.toLowerCase()) ||
-					album.getArtist().toLowerCase().contains(artist.toLowerCase())) {
-				Album target = new Album(album.getTitle(), album.getArtist(), album.getGenre(), album.getYear());
-				for (String song : album.getSongs()) {
-					target.addSong(song);
-				}
-				list.add(target);
-			}
+		for (int ordinal : this.query_cache.computeIfAbsent("album artist", artist, catalog.version,
+				() -> catalog.albumArtists(this.engine).search(artist))) {
+			list.add(catalog.albums.get(ordinal));
 		}
 		return list;
 	}
 	
+	/**
+	 * Lazily evaluated version of searchSongsByTitle(String). Nothing is 
+	 * scanned until the stream is consumed, and a short-circuiting consumer
+	 * (limit, findFirst...) stops the scan as soon as it is satisfied. The
+	 * whole stream reads the catalog version current when it was created.
+	 * 
+	 * @param  title   String representation of a song title
+	 * @return stream  Stream of songs with titles that match the input
+	 */
+	public Stream<Song> streamSongsByTitle(String title) {
+		Catalog catalog = this.catalog.get();
+		return catalog.songTitles(this.engine).stream(title, 0).mapToObj(catalog.songs::get);
+	}
+	
+	public Stream<Song> streamSongsByArtist(String artist) {
+		Catalog catalog = this.catalog.get();
+		return catalog.songArtists(this.engine).stream(artist, 0).mapToObj(catalog.songs::get);
+	}
+	
+	public Stream<Album> streamAlbumsByTitle(String title) {
+		Catalog catalog = this.catalog.get();
+		return catalog.albumTitles(this.engine).stream(title, 0).mapToObj(catalog.albums::get);
+	}
+	
+	public Stream<Album> streamAlbumsByArtist(String artist) {
+		Catalog catalog = this.catalog.get();
+		return catalog.albumArtists(this.engine).stream(artist, 0).mapToObj(catalog.albums::get);
+	}
 	
 	/**
-	 * This helper function takes in a title and artist for each line in the album.txt
-	 * file, and searches the other files in the resources directory with a matching 
-	 * title / artist. If found, it converts the inner data into an equivalent Album
-	 * class object and saves it into the internal album_stock variable.
-	 * 
-	 * @param title		String representing album title (from album.txt)
-	 * @param artist	String representing album artist (from album.txt)
-	 */
-	private void loadAlbum(String title, String artist) {
-		for (File file : this.files) {
-			try {
-				if (!file.getName().equals("albums.txt")) {
-					String[] album_data = file.getName().split("_");
-					String target_title = album_data[0];
-					
-					// trim off ".txt"
-					String target_artist = album_data[1].substring(0, album_data[1].length() - 4);
-					
-					if (target_title.equals(title) && target_artist.equals(artist)) {
-						try {
-							Scanner scanner = new Scanner(file);
-							String[] header = scanner.nextLine().split(",");
-							Album album = new Album(header[0], header[1], header[2], header[3]);
-							while(scanner.hasNextLine()) {
-								String name = scanner.nextLine();
-								album.addSong(name);
-							}
-							this.album_stock.add(album);
-							scanner.close();
-						} catch (Exception e) {
-							System.out.println("Error: " + e);
-						}
-					}
-				}
-			}
-			catch (Exception e) {
-				System.out.println("Album-Load Function Error: " + file.getName() + " | " + e);
-			}
+	 * Paginated version of searchSongsByTitle(String). The scan resumes from
+	 * the token and stops as soon as the page is filled, so a broad query 
+	 * costs roughly the page size rather than the catalog size. Tokens carry
+	 * the catalog version they were issued for; one issued before a reload
+	 * is rejected, as its ordinals no longer point at the same songs.
+	 * 
+	 * @param  title  String representation of a song title
+	 * @param  token  Continuation token of the previous page, or null for the first
+	 * @param  limit  Maximum number of songs on the page
+	 * @return page   SearchPage of songs with titles that match the input
+	 * @throws IllegalArgumentException if the token is malformed or stale
+	 */
+	public SearchPage<Song> searchSongsByTitle(String title, String token, int limit) {
+		Catalog catalog = this.catalog.get();
+		int from = SearchPage.resumeOrdinal(token, catalog.version);
+		return SearchPage.fromOrdinals(catalog.songTitles(this.engine).stream(title, from), catalog.songs::get, token,
+				catalog.version, limit);
+	}
+	
+	public SearchPage<Song> searchSongsByArtist(String artist, String token, int limit) {
+		Catalog catalog = this.catalog.get();
+		int from = SearchPage.resumeOrdinal(token, catalog.version);
+		return SearchPage.fromOrdinals(catalog.songArtists(this.engine).stream(artist, from), catalog.songs::get, token,
+				catalog.version, limit);
+	}
+	
+	public SearchPage<Album> searchAlbumsByTitle(String title, String token, int limit) {
+		Catalog catalog = this.catalog.get();
+		int from = SearchPage.resumeOrdinal(token, catalog.version);
+		return SearchPage.fromOrdinals(catalog.albumTitles(this.engine).stream(title, from), catalog.albums::get, token,
+				catalog.version, limit);
+	}
+	
+	public SearchPage<Album> searchAlbumsByArtist(String artist, String token, int limit) {
+		Catalog catalog = this.catalog.get();
+		int from = SearchPage.resumeOrdinal(token, catalog.version);
+		return SearchPage.fromOrdinals(catalog.albumArtists(this.engine).stream(artist, from), catalog.albums::get, token,
+				catalog.version, limit);
+	}
+	
+	/**
+	 * Typo-tolerant version of searchSongsByTitle(String): returns the songs
+	 * whose titles contain the query with up to FuzzyIndex.maxEdits(title)
+	 * edits, closest first. Answered from the same trigram indexes as the 
+	 * exact searches, within FuzzyIndex.BUDGET_NANOS.
+	 * 
+	 * @param  title  String representation of a song title, possibly misspelled
+	 * @param  limit  Maximum number of songs returned
+	 * @return list   ArrayList of the closest matching songs, best first
+	 */
+	public ArrayList<Song> fuzzySearchSongsByTitle(String title, int limit) {
+		Catalog catalog = this.catalog.get();
+		ArrayList<Song> list = new ArrayList<Song>();
+		for (int ordinal : new FuzzyIndex(catalog.songTitles()).search(title, limit)) {
+			list.add(catalog.songs.get(ordinal));
+		}
+		return list;
+	}
+	
+	public ArrayList<Song> fuzzySearchSongsByArtist(String artist, int limit) {
+		Catalog catalog = this.catalog.get();
+		ArrayList<Song> list = new ArrayList<Song>();
+		for (int ordinal : new FuzzyIndex(catalog.songArtists()).search(artist, limit)) {
+			list.add(catalog.songs.get(ordinal));
 		}
+		return list;
+	}
+	
+	public ArrayList<Album> fuzzySearchAlbumsByTitle(String title, int limit) {
+		Catalog catalog = this.catalog.get();
+		ArrayList<Album> list = new ArrayList<Album>();
+		for (int ordinal : new FuzzyIndex(catalog.albumTitles()).search(title, limit)) {
+			list.add(catalog.albums.get(ordinal));
+		}
+		return list;
+	}
+	
+	public ArrayList<Album> fuzzySearchAlbumsByArtist(String artist, int limit) {
+		Catalog catalog = this.catalog.get();
+		ArrayList<Album> list = new ArrayList<Album>();
+		for (int ordinal : new FuzzyIndex(catalog.albumArtists()).search(artist, limit)) {
+			list.add(catalog.albums.get(ordinal));
+		}
+		return list;
+	}
+	
+	/**
+	 * Autocompletes a song title: returns up to k titles in the catalog that
+	 * start with the prefix (not case sensitive), the most common first, then
+	 * alphabetically. The trie is built on first use.
+	 * 
+	 * @param  prefix       Beginning of a song title
+	 * @param  k            Maximum number of completions
+	 * @return completions  List of completed titles, best first
+	 */
+	public List<String> completeSongTitles(String prefix, int k) {
+		return this.catalog.get().songTitleTrie().complete(prefix, k);
+	}
+	
+	public List<String> completeAlbumTitles(String prefix, int k) {
+		return this.catalog.get().albumTitleTrie().complete(prefix, k);
+	}
+	
+	/**
+	 * Autocompletes an artist name, artists with the most songs first.
+	 */
+	public List<String> completeArtists(String prefix, int k) {
+		return this.catalog.get().artistTrie().complete(prefix, k);
+	}
+	
+	/**
+	 * Returns the songs matching a query such as
+	 * artist:adele year:>=2010 genre:pop rolling (see SongQuery for the
+	 * syntax), in catalog order. The most selective clause an index can
+	 * answer produces the candidates; the others filter them.
+	 * 
+	 * @param  query  Query text
+	 * @return list   ArrayList of matching songs
+	 * @throws IllegalArgumentException  if the query cannot be parsed
+	 */
+	public ArrayList<Song> searchSongs(String query) {
+		Catalog catalog = this.catalog.get();
+		ArrayList<Song> list = new ArrayList<Song>();
+		QueryPlan.compile(SongQuery.parse(query), catalog).ordinals(0).forEach(o -> list.add(catalog.songs.get(o)));
+		return list;
 	}
 	
 	/**
-	 * This helper function is meant to run after all the albums have been parsed, identified,
-	 * and loaded into album_stock - then uses the data to create all the individual songs'
-	 * equivalent Song classes, storing them into the inventory variable.
+	 * Paginated version of searchSongs(String).
+	 */
+	public SearchPage<Song> searchSongs(String query, String token, int limit) {
+		Catalog catalog = this.catalog.get();
+		QueryPlan plan = QueryPlan.compile(SongQuery.parse(query), catalog);
+		int from = SearchPage.resumeOrdinal(token, catalog.version);
+		return SearchPage.fromOrdinals(plan.ordinals(from), catalog.songs::get, token, catalog.version, limit);
+	}
+	
+	/**
+	 * Returns the k songs most relevant to the query, best first: words
+	 * found in the title weigh most, then the artist, then the album, and
+	 * rarer words and shorter fields count more (BM25). Only the top k are
+	 * ever kept, so broad queries don't sort every match.
+	 * 
+	 * @param  query  Free text, e.g. "rolling deep adele"
+	 * @param  k      Maximum number of songs returned
+	 * @return list   ArrayList of the best matching songs, best first
 	 */
-	private void loadSongs() {
-		for (Album album : this.album_stock) {
-			for (String song : album.getSongs()) {
-				Song add_song = new Song(song, album.getTitle(), album.getArtist());
-				this.inventory.add(add_song);
+	public ArrayList<Song> rankSongs(String query, int k) {
+		Catalog catalog = this.catalog.get();
+		ArrayList<Song> list = new ArrayList<Song>();
+		for (int ordinal : catalog.songRanker().rank(query, k)) {
+			list.add(catalog.songs.get(ordinal));
+		}
+		return list;
+	}
+	
+	/**
+	 * @param  query  Query text
+	 * @return plan   The plan searchSongs(query) runs; explain() describes it
+	 */
+	public QueryPlan planSongQuery(String query) {
+		return QueryPlan.compile(SongQuery.parse(query), this.catalog.get());
+	}
+	
+	/**
+	 * Returns the albums matching a facet filter, e.g.
+	 * FacetFilter.genre("Rock").and(FacetFilter.years(1990, 1999)), along with
+	 * how many matches each genre, year and artist has. The posting lists
+	 * are built on the first filter of a catalog version.
+	 * 
+	 * @param  filter  Genre / year / artist filter
+	 * @param  limit   Maximum number of albums returned
+	 * @return result  First limit matching albums in catalog order, the total
+	 *                 and the facet counts
+	 */
+	public FacetResult<Album> filterAlbums(FacetFilter filter, int limit) {
+		Catalog catalog = this.catalog.get();
+		FacetIndex facets = catalog.albumFacets();
+		return facets.result(facets.select(filter), catalog.albums::get, limit);
+	}
+	
+	/**
+	 * Song version of filterAlbums(FacetFilter, int); a song has the genre
+	 * and year of its album.
+	 */
+	public FacetResult<Song> filterSongs(FacetFilter filter, int limit) {
+		Catalog catalog = this.catalog.get();
+		FacetIndex facets = catalog.songFacets();
+		return facets.result(facets.select(filter), catalog.songs::get, limit);
+	}
+	
+	/**
+	 * This helper function runs on the watcher thread: it collects the names
+	 * of changed .txt files until the directory has been quiet for
+	 * DEBOUNCE_MILLIS, then reloads the catalog with them. If events were
+	 * lost (OVERFLOW), which files changed is unknown, so every album file
+	 * is reloaded.
+	 */
+	private void watch(WatchService service) {
+		try {
+			while (true) {
+				HashSet<String> changed = new HashSet<String>();
+				boolean overflow = false;
+				WatchKey key = service.take();
+				while (key != null) {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							overflow = true;
+						} else if (event.context() instanceof Path) {
+							String name = ((Path) event.context()).getFileName().toString();
+							if (name.endsWith(".txt")) {
+								changed.add(name);
+							}
+						}
+					}
+					key.reset();
+					key = service.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+				}
+				if (overflow || !changed.isEmpty()) {
+					try {
+						if (overflow) {
+							reloadAll();
+						} else {
+							reload(changed);
+						}
+					} catch (RuntimeException e) {
+						System.out.println("Error With Catalog Reload | " + e);
+					}
+				}
 			}
+		} catch (ClosedWatchServiceException | InterruptedException e) {
+			// stopWatching() closed the service, the thread simply ends
 		}
 	}
 
@@ -0,0 +1,267 @@
+/*
+ * File: NGramIndex.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file implements a trigram inverted index over a fixed list
+ * of strings (song titles, artists, album titles...). Each distinct three
+ * character sequence of a folded value (lowercase, without accents, see
+ * Collation) maps to a sorted posting list of the ordinals (list positions)
+ * containing it. A "contains" query intersects the posting lists of its own
+ * trigrams, then verifies the surviving candidates, so the cost follows the
+ * number of candidates rather than the size of the list.
+ *
+ * Functions:
+ * - search(String query): Returns the ordinals, in ascending order, of every
+ *   value that contains the query (not case or accent sensitive).
+ * - stream(String query, int from): Lazily evaluated matches, starting at an
+ *   ordinal, for callers that only need the first few (paginated search).
+ * - estimate(String query): Upper bound on the matches, for query planning.
+ * - size(): Number of indexed values.
+ *
+ * Queries shorter than a trigram cannot be answered from postings, so they
+ * fall back to a scan over the precomputed lowercase keys.
+ */
+
+package database;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import model.Collation;
+
+public class NGramIndex {
+	public static final int GRAM = 3;
+	private static final int[] EMPTY = new int[0];
+
+	private String[] keys;
+	private HashMap<Long, int[]> postings;
+
+	/**
+	 * Builds the index over the values, whose list positions become the
+	 * ordinals returned by search().
+	 *
+	 * @param values  List of strings to index
+	 */
+	public NGramIndex(List<String> values) {
+		this.keys = new String[values.size()];
+		HashMap<Long, Postings> building = new HashMap<Long, Postings>();
+
+		for (int i = 0; i < this.keys.length; i++) {
+			String key = normalize(values.get(i));
+			this.keys[i] = key;
+			for (int g = 0; g + GRAM <= key.length(); g++) {
+				building.computeIfAbsent(gram(key, g), k -> new Postings()).add(i);
+			}
+		}
+
+		// Trim every posting list to its final length
+		this.postings = new HashMap<Long, int[]>(building.size() * 2);
+		for (Long gram : building.keySet()) {
+			this.postings.put(gram, building.get(gram).toArray());
+		}
+	}
+	
+	/**
+	 * Returns the ordinals of all values containing the query, ignoring case.
+	 *
+	 * @param  query   String to search for
+	 * @return result  Ascending array of matching ordinals
+	 */
+	public int[] search(String query) {
+		String target = normalize(query);
+		if (target.length() < GRAM) {
+			return scan(target);
+		}
+
+		// Gather the posting list of every trigram in the query; any missing
+		// trigram means no value can contain the query.
+		int grams = target.length() - GRAM + 1;
+		int[][] lists = new int[grams][];
+		for (int g = 0; g < grams; g++) {
+			int[] list = this.postings.get(gram(target, g));
+			if (list == null) {
+				return EMPTY;
+			}
+			lists[g] = list;
+		}
+
+		// Intersect from the shortest list upward to keep candidates small
+		Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+		int[] candidates = lists[0];
+		for (int l = 1; l < lists.length && candidates.length > 0; l++) {
+			if (lists[l] != lists[l - 1]) {
+				candidates = intersect(candidates, lists[l]);
+			}
+		}
+
+		// Trigrams may appear out of order, so confirm the substring itself
+		int[] result = new int[candidates.length];
+		int count = 0;
+		for (int ordinal : candidates) {
+			if (this.keys[ordinal].contains(target)) {
+				result[count++] = ordinal;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Lazily evaluated form of search(), starting at the given ordinal. The
+	 * shortest posting list drives the stream and each candidate is probed
+	 * against the others, so a consumer that stops early (a filled page)
+	 * never visits the remaining postings.
+	 *
+	 * @param  query   String to search for
+	 * @param  from    First ordinal that may be returned
+	 * @return stream  Ascending stream of matching ordinals
+	 */
+	public IntStream stream(String query, int from) {
+		String target = normalize(query);
+		if (target.length() < GRAM) {
+			return IntStream.range(Math.min(from, this.keys.length), this.keys.length)
+					.filter(i -> this.keys[i].contains(target));
+		}
+		int grams = target.length() - GRAM + 1;
+		int[][] lists = new int[grams][];
+		for (int g = 0; g < grams; g++) {
+			int[] list = this.postings.get(gram(target, g));
+			if (list == null) {
+				return IntStream.empty();
+			}
+			lists[g] = list;
+		}
+		Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+		int[] driver = lists[0];
+		int start = Arrays.binarySearch(driver, from);
+		if (start < 0) {
+			start = -start - 1;
+		}
+		return Arrays.stream(driver, start, driver.length)
+				.filter(ordinal -> {
+					for (int l = 1; l < lists.length; l++) {
+						if (Arrays.binarySearch(lists[l], ordinal) < 0) {
+							return false;
+						}
+					}
+					return this.keys[ordinal].contains(target);
+				});
+	}
+
+	/**
+	 * Returns an upper bound on the number of values search(query) finds,
+	 * without searching: the length of the query's shortest trigram posting
+	 * list (every value, for queries shorter than a trigram).
+	 *
+	 * @param  query     String to search for
+	 * @return estimate  Most matches the query can have
+	 */
+	int estimate(String query) {
+		String target = normalize(query);
+		int estimate = this.keys.length;
+		for (int g = 0; g + GRAM <= target.length(); g++) {
+			int[] list = this.postings.get(gram(target, g));
+			if (list == null) {
+				return 0;
+			}
+			estimate = Math.min(estimate, list.length);
+		}
+		return estimate;
+	}
+
+	public int size() {
+		return this.keys.length;
+	}
+
+	/**
+	 * @return key  Lowercase key of the value at an ordinal
+	 */
+	String key(int ordinal) {
+		return this.keys[ordinal];
+	}
+
+	/**
+	 * @return postings  Ascending ordinals of the values containing a trigram
+	 *                   (see gram()), empty if none does
+	 */
+	int[] postings(long gram) {
+		int[] postings = this.postings.get(gram);
+		return (postings == null) ? EMPTY : postings;
+	}
+
+	/**
+	 * Helper function for queries too short to have a trigram, scanning
+	 * the precomputed lowercase keys.
+	 */
+	private int[] scan(String target) {
+		int[] result = new int[this.keys.length];
+		int count = 0;
+		for (int i = 0; i < this.keys.length; i++) {
+			if (this.keys[i].contains(target)) {
+				result[count++] = i;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Merge-style intersection of two ascending ordinal arrays.
+	 */
+	private static int[] intersect(int[] a, int[] b) {
+		int[] result = new int[Math.min(a.length, b.length)];
+		int i = 0, j = 0, count = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				result[count++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Packs the three characters starting at offset into a single long key.
+	 */
+	static long gram(String key, int offset) {
+		return ((long) key.charAt(offset) << 32)
+				| ((long) key.charAt(offset + 1) << 16)
+				| key.charAt(offset + 2);
+	}
+
+	/**
+	 * Keys are folded (see Collation), so matches ignore case and accents.
+	 */
+	static String normalize(String value) {
+		return Collation.fold(value);
+	}
+
+	/**
+	 * Growable posting list used while building. Ordinals are appended in
+	 * ascending order, so a trigram repeated within the same value only
+	 * needs to be compared against the last entry.
+	 */
+	private static class Postings {
+		private int[] data = new int[4];
+		private int size;
+
+		void add(int ordinal) {
+			if (this.size > 0 && this.data[this.size - 1] == ordinal) {
+				return;
+			}
+			if (this.size == this.data.length) {
+				this.data = Arrays.copyOf(this.data, this.size * 2);
+			}
+			this.data[this.size++] = ordinal;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(this.data, this.size);
+		}
+	}
+}
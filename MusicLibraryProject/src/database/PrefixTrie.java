@@ -0,0 +1,264 @@
+/*
+ * File: PrefixTrie.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file implements the autocomplete index behind the "?" search
+ * prompts: a compressed prefix trie (radix tree) of values such as song
+ * titles, album titles or artist names, matched without regard to case or
+ * accents (see Collation).
+ * Chains of single-child nodes are merged into one edge, so the trie has
+ * at most two nodes per distinct value.
+ *
+ * Each value carries a count (how many times it was added, e.g. the number
+ * of songs by an artist) and every node remembers the largest count below
+ * it. Completions come back most frequent first, then alphabetically; a
+ * best-first walk guided by those maxima only visits the branches that can
+ * still hold one of the top k, so a lookup costs roughly the prefix length
+ * plus k, regardless of how many values share the prefix.
+ *
+ * Functions:
+ * - add(String value) / remove(String value): Count a value in or out,
+ *   keeping the trie compressed and the subtree maxima current.
+ * - complete(String prefix, int k): Top k values starting with prefix.
+ * - size(): Number of distinct values.
+ */
+
+package database;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+public class PrefixTrie {
+	private final Node root = new Node("");
+	private int size;
+
+	/**
+	 * Counts one more occurrence of a value. The first spelling added is the
+	 * one completions show.
+	 *
+	 * @param value  String to add
+	 */
+	public void add(String value) {
+		String key = NGramIndex.normalize(value);
+		Node node = this.root;
+		int depth = 0;
+		ArrayList<Node> path = new ArrayList<Node>();
+		path.add(node);
+		while (depth < key.length()) {
+			Node child = (node.children == null) ? null : node.children.get(key.charAt(depth));
+			if (child == null) {
+				// New leaf holding the whole remaining key
+				child = new Node(key.substring(depth));
+				node.child(child);
+				node = child;
+				path.add(node);
+				depth = key.length();
+				break;
+			}
+			int common = commonLength(child.edge, key, depth);
+			if (common < child.edge.length()) {
+				// Split the edge where the key leaves it
+				Node middle = new Node(child.edge.substring(0, common));
+				child.edge = child.edge.substring(common);
+				middle.child(child);
+				middle.max = child.max;
+				node.child(middle);
+				child = middle;
+			}
+			node = child;
+			path.add(node);
+			depth += common;
+		}
+		if (node.count == 0) {
+			node.value = value;
+			this.size++;
+		}
+		node.count++;
+		for (Node visited : path) {
+			visited.max = Math.max(visited.max, node.count);
+		}
+	}
+
+	/**
+	 * Counts one occurrence of a value out; the value disappears from the
+	 * trie with its last occurrence.
+	 *
+	 * @param  value  String to remove
+	 * @return true   if the value was present
+	 *         false  if it was not
+	 */
+	public boolean remove(String value) {
+		String key = NGramIndex.normalize(value);
+		ArrayList<Node> path = new ArrayList<Node>();
+		Node node = this.root;
+		path.add(node);
+		int depth = 0;
+		while (depth < key.length()) {
+			Node child = (node.children == null) ? null : node.children.get(key.charAt(depth));
+			if (child == null || !key.startsWith(child.edge, depth)) {
+				return false;
+			}
+			node = child;
+			path.add(node);
+			depth += child.edge.length();
+		}
+		if (node.count == 0) {
+			return false;
+		}
+		node.count--;
+		if (node.count == 0) {
+			node.value = null;
+			this.size--;
+		}
+
+		// Prune and re-compress bottom up, then refresh the maxima
+		for (int i = path.size() - 1; i > 0; i--) {
+			Node current = path.get(i);
+			Node parent = path.get(i - 1);
+			if (current.count == 0 && current.children == null) {
+				parent.children.remove(current.edge.charAt(0));
+				if (parent.children.isEmpty()) {
+					parent.children = null;
+				}
+			} else if (current.count == 0 && current.children.size() == 1) {
+				Node only = current.children.values().iterator().next();
+				only.edge = current.edge + only.edge;
+				parent.child(only);
+			} else {
+				current.refreshMax();
+			}
+		}
+		this.root.refreshMax();
+		return true;
+	}
+
+	/**
+	 * Returns up to k values starting with the prefix (ignoring case), the
+	 * most frequent first and alphabetically among equals.
+	 *
+	 * @param  prefix       Beginning of the values to complete
+	 * @param  k            Maximum number of completions
+	 * @return completions  List of completed values, best first
+	 */
+	public List<String> complete(String prefix, int k) {
+		ArrayList<String> completions = new ArrayList<String>();
+		String key = NGramIndex.normalize(prefix);
+
+		// Walk down to the node whose subtree holds every match
+		Node node = this.root;
+		int depth = 0;
+		StringBuilder path = new StringBuilder();
+		while (depth < key.length()) {
+			Node child = (node.children == null) ? null : node.children.get(key.charAt(depth));
+			if (child == null) {
+				return completions;
+			}
+			int common = commonLength(child.edge, key, depth);
+			if (common < child.edge.length() && depth + common < key.length()) {
+				return completions;
+			}
+			node = child;
+			path.append(child.edge);
+			depth += child.edge.length();
+		}
+
+		// Best-first: a node is ranked by the best value it could still hold
+		// (its max count, and its path, which sorts before any value below it)
+		PriorityQueue<Entry> queue = new PriorityQueue<Entry>();
+		queue.add(new Entry(node, path.toString(), node.max, false));
+		while (!queue.isEmpty() && completions.size() < k) {
+			Entry entry = queue.poll();
+			if (entry.terminal) {
+				completions.add(entry.node.value);
+				continue;
+			}
+			if (entry.node.count > 0) {
+				queue.add(new Entry(entry.node, entry.path, entry.node.count, true));
+			}
+			if (entry.node.children != null) {
+				for (Node child : entry.node.children.values()) {
+					queue.add(new Entry(child, entry.path + child.edge, child.max, false));
+				}
+			}
+		}
+		return completions;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Length of the common beginning of an edge and the key from offset on.
+	 */
+	private static int commonLength(String edge, String key, int offset) {
+		int length = 0;
+		while (length < edge.length() && offset + length < key.length()
+				&& edge.charAt(length) == key.charAt(offset + length)) {
+			length++;
+		}
+		return length;
+	}
+
+	private static final class Node {
+		String edge;
+		HashMap<Character, Node> children;
+		String value; // shown spelling, set while count > 0
+		int count;
+		int max;
+
+		Node(String edge) {
+			this.edge = edge;
+		}
+
+		void child(Node child) {
+			if (this.children == null) {
+				this.children = new HashMap<Character, Node>(4);
+			}
+			this.children.put(child.edge.charAt(0), child);
+		}
+
+		void refreshMax() {
+			int max = this.count;
+			if (this.children != null) {
+				for (Node child : this.children.values()) {
+					max = Math.max(max, child.max);
+				}
+			}
+			this.max = max;
+		}
+	}
+
+	/**
+	 * Queue entry for complete(): either a node still to expand, or a value
+	 * ready to be returned.
+	 */
+	private static final class Entry implements Comparable<Entry> {
+		final Node node;
+		final String path;
+		final int rank;
+		final boolean terminal;
+
+		Entry(Node node, String path, int rank, boolean terminal) {
+			this.node = node;
+			this.path = path;
+			this.rank = rank;
+			this.terminal = terminal;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			if (this.rank != other.rank) {
+				return Integer.compare(other.rank, this.rank);
+			}
+			int order = this.path.compareTo(other.path);
+			if (order != 0) {
+				return order;
+			}
+			// A value sorts before the branches continuing it
+			return Boolean.compare(other.terminal, this.terminal);
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * File: QueryCache.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file implements a bounded, least-recently-used cache of
+ * search results, so that the searches users repeat all the time ("Adele",
+ * "Coldplay") are answered without scanning the collection again. Entries
+ * are keyed by search kind (e.g. "song artist") and folded query (see
+ * Collation), so "ADELE" and "adele" share one entry.
+ *
+ * Every entry belongs to a version of the searched data: the MusicStore's
+ * catalog version, or a library's modification count. Asking with a newer
+ * version drops every entry at once; results computed against an older
+ * version are not stored.
+ *
+ * Functions:
+ * - computeIfAbsent(String kind, String query, long version, Supplier<V> search):
+ *   Returns the cached result, or runs the search and caches its result.
+ * - get(...) / put(...): The lookup and the store on their own.
+ * - getStats(): Hit, miss, eviction and invalidation counts (QueryCache.Stats).
+ */
+
+package database;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public class QueryCache<V> {
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private final int capacity;
+	private final LinkedHashMap<String, V> entries;
+	private long version;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+
+	/**
+	 * @param capacity  Maximum number of cached results, 0 to cache nothing
+	 */
+	public QueryCache(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Cache capacity cannot be negative.");
+		}
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<String, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+				if (size() > QueryCache.this.capacity) {
+					QueryCache.this.evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached result of a search, or runs the search and caches
+	 * its result. The search runs outside the cache's lock, so a slow search
+	 * never holds up lookups of other queries.
+	 *
+	 * @param  kind     Name of the search, e.g. "song title"
+	 * @param  query    Query searched for
+	 * @param  version  Version of the data the search runs on
+	 * @param  search   Computes the result on a miss
+	 * @return result   Cached or freshly computed result
+	 */
+	public V computeIfAbsent(String kind, String query, long version, Supplier<V> search) {
+		V result = get(kind, query, version);
+		if (result == null) {
+			result = search.get();
+			put(kind, query, version, result);
+		}
+		return result;
+	}
+
+	/**
+	 * @return result  Cached result of the search at this version, or null
+	 */
+	public synchronized V get(String kind, String query, long version) {
+		advance(version);
+		V result = (version == this.version) ? this.entries.get(key(kind, query)) : null;
+		if (result == null) {
+			this.misses++;
+		} else {
+			this.hits++;
+		}
+		return result;
+	}
+
+	/**
+	 * Caches a search result, unless it was computed against an older
+	 * version than the cache holds.
+	 */
+	public synchronized void put(String kind, String query, long version, V result) {
+		advance(version);
+		if (version == this.version && result != null && this.capacity > 0) {
+			this.entries.put(key(kind, query), result);
+		}
+	}
+
+	public synchronized Stats getStats() {
+		return new Stats(this.hits, this.misses, this.evictions, this.invalidations, this.entries.size());
+	}
+
+	/**
+	 * This helper function drops every entry once the data moved on to a
+	 * newer version.
+	 */
+	private void advance(long version) {
+		if (version > this.version) {
+			this.invalidations += this.entries.size();
+			this.entries.clear();
+			this.version = version;
+		}
+	}
+
+	private static String key(String kind, String query) {
+		return kind + '\u0000' + NGramIndex.normalize(query);
+	}
+
+	/**
+	 * Counters of a QueryCache at one point in time.
+	 */
+	public static final class Stats {
+		private final long hits;
+		private final long misses;
+		private final long evictions;
+		private final long invalidations;
+		private final int size;
+
+		Stats(long hits, long misses, long evictions, long invalidations, int size) {
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+			this.invalidations = invalidations;
+			this.size = size;
+		}
+
+		public long getHits() {
+			return this.hits;
+		}
+
+		public long getMisses() {
+			return this.misses;
+		}
+
+		/**
+		 * @return evictions  Entries dropped to stay within the capacity
+		 */
+		public long getEvictions() {
+			return this.evictions;
+		}
+
+		/**
+		 * @return invalidations  Entries dropped because the data changed
+		 */
+		public long getInvalidations() {
+			return this.invalidations;
+		}
+
+		public int getSize() {
+			return this.size;
+		}
+
+		public double getHitRate() {
+			long lookups = this.hits + this.misses;
+			return (lookups == 0) ? 0 : (double) this.hits / lookups;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("hits: %d | misses: %d | evictions: %d | invalidations: %d | size: %d",
+					this.hits, this.misses, this.evictions, this.invalidations, this.size);
+		}
+	}
+}
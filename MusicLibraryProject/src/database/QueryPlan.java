@@ -0,0 +1,244 @@
+/*
+ * File: QueryPlan.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file compiles a SongQuery against one catalog version into
+ * an execution plan. Every clause that an index can answer on its own
+ * (genre and year from the facet bitmaps, title, artist and bare terms from
+ * the trigram indexes) is costed: bitmaps know their exact size, trigram
+ * indexes give an upper bound from their shortest posting list. The
+ * cheapest becomes the driver, which produces the candidate songs; every
+ * other clause is then applied to the candidates as a filter: bitmap
+ * membership tests before substring tests, and within each the filters
+ * expected to keep the fewest candidates first.
+ * Queries with nothing to drive them (only album: or negated clauses)
+ * scan every song.
+ *
+ * Results come out in catalog order, so plans can be paginated by ordinal.
+ *
+ * Functions:
+ * - ordinals(int from): Lazily evaluated matches from an ordinal on.
+ * - explain(): The plan, one line per stage, with the candidates left after
+ *   each stage (this runs the query).
+ */
+
+package database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import database.SongQuery.Clause;
+import database.SongQuery.Field;
+import model.Song;
+
+public class QueryPlan {
+	private final SongQuery query;
+	private final int size;
+	private final Stage driver;
+	private final List<Stage> filters;
+	private int[] driven; // the driver's matches, once fetched
+
+	private QueryPlan(SongQuery query, int size, Stage driver, List<Stage> filters) {
+		this.query = query;
+		this.size = size;
+		this.driver = driver;
+		this.filters = filters;
+	}
+
+	/**
+	 * Costs every clause against the catalog's indexes and picks the
+	 * driver. Facet indexes are built if they are not yet.
+	 */
+	static QueryPlan compile(SongQuery query, Catalog catalog) {
+		List<Song> songs = catalog.songs;
+		ArrayList<Stage> stages = new ArrayList<Stage>();
+		for (Clause clause : query.getClauses()) {
+			stages.add(stage(clause, catalog, songs));
+		}
+
+		Stage driver = null;
+		for (Stage stage : stages) {
+			if (stage.source != null && !stage.clause.isNegated()
+					&& (driver == null || stage.estimate < driver.estimate)) {
+				driver = stage;
+			}
+		}
+		ArrayList<Stage> filters = new ArrayList<Stage>(stages);
+		filters.remove(driver);
+		int size = songs.size();
+		filters.sort((a, b) -> (a.bitmap() != b.bitmap()) ? Boolean.compare(b.bitmap(), a.bitmap())
+				: Integer.compare(a.survivors(size), b.survivors(size)));
+		return new QueryPlan(query, size, driver, filters);
+	}
+
+	/**
+	 * @param  from      First ordinal that may be returned
+	 * @return ordinals  Ascending stream of the matching song ordinals
+	 */
+	public IntStream ordinals(int from) {
+		IntStream candidates;
+		if (this.driver == null) {
+			candidates = IntStream.range(Math.min(Math.max(0, from), this.size), this.size);
+		} else {
+			int[] source = driven();
+			int start = Arrays.binarySearch(source, from);
+			candidates = Arrays.stream(source, (start < 0) ? -start - 1 : start, source.length);
+		}
+		for (Stage filter : this.filters) {
+			candidates = candidates.filter(filter.test);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Runs the plan one stage at a time and describes it, e.g.
+	 *   plan for: artist:adele genre:pop rolling (1000000 songs)
+	 *     1. driver  rolling        trigram indexes (title, artist), estimate 120  -> 96
+	 *     2. filter  genre:pop      bitmap                                         -> 40
+	 *     3. filter  artist:adele   substring                                      -> 12
+	 *
+	 * @return explain  The plan with the candidates left after each stage
+	 */
+	public String explain() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("plan for: ").append(this.query).append(" (").append(this.size).append(" songs)\n");
+		int[] candidates;
+		int step = 1;
+		if (this.driver == null) {
+			candidates = IntStream.range(0, this.size).toArray();
+			line(builder, step++, "scan", "all songs", "full scan", candidates.length);
+		} else {
+			candidates = driven();
+			line(builder, step++, "driver", this.driver.clause.toString(),
+					this.driver.access + ", estimate " + this.driver.estimate, candidates.length);
+		}
+		for (Stage filter : this.filters) {
+			candidates = Arrays.stream(candidates).filter(filter.test).toArray();
+			line(builder, step++, "filter", filter.clause.toString(), filter.check, candidates.length);
+		}
+		return builder.toString();
+	}
+
+	@Override
+	public String toString() {
+		return explain();
+	}
+
+	private int[] driven() {
+		if (this.driven == null) {
+			this.driven = this.driver.source.get();
+		}
+		return this.driven;
+	}
+
+	private static void line(StringBuilder builder, int step, String role, String clause, String access, int count) {
+		builder.append(String.format("  %d. %-6s  %-24s %-46s -> %d%n", step, role, clause, access, count));
+	}
+
+	/**
+	 * This helper function works out how one clause can be answered: as a
+	 * driver (source, estimate) if an index covers it, and as a filter.
+	 */
+	private static Stage stage(Clause clause, Catalog catalog, List<Song> songs) {
+		String value = clause.getValue();
+		switch (clause.getField()) {
+		case GENRE:
+		case YEAR: {
+			FacetIndex facets = catalog.songFacets();
+			RoaringBitmap bitmap = (clause.getField() == Field.GENRE) ? facets.genre(value)
+					: facets.years(clause.getFrom(), clause.getTo());
+			return new Stage(clause, bitmap.cardinality(), bitmap::toArray, "bitmap", "bitmap",
+					negate(clause, bitmap::contains));
+		}
+		case TITLE: {
+			ShardedIndex index = catalog.songTitles();
+			return new Stage(clause, index.estimate(value), () -> index.search(value), "trigram index", "substring",
+					negate(clause, o -> songs.get(o).getTitleKey().contains(value)));
+		}
+		case ARTIST: {
+			ShardedIndex index = catalog.songArtists();
+			return new Stage(clause, index.estimate(value), () -> index.search(value), "trigram index", "substring",
+					negate(clause, o -> songs.get(o).getArtistKey().contains(value)));
+		}
+		case TEXT: {
+			ShardedIndex titles = catalog.songTitles();
+			ShardedIndex artists = catalog.songArtists();
+			return new Stage(clause, titles.estimate(value) + artists.estimate(value),
+					() -> union(titles.search(value), artists.search(value)), "trigram indexes (title, artist)",
+					"substring (title, artist)", negate(clause, o -> songs.get(o).getTitleKey().contains(value)
+							|| songs.get(o).getArtistKey().contains(value)));
+		}
+		default:
+			// album: has no song-level index, it is always a filter
+			return new Stage(clause, songs.size(), null, null, "substring",
+					negate(clause, o -> songs.get(o).getAlbumKey().contains(value)));
+		}
+	}
+
+	private static IntPredicate negate(Clause clause, IntPredicate test) {
+		return clause.isNegated() ? test.negate() : test;
+	}
+
+	/**
+	 * Merges two ascending ordinal arrays, dropping duplicates.
+	 */
+	private static int[] union(int[] a, int[] b) {
+		int[] result = new int[a.length + b.length];
+		int i = 0, j = 0, n = 0;
+		while (i < a.length || j < b.length) {
+			if (j == b.length || (i < a.length && a[i] < b[j])) {
+				result[n++] = a[i++];
+			} else if (i == a.length || a[i] > b[j]) {
+				result[n++] = b[j++];
+			} else {
+				result[n++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * One clause of the plan. source is null when no index can produce the
+	 * clause's matches by itself.
+	 */
+	private static final class Stage {
+		final Clause clause;
+		final int estimate;
+		final Source source;
+		final String access;
+		final String check;
+		final IntPredicate test;
+
+		Stage(Clause clause, int estimate, Source source, String access, String check, IntPredicate test) {
+			this.clause = clause;
+			this.estimate = estimate;
+			this.source = source;
+			this.access = access;
+			this.check = check;
+			this.test = test;
+		}
+
+		boolean bitmap() {
+			return this.check.equals("bitmap");
+		}
+
+		/**
+		 * Candidates expected to pass the filter, out of size.
+		 */
+		int survivors(int size) {
+			if (this.source == null) {
+				return size; // no estimate
+			}
+			return this.clause.isNegated() ? size - Math.min(size, this.estimate) : this.estimate;
+		}
+	}
+
+	private interface Source {
+		int[] get();
+	}
+}
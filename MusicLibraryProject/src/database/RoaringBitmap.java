@@ -0,0 +1,542 @@
+/*
+ * File: RoaringBitmap.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file implements an immutable compressed bitmap of ordinals
+ * (album or song positions), in the style of Roaring bitmaps, for the facet
+ * indexes (see FacetIndex). Ordinals are split by their high 16 bits into
+ * containers of up to 65,536 values each. A sparse container is a sorted
+ * char array of its low 16 bits; once it would hold more than 4,096 values
+ * it becomes a 1,024 word (8 KB) bitset, which is never larger. Boolean
+ * operations work container by container, picking a merge, a probe or a
+ * word-wise operation depending on the two container kinds.
+ *
+ * Functions:
+ * - and(other) / or(other) / andNot(other): Intersection, union, difference.
+ * - andCardinality(other): Size of the intersection, without building it
+ *   (facet counts).
+ * - cardinality() / isEmpty() / contains(int ordinal).
+ * - toArray() / forEach(IntConsumer action) / stream(): Ordinals in ascending
+ *   order.
+ * - of(int... ordinals) / range(int from, int to): Bitmaps of given ordinals.
+ * - Builder: Builds a bitmap from ordinals added in ascending order.
+ */
+
+package database;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+public final class RoaringBitmap {
+	// Largest array container; past it a bitset takes less room
+	private static final int ARRAY_MAX = 4096;
+	private static final int WORDS = 1024;
+	private static final RoaringBitmap EMPTY = new RoaringBitmap(new char[0], new Object[0], 0);
+
+	// Container i holds the ordinals (keys[i] << 16) | low, as a char[] of
+	// sorted lows or a long[WORDS] bitset
+	private final char[] keys;
+	private final Object[] containers;
+	private final int count;
+
+	private RoaringBitmap(char[] keys, Object[] containers, int count) {
+		this.keys = keys;
+		this.containers = containers;
+		this.count = count;
+	}
+
+	/**
+	 * @param  ordinals  Ordinals, in any order, duplicates allowed
+	 * @return bitmap    Bitmap holding exactly those ordinals
+	 */
+	public static RoaringBitmap of(int... ordinals) {
+		int[] sorted = ordinals.clone();
+		Arrays.sort(sorted);
+		Builder builder = new Builder();
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || sorted[i] != sorted[i - 1]) {
+				builder.add(sorted[i]);
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @return bitmap  Bitmap holding every ordinal in [from, to)
+	 */
+	public static RoaringBitmap range(int from, int to) {
+		Builder builder = new Builder();
+		for (int ordinal = Math.max(0, from); ordinal < to; ordinal++) {
+			builder.add(ordinal);
+		}
+		return builder.build();
+	}
+
+	public static RoaringBitmap empty() {
+		return EMPTY;
+	}
+
+	public int cardinality() {
+		int cardinality = 0;
+		for (int i = 0; i < this.count; i++) {
+			cardinality += cardinality(this.containers[i]);
+		}
+		return cardinality;
+	}
+
+	/**
+	 * Rough number of steps andCardinality() takes against a bitmap that
+	 * covers all of this one: a step per array value, a word per bitset.
+	 */
+	int intersectionCost() {
+		int cost = 0;
+		for (int i = 0; i < this.count; i++) {
+			Object container = this.containers[i];
+			cost += (container instanceof char[]) ? ((char[]) container).length : WORDS;
+		}
+		return cost;
+	}
+
+	public boolean isEmpty() {
+		return this.count == 0;
+	}
+
+	public boolean contains(int ordinal) {
+		int i = Arrays.binarySearch(this.keys, 0, this.count, (char) (ordinal >>> 16));
+		if (ordinal < 0 || i < 0) {
+			return false;
+		}
+		Object container = this.containers[i];
+		char low = (char) ordinal;
+		if (container instanceof char[]) {
+			return Arrays.binarySearch((char[]) container, low) >= 0;
+		}
+		return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+	}
+
+	/**
+	 * @return bitmap  Ordinals present in both bitmaps
+	 */
+	public RoaringBitmap and(RoaringBitmap other) {
+		Builder result = new Builder();
+		int i = 0, j = 0;
+		while (i < this.count && j < other.count) {
+			if (this.keys[i] < other.keys[j]) {
+				i++;
+			} else if (this.keys[i] > other.keys[j]) {
+				j++;
+			} else {
+				result.append(this.keys[i], and(this.containers[i], other.containers[j]));
+				i++;
+				j++;
+			}
+		}
+		return result.build();
+	}
+
+	/**
+	 * @return bitmap  Ordinals present in either bitmap
+	 */
+	public RoaringBitmap or(RoaringBitmap other) {
+		Builder result = new Builder();
+		int i = 0, j = 0;
+		while (i < this.count || j < other.count) {
+			if (j == other.count || (i < this.count && this.keys[i] < other.keys[j])) {
+				result.append(this.keys[i], this.containers[i]);
+				i++;
+			} else if (i == this.count || this.keys[i] > other.keys[j]) {
+				result.append(other.keys[j], other.containers[j]);
+				j++;
+			} else {
+				result.append(this.keys[i], or(this.containers[i], other.containers[j]));
+				i++;
+				j++;
+			}
+		}
+		return result.build();
+	}
+
+	/**
+	 * @return bitmap  Ordinals present in this bitmap but not the other
+	 */
+	public RoaringBitmap andNot(RoaringBitmap other) {
+		Builder result = new Builder();
+		int j = 0;
+		for (int i = 0; i < this.count; i++) {
+			while (j < other.count && other.keys[j] < this.keys[i]) {
+				j++;
+			}
+			if (j < other.count && other.keys[j] == this.keys[i]) {
+				result.append(this.keys[i], andNot(this.containers[i], other.containers[j]));
+			} else {
+				result.append(this.keys[i], this.containers[i]);
+			}
+		}
+		return result.build();
+	}
+
+	/**
+	 * Counts the ordinals both bitmaps hold, without creating the
+	 * intersection.
+	 *
+	 * @return cardinality  Size of and(other)
+	 */
+	public int andCardinality(RoaringBitmap other) {
+		int cardinality = 0;
+		int i = 0, j = 0;
+		while (i < this.count && j < other.count) {
+			if (this.keys[i] < other.keys[j]) {
+				i++;
+			} else if (this.keys[i] > other.keys[j]) {
+				j++;
+			} else {
+				cardinality += andCardinality(this.containers[i], other.containers[j]);
+				i++;
+				j++;
+			}
+		}
+		return cardinality;
+	}
+
+	/**
+	 * @return ordinals  Ascending array of the ordinals
+	 */
+	public int[] toArray() {
+		int[] ordinals = new int[cardinality()];
+		int[] next = {0};
+		forEach(ordinal -> ordinals[next[0]++] = ordinal);
+		return ordinals;
+	}
+
+	/**
+	 * Passes every ordinal to the action, in ascending order.
+	 */
+	public void forEach(IntConsumer action) {
+		for (int i = 0; i < this.count; i++) {
+			int base = this.keys[i] << 16;
+			Object container = this.containers[i];
+			if (container instanceof char[]) {
+				for (char low : (char[]) container) {
+					action.accept(base | low);
+				}
+			} else {
+				long[] words = (long[]) container;
+				for (int w = 0; w < WORDS; w++) {
+					long word = words[w];
+					while (word != 0) {
+						action.accept(base | (w << 6) | Long.numberOfTrailingZeros(word));
+						word &= word - 1;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return stream  Ascending stream of the ordinals, one container at a time
+	 */
+	public IntStream stream() {
+		return IntStream.range(0, this.count).flatMap(i -> {
+			int base = this.keys[i] << 16;
+			Object container = this.containers[i];
+			if (container instanceof char[]) {
+				char[] lows = (char[]) container;
+				return IntStream.range(0, lows.length).map(l -> base | lows[l]);
+			}
+			long[] words = (long[]) container;
+			return IntStream.range(0, WORDS << 6)
+					.filter(low -> (words[low >>> 6] & (1L << low)) != 0)
+					.map(low -> base | low);
+		});
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		return object instanceof RoaringBitmap && Arrays.equals(toArray(), ((RoaringBitmap) object).toArray());
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(toArray());
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+
+	/*
+	 * Container operations. Results may be null (empty); bitsets holding
+	 * ARRAY_MAX values or fewer come back as arrays.
+	 */
+
+	private static int cardinality(Object container) {
+		if (container instanceof char[]) {
+			return ((char[]) container).length;
+		}
+		int cardinality = 0;
+		for (long word : (long[]) container) {
+			cardinality += Long.bitCount(word);
+		}
+		return cardinality;
+	}
+
+	private static Object and(Object a, Object b) {
+		if (a instanceof char[] && b instanceof char[]) {
+			char[] x = (char[]) a, y = (char[]) b;
+			char[] result = new char[Math.min(x.length, y.length)];
+			int i = 0, j = 0, n = 0;
+			while (i < x.length && j < y.length) {
+				if (x[i] < y[j]) {
+					i++;
+				} else if (x[i] > y[j]) {
+					j++;
+				} else {
+					result[n++] = x[i];
+					i++;
+					j++;
+				}
+			}
+			return (n == 0) ? null : Arrays.copyOf(result, n);
+		}
+		if (a instanceof long[] && b instanceof long[]) {
+			long[] x = (long[]) a, y = (long[]) b;
+			long[] result = new long[WORDS];
+			for (int w = 0; w < WORDS; w++) {
+				result[w] = x[w] & y[w];
+			}
+			return compact(result);
+		}
+		// One array, one bitset: probe the bitset for each array value
+		char[] values = (char[]) ((a instanceof char[]) ? a : b);
+		long[] words = (long[]) ((a instanceof char[]) ? b : a);
+		char[] result = new char[values.length];
+		int n = 0;
+		for (char value : values) {
+			if ((words[value >>> 6] & (1L << value)) != 0) {
+				result[n++] = value;
+			}
+		}
+		return (n == 0) ? null : Arrays.copyOf(result, n);
+	}
+
+	private static int andCardinality(Object a, Object b) {
+		int cardinality = 0;
+		if (a instanceof char[] && b instanceof char[]) {
+			char[] x = (char[]) a, y = (char[]) b;
+			int i = 0, j = 0;
+			while (i < x.length && j < y.length) {
+				if (x[i] < y[j]) {
+					i++;
+				} else if (x[i] > y[j]) {
+					j++;
+				} else {
+					cardinality++;
+					i++;
+					j++;
+				}
+			}
+		} else if (a instanceof long[] && b instanceof long[]) {
+			long[] x = (long[]) a, y = (long[]) b;
+			for (int w = 0; w < WORDS; w++) {
+				cardinality += Long.bitCount(x[w] & y[w]);
+			}
+		} else {
+			char[] values = (char[]) ((a instanceof char[]) ? a : b);
+			long[] words = (long[]) ((a instanceof char[]) ? b : a);
+			for (char value : values) {
+				if ((words[value >>> 6] & (1L << value)) != 0) {
+					cardinality++;
+				}
+			}
+		}
+		return cardinality;
+	}
+
+	private static Object or(Object a, Object b) {
+		if (a instanceof char[] && b instanceof char[]) {
+			char[] x = (char[]) a, y = (char[]) b;
+			if (x.length + y.length <= ARRAY_MAX) {
+				char[] result = new char[x.length + y.length];
+				int i = 0, j = 0, n = 0;
+				while (i < x.length || j < y.length) {
+					if (j == y.length || (i < x.length && x[i] < y[j])) {
+						result[n++] = x[i++];
+					} else if (i == x.length || x[i] > y[j]) {
+						result[n++] = y[j++];
+					} else {
+						result[n++] = x[i];
+						i++;
+						j++;
+					}
+				}
+				return Arrays.copyOf(result, n);
+			}
+			return compact(set(set(new long[WORDS], x), y));
+		}
+		if (a instanceof long[] && b instanceof long[]) {
+			long[] x = (long[]) a, y = (long[]) b;
+			long[] result = new long[WORDS];
+			for (int w = 0; w < WORDS; w++) {
+				result[w] = x[w] | y[w];
+			}
+			return result;
+		}
+		char[] values = (char[]) ((a instanceof char[]) ? a : b);
+		long[] words = (long[]) ((a instanceof char[]) ? b : a);
+		return set(words.clone(), values);
+	}
+
+	private static Object andNot(Object a, Object b) {
+		if (a instanceof char[]) {
+			char[] x = (char[]) a;
+			char[] result = new char[x.length];
+			int n = 0;
+			if (b instanceof char[]) {
+				char[] y = (char[]) b;
+				int j = 0;
+				for (char value : x) {
+					while (j < y.length && y[j] < value) {
+						j++;
+					}
+					if (j == y.length || y[j] != value) {
+						result[n++] = value;
+					}
+				}
+			} else {
+				long[] words = (long[]) b;
+				for (char value : x) {
+					if ((words[value >>> 6] & (1L << value)) == 0) {
+						result[n++] = value;
+					}
+				}
+			}
+			return (n == 0) ? null : Arrays.copyOf(result, n);
+		}
+		long[] result = ((long[]) a).clone();
+		if (b instanceof char[]) {
+			for (char value : (char[]) b) {
+				result[value >>> 6] &= ~(1L << value);
+			}
+		} else {
+			long[] y = (long[]) b;
+			for (int w = 0; w < WORDS; w++) {
+				result[w] &= ~y[w];
+			}
+		}
+		return compact(result);
+	}
+
+	private static long[] set(long[] words, char[] values) {
+		for (char value : values) {
+			words[value >>> 6] |= 1L << value;
+		}
+		return words;
+	}
+
+	/**
+	 * Returns a bitset as an array container if that is smaller, null if
+	 * it is empty.
+	 */
+	private static Object compact(long[] words) {
+		int cardinality = cardinality(words);
+		if (cardinality == 0) {
+			return null;
+		}
+		if (cardinality > ARRAY_MAX) {
+			return words;
+		}
+		char[] values = new char[cardinality];
+		int n = 0;
+		for (int w = 0; w < WORDS; w++) {
+			long word = words[w];
+			while (word != 0) {
+				values[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+				word &= word - 1;
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Builds a bitmap from ordinals added in strictly ascending order, as
+	 * the facet indexes visit them.
+	 */
+	public static final class Builder {
+		private char[] keys = new char[4];
+		private Object[] containers = new Object[4];
+		private int count;
+
+		// Container being filled
+		private int key = -1;
+		private char[] buffer;
+		private int buffered;
+		private long[] words;
+		private int last = -1;
+
+		/**
+		 * @param ordinal  Ordinal to add, greater than any added before
+		 */
+		public Builder add(int ordinal) {
+			if (ordinal <= this.last) {
+				throw new IllegalArgumentException("Ordinals must be added in ascending order: " + ordinal);
+			}
+			this.last = ordinal;
+			int high = ordinal >>> 16;
+			if (high != this.key) {
+				flush();
+				this.key = high;
+			}
+			char low = (char) ordinal;
+			if (this.words != null) {
+				this.words[low >>> 6] |= 1L << low;
+			} else if (this.buffered < ARRAY_MAX) {
+				if (this.buffer == null) {
+					this.buffer = new char[ARRAY_MAX];
+				}
+				this.buffer[this.buffered++] = low;
+			} else {
+				this.words = set(new long[WORDS], this.buffer);
+				this.words[low >>> 6] |= 1L << low;
+			}
+			return this;
+		}
+
+		public RoaringBitmap build() {
+			flush();
+			if (this.count == 0) {
+				return EMPTY;
+			}
+			return new RoaringBitmap(Arrays.copyOf(this.keys, this.count), Arrays.copyOf(this.containers, this.count),
+					this.count);
+		}
+
+		/**
+		 * Adds a whole container (null for none) after the last one, for the
+		 * boolean operations.
+		 */
+		void append(char key, Object container) {
+			if (container == null) {
+				return;
+			}
+			if (this.count == this.keys.length) {
+				this.keys = Arrays.copyOf(this.keys, this.count * 2);
+				this.containers = Arrays.copyOf(this.containers, this.count * 2);
+			}
+			this.keys[this.count] = key;
+			this.containers[this.count] = container;
+			this.count++;
+		}
+
+		private void flush() {
+			if (this.key >= 0) {
+				append((char) this.key, (this.words != null) ? this.words
+						: Arrays.copyOf(this.buffer, this.buffered));
+			}
+			this.key = -1;
+			this.buffered = 0;
+			this.words = null;
+		}
+	}
+}
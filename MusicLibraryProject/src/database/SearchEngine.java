@@ -0,0 +1,21 @@
+/*
+ * File: SearchEngine.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file lists the ways a MusicStore can answer its substring
+ * searches (see MusicStore.setSearchEngine). Both return the same results
+ * in the same order.
+ *
+ * - TRIGRAM: Trigram inverted indexes (ShardedIndex), cost follows the
+ *   number of candidates. The default.
+ * - COLUMNAR: Sequential scans over dictionary-encoded columns and packed
+ *   folded bytes (ColumnarCatalog), cost follows the catalog size but
+ *   with no index to build or keep up to date.
+ */
+
+package database;
+
+public enum SearchEngine {
+	TRIGRAM,
+	COLUMNAR
+}
@@ -0,0 +1,196 @@
+/*
+ * File: ShardedIndex.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file partitions a list of strings into N contiguous shards,
+ * each with its own trigram index (NGramIndex), so that one search can run
+ * on several cores at once. A search is scattered to every shard on the
+ * common ForkJoinPool and the shard results are gathered back in shard
+ * order. Since shards cover consecutive ordinal ranges, the merged result
+ * is in the same ascending order a single index over the whole list gives.
+ *
+ * Functions:
+ * - search(String query): Ascending ordinals of every value containing the
+ *   query (not case sensitive), searched on all shards in parallel.
+ * - stream(String query, int from): Lazily evaluated matches starting at an
+ *   ordinal, walking the shards in order (for paginated search).
+ * - estimate(String query): Upper bound on the matches (query planning).
+ * - size() / getShardCount(): Number of indexed values / of shards.
+ * - keys(): The folded key of every value, by ordinal, as the shards hold them.
+ * - shardsFor(int values, int requested): Shard count used for a list size.
+ */
+
+package database;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+public class ShardedIndex implements ColumnSearch {
+	// Shard count asking for one shard per core, as long as each shard
+	// keeps at least MIN_SHARD_SIZE values (smaller ones cost more to fork
+	// than they save).
+	public static final int AUTO_SHARDS = 0;
+	public static final int MIN_SHARD_SIZE = 16_384;
+
+	private final NGramIndex[] shards;
+	private final int[] bases;
+	private final int size;
+
+	/**
+	 * Builds the shard indexes, in parallel, over consecutive slices of the
+	 * values. List positions become the ordinals returned by search().
+	 *
+	 * @param values  List of strings to index
+	 * @param shards  Number of shards, or AUTO_SHARDS
+	 */
+	public ShardedIndex(List<String> values, int shards) {
+		int count = shardsFor(values.size(), shards);
+		this.size = values.size();
+		this.shards = new NGramIndex[count];
+		this.bases = new int[count + 1];
+		for (int s = 0; s <= count; s++) {
+			this.bases[s] = (int) ((long) this.size * s / count);
+		}
+		IntStream.range(0, count).parallel().forEach(s ->
+			this.shards[s] = new NGramIndex(values.subList(this.bases[s], this.bases[s + 1])));
+	}
+
+	/**
+	 * Returns the ordinals of all values containing the query, ignoring case.
+	 * Shards after the first are forked to the common pool, the first is
+	 * searched on the calling thread, and the results are concatenated in
+	 * shard order.
+	 *
+	 * @param  query   String to search for
+	 * @return result  Ascending array of matching ordinals
+	 */
+	@Override
+	public int[] search(String query) {
+		if (this.shards.length == 1) {
+			return this.shards[0].search(query);
+		}
+		List<ForkJoinTask<int[]>> tasks = new ArrayList<ForkJoinTask<int[]>>(this.shards.length - 1);
+		for (int s = 1; s < this.shards.length; s++) {
+			NGramIndex shard = this.shards[s];
+			tasks.add(ForkJoinPool.commonPool().submit(() -> shard.search(query)));
+		}
+		int[][] parts = new int[this.shards.length][];
+		parts[0] = this.shards[0].search(query);
+		int total = parts[0].length;
+		for (int s = 1; s < this.shards.length; s++) {
+			parts[s] = tasks.get(s - 1).join();
+			total += parts[s].length;
+		}
+
+		// Gather: shard s holds ordinals [bases[s], bases[s + 1])
+		int[] result = new int[total];
+		int next = 0;
+		for (int s = 0; s < parts.length; s++) {
+			for (int local : parts[s]) {
+				result[next++] = this.bases[s] + local;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the matches of the query from ordinal "from" onward, lazily:
+	 * shards are only searched as the stream reaches them.
+	 *
+	 * @param  query   String to search for
+	 * @param  from    First ordinal to consider
+	 * @return stream  Ascending stream of matching ordinals
+	 */
+	@Override
+	public IntStream stream(String query, int from) {
+		int first = shardOf(from);
+		return IntStream.range(first, this.shards.length).flatMap(s -> {
+			int base = this.bases[s];
+			return this.shards[s].stream(query, Math.max(0, from - base)).map(local -> base + local);
+		});
+	}
+
+	/**
+	 * @return estimate  Upper bound on the number of matches of the query,
+	 *                   summed over the shards (see NGramIndex.estimate())
+	 */
+	int estimate(String query) {
+		int estimate = 0;
+		for (NGramIndex shard : this.shards) {
+			estimate += shard.estimate(query);
+		}
+		return estimate;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public int getShardCount() {
+		return this.shards.length;
+	}
+
+	/**
+	 * @return keys  Folded key of every value (see Collation), by ordinal; a
+	 *               view of the keys the shards already hold
+	 */
+	public List<String> keys() {
+		return new AbstractList<String>() {
+			public String get(int ordinal) {
+				int s = shardOf(ordinal);
+				return shards[s].key(ordinal - bases[s]);
+			}
+
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	NGramIndex shard(int s) {
+		return this.shards[s];
+	}
+
+	/**
+	 * @return base  Ordinal of the first value held by shard s
+	 */
+	int base(int s) {
+		return this.bases[s];
+	}
+
+	/**
+	 * Returns the number of shards used for a list of values: the requested
+	 * count (at most one per value), or for AUTO_SHARDS one per available
+	 * core bounded by MIN_SHARD_SIZE. Always at least 1.
+	 *
+	 * @param  values     Number of values to index
+	 * @param  requested  Requested shard count, or AUTO_SHARDS
+	 * @return shards     Shard count to use
+	 */
+	public static int shardsFor(int values, int requested) {
+		if (requested < 0) {
+			throw new IllegalArgumentException("Shard count cannot be negative.");
+		}
+		int shards = requested;
+		if (shards == AUTO_SHARDS) {
+			shards = Math.min(Runtime.getRuntime().availableProcessors(), values / MIN_SHARD_SIZE);
+		}
+		return Math.max(1, Math.min(shards, values));
+	}
+
+	/**
+	 * This helper function returns the shard holding an ordinal (the last
+	 * shard for ordinals past the end).
+	 */
+	private int shardOf(int ordinal) {
+		int s = 0;
+		while (s < this.shards.length - 1 && ordinal >= this.bases[s + 1]) {
+			s++;
+		}
+		return s;
+	}
+}
@@ -0,0 +1,228 @@
+/*
+ * File: SongQuery.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file parses the song query language of the store search,
+ * such as
+ *   artist:adele year:>=2010 genre:pop rolling
+ * into a list of clauses that must all hold. A clause is either
+ * field-qualified or a bare term:
+ *   title:x / artist:x / album:x  the field contains x
+ *   genre:x                       the album's genre is x
+ *   year:2010 / year:>=2010 / year:>2010 / year:<=2010 / year:<2010 /
+ *   year:2000..2010               release year, ranges inclusive
+ *   x                             the title or the artist contains x
+ * Values holding spaces are quoted (title:"rolling in"), a leading "-"
+ * negates a clause (-genre:rock), and text is matched without regard to
+ * case or accents. A MusicStore compiles a query into a QueryPlan.
+ *
+ * Functions:
+ * - parse(String query): Parses a query, throwing IllegalArgumentException
+ *   on unknown fields, missing values, bad years or unterminated quotes.
+ * - getClauses(): The parsed clauses, in query order.
+ * - toString(): The query in normalized form.
+ */
+
+package database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+public class SongQuery {
+	public enum Field {
+		TITLE, ARTIST, ALBUM, GENRE, YEAR, TEXT
+	}
+
+	private final List<Clause> clauses;
+
+	private SongQuery(List<Clause> clauses) {
+		this.clauses = Collections.unmodifiableList(clauses);
+	}
+
+	/**
+	 * @param  query  Query text, e.g. artist:adele year:>=2010 rolling
+	 * @return query  The parsed query; an empty query matches every song
+	 */
+	public static SongQuery parse(String query) {
+		if (query == null) {
+			throw new IllegalArgumentException("Query cannot be null.");
+		}
+		ArrayList<Clause> clauses = new ArrayList<Clause>();
+		int i = 0;
+		int n = query.length();
+		while (i < n) {
+			if (Character.isWhitespace(query.charAt(i))) {
+				i++;
+				continue;
+			}
+			boolean negated = false;
+			if (query.charAt(i) == '-' && i + 1 < n && !Character.isWhitespace(query.charAt(i + 1))) {
+				negated = true;
+				i++;
+			}
+
+			// A run of letters followed by ':' names a field
+			Field field = Field.TEXT;
+			int j = i;
+			while (j < n && Character.isLetter(query.charAt(j))) {
+				j++;
+			}
+			if (j > i && j < n && query.charAt(j) == ':') {
+				field = field(query.substring(i, j));
+				i = j + 1;
+			}
+
+			String value;
+			if (i < n && query.charAt(i) == '"') {
+				int close = query.indexOf('"', i + 1);
+				if (close < 0) {
+					throw new IllegalArgumentException("Unterminated quote in query: " + query);
+				}
+				value = query.substring(i + 1, close);
+				i = close + 1;
+			} else {
+				int start = i;
+				while (i < n && !Character.isWhitespace(query.charAt(i))) {
+					i++;
+				}
+				value = query.substring(start, i);
+			}
+			if (value.isBlank()) {
+				throw new IllegalArgumentException("Missing value for " + field.name().toLowerCase(Locale.ROOT)
+						+ ": in query: " + query);
+			}
+			clauses.add((field == Field.YEAR) ? Clause.year(value, negated) : new Clause(field, value, 0, 0, negated));
+		}
+		return new SongQuery(clauses);
+	}
+
+	public List<Clause> getClauses() {
+		return this.clauses;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (Clause clause : this.clauses) {
+			if (builder.length() > 0) {
+				builder.append(' ');
+			}
+			builder.append(clause);
+		}
+		return builder.toString();
+	}
+
+	private static Field field(String name) {
+		switch (name.toLowerCase(Locale.ROOT)) {
+		case "title":
+			return Field.TITLE;
+		case "artist":
+			return Field.ARTIST;
+		case "album":
+			return Field.ALBUM;
+		case "genre":
+			return Field.GENRE;
+		case "year":
+			return Field.YEAR;
+		default:
+			throw new IllegalArgumentException("Unknown field \"" + name
+					+ "\" (use title, artist, album, genre or year).");
+		}
+	}
+
+	/**
+	 * One condition of a query. Text values are kept folded (see Collation);
+	 * year clauses hold an inclusive range instead.
+	 */
+	public static final class Clause {
+		private final Field field;
+		private final String value;
+		private final int from;
+		private final int to;
+		private final boolean negated;
+
+		Clause(Field field, String value, int from, int to, boolean negated) {
+			this.field = field;
+			this.value = (value == null) ? null : NGramIndex.normalize(value);
+			this.from = from;
+			this.to = to;
+			this.negated = negated;
+		}
+
+		/**
+		 * Parses 2010, >=2010, >2010, <=2010, <2010 or 2000..2010.
+		 */
+		static Clause year(String value, boolean negated) {
+			try {
+				int from = Integer.MIN_VALUE;
+				int to = Integer.MAX_VALUE;
+				if (value.startsWith(">=")) {
+					from = Integer.parseInt(value.substring(2));
+				} else if (value.startsWith(">")) {
+					from = Math.addExact(Integer.parseInt(value.substring(1)), 1);
+				} else if (value.startsWith("<=")) {
+					to = Integer.parseInt(value.substring(2));
+				} else if (value.startsWith("<")) {
+					to = Math.subtractExact(Integer.parseInt(value.substring(1)), 1);
+				} else if (value.contains("..")) {
+					from = Integer.parseInt(value.substring(0, value.indexOf("..")));
+					to = Integer.parseInt(value.substring(value.indexOf("..") + 2));
+				} else {
+					from = Integer.parseInt(value);
+					to = from;
+				}
+				if (from > to) {
+					throw new IllegalArgumentException("Year range is empty: " + value);
+				}
+				return new Clause(Field.YEAR, null, from, to, negated);
+			} catch (NumberFormatException | ArithmeticException e) {
+				throw new IllegalArgumentException("Invalid year: " + value);
+			}
+		}
+
+		public Field getField() {
+			return this.field;
+		}
+
+		/**
+		 * @return value  Folded text value, null for year clauses
+		 */
+		public String getValue() {
+			return this.value;
+		}
+
+		public int getFrom() {
+			return this.from;
+		}
+
+		public int getTo() {
+			return this.to;
+		}
+
+		public boolean isNegated() {
+			return this.negated;
+		}
+
+		@Override
+		public String toString() {
+			String text;
+			if (this.field == Field.YEAR) {
+				if (this.from == this.to) {
+					text = Integer.toString(this.from);
+				} else if (this.from == Integer.MIN_VALUE) {
+					text = "<=" + this.to;
+				} else if (this.to == Integer.MAX_VALUE) {
+					text = ">=" + this.from;
+				} else {
+					text = this.from + ".." + this.to;
+				}
+			} else {
+				text = this.value.contains(" ") ? "\"" + this.value + "\"" : this.value;
+			}
+			String prefix = (this.field == Field.TEXT) ? "" : this.field.name().toLowerCase(Locale.ROOT) + ":";
+			return (this.negated ? "-" : "") + prefix + text;
+		}
+	}
+}
@@ -0,0 +1,278 @@
+/*
+ * File: SongRanker.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file ranks songs by relevance to a free-text query with
+ * BM25 scoring over several weighted fields (title, artist, album). A
+ * query term matches a word of a field that contains it, as the substring
+ * searches do; each field scores
+ *   idf(term) * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / average))
+ * where tf is the number of matching words, length the field's word count
+ * and idf is computed from the number of songs whose field holds the term,
+ * and the song's score is the weighted sum over fields and terms, times an
+ * optional boost (e.g. plays and rating in a library). Short, exact field
+ * values thus rank above long ones that merely contain the words.
+ *
+ * Each field answers its own substring search (usually a trigram index),
+ * which supplies both the candidates and the document frequencies, and
+ * hands over the folded keys that index already holds, so values are never
+ * folded again per query. Since tf
+ * is at most the field's length, a term's contribution is bounded from the
+ * length alone, so every candidate gets an upper bound from the terms it
+ * matched and its field lengths (kept per song); candidates are
+ * taken from a max-heap in decreasing bound order and scored into a bounded
+ * heap (TopK), stopping as soon as no remaining bound can beat the k-th
+ * best score.
+ *
+ * Functions:
+ * - rank(String query, int k): Ordinals of the k best matches, best first.
+ * - rank(String query, int k, IntToDoubleFunction boost, double max_boost):
+ *   Same, with each score multiplied by boost(ordinal) <= max_boost.
+ * - words(String value): Number of words in a value.
+ */
+
+package database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntToDoubleFunction;
+
+import model.Collation;
+
+public class SongRanker {
+	public static final double K1 = 1.2;
+	public static final double B = 0.75;
+	public static final double TITLE_WEIGHT = 3.0;
+	public static final double ARTIST_WEIGHT = 2.0;
+	public static final double ALBUM_WEIGHT = 1.0;
+
+	private final int size;
+	private final List<Field> fields;
+	private final double[] averages;
+	private final byte[][] lengths; // word counts, capped at LONG
+
+	private static final int LONG = 255;
+
+	/**
+	 * Computes each field's lengths and average, in one pass over its keys.
+	 *
+	 * @param size    Number of songs ranked
+	 * @param fields  Fields scored, each holding a key per song ordinal
+	 */
+	public SongRanker(int size, List<Field> fields) {
+		this.size = size;
+		this.fields = fields;
+		this.averages = new double[fields.size()];
+		this.lengths = new byte[fields.size()][size];
+		for (int f = 0; f < fields.size(); f++) {
+			long words = 0;
+			int i = 0;
+			for (String value : fields.get(f).keys) {
+				int length = words(value);
+				words += length;
+				this.lengths[f][i++] = (byte) Math.min(length, LONG);
+			}
+			this.averages[f] = (size == 0) ? 1 : Math.max(1.0, (double) words / size);
+		}
+	}
+
+	public int[] rank(String query, int k) {
+		return rank(query, k, ordinal -> 1.0, 1.0);
+	}
+
+	/**
+	 * @param  query      Free text, matched word by word
+	 * @param  k          Maximum number of results
+	 * @param  boost      Factor applied to a song's score
+	 * @param  max_boost  Largest factor boost returns (for the early exit)
+	 * @return ordinals   The k best matching songs, best first
+	 */
+	public int[] rank(String query, int k, IntToDoubleFunction boost, double max_boost) {
+		TopK top = new TopK(k);
+		String[] terms = terms(query);
+		if (terms.length == 0 || this.size == 0) {
+			return top.toArray();
+		}
+
+		// idf of every (field, term); bounds of the candidates
+		double[][] idf = new double[this.fields.size()][terms.length];
+		double[] bounds = new double[this.size];
+		int[] candidates = new int[16];
+		int candidate_count = 0;
+		for (int f = 0; f < this.fields.size(); f++) {
+			Field field = this.fields.get(f);
+			for (int t = 0; t < terms.length; t++) {
+				int[] list = field.search.apply(terms[t]);
+				idf[f][t] = Math.log(1 + (this.size - list.length + 0.5) / (list.length + 0.5));
+				double most = field.weight * idf[f][t] * (K1 + 1);
+				for (int ordinal : list) {
+					if (bounds[ordinal] == 0) {
+						if (candidate_count == candidates.length) {
+							candidates = Arrays.copyOf(candidates, candidate_count * 2);
+						}
+						candidates[candidate_count++] = ordinal;
+					}
+					bounds[ordinal] += most * saturation(f, this.lengths[f][ordinal] & 0xFF);
+				}
+			}
+		}
+
+		// Best bound first: (bound, ordinal) pairs packed into longs, bounds
+		// rounded up so a packed bound never undercuts the real one, in a
+		// max-heap; usually few are popped before the exit, so the
+		// candidates are never fully sorted
+		long[] order = new long[candidate_count];
+		for (int c = 0; c < candidate_count; c++) {
+			int ordinal = candidates[c];
+			float bound = Math.nextUp((float) (bounds[ordinal] * max_boost));
+			order[c] = ((long) Float.floatToIntBits(bound) << 32) | ordinal;
+		}
+		for (int c = candidate_count / 2 - 1; c >= 0; c--) {
+			siftDown(order, c, candidate_count);
+		}
+		for (int left = candidate_count; left > 0; left--) {
+			long best = order[0];
+			if (Float.intBitsToFloat((int) (best >>> 32)) < top.minScore()) {
+				break;
+			}
+			order[0] = order[left - 1];
+			siftDown(order, 0, left - 1);
+			int ordinal = (int) best;
+			top.offer(ordinal, score(ordinal, terms, idf) * boost.applyAsDouble(ordinal));
+		}
+		return top.toArray();
+	}
+
+	/**
+	 * This helper function bounds tf / (tf + norm) for a field of the given
+	 * length: it grows with tf, and tf is at most the length. Exact when a
+	 * single word matches a single word field.
+	 */
+	private double saturation(int f, int length) {
+		if (length >= LONG) {
+			return 1;
+		}
+		return length / (length + K1 * (1 - B + B * length / this.averages[f]));
+	}
+
+	/**
+	 * Restores the max-heap below i, within the first size entries.
+	 */
+	private static void siftDown(long[] heap, int i, int size) {
+		long value = heap[i];
+		int child;
+		while ((child = 2 * i + 1) < size) {
+			if (child + 1 < size && heap[child + 1] > heap[child]) {
+				child++;
+			}
+			if (heap[child] <= value) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = value;
+	}
+
+	/**
+	 * @return words  Number of runs of letters or digits in the value
+	 */
+	public static int words(String value) {
+		int words = 0;
+		boolean in_word = false;
+		for (int i = 0; i < value.length(); i++) {
+			boolean letter = Character.isLetterOrDigit(value.charAt(i));
+			if (letter && !in_word) {
+				words++;
+			}
+			in_word = letter;
+		}
+		return words;
+	}
+
+	/**
+	 * This helper function computes the exact BM25 score of one song.
+	 */
+	private double score(int ordinal, String[] terms, double[][] idf) {
+		double score = 0;
+		for (int f = 0; f < this.fields.size(); f++) {
+			Field field = this.fields.get(f);
+			String[] words = split(field.keys.get(ordinal));
+			double norm = K1 * (1 - B + B * words.length / this.averages[f]);
+			for (int t = 0; t < terms.length; t++) {
+				int tf = 0;
+				for (String word : words) {
+					if (word.contains(terms[t])) {
+						tf++;
+					}
+				}
+				if (tf > 0) {
+					score += field.weight * idf[f][t] * tf * (K1 + 1) / (tf + norm);
+				}
+			}
+		}
+		return score;
+	}
+
+	/**
+	 * Distinct folded words of the query.
+	 */
+	private static String[] terms(String query) {
+		return new LinkedHashSet<String>(Arrays.asList(split(Collation.fold(query)))).toArray(new String[0]);
+	}
+
+	private static String[] split(String value) {
+		ArrayList<String> words = new ArrayList<String>();
+		int start = -1;
+		for (int i = 0; i <= value.length(); i++) {
+			boolean letter = i < value.length() && Character.isLetterOrDigit(value.charAt(i));
+			if (letter && start < 0) {
+				start = i;
+			} else if (!letter && start >= 0) {
+				words.add(value.substring(start, i));
+				start = -1;
+			}
+		}
+		return words.toArray(new String[0]);
+	}
+
+	/**
+	 * One scored field: its folded value (key, see Collation) for every song
+	 * ordinal, as the field's index already holds them, a substring search
+	 * returning the ascending ordinals whose value contains a (folded) term,
+	 * and its weight in the score.
+	 */
+	public static final class Field {
+		final List<String> keys;
+		final Function<String, int[]> search;
+		final double weight;
+
+		public Field(List<String> keys, Function<String, int[]> search, double weight) {
+			this.keys = keys;
+			this.search = search;
+			this.weight = weight;
+		}
+
+		/**
+		 * A field without an index, searched by scanning its keys.
+		 */
+		public static Field scanned(List<String> keys, double weight) {
+			return new Field(keys, term -> {
+				int[] result = new int[16];
+				int count = 0;
+				for (int i = 0; i < keys.size(); i++) {
+					if (keys.get(i).contains(term)) {
+						if (count == result.length) {
+							result = Arrays.copyOf(result, count * 2);
+						}
+						result[count++] = i;
+					}
+				}
+				return Arrays.copyOf(result, count);
+			}, weight);
+		}
+	}
+}
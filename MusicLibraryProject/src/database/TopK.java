@@ -0,0 +1,153 @@
+/*
+ * File: TopK.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file keeps the k best scored ordinals seen so far, in a
+ * bounded min-heap of primitive arrays: the root is the worst of the k
+ * kept, so each offer costs O(log k) at most and most offers, once the heap
+ * is full, a single comparison with the root. Higher scores are better;
+ * equal scores go to the lower ordinal, so results are deterministic.
+ *
+ * Functions:
+ * - offer(int ordinal, double score): Keeps the ordinal if it is among the
+ *   k best so far.
+ * - isFull() / minScore(): Whether k ordinals are kept, and the worst
+ *   score kept (the bar a new ordinal must clear).
+ * - toArray(): The kept ordinals, best first.
+ */
+
+package database;
+
+import java.util.Arrays;
+
+public final class TopK {
+	private final int k;
+	private int[] ordinals;
+	private double[] scores;
+	private int size;
+
+	/**
+	 * @param k  Number of best ordinals to keep, at least 1
+	 */
+	public TopK(int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("Result limit must be at least 1.");
+		}
+		this.k = k;
+		this.ordinals = new int[Math.min(k, 1024)];
+		this.scores = new double[this.ordinals.length];
+	}
+
+	/**
+	 * @param  ordinal  Ordinal to offer
+	 * @param  score    Its score, higher is better
+	 * @return true     if it was kept
+	 */
+	public boolean offer(int ordinal, double score) {
+		if (this.size < this.k) {
+			grow();
+			int i = this.size++;
+			this.ordinals[i] = ordinal;
+			this.scores[i] = score;
+			siftUp(i);
+			return true;
+		}
+		if (!better(ordinal, score, this.ordinals[0], this.scores[0])) {
+			return false;
+		}
+		this.ordinals[0] = ordinal;
+		this.scores[0] = score;
+		siftDown(0);
+		return true;
+	}
+
+	public boolean isFull() {
+		return this.size == this.k;
+	}
+
+	/**
+	 * @return score  Worst score kept, or negative infinity while not full
+	 */
+	public double minScore() {
+		return isFull() ? this.scores[0] : Double.NEGATIVE_INFINITY;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return ordinals  The kept ordinals, best first (the heap is unchanged)
+	 */
+	public int[] toArray() {
+		int[] ordinals = Arrays.copyOf(this.ordinals, this.size);
+		double[] scores = Arrays.copyOf(this.scores, this.size);
+		// Heap sort: repeatedly move the worst to the end
+		for (int end = this.size - 1; end > 0; end--) {
+			swap(ordinals, scores, 0, end);
+			siftDown(ordinals, scores, 0, end);
+		}
+		return ordinals;
+	}
+
+	/**
+	 * Room for one more entry; large k start small and double up to k.
+	 */
+	private void grow() {
+		if (this.size == this.ordinals.length) {
+			int capacity = (int) Math.min(this.k, this.ordinals.length * 2L);
+			this.ordinals = Arrays.copyOf(this.ordinals, capacity);
+			this.scores = Arrays.copyOf(this.scores, capacity);
+		}
+	}
+
+	private void siftUp(int i) {
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (!better(this.ordinals[parent], this.scores[parent], this.ordinals[i], this.scores[i])) {
+				return;
+			}
+			swap(this.ordinals, this.scores, i, parent);
+			i = parent;
+		}
+	}
+
+	private void siftDown(int i) {
+		siftDown(this.ordinals, this.scores, i, this.size);
+	}
+
+	/**
+	 * Restores the min-heap below i, within the first size entries.
+	 */
+	private static void siftDown(int[] ordinals, double[] scores, int i, int size) {
+		while (true) {
+			int worst = i;
+			for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+				if (better(ordinals[worst], scores[worst], ordinals[child], scores[child])) {
+					worst = child;
+				}
+			}
+			if (worst == i) {
+				return;
+			}
+			swap(ordinals, scores, i, worst);
+			i = worst;
+		}
+	}
+
+	/**
+	 * @return true  if the first entry ranks above the second
+	 */
+	private static boolean better(int ordinal, double score, int other_ordinal, double other_score) {
+		return (score != other_score) ? score > other_score : ordinal < other_ordinal;
+	}
+
+	private static void swap(int[] ordinals, double[] scores, int i, int j) {
+		int ordinal = ordinals[i];
+		ordinals[i] = ordinals[j];
+		ordinals[j] = ordinal;
+		double score = scores[i];
+		scores[i] = scores[j];
+		scores[j] = score;
+	}
+}
@@ -10,8 +10,11 @@
 
 package model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 
@@ -23,6 +26,14 @@ public class Album implements Serializable{
 	private String year;
 	private List<String> songs;	// List of song titles
 	
+	// Frozen albums are shared (see InstanceRegistry) and can no longer change
+	private transient boolean frozen;
+	transient Object registry_key;
+	
+	// Folded keys (see Collation), computed on first use
+	private transient String title_key;
+	private transient String artist_key;
+	
 	
   /**
    * Constructs a new Album with the given details.
@@ -34,10 +45,11 @@ public class Album implements Serializable{
    */
 	public Album(String title, String artist, String genre, String year) {
 
-		this.title = title;
-		this.artist = artist;
-		this.genre = genre;
-		this.year = year;
+		// Shared through the SymbolTable, see Song
+		this.title = SymbolTable.intern(title);
+		this.artist = SymbolTable.intern(artist);
+		this.genre = SymbolTable.intern(genre);
+		this.year = SymbolTable.intern(year);
 		
 		// Order for the Songs and the Artist are maintain hear.
 		this.songs = new ArrayList<>();
@@ -49,12 +61,36 @@ public class Album implements Serializable{
     * @param song the song title to add.
     */
 	public void addSong(String song) {
+		checkNotFrozen();
 		songs.add(song);
 	}
 	
 	public void removeSong(String song) {
+		checkNotFrozen();
 		songs.remove(song);
 	}
+	
+	/**
+	 * Makes this album immutable, so that a single instance can safely be
+	 * shared between the store and every caller of its searches, rather
+	 * than each receiving its own copy. 
+	 * 
+	 * @return this  The now frozen album
+	 */
+	public Album freeze() {
+		this.frozen = true;
+		return this;
+	}
+	
+	public boolean isFrozen() {
+		return this.frozen;
+	}
+	
+	private void checkNotFrozen() {
+		if (this.frozen) {
+			throw new UnsupportedOperationException("Album " + title + " is shared and cannot be modified.");
+		}
+	}
 
 	public String getTitle() {
 		return title;
@@ -71,8 +107,42 @@ public class Album implements Serializable{
 	public String getYear() {
 		return year;
 	}
+	
+	/**
+	 * @return key  Folded title, see Collation.fold
+	 */
+	public String getTitleKey() {
+		String key = this.title_key;
+		if (key == null) {
+			key = SymbolTable.key(this.title);
+			this.title_key = key;
+		}
+		return key;
+	}
+	
+	public String getArtistKey() {
+		String key = this.artist_key;
+		if (key == null) {
+			key = SymbolTable.key(this.artist);
+			this.artist_key = key;
+		}
+		return key;
+	}
+	
+	public String getGenreKey() {
+		return SymbolTable.key(this.genre);
+	}
 
+	/**
+	 * Returns the album's song titles, as a read-only view for frozen albums
+	 * and as a copy otherwise.
+	 * 
+	 * @return list  List of song titles, in album order
+	 */
 	public List<String> getSongs() {
+		if (this.frozen) {
+			return Collections.unmodifiableList(songs);
+		}
 		List<String> list = new ArrayList<String>();
 		for (String song : songs) {
 			list.add(song);
@@ -81,6 +151,18 @@ public class Album implements Serializable{
 	}
 	
 	
+	/**
+	 * Deserialized albums (e.g. from users.dat) re-intern their fields, so
+	 * they share strings with the store and every other library.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.title = SymbolTable.intern(title);
+		this.artist = SymbolTable.intern(artist);
+		this.genre = SymbolTable.intern(genre);
+		this.year = SymbolTable.intern(year);
+	}
+	
 	@Override
 	public String toString () {
 		return title + " by " + artist + " (" + year + ") - " + genre + "\nSongs:" + songs;
@@ -0,0 +1,69 @@
+/*
+ * File: Collation.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file defines how the program compares titles, artists and
+ * album names for searching and sorting: without regard to case or accents,
+ * so "Mana" finds "Maná" and "angeles" finds "Ángeles". Each value is turned
+ * once into a folded key (see Song, Album and SymbolTable, which keep the
+ * keys next to the values), and searches compare keys with plain String
+ * operations instead of lowercasing both sides for every element.
+ *
+ * Folding decomposes the value (Unicode NFKD, which also splits ligatures
+ * and full-width forms), drops the combining marks (accents, cedillas...),
+ * then case folds it. Plain ASCII values skip straight to the lowercasing.
+ *
+ * Functions:
+ * - fold(String value): Folded key of a value.
+ * - compare(String key1, String value1, String key2, String value2): Sort order of
+ *   two values with known keys: by key, then by the values themselves
+ *   (see Song.TITLE_ORDER / Song.ARTIST_ORDER).
+ */
+
+package model;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+public final class Collation {
+	private Collation() {
+	}
+
+	/**
+	 * Returns the key a value is searched and sorted by: lowercase, without
+	 * accents or other combining marks.
+	 *
+	 * @param  value  String to fold
+	 * @return key    Folded form of the value
+	 */
+	public static String fold(String value) {
+		int i = 0;
+		while (i < value.length() && value.charAt(i) < 0x80) {
+			i++;
+		}
+		if (i == value.length()) {
+			return value.toLowerCase(Locale.ROOT);
+		}
+		String decomposed = Normalizer.normalize(value, Normalizer.Form.NFKD);
+		StringBuilder key = new StringBuilder(decomposed.length());
+		for (int c = 0; c < decomposed.length(); c++) {
+			char character = decomposed.charAt(c);
+			int type = Character.getType(character);
+			if (type != Character.NON_SPACING_MARK && type != Character.COMBINING_SPACING_MARK
+					&& type != Character.ENCLOSING_MARK) {
+				key.append(character);
+			}
+		}
+		// Upper then lower case folds the special cases (e.g. "ß" to "ss")
+		return key.toString().toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Orders two values by their folded keys, falling back to the values
+	 * themselves so that the order stays total and repeatable.
+	 */
+	public static int compare(String key1, String value1, String key2, String value2) {
+		int order = key1.compareTo(key2);
+		return (order != 0) ? order : value1.compareTo(value2);
+	}
+}
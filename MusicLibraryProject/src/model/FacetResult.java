@@ -0,0 +1,66 @@
+/*
+ * File: FacetResult.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file represents the result of a faceted filter (see
+ * database.FacetFilter) on the MusicStore or LibraryModel: the matching
+ * albums or songs, at most "limit" of them, together with the total number
+ * of matches and how many of them fall under each genre, release year and
+ * artist, so a view can show the counts next to the results.
+ */
+
+package model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class FacetResult<T> {
+	private final List<T> items;
+	private final int total;
+	private final Map<String, Integer> genre_counts;
+	private final Map<Integer, Integer> year_counts;
+	private final Map<String, Integer> artist_counts;
+
+	/**
+	 * @param items          Results, in catalog order
+	 * @param total          Number of matches, including those not in items
+	 * @param genre_counts   Matches per genre, most first
+	 * @param year_counts    Matches per year, in year order
+	 * @param artist_counts  Matches per artist, most first
+	 */
+	public FacetResult(List<T> items, int total, Map<String, Integer> genre_counts, Map<Integer, Integer> year_counts,
+			Map<String, Integer> artist_counts) {
+		this.items = Collections.unmodifiableList(items);
+		this.total = total;
+		this.genre_counts = Collections.unmodifiableMap(genre_counts);
+		this.year_counts = Collections.unmodifiableMap(year_counts);
+		this.artist_counts = Collections.unmodifiableMap(artist_counts);
+	}
+
+	public List<T> getItems() {
+		return this.items;
+	}
+
+	public int getTotal() {
+		return this.total;
+	}
+
+	public Map<String, Integer> getGenreCounts() {
+		return this.genre_counts;
+	}
+
+	public Map<Integer, Integer> getYearCounts() {
+		return this.year_counts;
+	}
+
+	public Map<String, Integer> getArtistCounts() {
+		return this.artist_counts;
+	}
+
+	@Override
+	public String toString() {
+		return this.total + " results | genres: " + this.genre_counts + " | years: " + this.year_counts
+				+ " | artists: " + this.artist_counts;
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * File: InstanceRegistry.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file keeps one canonical (flyweight) instance of every equal
+ * Song and every equal catalog Album in use, so that the store, the libraries
+ * and their search results can all hand out the same shared immutable object
+ * instead of allocating a fresh copy per returned element.
+ *
+ * Songs are immutable, so any equal Song can be swapped for the canonical
+ * one. Albums are not, so album() only accepts albums that have been frozen
+ * (see Album.freeze()), and the canonical instance it returns is frozen too.
+ *
+ * Entries are weakly held: once no part of the program references a
+ * canonical instance anymore it is dropped from the registry.
+ */
+
+package model;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+public final class InstanceRegistry {
+	private static final Map<Song, WeakReference<Song>> songs = new WeakHashMap<Song, WeakReference<Song>>();
+	private static final Map<AlbumKey, WeakReference<Album>> albums = new WeakHashMap<AlbumKey, WeakReference<Album>>();
+
+	private InstanceRegistry() {
+	}
+
+	/**
+	 * Returns the canonical Song equal to the input, registering the input
+	 * as canonical if no equal song is registered yet.
+	 *
+	 * @param  song       Song to resolve
+	 * @return canonical  Shared Song instance equal to the input
+	 */
+	public static Song song(Song song) {
+		synchronized (songs) {
+			WeakReference<Song> reference = songs.get(song);
+			Song canonical = (reference == null) ? null : reference.get();
+			if (canonical == null) {
+				songs.put(song, new WeakReference<Song>(song));
+				canonical = song;
+			}
+			return canonical;
+		}
+	}
+
+	/**
+	 * Convenience form of song(Song) for call sites building a song from
+	 * its fields.
+	 */
+	public static Song song(String title, String album, String artist) {
+		return song(new Song(title, album, artist));
+	}
+
+	/**
+	 * Returns the canonical frozen Album with the same title, artist, genre,
+	 * year and song list as the input.
+	 *
+	 * @param  album      Frozen album to resolve
+	 * @return canonical  Shared frozen Album equal to the input
+	 * @throws IllegalArgumentException if the album is not frozen
+	 */
+	public static Album album(Album album) {
+		if (!album.isFrozen()) {
+			throw new IllegalArgumentException("Only frozen albums can be shared.");
+		}
+		AlbumKey key = new AlbumKey(album);
+		synchronized (albums) {
+			WeakReference<Album> reference = albums.get(key);
+			Album canonical = (reference == null) ? null : reference.get();
+			if (canonical == null) {
+				// The key holds the album's fields, not the album, so the
+				// entry is released together with the album's key.
+				albums.put(key, new WeakReference<Album>(album));
+				album.registry_key = key;
+				canonical = album;
+			}
+			return canonical;
+		}
+	}
+
+	/**
+	 * Value key for albums, which (being mutable in libraries) do not
+	 * define equals/hashCode themselves.
+	 */
+	static final class AlbumKey {
+		private final String title;
+		private final String artist;
+		private final String genre;
+		private final String year;
+		private final List<String> songs;
+		private final int hash;
+
+		AlbumKey(Album album) {
+			this.title = album.getTitle();
+			this.artist = album.getArtist();
+			this.genre = album.getGenre();
+			this.year = album.getYear();
+			this.songs = album.getSongs();
+			this.hash = Objects.hash(title, artist, genre, year, songs);
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (this == object) {
+				return true;
+			}
+			if (!(object instanceof AlbumKey)) {
+				return false;
+			}
+			AlbumKey key = (AlbumKey) object;
+			return this.hash == key.hash && this.title.equals(key.title)
+					&& this.artist.equals(key.artist) && this.genre.equals(key.genre)
+					&& this.year.equals(key.year) && this.songs.equals(key.songs);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+}
@@ -6,47 +6,263 @@
  * Purpose: Represents a user's music library. Manages songs (with play counts),
  * albums, playlists, and ratings. Provides functionality for:
  *   - Adding/removing songs and albums
- *   - Searching for songs (by title, artist) and albums (by title, artist)
+ *   - Searching for songs (by title, artist) and albums (by title, artist),
+ *     as full lists, lazy Streams, or paginated SearchPages, and typo 
+ *     tolerant (fuzzy) song searches. Searches compare folded keys (see
+ *     Collation), so they ignore case and accents.
+ *   - Ranking songs by relevance to free text (BM25 over title, artist
+ *     and album, see SongRanker), boosted by play counts and ratings
+ *   - Autocompleting song titles, artists and album titles
+ *   - Caching repeated song searches until the song set changes
+ *   - Filtering songs by genre, year and artist (bitmap posting lists,
+ *     see FacetIndex), with facet counts
  *   - Rating songs (and retrieving favorites/top-rated songs)
  *   - Sorting and shuffling songs
  *   - Tracking song plays and automatically updating playlists:
  *         "Most Recently Played" (up to 10 songs, most recent first)
- *         "Most Frequently Played" (top 10 by play count)
- *   - Managing user-created playlists
+ *         "Most Frequently Played" (top 10 by play count, the number
+ *         set per user with setMostPlayedLimit)
+ *   - Managing user-created playlists (created, found, renamed and removed
+ *     by case-insensitive name in O(1), see PlaylistRegistry)
  * 
- * All getters return deep copies to preserve encapsulation.
+ * Every mutation runs as a batch (see batch()): derived state (genre
+ * playlists, empty album cleanup, Most Frequently Played, Favorite Songs
+ * and Top Rated) is refreshed once when the outermost batch ends, so bulk
+ * changes made in one batch refresh each derived playlist only once.
+ * 
+ * Getters return deep copies of mutable state (albums) to preserve 
+ * encapsulation. Songs are immutable, so the canonical shared instances 
+ * (see InstanceRegistry) are returned rather than per-call copies.
  * This class is Serializable.
  * 
  */
 
 package model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import database.FacetFilter;
+import database.FacetIndex;
+import database.FuzzyIndex;
 import database.MusicStore;
+import database.PrefixTrie;
+import database.QueryCache;
+import database.ShardedIndex;
+import database.SongRanker;
 
 public class LibraryModel implements Serializable{
 	
 	private static final long serialVersionUID = 1L;
-	private HashMap<Song, Integer> library;
+	private HashMap<Song, Integer> library; // a LinkedHashMap: songs in the order added
 	private ArrayList<Album> albums;
-	private ArrayList<PlayList> playlists;
+	private ArrayList<PlayList> playlists; // written from playlist_registry when saved
 	private ArrayList<Rating> ratings;
+	private int most_played_limit; // 0 (libraries saved before it) is the default
+	
+	public static final int DEFAULT_MOST_PLAYED_LIMIT = 10;
+	public static final int GENRE_PLAYLIST_MINIMUM = 10;
+	public static final List<String> BUILT_IN_PLAYLISTS =
+			List.of("Most Recently Played", "Most Frequently Played", "Favorite Songs", "Top Rated");
+	
+	// Search indexes over the library's songs, rebuilt on the first fuzzy
+	// search after the song set changed (modifications moved on). Not 
+	// serialized, so users.dat keeps its format.
+	private transient int modifications;
+	private transient int indexed_modifications;
+	private transient ArrayList<Song> indexed_songs;
+	private transient ShardedIndex title_index;
+	private transient ShardedIndex artist_index;
+	private transient SongRanker ranker;
+	
+	// Autocomplete tries, built on first use and then kept in step with
+	// every song and album added or removed.
+	private transient PrefixTrie song_title_trie;
+	private transient PrefixTrie artist_trie;
+	private transient PrefixTrie album_title_trie;
+	
+	// Results of recent song searches, dropped whenever modifications moves on
+	private transient QueryCache<List<Song>> query_cache;
+	
+	// Genre / year / artist posting lists over the albums' tracks, rebuilt
+	// on the first filter after an album changed
+	// (album_modifications moved on).
+	private transient int album_modifications;
+	private transient int faceted_modifications;
+	private transient ArrayList<Song> faceted_songs;
+	private transient FacetIndex facets;
+	
+	// Played songs by play count, for Most Frequently Played; built on
+	// first use and then kept in step with every play and removal.
+	private transient PlayRanking play_ranking;
+	
+	// Tracks of the library's albums by genre, in album and track order, for
+	// the genre playlists; built on first use and then kept in step with
+	// every track added to or removed from an album.
+	private transient HashMap<String, LinkedHashSet<Song>> genre_members;
+	
+	// The library's albums by folded title and artist (there is one per
+	// key, see checkForAlbumPresence), built on first use and then kept in
+	// step. A song finds its album under its own album title and artist.
+	private transient HashMap<String, Album> album_index;
+	
+	// Derived playlists to refresh when the outermost batch ends (see
+	// batch()): genre playlists and rating playlists changed, each with
+	// the songs to remove from and append to it, or null if it must be
+	// rebuilt.
+	private transient int batch_depth;
+	private transient HashMap<String, Delta> genre_changes;
+	private transient ArrayList<Album> emptied_albums;
+	private transient boolean most_played_pending;
+	private transient HashMap<String, Delta> rating_changes;
+	
+	// Ratings by song and by score, with the Favorite Songs and Top Rated
+	// views; built from ratings on first use and then kept in step.
+	private transient RatingStore rating_store;
+	
+	// Playlists by case-insensitive name, in creation order; built from
+	// playlists on first use, and the record of them from then on.
+	private transient PlaylistRegistry playlist_registry;
 	
 	public LibraryModel() {
-		this.library = new HashMap<Song, Integer>();
+		this.library = new LinkedHashMap<Song, Integer>();
 		this.playlists = new ArrayList<PlayList>();
 		this.albums = new ArrayList<Album>();
 		this.ratings = new ArrayList<Rating>();
 		
 		// Created For Every User
-		createPlaylist("Most Recently Played");
-		createPlaylist("Most Frequently Played");
-		createPlaylist("Favorite Songs");
-		createPlaylist("Top Rated");
+		for (String name : BUILT_IN_PLAYLISTS) {
+			createPlaylist(name);
+		}
+	}
+	
+	/**
+	 * Applies many changes at once, e.g.
+	 *   library.batch(b -> {
+	 *       b.addAlbumWithAllSongs(album);
+	 *       b.setRating(song, 5);
+	 *   });
+	 * Within the batch the songs, albums and ratings change right away, but
+	 * the derived playlists (genre playlists, Most Frequently Played,
+	 * Favorite Songs, Top Rated) and the removal of emptied albums are
+	 * brought up to date once, when the batch ends, even if an edit throws.
+	 * Batches may nest; only the outermost one refreshes. Every single
+	 * mutation is a batch of its own.
+	 * 
+	 * @param edits  Changes to apply, given this library
+	 */
+	public void batch(Consumer<LibraryModel> edits) {
+		batched(() -> {
+			edits.accept(this);
+			return null;
+		});
+	}
+	
+	/**
+	 * Helper function running one mutation as a batch, returning its result.
+	 */
+	private <T> T batched(Supplier<T> edit) {
+		this.batch_depth++;
+		try {
+			return edit.get();
+		} finally {
+			if (--this.batch_depth == 0) {
+				commit();
+			}
+		}
+	}
+	
+	/**
+	 * Helper function recording a song added to (removed from) a derived
+	 * playlist, to be applied when the batch ends (see applyChange()). A
+	 * song added during the batch and removed again cancels out.
+	 */
+	private static void recordChange(HashMap<String, Delta> changes, String name, Song song, boolean added) {
+		if (changes.containsKey(name) && changes.get(name) == null) {
+			return; // rebuilt anyway
+		}
+		Delta delta = changes.computeIfAbsent(name, n -> new Delta());
+		if (added) {
+			delta.appended.add(song);
+		} else if (!delta.appended.remove(song)) {
+			delta.removed.add(song);
+		}
+	}
+	
+	/**
+	 * Helper function bringing a derived playlist up to date: the songs
+	 * the delta removed are taken out in one pass, then the songs it added
+	 * are appended. A null delta, or one larger than the playlist, has the
+	 * playlist rebuilt from its songs instead.
+	 */
+	private static void applyChange(PlayList list, Delta delta, Collection<Song> songs) {
+		if (delta == null || delta.size() > list.size()) {
+			list.newSetList(new ArrayList<Song>(songs));
+			return;
+		}
+		if (!delta.removed.isEmpty()) {
+			list.removeExact(delta.removed);
+		}
+		for (Song song : delta.appended) {
+			list.addSong(song);
+		}
+	}
+	
+	/**
+	 * Songs leaving and joining one derived playlist during a batch; the
+	 * joining ones in the order they joined.
+	 */
+	private static final class Delta {
+		final HashSet<Song> removed = new HashSet<Song>();
+		final LinkedHashSet<Song> appended = new LinkedHashSet<Song>();
+		
+		int size() {
+			return this.removed.size() + this.appended.size();
+		}
+	}
+	
+	/**
+	 * Helper function refreshing the derived state the ending batch changed.
+	 */
+	private void commit() {
+		if (this.emptied_albums != null && !this.emptied_albums.isEmpty()) {
+			albumCleanUp();
+		}
+		if (this.genre_changes != null && !this.genre_changes.isEmpty()) {
+			HashMap<String, Delta> changes = this.genre_changes;
+			this.genre_changes = new HashMap<String, Delta>();
+			for (Map.Entry<String, Delta> change : changes.entrySet()) {
+				syncGenreList(change.getKey(), change.getValue());
+			}
+		}
+		if (this.most_played_pending) {
+			this.most_played_pending = false;
+			updateMostPlayed();
+		}
+		if (this.rating_changes != null && !this.rating_changes.isEmpty()) {
+			HashMap<String, Delta> changes = this.rating_changes;
+			this.rating_changes = new HashMap<String, Delta>();
+			for (Map.Entry<String, Delta> change : changes.entrySet()) {
+				syncRatingList(change.getKey(), change.getValue());
+			}
+		}
 	}
 	
 	/**
@@ -62,12 +278,15 @@ public class LibraryModel implements Serializable{
 	 * 		   false Returns false if song not added
 	 */
 	public boolean addSong(Song song) {
-		if (!this.library.containsKey(song)) {
-			this.library.put(song, 0);
-			updateGenreLists();
-			return true;
-		}
-		return false;
+		return batched(() -> {
+			if (!this.library.containsKey(song)) {
+				this.library.put(InstanceRegistry.song(song), 0);
+				this.modifications++;
+				trieSong(song, true);
+				return true;
+			}
+			return false;
+		});
 	}
 	
 	/**
@@ -78,33 +297,74 @@ public class LibraryModel implements Serializable{
 	 * 		   false if unsuccessfully removed
 	 */
 	public boolean removeSong(Song song) {
-		if (this.library.containsKey(song)) {
-			this.library.remove(song);
-			for (Album album : this.albums) {
-				if (album.getTitle().equals(song.getAlbum()) && album.getArtist().equals(song.getArtist())) {
+		return batched(() -> {
+			if (this.library.containsKey(song)) {
+				if (playRanking().remove(song)) {
+					this.most_played_pending = true;
+				}
+				this.library.remove(song);
+				this.modifications++;
+				trieSong(song, false);
+				Album album = albumIndex().get(key(song.getAlbumKey(), song.getArtistKey()));
+				if (album != null && album.getTitle().equals(song.getAlbum())
+						&& album.getArtist().equals(song.getArtist())) {
 					album.removeSong(song.getTitle());
+					this.album_modifications++;
+					genreTrack(album, song.getTitle(), false);
+					if (album.getSongs().isEmpty()) {
+						if (this.emptied_albums == null) {
+							this.emptied_albums = new ArrayList<Album>();
+						}
+						this.emptied_albums.add(album);
+					}
 				}
+				return true;
 			}
-			updateGenreLists();
-			albumCleanUp();
-			return true;
-		}
-		return false;
+			return false;
+		});
 	}
 	
 	/**
-	 * Iterator-safe helper function to clean up and remove Albums,
-	 *  in case any have all songs removed.
+	 * Iterator-safe helper function to clean up and remove the Albums that
+	 * had all songs removed (and were not refilled or removed since).
 	 */
 	private void albumCleanUp() {
 		ArrayList<Album> albumsToRemove = new ArrayList<>();
-		
-		for (Album album : this.albums) {
-			if (album.getSongs().isEmpty()) {
+		for (Album album : this.emptied_albums) {
+			if (album.getSongs().isEmpty() && albumIndex().remove(key(album), album)) {
 				albumsToRemove.add(album);
 			}
 		}
-		this.albums.removeAll(albumsToRemove);
+		this.emptied_albums.clear();
+		Set<Album> removed = Collections.newSetFromMap(new IdentityHashMap<Album, Boolean>());
+		removed.addAll(albumsToRemove);
+		this.albums.removeIf(removed::contains);
+		this.album_modifications += albumsToRemove.size();
+		for (Album album : albumsToRemove) {
+			trieAlbum(album, false);
+		}
+	}
+	
+	/**
+	 * Helper function indexing the albums on first use (the index is not
+	 * serialized).
+	 */
+	private HashMap<String, Album> albumIndex() {
+		if (this.album_index == null) {
+			this.album_index = new HashMap<String, Album>();
+			for (Album album : this.albums) {
+				this.album_index.putIfAbsent(key(album), album);
+			}
+		}
+		return this.album_index;
+	}
+	
+	private static String key(Album album) {
+		return key(album.getTitleKey(), album.getArtistKey());
+	}
+	
+	private static String key(String title_key, String artist_key) {
+		return title_key + '\u0000' + artist_key;
 	}
 	
 	/**
@@ -125,34 +385,35 @@ public class LibraryModel implements Serializable{
 	 * 			false  Returns false if song not added
 	 */
 	public boolean addAlbumWithAllSongs(Album album) {
-		if (!checkForAlbumPresence(album)) {
-			Album target = new Album(album.getTitle(), album.getArtist(), album.getGenre(), album.getYear());
-			for (String song : album.getSongs()) {
-				target.addSong(song);
-				addSong(new Song(song, album.getTitle(), album.getArtist()));
-			}
-			this.albums.add(target);
-			updateGenreLists();
-			return true;
-		} else {
-			for (Album target : this.albums) {
-				if (album.getTitle().toLowerCase().equals(target.getTitle().toLowerCase()) 
-						&& album.getArtist().toLowerCase().equals(target.getArtist().toLowerCase())) {
-					boolean newSongsFlag = false;
-					for (String song : album.getSongs()) {
-						if (!target.getSongs().contains(song)) {
-							target.addSong(song);
-							newSongsFlag = true;
-						}
-						
+		return batched(() -> {
+			if (!checkForAlbumPresence(album)) {
+				Album target = new Album(album.getTitle(), album.getArtist(), album.getGenre(), album.getYear());
+				for (String song : album.getSongs()) {
+					target.addSong(song);
+					addSong(InstanceRegistry.song(song, album.getTitle(), album.getArtist()));
+				}
+				this.albums.add(target);
+				albumIndex().put(key(target), target);
+				this.album_modifications++;
+				trieAlbum(target, true);
+				for (String song : target.getSongs()) {
+					genreTrack(target, song, true);
+				}
+				return true;
+			} else {
+				Album target = albumIndex().get(key(album));
+				boolean newSongsFlag = false;
+				for (String song : album.getSongs()) {
+					if (!target.getSongs().contains(song)) {
+						target.addSong(song);
+						this.album_modifications++;
+						genreTrack(target, song, true);
+						newSongsFlag = true;
 					}
-					updateGenreLists();
-					return newSongsFlag;
 				}
-
+				return newSongsFlag;
 			}
-			return false;
-		}
+		});
 	}
 	
 	/**
@@ -164,16 +425,21 @@ public class LibraryModel implements Serializable{
 	 * 		   false if unsuccessfully added
 	 */
 	public boolean addAlbumOneSong(Album album, Song song) {
-		if (!checkForAlbumPresence(album)) {
-			Album target = new Album(album.getTitle(), album.getArtist(), album.getGenre(), album.getYear());
-			if (song.getAlbum().equals(album.getTitle()) && song.getArtist().equals(album.getArtist())) {
-				target.addSong(song.getTitle());
-				this.albums.add(target);
-				updateGenreLists();
-				return true;
+		return batched(() -> {
+			if (!checkForAlbumPresence(album)) {
+				Album target = new Album(album.getTitle(), album.getArtist(), album.getGenre(), album.getYear());
+				if (song.getAlbum().equals(album.getTitle()) && song.getArtist().equals(album.getArtist())) {
+					target.addSong(song.getTitle());
+					this.albums.add(target);
+					albumIndex().put(key(target), target);
+					this.album_modifications++;
+					trieAlbum(target, true);
+					genreTrack(target, song.getTitle(), true);
+					return true;
+				}
 			}
-		}
-		return false;
+			return false;
+		});
 	}
 	
 	/**
@@ -185,18 +451,27 @@ public class LibraryModel implements Serializable{
 	 * 			false  Returns false if album not found, or failed to be removed
 	 */
 	public boolean removeAlbum(Album album) {
-		for (Album target : this.albums) {
-			if (target.getTitle().equals(album.getTitle()) 
+		return batched(() -> {
+			Album target = albumIndex().get(key(album));
+			if (target != null && target.getTitle().equals(album.getTitle()) 
 					&& target.getArtist().equals(album.getArtist())
 					&& target.getYear().equals(album.getYear())) {
 				for (String song : target.getSongs()) {
 					removeSong(new Song(song, target.getTitle(), target.getArtist()));
 				}
-				this.albums.remove(target);
+				albumIndex().remove(key(target));
+				if (this.albums.remove(target)) {
+					this.album_modifications++;
+					trieAlbum(target, false);
+					// Tracks that were not in the library are left
+					for (String song : target.getSongs()) {
+						genreTrack(target, song, false);
+					}
+				}
 				return true;
 			}
-		}
-		return false; 
+			return false; 
+		});
 	}
 	
 	/**
@@ -208,117 +483,178 @@ public class LibraryModel implements Serializable{
 	 * 		   false is song unsuccessfully added
 	 */
 	public boolean addAlbumSong(Song song) {
-		for (Album album : this.albums) {
-			if (album.getTitle().equals(song.getAlbum())
-					&& album.getArtist().equals(song.getArtist())) {
-				if (!album.getSongs().contains(song.getTitle())) {
-					album.addSong(song.getTitle());
-					updateGenreLists();
-					return true;
-				}
+		return batched(() -> {
+			Album album = albumIndex().get(key(song.getAlbumKey(), song.getArtistKey()));
+			if (album != null && album.getTitle().equals(song.getAlbum())
+					&& album.getArtist().equals(song.getArtist())
+					&& !album.getSongs().contains(song.getTitle())) {
+				album.addSong(song.getTitle());
+				this.album_modifications++;
+				genreTrack(album, song.getTitle(), true);
+				return true;
 			}
-		}
-		return false;
+			return false;
+		});
 	}
 	
 	
 	/**
-	 * Returns a deep copy list of all songs, adds extra levels of encapsulation
-	 * as the Song class was was made immutable during development.
+	 * Returns a new list of all songs. The Song class is immutable, so the
+	 * list holds the library's own (shared) instances rather than copies.
 	 * 
 	 * @return result  An ArrayList of all songs present in the library
 	 */
 	public ArrayList<Song> getAllSongs() {
-		ArrayList<Song> result = new ArrayList<Song>();
-		for (Song target : this.library.keySet()) {
-			Song addition = new Song(target.getTitle(), target.getAlbum(), target.getArtist());
-			result.add(addition);
-		}
-		return result;
+		return new ArrayList<Song>(this.library.keySet());
 	}
 	
 	/**
-	 * Returns a deep copy list of songs with titles that match, or contain,
-	 * the input String parameter. Not case sensitive.
+	 * Returns a list of the library's (shared, immutable) songs with titles
+	 * that match, or contain, the input String parameter. Not case sensitive.
 	 * 
 	 * @param  title	 String representation of a title
 	 * @return result    ArrayList of Songs with titles matched to title input
 	 */
 	public ArrayList<Song> searchSongByTitle(String title) {
-		ArrayList<Song> result = new ArrayList<Song>();
-		for (Song target : this.library.keySet()) {
-			if (target.getTitle().toLowerCase().equals(title.toLowerCase()) ||
-					target.getTitle().toLowerCase().contains(title.toLowerCase())) {
-				Song addition = new Song(target.getTitle(), target.getAlbum(), target.getArtist());
-				result.add(addition);
-			}
-		}
-		return result;
+		return new ArrayList<Song>(queryCache().computeIfAbsent("song title", title, this.modifications,
+				() -> streamSongsByTitle(title).toList()));
 	}
 	
 	/**
-	 * Returns a deep copy list of songs with artists that match, or contain,
-	 * the input String parameter. Not case sensitive.
+	 * Returns a list of the library's (shared, immutable) songs with artists
+	 * that match, or contain, the input String parameter. Not case sensitive.
 	 * 
 	 * @param  artist	String representation of artist
 	 * @return result   ArrayList of Songs with artists matched to artist input
 	 */
 	public ArrayList<Song> searchSongByArtist(String artist) {
-		ArrayList<Song> result = new ArrayList<Song>();
-		for (Song target : this.library.keySet()) {
-			if (target.getArtist().equalsIgnoreCase(artist) ||
-					target.getArtist().toLowerCase().contains(artist.toLowerCase())) {
-				Song addition = new Song(target.getTitle(), target.getAlbum(), target.getArtist());
-				result.add(addition);
-			}
-		}
-		return result;
+		return new ArrayList<Song>(queryCache().computeIfAbsent("song artist", artist, this.modifications,
+				() -> streamSongsByArtist(artist).toList()));
 	}
 	
 	/**
-	 * Searches for all songs in an album, based on genre
+	 * Searches for all songs in an album, based on genre (compared as
+	 * folded keys, see Collation). Answered from the genre members the
+	 * genre playlists are kept from, which every album change updates in
+	 * place, so no index is rebuilt; songs come in the genre playlist's
+	 * order.
 	 * 
 	 * @param  genre
 	 * @return result an arraylist of songs that are <genre>
 	 */
 	public ArrayList<Song> searchSongsByGenre(String genre) {
+		String key = Collation.fold(genre);
 		ArrayList<Song> result = new ArrayList<Song>();
-		for (Album album : this.albums) {
-			if (album.getGenre().toLowerCase().equals(genre.toLowerCase())) {
-				//System.out.println("Genre: " + album.getGenre());
+		for (Map.Entry<String, LinkedHashSet<Song>> members : genreMembers().entrySet()) {
+			if (SymbolTable.key(members.getKey()).equals(key)) {
+				result.addAll(members.getValue());
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the songs of the library's albums matching a facet filter, e.g.
+	 * FacetFilter.genre("Pop").and(FacetFilter.years(2000, 2009)), with the
+	 * number of matches per genre, year and artist.
+	 * 
+	 * @param  filter  Genre / year / artist filter
+	 * @param  limit   Maximum number of songs returned
+	 * @return result  First limit matching songs, in album and track order
+	 */
+	public FacetResult<Song> filterSongs(FacetFilter filter, int limit) {
+		ArrayList<Song> songs = facetSongs();
+		return this.facets.result(this.facets.select(filter), songs::get, limit);
+	}
+	
+	/**
+	 * Helper function (re)building the facet index over the albums' tracks
+	 * when an album changed since it was built; only filters read it, so
+	 * album changes alone never rebuild it. Returns the songs whose
+	 * positions its ordinals refer to.
+	 */
+	private ArrayList<Song> facetSongs() {
+		if (this.faceted_songs == null || this.faceted_modifications != this.album_modifications) {
+			ArrayList<Song> songs = new ArrayList<Song>();
+			ArrayList<String> genres = new ArrayList<String>();
+			ArrayList<String> years = new ArrayList<String>();
+			ArrayList<String> artists = new ArrayList<String>();
+			for (Album album : this.albums) {
 				for (String song : album.getSongs()) {
-					result.add(new Song(song, album.getTitle(), album.getArtist()));
+					songs.add(InstanceRegistry.song(song, album.getTitle(), album.getArtist()));
+					genres.add(album.getGenre());
+					years.add(album.getYear());
+					artists.add(album.getArtist());
 				}
 			}
+			this.facets = new FacetIndex(genres, years, artists);
+			this.faceted_songs = songs;
+			this.faceted_modifications = this.album_modifications;
 		}
-		return result;
+		return this.faceted_songs;
 	}
 	/**
-	 * This function checks if the target Song has already been rated, and
-	 * if not adds the Song-Integer rating pair. If it has already been
-	 * rated, it updates the rating to the input num.
+	 * This function checks if the target Song has already been rated (a
+	 * rating with the same title and album, see RatingStore), and if not
+	 * adds the Song-Integer rating pair. If it has already been rated, it
+	 * updates the rating to the input num. Favorite Songs and Top Rated
+	 * gain or lose the song as its rating moves in or out of them.
 	 * 
 	 * @param song	Song to be rated
 	 * @param num   Rating to be applied
 	 */
 	public void setRating(Song song, int num) {
-		for (Rating r : this.ratings) {
-			if (r.getSong().getTitle().equalsIgnoreCase(song.getTitle())
-					&& r.getSong().getAlbum().equalsIgnoreCase(song.getAlbum())) {
-				r.setRating(num);
-				if (num >= 4) {
-					searchPlaylistByName("Favorite Songs").newSetList(getFavorites());
-					updateTopRated();
-				}
-				return;
+		batch(b -> {
+			RatingStore store = ratingStore();
+			Rating existing = store.find(song);
+			int previous = (existing == null) ? 0 : existing.getRating();
+			Rating rating = store.rate(song, num);
+			if (existing == null) {
+				this.ratings.add(rating);
+			}
+			if (RatingStore.isFavorite(previous) != RatingStore.isFavorite(num)) {
+				recordChange(this.rating_changes, "Favorite Songs", rating.getSong(), RatingStore.isFavorite(num));
 			}
+			if (RatingStore.isTopRated(previous) != RatingStore.isTopRated(num)) {
+				recordChange(this.rating_changes, "Top Rated", rating.getSong(), RatingStore.isTopRated(num));
+			}
+		});
+	}
+	
+	/**
+	 * @param  score  A rating, e.g. 3
+	 * @return list   Songs rated score, in the order they got it
+	 */
+	public ArrayList<Song> getSongsWithRating(int score) {
+		return new ArrayList<Song>(ratingStore().withScore(score));
+	}
+	
+	/**
+	 * Helper function indexing the ratings on first use (the index is not
+	 * serialized). Favorite Songs and Top Rated are then rebuilt from it
+	 * when the next batch ends, in case they were saved out of date.
+	 */
+	private RatingStore ratingStore() {
+		if (this.rating_store == null) {
+			this.rating_store = new RatingStore(this.ratings);
+			this.rating_changes = new HashMap<String, Delta>();
+			this.rating_changes.put("Favorite Songs", null);
+			this.rating_changes.put("Top Rated", null);
 		}
-		Rating rating = new Rating(song, num);
-		ratings.add(rating);
-		if (num >= 4) {
-			searchPlaylistByName("Favorite Songs").newSetList(getFavorites());
-			updateTopRated();
+		return this.rating_store;
+	}
+	
+	/**
+	 * Helper function updating Favorite Songs or Top Rated to its view;
+	 * delta holds the changes since, or is null to rebuild it.
+	 */
+	private void syncRatingList(String name, Delta delta) {
+		PlayList list = searchPlaylistByName(name);
+		if (list == null) {
+			return;
 		}
+		Set<Song> view = name.equals("Favorite Songs") ? ratingStore().favorites() : ratingStore().topRated();
+		applyChange(list, delta, view);
 	}
 	
 	/** 
@@ -377,18 +713,7 @@ public class LibraryModel implements Serializable{
 	 * @return list  ArrayList of Albums with matching titles
 	 */
 	public ArrayList<Album> searchAlbumsByTitle(String title) {
-		ArrayList<Album> list = new ArrayList<Album>();
-		for (Album album : this.albums) {
-			if (album.getTitle().equalsIgnoreCase(title) ||
-					album.getTitle().toLowerCase().contains(title.toLowerCase())) {
-				Album addition = new Album(album.getTitle(), album.getArtist(), album.getGenre(), album.getYear());
-				for (String song : album.getSongs()) {
-					addition.addSong(song);
-				}
-				list.add(addition);
-			}
-		}
-		return list;
+		return streamAlbumsByTitle(title).collect(Collectors.toCollection(ArrayList::new));
 	}
 	
 	/**
@@ -399,19 +724,301 @@ public class LibraryModel implements Serializable{
 	 * @return list   ArrayList of Albums matching artist
 	 */
 	public ArrayList<Album> searchAlbumsByArtist(String artist) {
-		ArrayList<Album> list = new ArrayList<Album>();
-		for (Album album : this.albums) {
-			if (album.getArtist().equalsIgnoreCase(artist) ||
-					album.getArtist().toLowerCase().contains(artist.toLowerCase())) {
-				Album addition = new Album(album.getTitle(), album.getArtist(), album.getGenre(), album.getYear());
-				for (String song : album.getSongs()) {
-					addition.addSong(song);
+		return streamAlbumsByArtist(artist).collect(Collectors.toCollection(ArrayList::new));
+	}
+	
+	/**
+	 * Lazily evaluated versions of the search functions above. Nothing is
+	 * matched until the stream is consumed, so a short-circuiting consumer 
+	 * only pays for the results it actually takes. Songs are the library's
+	 * shared immutable instances; albums, which stay mutable in the library,
+	 * are copied.
+	 * 
+	 * @param  title   String representation of a title
+	 * @return stream  Stream of results matching the input
+	 */
+	public Stream<Song> streamSongsByTitle(String title) {
+		String target = Collation.fold(title);
+		return this.library.keySet().stream()
+				.filter(song -> song.getTitleKey().contains(target));
+	}
+	
+	public Stream<Song> streamSongsByArtist(String artist) {
+		String target = Collation.fold(artist);
+		return this.library.keySet().stream()
+				.filter(song -> song.getArtistKey().contains(target));
+	}
+	
+	public Stream<Album> streamAlbumsByTitle(String title) {
+		String target = Collation.fold(title);
+		return this.albums.stream()
+				.filter(album -> album.getTitleKey().contains(target))
+				.map(LibraryModel::albumCopy);
+	}
+	
+	public Stream<Album> streamAlbumsByArtist(String artist) {
+		String target = Collation.fold(artist);
+		return this.albums.stream()
+				.filter(album -> album.getArtistKey().contains(target))
+				.map(LibraryModel::albumCopy);
+	}
+	
+	/**
+	 * Paginated versions of the search functions above, which stop matching
+	 * once the page is filled. Pass null as the token for the first page, 
+	 * then the previous page's getNextToken(). Pages follow the order songs
+	 * and albums were added in, and a token is only valid until the songs
+	 * (or albums) change: resuming after that is rejected, as the offsets
+	 * would no longer point at the same results.
+	 * 
+	 * @param  title  String representation of a title
+	 * @param  token  Continuation token, or null for the first page
+	 * @param  limit  Maximum number of results on the page
+	 * @return page   SearchPage of deep copies matching the input
+	 * @throws IllegalArgumentException if the token is malformed or stale
+	 */
+	public SearchPage<Song> searchSongByTitle(String title, String token, int limit) {
+		return SearchPage.fromStream(streamSongsByTitle(title), token, this.modifications, limit);
+	}
+	
+	public SearchPage<Song> searchSongByArtist(String artist, String token, int limit) {
+		return SearchPage.fromStream(streamSongsByArtist(artist), token, this.modifications, limit);
+	}
+	
+	public SearchPage<Album> searchAlbumsByTitle(String title, String token, int limit) {
+		return SearchPage.fromStream(streamAlbumsByTitle(title), token, this.album_modifications, limit);
+	}
+	
+	public SearchPage<Album> searchAlbumsByArtist(String artist, String token, int limit) {
+		return SearchPage.fromStream(streamAlbumsByArtist(artist), token, this.album_modifications, limit);
+	}
+	
+	/**
+	 * Typo-tolerant versions of searchSongByTitle / searchSongByArtist: 
+	 * return up to limit songs whose title (artist) contains the query with
+	 * up to FuzzyIndex.maxEdits(query) edits, closest first.
+	 * 
+	 * @param  title   String representation of a title, possibly misspelled
+	 * @param  limit   Maximum number of songs returned
+	 * @return result  ArrayList of the closest matching songs, best first
+	 */
+	public ArrayList<Song> fuzzySearchSongByTitle(String title, int limit) {
+		ArrayList<Song> songs = indexSongs();
+		ArrayList<Song> result = new ArrayList<Song>();
+		for (int ordinal : new FuzzyIndex(this.title_index).search(title, limit)) {
+			result.add(songs.get(ordinal));
+		}
+		return result;
+	}
+	
+	public ArrayList<Song> fuzzySearchSongByArtist(String artist, int limit) {
+		ArrayList<Song> songs = indexSongs();
+		ArrayList<Song> result = new ArrayList<Song>();
+		for (int ordinal : new FuzzyIndex(this.artist_index).search(artist, limit)) {
+			result.add(songs.get(ordinal));
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the k library songs most relevant to the query, best first,
+	 * scored as MusicStore.rankSongs does and then boosted by how often a
+	 * song was played and how it was rated: a song played more, or rated
+	 * higher, wins over an equally relevant one.
+	 * 
+	 * @param  query  Free text, e.g. "rolling deep adele"
+	 * @param  k      Maximum number of songs returned
+	 * @return list   ArrayList of the best matching songs, best first
+	 */
+	public ArrayList<Song> rankSongs(String query, int k) {
+		return rankSongs(query, k, true);
+	}
+	
+	/**
+	 * @param  boost  false to rank by relevance alone
+	 */
+	public ArrayList<Song> rankSongs(String query, int k, boolean boost) {
+		ArrayList<Song> songs = indexSongs();
+		int[] ordinals;
+		if (boost) {
+			// The ranker only asks for the boosts of the candidates it scores;
+			// the highest play count and rating bound them all
+			RatingStore rated = ratingStore();
+			int max_stars = 3;
+			for (int stars = 5; stars > 3; stars--) {
+				if (!rated.withScore(stars).isEmpty()) {
+					max_stars = stars;
+					break;
 				}
-				list.add(addition);
 			}
+			double max_boost = boost(playRanking().maxCount(), max_stars);
+			ordinals = songRanker(songs).rank(query, k, ordinal -> {
+				Song song = songs.get(ordinal);
+				Rating rating = rated.find(song);
+				return boost(this.library.getOrDefault(song, 0), (rating == null) ? 0 : rating.getRating());
+			}, max_boost);
+		} else {
+			ordinals = songRanker(songs).rank(query, k);
 		}
-		return list;
+		ArrayList<Song> result = new ArrayList<Song>();
+		for (int ordinal : ordinals) {
+			result.add(songs.get(ordinal));
+		}
+		return result;
+	}
+	
+	/**
+	 * Helper function computing a song's ranking boost: up to about +50%
+	 * for heavy play and +/-20% for a 5 (1) star rating. Unrated songs
+	 * count as rated 3.
+	 */
+	private static double boost(int plays, int rating) {
+		int stars = (rating < 1 || rating > 5) ? 3 : rating;
+		return 1 + 0.1 * Math.log1p(plays) + 0.1 * (stars - 3);
+	}
+	
+	/**
+	 * Helper function building the ranker over the indexed songs on first
+	 * use. Album titles have no index of their own and are scanned.
+	 */
+	private SongRanker songRanker(ArrayList<Song> songs) {
+		if (this.ranker == null) {
+			ArrayList<String> albums = new ArrayList<String>(songs.size());
+			for (Song song : songs) {
+				albums.add(song.getAlbumKey());
+			}
+			ShardedIndex title_index = this.title_index;
+			ShardedIndex artist_index = this.artist_index;
+			this.ranker = new SongRanker(songs.size(), List.of(
+					new SongRanker.Field(title_index.keys(), term -> title_index.search(term), SongRanker.TITLE_WEIGHT),
+					new SongRanker.Field(artist_index.keys(), term -> artist_index.search(term), SongRanker.ARTIST_WEIGHT),
+					SongRanker.Field.scanned(albums, SongRanker.ALBUM_WEIGHT)));
+		}
+		return this.ranker;
+	}
+	
+	/**
+	 * Helper function (re)building the title and artist indexes when songs
+	 * were added or removed since they were built. Returns the songs whose
+	 * positions the indexes' ordinals refer to.
+	 */
+	private ArrayList<Song> indexSongs() {
+		if (this.indexed_songs == null || this.indexed_modifications != this.modifications) {
+			ArrayList<Song> songs = getAllSongs();
+			ArrayList<String> titles = new ArrayList<String>(songs.size());
+			ArrayList<String> artists = new ArrayList<String>(songs.size());
+			for (Song song : songs) {
+				titles.add(song.getTitle());
+				artists.add(song.getArtist());
+			}
+			this.title_index = new ShardedIndex(titles, 1);
+			this.artist_index = new ShardedIndex(artists, 1);
+			this.ranker = null;
+			this.indexed_songs = songs;
+			this.indexed_modifications = this.modifications;
+		}
+		return this.indexed_songs;
+	}
+	
+	/**
+	 * @return stats  Hits, misses, evictions and invalidations of the cache
+	 *                behind searchSongByTitle / searchSongByArtist
+	 */
+	public QueryCache.Stats getQueryCacheStats() {
+		return queryCache().getStats();
+	}
+	
+	/**
+	 * Helper function creating the search cache on first use (it is not
+	 * serialized, so it is also missing after loading a library).
+	 */
+	private QueryCache<List<Song>> queryCache() {
+		if (this.query_cache == null) {
+			this.query_cache = new QueryCache<List<Song>>(QueryCache.DEFAULT_CAPACITY);
+		}
+		return this.query_cache;
+	}
+	
+	/**
+	 * Autocompletes a song title from the library: returns up to k titles
+	 * starting with the prefix (not case sensitive), the most common first,
+	 * then alphabetically.
+	 * 
+	 * @param  prefix       Beginning of a song title
+	 * @param  k            Maximum number of completions
+	 * @return completions  List of completed titles, best first
+	 */
+	public List<String> completeSongTitles(String prefix, int k) {
+		buildTries();
+		return this.song_title_trie.complete(prefix, k);
+	}
+	
+	public List<String> completeArtists(String prefix, int k) {
+		buildTries();
+		return this.artist_trie.complete(prefix, k);
+	}
+	
+	public List<String> completeAlbumTitles(String prefix, int k) {
+		buildTries();
+		return this.album_title_trie.complete(prefix, k);
 	}
+	
+	/**
+	 * Helper function building the autocomplete tries from the current songs
+	 * and albums, the first time they are needed (also after loading the
+	 * library from users.dat, as they are not serialized).
+	 */
+	private void buildTries() {
+		if (this.song_title_trie == null) {
+			this.song_title_trie = new PrefixTrie();
+			this.artist_trie = new PrefixTrie();
+			this.album_title_trie = new PrefixTrie();
+			for (Song song : this.library.keySet()) {
+				trieSong(song, true);
+			}
+			for (Album album : this.albums) {
+				trieAlbum(album, true);
+			}
+		}
+	}
+	
+	/**
+	 * Helper functions keeping built tries in step with an added (or removed)
+	 * song or album.
+	 */
+	private void trieSong(Song song, boolean added) {
+		if (this.song_title_trie != null) {
+			if (added) {
+				this.song_title_trie.add(song.getTitle());
+				this.artist_trie.add(song.getArtist());
+			} else {
+				this.song_title_trie.remove(song.getTitle());
+				this.artist_trie.remove(song.getArtist());
+			}
+		}
+	}
+	
+	private void trieAlbum(Album album, boolean added) {
+		if (this.album_title_trie != null) {
+			if (added) {
+				this.album_title_trie.add(album.getTitle());
+			} else {
+				this.album_title_trie.remove(album.getTitle());
+			}
+		}
+	}
+	
+	/**
+	 * Helper function returning a deep copy of an album and its song titles.
+	 */
+	private static Album albumCopy(Album album) {
+		Album addition = new Album(album.getTitle(), album.getArtist(), album.getGenre(), album.getYear());
+		for (String song : album.getSongs()) {
+			addition.addSong(song);
+		}
+		return addition;
+	}
+	
 	/**
 	 * This helper function checks if a song is present in the current user library.
 	 * It returns true if a copy is present, false if not.
@@ -441,13 +1048,26 @@ public class LibraryModel implements Serializable{
 	 *         false  Returns false if not found
 	 */
 	public boolean checkForAlbumPresence(Album target) {
-		for (Album album : this.albums) {
-			if (album.getTitle().toLowerCase().equals(target.getTitle().toLowerCase()) 
-					&& album.getArtist().toLowerCase().equals(target.getArtist().toLowerCase())) {
-				return true;
-			}
+		return albumIndex().containsKey(key(target));
+	}
+	
+	/**
+	 * Returns a deep copy of the library album holding the song, found
+	 * directly from the song's album title and artist.
+	 * 
+	 * @param  song   Song to look up
+	 * @return album  Copy of its album, or null if no library album lists it
+	 */
+	public Album getAlbumOfSong(Song song) {
+		Album album = albumIndex().get(key(song.getAlbumKey(), song.getArtistKey()));
+		if (album == null || !album.getSongs().contains(song.getTitle())) {
+			return null;
+		}
+		Album copy = new Album(album.getTitle(), album.getArtist(), album.getGenre(), album.getYear());
+		for (String title : album.getSongs()) {
+			copy.addSong(title);
 		}
-		return false; 
+		return copy;
 	}
 	
 	/**
@@ -459,15 +1079,11 @@ public class LibraryModel implements Serializable{
 	 *                exists
 	 */
 	public boolean createPlaylist(String name) {
-	    // Check if a playlist with this name already exists
-	    for (PlayList p : playlists) {
-	        if (p.getName().equalsIgnoreCase(name)) {
-	            return false; // Already exists
-	        }
-	    }
-	    PlayList newPlaylist = new PlayList(name);
-	    playlists.add(newPlaylist);
-	    return true;
+		if (name == null) {
+			return false;
+		}
+		// False if a playlist with this name already exists
+		return playlistRegistry().add(new PlayList(name));
 	}
 	
 	/**
@@ -479,9 +1095,46 @@ public class LibraryModel implements Serializable{
 	 *                not found
 	 */
 	public boolean removePlaylist(String name) {
-		for (PlayList p : playlists) {
-			if(p.getName().equalsIgnoreCase(name)) {
-				playlists.remove(p);
+		return playlistRegistry().remove(name) != null;
+	}
+	
+	/**
+	 * This function renames a playlist, keeping its songs and its place
+	 * in getPlaylists(). The library updates the built-in and genre
+	 * playlists by name, so these keep their names, and no playlist can
+	 * take one of their names.
+	 * 
+	 * @param   name      Current name of the playlist (any case)
+	 * @param   new_name  Its new name
+	 * @return  true      Returns true if the playlist was renamed
+	 *          false     Returns false if it is not found, is built in or
+	 *                    a genre's, new_name is a built-in or genre
+	 *                    playlist's name, or another playlist is already
+	 *                    named new_name
+	 */
+	public boolean renamePlaylist(String name, String new_name) {
+		PlayList playlist = searchPlaylistByName(name);
+		if (playlist == null || new_name == null || isAutomaticPlaylist(playlist.getName())
+				|| isAutomaticPlaylist(new_name)) {
+			return false;
+		}
+		return playlistRegistry().rename(name, new_name);
+	}
+	
+	/**
+	 * Helper function telling whether the library keeps a playlist of this
+	 * name (any case) up to date itself: a built-in playlist, or the
+	 * playlist of one of the library's genres (even one with too few songs
+	 * for a playlist yet, which it gets once the genre grows).
+	 */
+	private boolean isAutomaticPlaylist(String name) {
+		for (String built_in : BUILT_IN_PLAYLISTS) {
+			if (built_in.equalsIgnoreCase(name)) {
+				return true;
+			}
+		}
+		for (String genre : genreMembers().keySet()) {
+			if (genre.equalsIgnoreCase(name)) {
 				return true;
 			}
 		}
@@ -490,17 +1143,19 @@ public class LibraryModel implements Serializable{
 	
 	/**
 	 * This function adds a song to a playlist with a name matching
-	 * the input string.
+	 * the input string. The built-in and genre playlists are kept up to
+	 * date by the library, so songs can't be added to them by hand.
 	 * 
 	 * @param  playlistName Name of the desired playlist
 	 * @param  s            Song to be added
 	 * @return true         Returns true if song added successfully
 	 *         false        Returns false if song already in playlist,
-	 *                      or failed to add (playlist doesnt exist)
+	 *                      or failed to add (playlist doesnt exist, or
+	 *                      is built in or a genre's)
 	 */
 	public boolean addSongToPlaylist(String playlistName, Song s) {
 		PlayList targetPlaylist = searchPlaylistByName(playlistName);
-		if(targetPlaylist == null) {
+		if(targetPlaylist == null || isAutomaticPlaylist(targetPlaylist.getName())) {
 			return false;
 		}
 		
@@ -515,24 +1170,26 @@ public class LibraryModel implements Serializable{
 	
 	/**
 	 * This function removes a song from playlist, determined by playlist name
-	 * and song title.
+	 * and song title. As with addSongToPlaylist, the built-in and genre
+	 * playlists can't be edited by hand.
 	 * 
 	 * @param  playlistName  Playlist to remove song from
 	 * @param  songTitle     Song to be removed
 	 * @return true          Returns true if song successfully deleted
-	 *                       Returns false if song unsuccessfully deleted or
-	 *                       playlist with name not found.
+	 *                       Returns false if song unsuccessfully deleted,
+	 *                       playlist with name not found, or it is built
+	 *                       in or a genre's.
 	 */
 	public boolean removeSongFromPlaylist(String playlistName, String songTitle) {
-	    for (PlayList p : playlists) {
-	        if (p.getName().equalsIgnoreCase(playlistName)) {
-	            // find the Song object in p’s list
-	            for (Song track : p.getSongs()) {
-	                if (track.getTitle().equalsIgnoreCase(songTitle)) {
-	                    p.removeSong(track);
-	                    return true;
-	                }
-	            }
+	    PlayList p = searchPlaylistByName(playlistName);
+	    if (p == null || isAutomaticPlaylist(p.getName())) {
+	        return false;
+	    }
+	    // find the Song object in p’s list
+	    for (Song track : p.getSongs()) {
+	        if (track.getTitle().equalsIgnoreCase(songTitle)) {
+	            p.removeSong(track);
+	            return true;
 	        }
 	    }
 	    return false;
@@ -545,12 +1202,7 @@ public class LibraryModel implements Serializable{
 	 * @return p     Returns the found playlist, or null if not found
 	 */
 	public PlayList searchPlaylistByName(String name) {
-	    for (PlayList p : playlists) {
-	        if (p.getName().equalsIgnoreCase(name)) {
-	            return p;
-	        }
-	    }
-	    return null; // Not found
+	    return playlistRegistry().get(name); // null if not found
 	}
 
 	/**
@@ -561,30 +1213,51 @@ public class LibraryModel implements Serializable{
 	 *                        playlists in library 
 	 */
 	public ArrayList<String> getPlaylists() {
-		ArrayList<String> playlistNames = new ArrayList<>();
-		for(PlayList p : playlists) {
-				playlistNames.add(p.getName());
+		return playlistRegistry().names();
+	}
+	
+	/**
+	 * Helper function returning the playlist registry, built from the
+	 * playlists list on first use (e.g. after the library was loaded).
+	 */
+	private PlaylistRegistry playlistRegistry() {
+		if (this.playlist_registry == null) {
+			this.playlist_registry = new PlaylistRegistry(this.playlists);
+		}
+		return this.playlist_registry;
+	}
+	
+	/**
+	 * Saved libraries (users.dat) store the playlists list, so it is
+	 * rewritten from the registry first.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		if (this.playlist_registry != null) {
+			this.playlists = this.playlist_registry.playlists();
 		}
-		return playlistNames;
+		out.defaultWriteObject();
 	}
 	
 	/**
-	 * Returns a list of songs that have a rating of 5 (max).
-	 * Relies on the immutability of the song class to maintain
-	 * encapsulation. Avoids the antipattern of temporary fields
-	 * by adding the immutable songs to list, if they're paired
-	 * with a 5 rating.
+	 * Libraries saved before songs kept the order they were added in hold a
+	 * plain HashMap; its order is fixed from here on.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (!(this.library instanceof LinkedHashMap)) {
+			this.library = new LinkedHashMap<Song, Integer>(this.library);
+		}
+	}
+	
+	/**
+	 * Returns a list of songs that have a rating of 5 (max), in the
+	 * order they got it. Relies on the immutability of the song class
+	 * to maintain encapsulation.
 	 * 
 	 * @return faves  ArrayList of songs with a 5 rating
 	 */
 	public ArrayList<Song> getFavorites() {
-		ArrayList<Song> faves = new ArrayList<Song>();
-		for (Rating pair : this.ratings) {
-			if (pair.getRating() == 5) {
-				faves.add(pair.getSong());
-			}
-		}
-		return faves;
+		return new ArrayList<Song>(ratingStore().favorites());
 	}
 	
 	/**
@@ -595,105 +1268,145 @@ public class LibraryModel implements Serializable{
 	 * and updates the Most Frequently Played playlist.
 	 */
 	public Song playSong(Song song) {
-		if (!library.containsKey(song)) {
-			return null;
-		}
-		int incrementCount = library.get(song) + 1;
-		library.put(song, incrementCount);
-		searchPlaylistByName("Most Recently Played").addToRecent(song);
-		updateMostPlayed();
-		return song;
+		return batched(() -> {
+			if (!library.containsKey(song)) {
+				return null;
+			}
+			int incrementCount = library.get(song) + 1;
+			library.put(song, incrementCount);
+			playRanking().played(song, incrementCount);
+			searchPlaylistByName("Most Recently Played").addToRecent(song);
+			this.most_played_pending = true;
+			return song;
+		});
 	}
 	
 	/*
-	 * This function converts the song/playcounts in the hashmap to an
-	 * ArrayList of the entries, perform a bubble sort to get the
-	 * necessary values to the front, then extract the first relevant
-	 * songs into specific list of songs that gets assigned in the 
-	 * Most Frequently Played playlist. 
+	 * This function assigns the most played songs (the first to reach a
+	 * play count ranks first among equals) to the Most Frequently Played
+	 * playlist. The ranking is kept up to date by every play, so this
+	 * only reads its top getMostPlayedLimit() songs.
 	 */
 	public void updateMostPlayed() {
-        ArrayList<Map.Entry<Song, Integer>> songList = new ArrayList<>(library.entrySet());
-
-        for (int i = 0; i < songList.size(); i++) {
-            for (int j = i + 1; j < songList.size(); j++) {
-                if (songList.get(i).getValue() < songList.get(j).getValue()) {
-                    Map.Entry<Song, Integer> temp = songList.get(i);
-                    songList.set(i, songList.get(j));
-                    songList.set(j, temp);
-                }
-            }
-        }
-
-        // Get the top 10 songs from the sorted list
-        int max = 10;
-        if (songList.size() < max) {
-        	max = songList.size();
-        }
-        ArrayList<Song> topSongs = new ArrayList<>();
-        for (int i = 0; i < max; i++) {
-        	if (songList.get(i).getValue() > 0) {
-            topSongs.add(songList.get(i).getKey());
-        	}
-        }
-
-        searchPlaylistByName("Most Frequently Played").newSetList(topSongs);
-    }
+		searchPlaylistByName("Most Frequently Played").newSetList(playRanking().top(getMostPlayedLimit()));
+	}
+	
+	/**
+	 * @return limit  Number of songs in Most Frequently Played (10 unless set)
+	 */
+	public int getMostPlayedLimit() {
+		return (this.most_played_limit == 0) ? DEFAULT_MOST_PLAYED_LIMIT : this.most_played_limit;
+	}
+	
+	/**
+	 * Sets how many songs Most Frequently Played holds, and refreshes it.
+	 * 
+	 * @param limit  Number of songs, at least 1
+	 */
+	public void setMostPlayedLimit(int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("Most Frequently Played must hold at least 1 song.");
+		}
+		this.most_played_limit = limit;
+		updateMostPlayed();
+	}
+	
+	/**
+	 * Helper function ranking the played songs on first use (the ranking
+	 * is not serialized: after loading, ties keep the saved playlist's order).
+	 */
+	private PlayRanking playRanking() {
+		if (this.play_ranking == null) {
+			this.play_ranking = new PlayRanking(this.library,
+					searchPlaylistByName("Most Frequently Played").getSongs());
+		}
+		return this.play_ranking;
+	}
 	
 	/**
 	 * This function automatically updates the Top Rated Playlist
 	 * with any songs that have a 4 or 5 rating
 	 */
 	public void updateTopRated() {
-		ArrayList<Song> faves = new ArrayList<Song>();
-		for (Rating pair : this.ratings) {
-			if (pair.getRating() == 5 || pair.getRating() == 4) {
-				faves.add(pair.getSong());
-			}
-		}
-		searchPlaylistByName("Top Rated").newSetList(faves);
+		searchPlaylistByName("Top Rated").newSetList(new ArrayList<Song>(ratingStore().topRated()));
 	}
 	
 	
 	/**
-	 * This absolutely monstrous nightmare of a function loops through
-	 * every album, gathers all the possible genres into a list, then 
-	 * goes through every album and adds any songs that'd match up 
-	 * to each genre. If the resulting list is >10, it replaces the
-	 * existing playlist or creates one with those songs. 
+	 * This function rebuilds the genre playlists from scratch: it groups
+	 * every album's tracks by genre, then gives every genre with at least
+	 * 10 songs a playlist holding them (created if needed) and removes the
+	 * playlists of genres with fewer. Mutations keep the genre playlists
+	 * in step on their own (see genreTrack()), so this only runs on first
+	 * use, e.g. after loading a library.
 	 */
 	public void updateGenreLists() {
-		ArrayList<String> genres = new ArrayList<String>();
+		this.genre_members = new HashMap<String, LinkedHashSet<Song>>();
+		this.genre_changes = new HashMap<String, Delta>();
 		for (Album album : this.albums) {
-			if (!genres.contains(album.getGenre())) {
-				genres.add(album.getGenre());
+			LinkedHashSet<Song> members = this.genre_members.computeIfAbsent(album.getGenre(),
+					genre -> new LinkedHashSet<Song>());
+			for (String song : album.getSongs()) {
+				members.add(InstanceRegistry.song(song, album.getTitle(), album.getArtist()));
 			}
 		}
-		
-		for (String target : genres) {
-			ArrayList<Song> songs = new ArrayList<Song>();
-			for (Album contents : this.albums) {
-				if (contents.getGenre().equals(target)) {
-					for (String song : contents.getSongs()) {
-						Song jam = new Song(song, contents.getTitle(), contents.getArtist());
-						songs.add(jam);
-					}
-				}
+		for (String genre : new ArrayList<String>(this.genre_members.keySet())) {
+			syncGenreList(genre, null);
+		}
+	}
+	
+	/**
+	 * Helper function returning the albums' tracks by genre, grouped (and
+	 * the genre playlists brought up to date) on first use.
+	 */
+	private HashMap<String, LinkedHashSet<Song>> genreMembers() {
+		if (this.genre_members == null) {
+			updateGenreLists();
+		}
+		return this.genre_members;
+	}
+	
+	/**
+	 * Helper function recording that a track was added to (removed from)
+	 * one of the library's albums. Its genre's playlist is brought up to
+	 * date when the batch ends: added songs are appended, removed ones
+	 * taken out.
+	 */
+	private void genreTrack(Album album, String title, boolean added) {
+		if (this.genre_members == null) {
+			updateGenreLists(); // already includes this change
+			return;
+		}
+		String genre = album.getGenre();
+		LinkedHashSet<Song> members = this.genre_members.computeIfAbsent(genre, g -> new LinkedHashSet<Song>());
+		Song song = InstanceRegistry.song(title, album.getTitle(), album.getArtist());
+		if (added ? !members.add(song) : !members.remove(song)) {
+			return;
+		}
+		recordChange(this.genre_changes, genre, song, added);
+	}
+	
+	/**
+	 * Helper function updating a genre's playlist to its members: it exists
+	 * while the genre has at least 10 songs. delta holds the changes since
+	 * the playlist was last updated, or is null to rebuild it.
+	 */
+	private void syncGenreList(String genre, Delta delta) {
+		LinkedHashSet<Song> members = this.genre_members.get(genre);
+		PlayList genre_list = searchPlaylistByName(genre);
+		if (members != null && members.size() >= GENRE_PLAYLIST_MINIMUM) {
+			if (genre_list == null) {
+				createPlaylist(genre);
+				genre_list = searchPlaylistByName(genre);
+				delta = null;
 			}
-			PlayList genre_list = searchPlaylistByName(target);
-			
-			if (songs.size() >= 10) {
-				if (genre_list == null) {
-					createPlaylist(target);
-					genre_list = searchPlaylistByName(target);
-				}
-				genre_list.newSetList(songs);
-			} else if (genre_list != null) {
-				genre_list.newSetList(new ArrayList<>());
+			applyChange(genre_list, delta, members);
+		} else {
+			if (genre_list != null) {
+				removePlaylist(genre);
 			}
-			
-			if (genre_list != null && genre_list.getSongs().size() < 10) {
-				removePlaylist(target);
+			if (members != null && members.isEmpty()) {
+				this.genre_members.remove(genre);
 			}
 		}
 	}
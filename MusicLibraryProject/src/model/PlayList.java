@@ -14,6 +14,7 @@ package model;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 
 public class PlayList implements Serializable {
@@ -39,6 +40,14 @@ public class PlayList implements Serializable {
 		return name;
 	}
 	
+	/**
+	 * Renames the playlist; only PlaylistRegistry calls it, so that the
+	 * playlist is found under its new name.
+	 */
+	void setName(String name) {
+		this.name = name;
+	}
+	
 	public ArrayList<Song> getSongs(){
 		ArrayList<Song> list = new ArrayList<Song>();
 		for (Song song : songs) {
@@ -78,6 +87,21 @@ public class PlayList implements Serializable {
 		return false;
 	}
 	
+	/**
+	 * Removes these very songs (case matters) in a single pass, e.g. the
+	 * songs that left a derived playlist during a batch.
+	 * 
+	 * @param removed the Songs to remove.
+	 * @return true if any song was removed; false otherwise.
+	 */
+	boolean removeExact(Set<Song> removed) {
+		return this.songs.removeIf(removed::contains);
+	}
+	
+	public int size() {
+		return this.songs.size();
+	}
+	
 	/**
 	 * This function is meant to assist in setting the 10 most
 	 * frequently played songs.
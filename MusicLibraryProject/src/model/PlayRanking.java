@@ -0,0 +1,120 @@
+/*
+ * File: PlayRanking.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file ranks played songs by play count, kept up to date one
+ * play at a time. Songs are grouped in buckets by play count (a TreeMap
+ * from count to an insertion-ordered set), so a play moves one song to the
+ * end of the next bucket in O(log c), c being the number of distinct
+ * counts, and the top k are read from the highest buckets in O(k). Within
+ * a count, songs rank in the order they reached it: the first to reach a
+ * count ranks first, as in the Most Frequently Played playlist.
+ *
+ * Songs that were never played are not ranked.
+ *
+ * Functions:
+ * - played(Song song, int count): Records that a song's count went up to
+ *   count.
+ * - remove(Song song): Stops ranking a song.
+ * - top(int k): The k most played songs, most played first.
+ * - maxCount(): The highest play count ranked.
+ */
+
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+public final class PlayRanking {
+	private final TreeMap<Integer, LinkedHashSet<Song>> buckets;
+	private final HashMap<Song, Integer> counts;
+
+	public PlayRanking() {
+		this.buckets = new TreeMap<Integer, LinkedHashSet<Song>>();
+		this.counts = new HashMap<Song, Integer>();
+	}
+
+	/**
+	 * Ranks the songs of a play count map, e.g. after a library was loaded
+	 * (the order songs reached their counts is not stored, so ties are
+	 * ranked in the order of first, and then the map's order).
+	 *
+	 * @param plays  Play count of every song
+	 * @param first  Songs known to rank first among their ties, in order
+	 */
+	public PlayRanking(Map<Song, Integer> plays, ArrayList<Song> first) {
+		this();
+		for (Song song : first) {
+			Integer count = plays.get(song);
+			if (count != null) {
+				played(song, count);
+			}
+		}
+		for (Map.Entry<Song, Integer> entry : plays.entrySet()) {
+			if (!this.counts.containsKey(entry.getKey())) {
+				played(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Moves the song to its new count, after every song already there.
+	 *
+	 * @param song   Song played
+	 * @param count  Its play count now
+	 */
+	public void played(Song song, int count) {
+		remove(song);
+		if (count > 0) {
+			this.buckets.computeIfAbsent(count, c -> new LinkedHashSet<Song>()).add(song);
+			this.counts.put(song, count);
+		}
+	}
+
+	/**
+	 * @return true  if the song was ranked
+	 */
+	public boolean remove(Song song) {
+		Integer count = this.counts.remove(song);
+		if (count == null) {
+			return false;
+		}
+		LinkedHashSet<Song> bucket = this.buckets.get(count);
+		bucket.remove(song);
+		if (bucket.isEmpty()) {
+			this.buckets.remove(count);
+		}
+		return true;
+	}
+
+	/**
+	 * @param  k     Maximum number of songs returned
+	 * @return list  The k most played songs, most played first
+	 */
+	public ArrayList<Song> top(int k) {
+		ArrayList<Song> list = new ArrayList<Song>();
+		for (LinkedHashSet<Song> bucket : this.buckets.descendingMap().values()) {
+			for (Song song : bucket) {
+				if (list.size() == k) {
+					return list;
+				}
+				list.add(song);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * @return count  Play count of the most played song, 0 if none was played
+	 */
+	public int maxCount() {
+		return this.buckets.isEmpty() ? 0 : this.buckets.lastKey();
+	}
+
+	public int size() {
+		return this.counts.size();
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * File: PlaylistRegistry.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file keeps a library's playlists by name for O(1) lookups,
+ * creations, removals and renames. Names are compared as equalsIgnoreCase
+ * compares them, through a key that folds each character the same way
+ * (upper then lower case), and the playlists keep the order they were
+ * created in: a removal takes one out of a LinkedHashSet, and a rename
+ * only changes its key, so it keeps its place.
+ *
+ * The registry indexes the PlayList objects themselves, so a library's
+ * serialized playlists list stays the record; the registry is rebuilt from
+ * it, and the list rewritten from the registry when saved.
+ *
+ * Functions:
+ * - get(String name): The playlist with that name, or null.
+ * - add(PlayList playlist): Adds a playlist, unless its name is taken.
+ * - remove(String name): Removes the playlist with that name.
+ * - rename(String name, String new_name): Renames a playlist, unless the new
+ *   name is taken by another one.
+ * - playlists() / names(): The playlists / their names, in order.
+ */
+
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+public final class PlaylistRegistry {
+	private final HashMap<String, PlayList> by_name;
+	private final LinkedHashSet<PlayList> order; // PlayList compares by identity
+
+	public PlaylistRegistry() {
+		this.by_name = new HashMap<String, PlayList>();
+		this.order = new LinkedHashSet<PlayList>();
+	}
+
+	/**
+	 * @param playlists  Existing playlists, registered in list order
+	 */
+	public PlaylistRegistry(List<PlayList> playlists) {
+		this();
+		for (PlayList playlist : playlists) {
+			add(playlist);
+		}
+	}
+
+	/**
+	 * @return playlist  The playlist with that name (any case), or null
+	 */
+	public PlayList get(String name) {
+		return (name == null) ? null : this.by_name.get(key(name));
+	}
+
+	/**
+	 * @return true  if the playlist was added (no playlist had its name)
+	 */
+	public boolean add(PlayList playlist) {
+		if (this.by_name.putIfAbsent(key(playlist.getName()), playlist) != null) {
+			return false;
+		}
+		this.order.add(playlist);
+		return true;
+	}
+
+	/**
+	 * @return playlist  The playlist removed, or null if none had that name
+	 */
+	public PlayList remove(String name) {
+		PlayList playlist = (name == null) ? null : this.by_name.remove(key(name));
+		if (playlist != null) {
+			this.order.remove(playlist);
+		}
+		return playlist;
+	}
+
+	/**
+	 * Renames a playlist in place. A rename that only changes the case of
+	 * the name is allowed.
+	 *
+	 * @param  name      Current name of the playlist (any case)
+	 * @param  new_name  Its new name
+	 * @return true      if it was renamed; false if there is no such
+	 *                   playlist or another one is named new_name
+	 */
+	public boolean rename(String name, String new_name) {
+		PlayList playlist = get(name);
+		if (playlist == null || new_name == null) {
+			return false;
+		}
+		PlayList other = this.by_name.get(key(new_name));
+		if (other != null && other != playlist) {
+			return false;
+		}
+		this.by_name.remove(key(name));
+		playlist.setName(new_name);
+		this.by_name.put(key(new_name), playlist);
+		return true;
+	}
+
+	/**
+	 * @return playlists  The playlists, in the order they were added
+	 */
+	public ArrayList<PlayList> playlists() {
+		return new ArrayList<PlayList>(this.order);
+	}
+
+	/**
+	 * @return names  The playlists' names, in the order they were added
+	 */
+	public ArrayList<String> names() {
+		ArrayList<String> names = new ArrayList<String>(this.order.size());
+		for (PlayList playlist : this.order) {
+			names.add(playlist.getName());
+		}
+		return names;
+	}
+
+	public int size() {
+		return this.order.size();
+	}
+
+	/**
+	 * Key of a name: two names have the same key exactly when
+	 * equalsIgnoreCase matches them (each character folded on its own, so
+	 * unlike Collation.fold accents still count).
+	 */
+	static String key(String name) {
+		StringBuilder key = new StringBuilder(name.length());
+		name.codePoints().forEach(c -> key.appendCodePoint(Character.toLowerCase(Character.toUpperCase(c))));
+		return key.toString();
+	}
+}
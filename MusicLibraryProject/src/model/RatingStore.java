@@ -0,0 +1,160 @@
+/*
+ * File: RatingStore.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file indexes a library's ratings for O(1) lookups and
+ * updates. Ratings are keyed by song identity as LibraryModel matches it,
+ * the title and the album, compared as folded keys (see Collation), and
+ * grouped in per-score buckets. Two views are kept alongside: the
+ * favorites (rated 5) and the top rated (rated 4 or 5), each in the order
+ * songs entered it, so a rating change moves a song in or out of them
+ * directly, in either direction.
+ *
+ * The store indexes the Rating objects themselves, so a library's
+ * serialized ratings list stays the record; the store is rebuilt from it.
+ *
+ * Functions:
+ * - find(Song song): The song's Rating, or null.
+ * - rate(Song song, int score): Rates a song, returning the Rating changed
+ *   or added.
+ * - withScore(int score): Songs rated score, in the order they got it.
+ * - favorites() / topRated(): Songs rated 5 / rated 4 or 5.
+ */
+
+package model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public class RatingStore {
+	public static final int FAVORITE = 5;
+	public static final int TOP_RATED = 4;
+
+	private final HashMap<String, Rating> ratings;
+	private final HashMap<Integer, LinkedHashSet<Song>> buckets;
+	private final LinkedHashSet<Song> favorites;
+	private final LinkedHashSet<Song> top_rated;
+
+	/**
+	 * @param ratings  Existing ratings, indexed in list order
+	 */
+	public RatingStore(List<Rating> ratings) {
+		this.ratings = new HashMap<String, Rating>();
+		this.buckets = new HashMap<Integer, LinkedHashSet<Song>>();
+		this.favorites = new LinkedHashSet<Song>();
+		this.top_rated = new LinkedHashSet<Song>();
+		for (Rating rating : ratings) {
+			// Like setRating, the first rating of a song is the one used
+			if (this.ratings.putIfAbsent(key(rating.getSong()), rating) == null) {
+				enter(rating.getSong(), rating.getRating());
+			}
+		}
+	}
+
+	/**
+	 * @return rating  The song's Rating (title and album match), or null
+	 */
+	public Rating find(Song song) {
+		return this.ratings.get(key(song));
+	}
+
+	/**
+	 * Rates a song: changes its Rating if it has one, adds one otherwise.
+	 *
+	 * @param  song    Song rated
+	 * @param  score   Its new score
+	 * @return rating  The Rating changed, or the new one (to be stored)
+	 */
+	public Rating rate(Song song, int score) {
+		Rating rating = this.ratings.get(key(song));
+		if (rating == null) {
+			rating = new Rating(song, score);
+			this.ratings.put(key(song), rating);
+			enter(song, score);
+		} else if (rating.getRating() != score) {
+			move(rating.getSong(), rating.getRating(), score);
+			rating.setRating(score);
+		}
+		return rating;
+	}
+
+	/**
+	 * @return true  if a song with this score is a favorite / top rated
+	 */
+	public static boolean isFavorite(int score) {
+		return score == FAVORITE;
+	}
+
+	public static boolean isTopRated(int score) {
+		return score == TOP_RATED || score == FAVORITE;
+	}
+
+	/**
+	 * @return songs  Songs rated score, in the order they got it
+	 */
+	public Set<Song> withScore(int score) {
+		return Collections.unmodifiableSet(this.buckets.getOrDefault(score, new LinkedHashSet<Song>()));
+	}
+
+	/**
+	 * @return songs  Songs rated 5, in the order they got it
+	 */
+	public Set<Song> favorites() {
+		return Collections.unmodifiableSet(this.favorites);
+	}
+
+	/**
+	 * @return songs  Songs rated 4 or 5, in the order they got there
+	 */
+	public Set<Song> topRated() {
+		return Collections.unmodifiableSet(this.top_rated);
+	}
+
+	public int size() {
+		return this.ratings.size();
+	}
+
+	private void enter(Song song, int score) {
+		this.buckets.computeIfAbsent(score, s -> new LinkedHashSet<Song>()).add(song);
+		if (isFavorite(score)) {
+			this.favorites.add(song);
+		}
+		if (isTopRated(score)) {
+			this.top_rated.add(song);
+		}
+	}
+
+	/**
+	 * Moves a song between buckets; it only enters or leaves a view if its
+	 * membership changes, so it keeps its place otherwise.
+	 */
+	private void move(Song song, int from, int to) {
+		LinkedHashSet<Song> bucket = this.buckets.get(from);
+		bucket.remove(song);
+		if (bucket.isEmpty()) {
+			this.buckets.remove(from);
+		}
+		this.buckets.computeIfAbsent(to, s -> new LinkedHashSet<Song>()).add(song);
+		if (isFavorite(from) != isFavorite(to)) {
+			if (isFavorite(to)) {
+				this.favorites.add(song);
+			} else {
+				this.favorites.remove(song);
+			}
+		}
+		if (isTopRated(from) != isTopRated(to)) {
+			if (isTopRated(to)) {
+				this.top_rated.add(song);
+			} else {
+				this.top_rated.remove(song);
+			}
+		}
+	}
+
+	private static String key(Song song) {
+		return song.getTitleKey() + '\u0000' + song.getAlbumKey();
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * File: SearchPage.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file represents a single page of search results, returned
+ * by the paginated search functions of the MusicStore and LibraryModel.
+ * A page holds at most "limit" results, the number of results that came
+ * before it (offset), and a continuation token that resumes the search
+ * right after its last result.
+ *
+ * Tokens are opaque to callers: pass null for the first page, then the
+ * previous page's getNextToken() for every page after it. Internally a
+ * token records the version of the data searched (the MusicStore's catalog
+ * version, or a library's modification count), the ordinal the next page
+ * starts scanning from and the offset of its first result. Pages built
+ * from ordinals (fromOrdinals) resume at that ordinal, so they never
+ * re-scan earlier results; pages built from a plain stream (fromStream)
+ * skip to the offset, which evaluates the earlier results again.
+ * Ordinals and offsets only mean something in the version they were taken
+ * from, so a token from an older version is rejected rather than silently
+ * skipping or repeating results: the search has to start again from the
+ * first page.
+ */
+
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class SearchPage<T> {
+	private final List<T> items;
+	private final int offset;
+	private final int limit;
+	private final String next_token;
+
+	private SearchPage(List<T> items, int offset, int limit, String next_token) {
+		this.items = Collections.unmodifiableList(items);
+		this.offset = offset;
+		this.limit = limit;
+		this.next_token = next_token;
+	}
+
+	/**
+	 * Builds a page from an ascending stream of ordinals that already starts
+	 * at the token's resume ordinal. Only limit + 1 ordinals are consumed,
+	 * the extra one deciding whether a next page exists.
+	 *
+	 * @param  ordinals  Lazily evaluated ascending ordinals of matches
+	 * @param  lookup    Function resolving an ordinal to its result
+	 * @param  token     Continuation token this page was requested with
+	 * @param  version   Version of the data the ordinals come from
+	 * @param  limit     Maximum number of results on the page
+	 * @return page      The filled SearchPage
+	 */
+	public static <T> SearchPage<T> fromOrdinals(IntStream ordinals, IntFunction<T> lookup, String token, long version,
+			int limit) {
+		checkLimit(limit);
+		int offset = resumeOffset(token, version);
+		ArrayList<T> items = new ArrayList<T>(Math.min(limit, 64));
+		PrimitiveIterator.OfInt iterator = ordinals.iterator();
+		while (items.size() < limit && iterator.hasNext()) {
+			items.add(lookup.apply(iterator.nextInt()));
+		}
+		String next = null;
+		if (iterator.hasNext()) {
+			next = token(version, iterator.nextInt(), offset + items.size());
+		}
+		return new SearchPage<T>(items, offset, limit, next);
+	}
+
+	/**
+	 * Builds a page from a stream of results with no stable ordinals, by
+	 * skipping to the token's offset: the offset results before the page
+	 * are evaluated again, so only offset + limit + 1 results are consumed.
+	 * The stream must come in the same order for a given version.
+	 *
+	 * @param  results  Lazily evaluated stream of matching results
+	 * @param  token    Continuation token this page was requested with
+	 * @param  version  Version of the data the results come from
+	 * @param  limit    Maximum number of results on the page
+	 * @return page     The filled SearchPage
+	 */
+	public static <T> SearchPage<T> fromStream(Stream<T> results, String token, long version, int limit) {
+		checkLimit(limit);
+		int offset = resumeOffset(token, version);
+		ArrayList<T> items = new ArrayList<T>(Math.min(limit, 64));
+		Iterator<T> iterator = results.skip(offset).iterator();
+		while (items.size() < limit && iterator.hasNext()) {
+			items.add(iterator.next());
+		}
+		String next = null;
+		if (iterator.hasNext()) {
+			next = token(version, offset + items.size(), offset + items.size());
+		}
+		return new SearchPage<T>(items, offset, limit, next);
+	}
+
+	/**
+	 * @param  token    Continuation token, or null for the first page
+	 * @param  version  Version of the data being searched
+	 * @return ordinal  Ordinal the page should start scanning from
+	 * @throws IllegalArgumentException if the token is malformed or was
+	 *         issued for another version
+	 */
+	public static int resumeOrdinal(String token, long version) {
+		return parse(token, version)[0];
+	}
+
+	/**
+	 * @param  token    Continuation token, or null for the first page
+	 * @param  version  Version of the data being searched
+	 * @return offset   Number of results before the page
+	 */
+	public static int resumeOffset(String token, long version) {
+		return parse(token, version)[1];
+	}
+
+	public List<T> getItems() {
+		return this.items;
+	}
+
+	public int getOffset() {
+		return this.offset;
+	}
+
+	public int getLimit() {
+		return this.limit;
+	}
+
+	public boolean hasNext() {
+		return this.next_token != null;
+	}
+
+	/**
+	 * @return token  Token for the following page, or null if this is the last
+	 */
+	public String getNextToken() {
+		return this.next_token;
+	}
+
+	/**
+	 * Token format: version:ordinal@offset
+	 */
+	static String token(long version, int ordinal, int offset) {
+		return version + ":" + ordinal + "@" + offset;
+	}
+
+	private static int[] parse(String token, long version) {
+		if (token == null) {
+			return new int[] {0, 0};
+		}
+		int colon = token.indexOf(':');
+		int split = token.indexOf('@');
+		long issued;
+		int ordinal;
+		int offset;
+		try {
+			issued = Long.parseLong(token.substring(0, colon));
+			ordinal = Integer.parseInt(token.substring(colon + 1, split));
+			offset = Integer.parseInt(token.substring(split + 1));
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Invalid continuation token: " + token);
+		}
+		if (ordinal < 0 || offset < 0) {
+			throw new IllegalArgumentException("Invalid continuation token: " + token);
+		}
+		if (issued != version) {
+			throw new IllegalArgumentException("Stale continuation token: " + token
+					+ " (the results changed since; search again from the first page)");
+		}
+		return new int[] {ordinal, offset};
+	}
+
+	private static void checkLimit(int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("Page limit must be at least 1.");
+		}
+	}
+}
@@ -5,10 +5,16 @@
  *  Purpose: This program is intended to represent individual songs 
  *  present in the database. Each song contains a title, album, and 
  *  artist associated with it.
+ *  
+ *  Each field also has a folded key (see Collation) that searches and
+ *  sorts compare instead of the field itself. Only the title key is kept
+ *  per song, computed on first use; album and artist keys are shared
+ *  values, kept once in the SymbolTable next to the interned value.
  */
 
 package model;
 
+import java.util.Comparator;
 import java.util.Objects;
 import java.io.Serializable;
 
@@ -19,10 +25,23 @@ public class Song implements Serializable {
 	private final String album;
 	private final String artist;
 	
+	// Not serialized; recomputed on first use after loading (the hash,
+	// like String's, is 0 until computed)
+	private transient String title_key;
+	private transient int hash;
+	
+	// Sort orders by folded title (artist), not case or accent sensitive
+	public static final Comparator<Song> TITLE_ORDER = (song1, song2) -> Collation.compare(
+			song1.getTitleKey(), song1.getTitle(), song2.getTitleKey(), song2.getTitle());
+	public static final Comparator<Song> ARTIST_ORDER = (song1, song2) -> Collation.compare(
+			song1.getArtistKey(), song1.getArtist(), song2.getArtistKey(), song2.getArtist());
+	
 	public Song(String title, String album, String artist) {
+		// Album and artist repeat across many songs, so they are shared
+		// through the SymbolTable rather than stored once per song.
 		this.title = title;
-		this.album = album;
-		this.artist = artist;
+		this.album = SymbolTable.intern(album);
+		this.artist = SymbolTable.intern(artist);
 	}
 	
 	
@@ -38,6 +57,26 @@ public class Song implements Serializable {
 		return this.artist;
 	}
 	
+	/**
+	 * @return key  Folded title, see Collation.fold
+	 */
+	public String getTitleKey() {
+		String key = this.title_key;
+		if (key == null) {
+			key = Collation.fold(this.title);
+			this.title_key = key;
+		}
+		return key;
+	}
+	
+	public String getAlbumKey() {
+		return SymbolTable.key(this.album);
+	}
+	
+	public String getArtistKey() {
+		return SymbolTable.key(this.artist);
+	}
+	
   	
 	@Override
 	public String toString() {
@@ -63,6 +102,19 @@ public class Song implements Serializable {
 	
 	@Override
 	public int hashCode() {
-		return Objects.hash(title, album, artist);
+		int hash = this.hash;
+		if (hash == 0) {
+			hash = Objects.hash(title, album, artist);
+			this.hash = hash;
+		}
+		return hash;
+	}
+	
+	/**
+	 * Deserialized songs (e.g. from users.dat) resolve to the shared
+	 * canonical instance, rather than keeping a duplicate per library.
+	 */
+	private Object readResolve() {
+		return InstanceRegistry.song(new Song(title, album, artist));
 	}
 }
@@ -0,0 +1,170 @@
+/*
+ * File: SymbolTable.java
+ * Authors: Kyle Becker / Rishi Doshi
+ *
+ * Purpose: This file implements the string interning shared by the whole
+ * program for low-cardinality fields: song album and artist, and album
+ * title, artist, genre and year. Equal values resolve to one canonical
+ * String instance, so the store, every LibraryModel, and every deserialized
+ * users.dat entry point at the same String instead of each holding its own
+ * copy. Each value's folded search key (see Collation) is computed once,
+ * when the value is first interned, and kept with it.
+ *
+ * Song and Album keep String references, so a value costs one shared String
+ * plus a reference per use. Java serialization writes a repeated String
+ * instance once per stream and back-references it after that, so interning
+ * also collapses the duplicates in users.dat.
+ *
+ * Values are held weakly: once no song, album or other caller references a
+ * value (e.g. after a reload dropped its albums), it is garbage collected
+ * and its entry removed, so the table only holds values still in use.
+ *
+ * Functions:
+ * - intern(String value): Canonical instance of the value.
+ * - key(String value): Folded search key of the value (see Collation).
+ * - size(): Number of distinct values currently interned.
+ */
+
+package model;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class SymbolTable {
+	private static final ConcurrentHashMap<Symbol, Symbol> symbols = new ConcurrentHashMap<Symbol, Symbol>();
+	private static final ReferenceQueue<String> collected = new ReferenceQueue<String>();
+
+	private SymbolTable() {
+	}
+
+	/**
+	 * Returns the canonical instance of the value, adding it to the table
+	 * if needed.
+	 *
+	 * @param  value  String to intern, may be null
+	 * @return value  Shared String equal to the input, or null
+	 */
+	public static String intern(String value) {
+		if (value == null) {
+			return null;
+		}
+		return symbol(value).value;
+	}
+
+	/**
+	 * Returns the folded key of the value, interning the value if needed.
+	 *
+	 * @param  value  String to look up
+	 * @return key    Folded key of the value (see Collation.fold)
+	 */
+	public static String key(String value) {
+		Interned symbol = symbol(value);
+		return (symbol.key == null) ? symbol.value : symbol.key;
+	}
+
+	/**
+	 * @return size  Number of values interned and not yet collected
+	 */
+	public static int size() {
+		expunge();
+		return symbols.size();
+	}
+
+	/**
+	 * This helper function finds (or adds) the value's entry, returning it
+	 * with the canonical value held strongly for the caller.
+	 */
+	private static Interned symbol(String value) {
+		expunge();
+		Symbol probe = new Symbol(value);
+		while (true) {
+			Symbol symbol = symbols.get(probe);
+			if (symbol == null) {
+				symbol = new Symbol(value, collected);
+				Symbol raced = symbols.putIfAbsent(symbol, symbol);
+				if (raced == null) {
+					return new Interned(value, symbol.key);
+				}
+				symbol = raced;
+			}
+			String canonical = symbol.get();
+			if (canonical != null) {
+				return new Interned(canonical, symbol.key);
+			}
+			// Collected since it matched: its entry is stale, so add anew
+			symbols.remove(symbol, symbol);
+		}
+	}
+
+	/**
+	 * This helper function removes the entries of collected values.
+	 */
+	private static void expunge() {
+		Object reference;
+		while ((reference = collected.poll()) != null) {
+			symbols.remove(reference, reference);
+		}
+	}
+
+	/**
+	 * A canonical value and its key, as returned to a caller.
+	 */
+	private static final class Interned {
+		final String value;
+		final String key;
+
+		Interned(String value, String key) {
+			this.value = value;
+			this.key = key;
+		}
+	}
+
+	/**
+	 * An entry of the table: a weak reference to the canonical value, with
+	 * its folded key (null when it is the value itself, so that the entry
+	 * does not keep its own value alive). Probes used for lookups hold the
+	 * value strongly instead. Entries compare by value.
+	 */
+	private static final class Symbol extends WeakReference<String> {
+		final int hash;
+		final String key;
+		final String probe;
+
+		Symbol(String value, ReferenceQueue<String> queue) {
+			super(value, queue);
+			this.hash = value.hashCode();
+			String key = Collation.fold(value);
+			this.key = key.equals(value) ? null : key;
+			this.probe = null;
+		}
+
+		Symbol(String probe) {
+			super(null);
+			this.hash = probe.hashCode();
+			this.key = null;
+			this.probe = probe;
+		}
+
+		private String value() {
+			return (this.probe != null) ? this.probe : get();
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (this == object) {
+				return true;
+			}
+			if (!(object instanceof Symbol)) {
+				return false;
+			}
+			String value = value();
+			return value != null && value.equals(((Symbol) object).value());
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/**
+ *  File: CatalogImporterTest.java
+ *  Authors: Kyle Becker / Rishi Doshi
+ *  
+ *  Purpose: This file tests the CatalogImporter class and the MusicStore's
+ *  bulk import: both formats, batching, rejected rows and their diagnostics.
+ */
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import database.CatalogImporter;
+import database.MusicStore;
+import model.Album;
+
+class CatalogImporterTest {
+	
+	@Test
+	void testCsv() throws IOException {
+		Path file = Files.createTempDirectory("import").resolve("dump.csv");
+		Files.writeString(file, "title,artist,genre,year,tracks\n"
+				+ "\"Hello, Goodbye\",The Band,Rock,1999,One,\"Two \"\"quoted\"\"\",Three\n"
+				+ "\n"
+				+ "Second,The Band,Rock,2001,Only\n"
+				+ "Broken,The Band\n"
+				+ "\"Unterminated,The Band,Rock,2001,Song\n"
+				+ "\"HELLO, GOODBYE\",the band,Rock,1999,Again\n"
+				+ "No Tracks,The Band,Rock,2001\n");
+		CatalogImporter importer = new CatalogImporter(file);
+		ArrayList<Album> albums = new ArrayList<Album>();
+		importer.run(new ArrayList<Album>(), albums::addAll);
+		
+		assertEquals(importer.getRowCount(), 6);
+		assertEquals(importer.getAlbumCount(), 2);
+		assertEquals(importer.getSongCount(), 4);
+		assertEquals(importer.getRejectedCount(), 4);
+		assertEquals(albums.get(0).getTitle(), "Hello, Goodbye");
+		assertEquals(albums.get(0).getSongs().toString(), "[One, Two \"quoted\", Three]");
+		
+		List<String> diagnostics = importer.getDiagnostics();
+		assertEquals(diagnostics.size(), 4);
+		assertTrue(diagnostics.get(0).startsWith("line 5: expected title,artist,genre,year"));
+		assertEquals(diagnostics.get(1), "line 6: unterminated quoted field");
+		assertTrue(diagnostics.get(2).startsWith("line 7: duplicate album"));
+		assertEquals(diagnostics.get(3), "line 8: album No Tracks has no tracks");
+	}
+	
+	@Test
+	void testCsvHeaderAfterBlankLines() throws IOException {
+		Path file = Files.createTempDirectory("import").resolve("dump.csv");
+		Files.writeString(file, "\n  \nTitle,Artist,Genre,Year,Tracks\n"
+				+ "First,The Band,Rock,1999,One\n"
+				+ "title,artist,genre,year,tracks\n");
+		CatalogImporter importer = new CatalogImporter(file);
+		ArrayList<Album> albums = new ArrayList<Album>();
+		importer.run(new ArrayList<Album>(), albums::addAll);
+		
+		// Only the first non-blank line is a header, later ones are data
+		assertEquals(importer.getRowCount(), 2);
+		assertEquals(albums.size(), 2);
+		assertEquals(albums.get(0).getTitle(), "First");
+		assertEquals(albums.get(1).getTitle(), "title");
+	}
+	
+	@Test
+	void testJson() throws IOException {
+		Path file = Files.createTempDirectory("import").resolve("dump.jsonl");
+		Files.writeString(file, "{\"title\": \"Maná Live\", \"artist\": \"Maná\", \"genre\": \"Latin\", "
+				+ "\"year\": 2003, \"tracks\": [\"En el muelle de San Blas\", \"Rayando el sol\"], \"label\": null}\n"
+				+ "{\"title\": \"Escaped \\\"\\u00e9\\\"\", \"artist\": \"X\", \"genre\": \"Pop\", \"year\": \"2010\", "
+				+ "\"tracks\": [\"A\"]}\n"
+				+ "{\"title\": \"Broken\", \n"
+				+ "[1, 2]\n"
+				+ "{\"title\": \"Bad tracks\", \"artist\": \"X\", \"genre\": \"Pop\", \"year\": 1, \"tracks\": \"A\"}\n");
+		CatalogImporter importer = new CatalogImporter(file);
+		ArrayList<Album> albums = new ArrayList<Album>();
+		importer.run(new ArrayList<Album>(), albums::addAll);
+		
+		assertEquals(importer.getAlbumCount(), 2);
+		assertEquals(albums.get(0).getYear(), "2003");
+		assertEquals(albums.get(1).getTitle(), "Escaped \"é\"");
+		assertEquals(importer.getRejectedCount(), 3);
+		assertTrue(importer.getDiagnostics().get(0).startsWith("line 3: malformed JSON"));
+		assertEquals(importer.getDiagnostics().get(1), "line 4: expected a JSON object");
+		assertEquals(importer.getDiagnostics().get(2), "line 5: \"tracks\" must be an array");
+		
+		assertThrows(IllegalArgumentException.class, () -> new CatalogImporter(Path.of("dump.xml")));
+	}
+	
+	@Test
+	void testBatches() throws IOException {
+		Path file = Files.createTempDirectory("import").resolve("dump.csv");
+		StringBuilder dump = new StringBuilder();
+		int count = CatalogImporter.BATCH_SIZE + 10;
+		for (int i = 0; i < count; i++) {
+			dump.append("Album ").append(i).append(",Artist,Genre,2000,Song ").append(i).append('\n');
+		}
+		Files.writeString(file, dump);
+		ArrayList<Integer> sizes = new ArrayList<Integer>();
+		new CatalogImporter(file).run(new ArrayList<Album>(), batch -> sizes.add(batch.size()));
+		assertEquals(sizes.toString(), "[" + CatalogImporter.BATCH_SIZE + ", 10]");
+	}
+	
+	@Test
+	void testStoreImport() throws IOException {
+		MusicStore store = new MusicStore();
+		long version = store.getCatalogVersion();
+		Path file = Files.createTempDirectory("import").resolve("dump.csv");
+		Files.writeString(file, "Imported,New Artist,Pop,2024,First Song,Second Song\n"
+				+ "21,Adele,Pop,2011,Rolling in the Deep\n");
+		
+		CatalogImporter importer = store.importCatalog(file);
+		assertEquals(importer.getAlbumCount(), 1);
+		// 21 by Adele is already in the store
+		assertEquals(importer.getRejectedCount(), 1);
+		assertEquals(store.getCatalogVersion(), version + 1);
+		assertEquals(store.searchSongsByArtist("new artist").size(), 2);
+		assertEquals(store.searchAlbumsByTitle("21").size(), 1);
+		assertTrue(store.getLoadReport().startsWith("import: 2 rows"));
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ *  File: CatalogLoaderTest.java
+ *  Authors: Kyle Becker / Rishi Doshi
+ *  
+ *  Purpose: This file tests the CatalogLoader class against the default
+ *  albums.txt configuration in the resources directory.
+ */
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import database.CatalogLoader;
+import model.Album;
+
+class CatalogLoaderTest {
+
+	@Test
+	void testLoadKeepsAlbumsTxtOrder() {
+		CatalogLoader loader = new CatalogLoader(Paths.get("resources"));
+		ArrayList<Album> albums = loader.load();
+		
+		assertEquals(albums.size(), 15);
+		assertEquals(albums.get(0).getTitle(), "19");
+		assertEquals(albums.get(1).getTitle(), "21");
+		assertEquals(albums.get(2).getTitle(), "Begin Again");
+		assertEquals(albums.get(14).getTitle(), "Sons");
+		assertEquals(albums.get(14).getArtist(), "The Heavy");
+	}
+	
+	@Test
+	void testLoadParsesHeaderAndSongs() {
+		CatalogLoader loader = new CatalogLoader(Paths.get("resources"));
+		Album album = loader.load().get(1);
+		
+		assertEquals(album.getArtist(), "Adele");
+		assertEquals(album.getGenre(), "Pop");
+		assertEquals(album.getYear(), "2011");
+		assertEquals(album.getSongs().size(), 12);
+		assertEquals(album.getSongs().get(0), "Rolling in the Deep");
+	}
+	
+	@Test
+	void testMissingDirectory() {
+		CatalogLoader loader = new CatalogLoader(Paths.get("no_such_directory"));
+		assertEquals(loader.load().size(), 0);
+		assertTrue(loader.getReport().contains("parse"));
+	}
+}
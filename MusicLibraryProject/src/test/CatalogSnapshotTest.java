@@ -0,0 +1,84 @@
+/**
+ *  File: CatalogSnapshotTest.java
+ *  Authors: Kyle Becker / Rishi Doshi
+ *  
+ *  Purpose: This file tests the CatalogSnapshot class, using a temporary
+ *  copy of the Adele albums from the resources directory.
+ */
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import database.CatalogSnapshot;
+import model.Album;
+import model.Song;
+
+class CatalogSnapshotTest {
+	
+	private Path copyResources() throws IOException {
+		Path dir = Files.createTempDirectory("resources");
+		Files.copy(Paths.get("resources/19_Adele.txt"), dir.resolve("19_Adele.txt"));
+		Files.copy(Paths.get("resources/21_Adele.txt"), dir.resolve("21_Adele.txt"));
+		Files.writeString(dir.resolve("albums.txt"), "21,Adele\n19,Adele\n");
+		return dir;
+	}
+	
+	@Test
+	void testOpenCompilesThenReuses() throws IOException {
+		Path dir = copyResources();
+		Path file = dir.resolve("catalog.bin");
+		
+		CatalogSnapshot first = CatalogSnapshot.open(dir, file);
+		assertTrue(first.wasRecompiled());
+		assertEquals(first.getAlbumCount(), 2);
+		assertEquals(first.getSongCount(), 24);
+		
+		CatalogSnapshot second = CatalogSnapshot.open(dir, file);
+		assertFalse(second.wasRecompiled());
+		
+		List<Album> albums = second.albums();
+		assertEquals(albums.get(0).toString(), "21 by Adele (2011) - Pop\n" +
+				"Songs:[Rolling in the Deep, Rumour Has It, Turning Tables, "+
+				"Don't You Remember, Set Fire to the Rain, He Won't Go, Take It All, "+
+				"I'll Be Waiting, One and Only, Lovesong, Someone Like You, I Found a Boy]");
+		assertEquals(albums.get(1).getTitle(), "19");
+		
+		List<Song> songs = second.songs();
+		assertEquals(songs.get(0), new Song("Rolling in the Deep", "21", "Adele"));
+		assertEquals(second.songTitles().get(12), songs.get(12).getTitle());
+		assertEquals(second.songArtists().get(12), "Adele");
+		assertEquals(second.albumTitles().get(1), "19");
+	}
+	
+	@Test
+	void testModifiedSourceRecompiles() throws IOException {
+		Path dir = copyResources();
+		Path file = dir.resolve("catalog.bin");
+		CatalogSnapshot.open(dir, file);
+		
+		Path album = dir.resolve("19_Adele.txt");
+		Files.setLastModifiedTime(album, FileTime.fromMillis(Files.getLastModifiedTime(album).toMillis() + 60_000));
+		assertTrue(CatalogSnapshot.open(dir, file).wasRecompiled());
+		assertFalse(CatalogSnapshot.open(dir, file).wasRecompiled());
+	}
+	
+	@Test
+	void testCorruptSnapshotRecompiles() throws IOException {
+		Path dir = copyResources();
+		Path file = dir.resolve("catalog.bin");
+		Files.write(file, new byte[] {1, 2, 3});
+		
+		CatalogSnapshot snapshot = CatalogSnapshot.open(dir, file);
+		assertTrue(snapshot.wasRecompiled());
+		assertEquals(snapshot.getAlbumCount(), 2);
+	}
+}
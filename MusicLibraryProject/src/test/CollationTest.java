@@ -0,0 +1,52 @@
+/**
+ *  File: CollationTest.java
+ *  Authors: Kyle Becker / Rishi Doshi
+ *  
+ *  Purpose: This file tests the Collation class: folding of case, accents
+ *  and compatibility forms, and the sort order of songs by folded keys.
+ */
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import model.Collation;
+import model.Song;
+
+class CollationTest {
+	
+	@Test
+	void testFold() {
+		assertEquals(Collation.fold("Set Fire to the Rain"), "set fire to the rain");
+		assertEquals(Collation.fold("Maná"), "mana");
+		assertEquals(Collation.fold("ÁNGELES"), "angeles");
+		assertEquals(Collation.fold("Beyoncé Knowles"), Collation.fold("beyonce knowles"));
+		assertEquals(Collation.fold("Straße"), "strasse");
+		assertEquals(Collation.fold("ﬁre"), "fire");
+		assertEquals(Collation.fold(""), "");
+	}
+	
+	@Test
+	void testSongOrder() {
+		ArrayList<Song> list = new ArrayList<Song>();
+		list.add(new Song("zebra", "Album", "Artist"));
+		list.add(new Song("Ángeles", "Album", "artist"));
+		list.add(new Song("Beat", "Album", "Ártist"));
+		list.add(new Song("apple", "Album", "Band"));
+		
+		Collections.sort(list, Song.TITLE_ORDER);
+		assertEquals(list.get(0).getTitle(), "Ángeles");
+		assertEquals(list.get(1).getTitle(), "apple");
+		assertEquals(list.get(2).getTitle(), "Beat");
+		assertEquals(list.get(3).getTitle(), "zebra");
+		
+		Collections.sort(list, Song.ARTIST_ORDER);
+		assertEquals(list.get(0).getArtist(), "Artist");
+		assertEquals(list.get(3).getArtist(), "Band");
+		assertEquals(list.get(0).getArtistKey(), list.get(2).getArtistKey());
+	}
+}
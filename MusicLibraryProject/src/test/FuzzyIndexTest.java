@@ -0,0 +1,52 @@
+/**
+ *  File: FuzzyIndexTest.java
+ *  Authors: Kyle Becker / Rishi Doshi
+ *  
+ *  Purpose: This file tests the FuzzyIndex class: its edit distance, the
+ *  matches it finds for misspelled queries, and how it ranks them.
+ */
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import database.FuzzyIndex;
+import database.ShardedIndex;
+
+class FuzzyIndexTest {
+	
+	private static final List<String> VALUES = Arrays.asList(
+			"Rolling in the Deep", "Rumour Has It", "Set Fire to the Rain",
+			"Adele", "Daydreamer", "Hometown Glory", "Tired", "Adele Live");
+	
+	@Test
+	void testDistance() {
+		assertEquals(FuzzyIndex.distance("adele", "adele"), 0);
+		assertEquals(FuzzyIndex.distance("addele", "adele"), 1);
+		assertEquals(FuzzyIndex.distance("rollin", "rolling in the deep"), 0);
+		assertEquals(FuzzyIndex.distance("rollin in the deep", "rolling in the deep"), 1);
+		assertEquals(FuzzyIndex.distance("xyz", "adele"), 3);
+		assertEquals(FuzzyIndex.maxEdits("abc"), 0);
+		assertEquals(FuzzyIndex.maxEdits("addele"), 1);
+		assertEquals(FuzzyIndex.maxEdits("rollin in the deep"), 2);
+	}
+	
+	@Test
+	void testSearch() {
+		for (int shards = 1; shards <= 3; shards++) {
+			FuzzyIndex index = new FuzzyIndex(new ShardedIndex(VALUES, shards));
+			// Exact value ranks before the longer one containing it
+			assertEquals(Arrays.toString(index.search("Addele", 5)), "[3, 7]");
+			assertEquals(Arrays.toString(index.search("Addele", 1)), "[3]");
+			assertEquals(Arrays.toString(index.search("Rollin in the deep", 5)), "[0]");
+			assertEquals(Arrays.toString(index.search("hometwn glory", 5)), "[5]");
+			assertEquals(Arrays.toString(index.search("ir", 5)), "[6, 2]");
+			assertEquals(index.search("No_Song_Like_This", 5).length, 0);
+		}
+		assertThrows(IllegalArgumentException.class, () -> new FuzzyIndex(new ShardedIndex(VALUES, 1)).search("a", 0));
+	}
+}
@@ -0,0 +1,56 @@
+/**
+ *  File: InstanceRegistryTest.java
+ *  Authors: Kyle Becker / Rishi Doshi
+ *  
+ *  Purpose: This file tests the InstanceRegistry class, and that the store
+ *  and library hand out its shared instances instead of copies.
+ */
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import database.MusicStore;
+import model.Album;
+import model.InstanceRegistry;
+import model.LibraryModel;
+import model.Song;
+
+class InstanceRegistryTest {
+	
+	@Test
+	void testSongsResolveToOneInstance() {
+		Song first = InstanceRegistry.song("Registry Title", "Registry Album", "Registry Artist");
+		Song second = InstanceRegistry.song(new Song("Registry Title", "Registry Album", "Registry Artist"));
+		assertSame(first, second);
+		assertNotSame(first, InstanceRegistry.song("Other Title", "Registry Album", "Registry Artist"));
+	}
+	
+	@Test
+	void testAlbumsMustBeFrozen() {
+		Album album = new Album("Registry Album", "Registry Artist", "Genre", "2025");
+		album.addSong("Song");
+		assertThrows(IllegalArgumentException.class, () -> InstanceRegistry.album(album));
+		
+		Album shared = InstanceRegistry.album(album.freeze());
+		Album equal = new Album("Registry Album", "Registry Artist", "Genre", "2025");
+		equal.addSong("Song");
+		assertSame(shared, InstanceRegistry.album(equal.freeze()));
+		
+		assertThrows(UnsupportedOperationException.class, () -> shared.addSong("Another"));
+		assertThrows(UnsupportedOperationException.class, () -> shared.getSongs().add("Another"));
+	}
+	
+	@Test
+	void testStoreAndLibraryShareSongs() {
+		MusicStore store = new MusicStore();
+		Song song = store.searchSongsByTitle("Set Fire to the Rain").get(0);
+		assertSame(song, store.searchSongsByArtist("adele").get(16));
+		assertSame(store.searchAlbumsByTitle("21").get(0), store.searchAlbumsByArtist("adele").get(1));
+		
+		LibraryModel lib = new LibraryModel();
+		lib.addSong(new Song(song.getTitle(), song.getAlbum(), song.getArtist()));
+		assertSame(lib.getAllSongs().get(0), song);
+	}
+}
@@ -8,16 +8,25 @@
 package test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
+import database.FacetFilter;
 import database.MusicStore;
 import model.Album;
+import model.FacetResult;
 import model.LibraryModel;
 import model.PlayList;
 import model.Rating;
+import model.SearchPage;
 import model.Song;
 
 class LibraryModelTest {
@@ -103,6 +112,39 @@ class LibraryModelTest {
 		assertEquals(list.size(), 3);
 	}
 	
+	@Test
+	void testAccentInsensitiveSearch() {
+		LibraryModel lib = new LibraryModel();
+		Album album = new Album("Cuando Los Ángeles Lloran", "Maná", "Latin", "1995");
+		album.addSong("Selva Negra");
+		lib.addAlbumWithAllSongs(album);
+		
+		assertEquals(lib.searchSongByArtist("mana").size(), 1);
+		assertEquals(lib.searchAlbumsByTitle("angeles").size(), 1);
+		assertEquals(lib.searchAlbumsByArtist("MANA").size(), 1);
+		assertEquals(lib.searchSongsByGenre("LATIN").size(), 1);
+		assertTrue(lib.checkForAlbumPresence(new Album("cuando los angeles lloran", "Mana", "Latin", "1995")));
+	}
+	
+	@Test
+	void testSearchCache() {
+		LibraryModel lib = new LibraryModel();
+		lib.addSong(new Song("Title", "Album", "Artist"));
+		lib.addSong(new Song("Title1", "Album1", "Artist1"));
+		
+		assertEquals(lib.searchSongByArtist("artist").size(), 2);
+		lib.searchSongByArtist("artist").clear();
+		assertEquals(lib.searchSongByArtist("ARTIST").size(), 2);
+		assertEquals(lib.getQueryCacheStats().getHits(), 2);
+		
+		// Adding a song invalidates the cached results
+		lib.addSong(new Song("Title2", "Album2", "Artist2"));
+		assertEquals(lib.searchSongByArtist("artist").size(), 3);
+		assertEquals(lib.searchSongByTitle("title2").size(), 1);
+		assertEquals(lib.getQueryCacheStats().getMisses(), 3);
+		assertEquals(lib.getQueryCacheStats().getInvalidations(), 1);
+	}
+	
 	@Test
 	void testSetRatingAndGetFavorites() {
 		LibraryModel lib = new LibraryModel();
@@ -218,6 +260,68 @@ class LibraryModelTest {
 		assertEquals(lib.searchPlaylistByName("playlist1"), null);
 	}
 	
+	@Test
+	void testRenamePlaylist() throws Exception {
+		LibraryModel lib = new LibraryModel();
+		Song song = new Song("Hello", "25", "Adele");
+		lib.createPlaylist("playlist1");
+		lib.createPlaylist("playlist2");
+		lib.addSongToPlaylist("playlist1", song);
+		
+		assertTrue(lib.renamePlaylist("PLAYLIST1", "Road Trip"));
+		assertFalse(lib.renamePlaylist("Road Trip", "Playlist2")); // taken
+		assertFalse(lib.renamePlaylist("playlist1", "Gym")); // gone
+		assertFalse(lib.renamePlaylist("Top Rated", "Best")); // built in
+		assertEquals(lib.searchPlaylistByName("road trip").getSongs(), List.of(song));
+		assertTrue(lib.createPlaylist("playlist1"));
+		assertEquals(lib.getPlaylists().toString(),
+				"[Most Recently Played, Most Frequently Played, Favorite Songs, Top Rated, Road Trip, playlist2, playlist1]");
+		
+		// Saved and loaded (as in users.dat), in the same order
+		assertTrue(lib.removePlaylist("playlist2"));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(lib);
+		}
+		LibraryModel loaded;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			loaded = (LibraryModel) in.readObject();
+		}
+		assertEquals(loaded.getPlaylists().toString(),
+				"[Most Recently Played, Most Frequently Played, Favorite Songs, Top Rated, Road Trip, playlist1]");
+		assertEquals(loaded.searchPlaylistByName("ROAD TRIP").getSongs().size(), 1);
+		assertFalse(loaded.createPlaylist("road trip"));
+	}
+	
+	@Test
+	void testRenameGenrePlaylist() {
+		LibraryModel lib = new LibraryModel();
+		Album album = new Album("First", "Band", "Jazz", "2000");
+		for (int i = 1; i <= 10; i++) {
+			album.addSong("f" + i);
+		}
+		lib.addAlbumWithAllSongs(album);
+		Album blues = new Album("Second", "Band", "Blues", "2001");
+		blues.addSong("s1");
+		lib.addAlbumWithAllSongs(blues);
+		lib.createPlaylist("Mine");
+		lib.addSongToPlaylist("Mine", new Song("s1", "Second", "Band"));
+		
+		// A genre playlist keeps its name, so no orphan copy is left behind
+		assertFalse(lib.renamePlaylist("jazz", "Old Jazz"));
+		assertEquals(lib.searchPlaylistByName("Old Jazz"), null);
+		assertEquals(lib.searchPlaylistByName("Jazz").getSongs().size(), 10);
+		
+		// Nor can a playlist take a genre's name, even before the genre has
+		// a playlist, since the genre's sync would overwrite it
+		assertFalse(lib.renamePlaylist("Mine", "JAZZ"));
+		assertFalse(lib.renamePlaylist("Mine", "blues"));
+		assertEquals(lib.searchPlaylistByName("Mine").getSongs().size(), 1);
+		assertTrue(lib.renamePlaylist("Mine", "Jazz Favorites"));
+		assertEquals(lib.getPlaylists().toString(),
+				"[Most Recently Played, Most Frequently Played, Favorite Songs, Top Rated, Jazz, Jazz Favorites]");
+	}
+	
 	@Test
 	void testPlaylistAddAndRemoveSongs() {
 		LibraryModel lib = new LibraryModel();
@@ -233,6 +337,33 @@ class LibraryModelTest {
 		assertTrue(lib.removeSongFromPlaylist("playlist1", song1.getTitle()));
 	}
 	
+	@Test
+	void testAutomaticPlaylistsNotEditable() {
+		LibraryModel lib = new LibraryModel();
+		Album album = new Album("Blue", "Band", "Jazz", "1959");
+		for (int i = 0; i <= LibraryModel.GENRE_PLAYLIST_MINIMUM; i++) {
+			album.addSong("Track" + i);
+		}
+		lib.addAlbumWithAllSongs(album);
+		Song track = new Song("Track0", "Blue", "Band");
+		Song other = new Song("Other", "Album", "Artist");
+		lib.addSong(other);
+		lib.setRating(track, 5);
+		
+		for (String name : List.of("jazz", "Favorite Songs", "top rated", "Most Recently Played")) {
+			assertFalse(lib.addSongToPlaylist(name, other));
+		}
+		assertFalse(lib.removeSongFromPlaylist("Jazz", "Track0"));
+		assertFalse(lib.removeSongFromPlaylist("Favorite Songs", "Track0"));
+		assertTrue(lib.searchPlaylistByName("Jazz").getSongs().contains(track));
+		assertTrue(lib.searchPlaylistByName("Favorite Songs").getSongs().contains(track));
+		assertFalse(lib.searchPlaylistByName("Top Rated").getSongs().contains(other));
+		
+		// Removed from the library, a song leaves its genre playlist
+		lib.removeSong(track);
+		assertFalse(lib.searchPlaylistByName("Jazz").getSongs().contains(track));
+	}
+	
 	@Test
 	void testPlaySongAndUpdateMostPlayed() {
 		LibraryModel lib = new LibraryModel();
@@ -271,6 +402,16 @@ class LibraryModelTest {
     	assertEquals(freq.get(1).getTitle(), "1");
     	assertEquals(freq.get(2).getTitle(), "4");
     	assertEquals(freq.get(3).getTitle(), "3");
+    	
+    	// The limit is per library; removed songs leave the playlist
+    	lib.setMostPlayedLimit(2);
+    	assertEquals(lib.searchPlaylistByName("Most Frequently Played").getSongs().toString(),
+    			List.of(song2, song1).toString());
+    	lib.removeSong(song2);
+    	assertEquals(lib.searchPlaylistByName("Most Frequently Played").getSongs().toString(),
+    			List.of(song1, song4).toString());
+    	assertEquals(lib.getMostPlayedLimit(), 2);
+    	assertThrows(IllegalArgumentException.class, () -> lib.setMostPlayedLimit(0));
 	}
 	
 	@Test
@@ -398,6 +539,48 @@ class LibraryModelTest {
 		assertEquals(songs2.get(1), new Song("Song2B", "2", "2"));
 		assertEquals(songs2.get(2), new Song("Song2C", "2", "2"));
 		
+		// Album changes reach the genre index
+		lib.removeSong(new Song("Song2B", "2", "2"));
+		assertEquals(lib.searchSongsByGenre("2").size(), 2);
+		lib.removeAlbum(album1);
+		assertEquals(lib.searchSongsByGenre("1").size(), 0);
+		
+		// Genres compare as folded keys, across spellings
+		Album jazz = new Album("3", "3", "Jazz", "3");
+		jazz.addSong("Song3A");
+		Album jazz_lower = new Album("4", "4", "jazz", "4");
+		jazz_lower.addSong("Song4A");
+		lib.addAlbumWithAllSongs(jazz);
+		lib.addAlbumWithAllSongs(jazz_lower);
+		assertEquals(lib.searchSongsByGenre("JAZZ"),
+				List.of(new Song("Song3A", "3", "3"), new Song("Song4A", "4", "4")));
+	}
+	
+	@Test
+	void testFilterSongs() {
+		LibraryModel lib = new LibraryModel();
+		Album album1 = new Album("A", "Artist", "Rock", "1999");
+		Album album2 = new Album("B", "Artist", "Pop", "2004");
+		Album album3 = new Album("C", "Other", "Rock", "2004");
+		album1.addSong("A1");
+		album1.addSong("A2");
+		album2.addSong("B1");
+		album3.addSong("C1");
+		lib.addAlbumWithAllSongs(album1);
+		lib.addAlbumWithAllSongs(album2);
+		lib.addAlbumWithAllSongs(album3);
+		
+		FacetResult<Song> rock = lib.filterSongs(FacetFilter.genre("rock"), 10);
+		assertEquals(rock.getTotal(), 3);
+		assertEquals(rock.getItems().get(2), new Song("C1", "C", "Other"));
+		assertEquals(rock.getArtistCounts(), Map.of("Artist", 2, "Other", 1));
+		
+		FacetResult<Song> recent = lib.filterSongs(FacetFilter.years(2000, 2010).and(FacetFilter.artist("Other").not()), 10);
+		assertEquals(recent.getItems(), List.of(new Song("B1", "B", "Artist")));
+		assertEquals(recent.getGenreCounts(), Map.of("Pop", 1));
+		
+		lib.addAlbumSong(new Song("B2", "B", "Artist"));
+		assertEquals(lib.filterSongs(FacetFilter.genre("Pop"), 10).getTotal(), 2);
 	}
 	
 	@Test
@@ -495,4 +678,271 @@ class LibraryModelTest {
     	
     	assertEquals(p1, null);
 	}
+	
+	@Test
+	void testGenrePlaylistsIncremental() {
+		LibraryModel lib = new LibraryModel();
+		Album first = new Album("First", "Band", "Jazz", "2000");
+		for (int i = 1; i <= 6; i++) {
+			first.addSong("f" + i);
+		}
+		lib.addAlbumWithAllSongs(first);
+		assertEquals(lib.searchPlaylistByName("Jazz"), null);
+		
+		// A second album of the genre crosses the threshold
+		Album second = new Album("Second", "Band", "Jazz", "2001");
+		for (int i = 1; i <= 4; i++) {
+			second.addSong("s" + i);
+		}
+		lib.addAlbumWithAllSongs(second);
+		ArrayList<Song> jazz = lib.searchPlaylistByName("Jazz").getSongs();
+		assertEquals(jazz.size(), 10);
+		assertEquals(jazz.get(0), new Song("f1", "First", "Band"));
+		assertEquals(jazz.get(9), new Song("s4", "Second", "Band"));
+		
+		lib.addAlbumSong(new Song("f7", "First", "Band"));
+		assertEquals(lib.searchPlaylistByName("Jazz").getSongs().size(), 11);
+		lib.addAlbumSong(new Song("f7", "First", "Band"));
+		assertEquals(lib.searchPlaylistByName("Jazz").getSongs().size(), 11);
+		
+		// Removing the second album drops the playlist, adding it back
+		// brings it back; other genres are untouched
+		assertTrue(lib.removeAlbum(second));
+		assertEquals(lib.searchPlaylistByName("Jazz"), null);
+		lib.addAlbumWithAllSongs(second);
+		assertEquals(lib.searchPlaylistByName("Jazz").getSongs().size(), 11);
+		assertEquals(lib.getPlaylists().toString(),
+				"[Most Recently Played, Most Frequently Played, Favorite Songs, Top Rated, Jazz]");
+		
+		// A full rebuild agrees with the incremental playlist
+		ArrayList<Song> before = lib.searchPlaylistByName("Jazz").getSongs();
+		lib.updateGenreLists();
+		assertEquals(lib.searchPlaylistByName("Jazz").getSongs(), before);
+		
+		// A removal takes that one song out in place; in a batch, a song
+		// added and removed again cancels out, and one removed and added
+		// again moves to the end
+		Song f2 = new Song("f2", "First", "Band");
+		Song f8 = new Song("f8", "First", "Band");
+		Song s1 = new Song("s1", "Second", "Band");
+		lib.removeSong(f2);
+		ArrayList<Song> expected = new ArrayList<Song>(before);
+		expected.remove(f2);
+		assertEquals(lib.searchPlaylistByName("Jazz").getSongs(), expected);
+		lib.batch(b -> {
+			b.addSong(f8);
+			b.addAlbumSong(f8);
+			b.removeSong(f8);
+			b.removeSong(s1);
+			b.addAlbumSong(s1);
+		});
+		expected.remove(s1);
+		expected.add(s1);
+		assertEquals(lib.searchPlaylistByName("Jazz").getSongs(), expected);
+		lib.updateGenreLists();
+		assertEquals(lib.searchPlaylistByName("Jazz").getSongs(), expected);
+	}
+	
+	@Test
+	void testSearchSongByTitlePages() {
+		LibraryModel lib = new LibraryModel();
+		for (int i = 0; i < 7; i++) {
+			lib.addSong(new Song("Title" + i, "Album", "Artist"));
+		}
+		
+		SearchPage<Song> page = lib.searchSongByTitle("title", null, 3);
+		assertEquals(page.getItems().size(), 3);
+		assertTrue(page.hasNext());
+		page = lib.searchSongByTitle("title", page.getNextToken(), 3);
+		assertEquals(page.getOffset(), 3);
+		page = lib.searchSongByTitle("title", page.getNextToken(), 3);
+		assertEquals(page.getItems().size(), 1);
+		assertFalse(page.hasNext());
+		
+		assertEquals(lib.searchAlbumsByTitle("none", null, 3).getItems().size(), 0);
+	}
+	
+	@Test
+	void testSearchSongByTitlePagesOrder() {
+		LibraryModel lib = new LibraryModel();
+		ArrayList<Song> added = new ArrayList<Song>();
+		for (int i = 0; i < 50; i++) {
+			Song song = new Song("Title" + (i * 7919 % 50), "Album" + i, "Artist");
+			lib.addSong(song);
+			added.add(song);
+		}
+		// Pages follow the order the songs were added in
+		ArrayList<Song> paged = new ArrayList<Song>();
+		String token = null;
+		do {
+			SearchPage<Song> page = lib.searchSongByTitle("title", token, 8);
+			paged.addAll(page.getItems());
+			token = page.getNextToken();
+		} while (token != null);
+		assertEquals(paged, added);
+		
+		// A token is only valid until the songs change
+		String next = lib.searchSongByTitle("title", null, 8).getNextToken();
+		lib.removeSong(added.get(0));
+		assertThrows(IllegalArgumentException.class, () -> lib.searchSongByTitle("title", next, 8));
+		assertEquals(lib.searchSongByTitle("title", null, 8).getItems().get(0), added.get(1));
+		
+		for (String title : List.of("First", "Second", "Third")) {
+			Album album = new Album(title, "Artist", "Pop", "2020");
+			album.addSong("Song");
+			lib.addAlbumWithAllSongs(album);
+		}
+		String album_token = lib.searchAlbumsByTitle("", null, 1).getNextToken();
+		assertEquals(lib.searchAlbumsByTitle("", album_token, 1).getItems().get(0).getTitle(), "Second");
+		lib.removeAlbum(lib.searchAlbumsByTitle("First").get(0));
+		assertThrows(IllegalArgumentException.class, () -> lib.searchAlbumsByTitle("", album_token, 1));
+	}
+	
+	@Test
+	void testFuzzySearchSongByTitle() {
+		LibraryModel lib = new LibraryModel();
+		lib.addSong(new Song("Rolling in the Deep", "21", "Adele"));
+		lib.addSong(new Song("Rumour Has It", "21", "Adele"));
+		
+		ArrayList<Song> result = lib.fuzzySearchSongByTitle("Rollin in the deep", 5);
+		assertEquals(result.size(), 1);
+		assertEquals(result.get(0).getTitle(), "Rolling in the Deep");
+		assertEquals(lib.fuzzySearchSongByArtist("Addele", 5).size(), 2);
+		
+		// The index follows songs added and removed after it was built
+		lib.addSong(new Song("Rolling Stone", "Single", "Other"));
+		assertEquals(lib.fuzzySearchSongByTitle("Rollng", 5).size(), 2);
+		lib.removeSong(new Song("Rolling in the Deep", "21", "Adele"));
+		assertEquals(lib.fuzzySearchSongByTitle("Rollng", 5).size(), 1);
+	}
+	
+	@Test
+	void testRatingPlaylists() {
+		LibraryModel lib = new LibraryModel();
+		Song song1 = new Song("1", "1", "1");
+		Song song2 = new Song("2", "2", "2");
+		lib.setRating(song1, 5);
+		lib.setRating(song2, 4);
+		assertEquals(lib.searchPlaylistByName("Favorite Songs").getSongs(), List.of(song1));
+		assertEquals(lib.searchPlaylistByName("Top Rated").getSongs(), List.of(song1, song2));
+		
+		// Lowering a rating takes the song out again
+		lib.setRating(song1, 4);
+		assertEquals(lib.searchPlaylistByName("Favorite Songs").getSongs().size(), 0);
+		assertEquals(lib.searchPlaylistByName("Top Rated").getSongs(), List.of(song1, song2));
+		lib.setRating(song2, 1);
+		assertEquals(lib.searchPlaylistByName("Top Rated").getSongs(), List.of(song1));
+		assertEquals(lib.getSongsWithRating(1), List.of(song2));
+		assertEquals(lib.getRatedSongs().size(), 2);
+	}
+	
+	@Test
+	void testAlbumOfSong() {
+		LibraryModel lib = new LibraryModel();
+		Album album = new Album("21", "Adele", "Pop", "2011");
+		album.addSong("Rolling in the Deep");
+		album.addSong("Rumour Has It");
+		lib.addAlbumWithAllSongs(album);
+		Song deep = new Song("Rolling in the Deep", "21", "Adele");
+		assertEquals(lib.getAlbumOfSong(deep).getSongs(), List.of("Rolling in the Deep", "Rumour Has It"));
+		assertEquals(lib.getAlbumOfSong(new Song("Hello", "21", "Adele")), null);
+		assertTrue(lib.checkForAlbumPresence(new Album("21", "ADELE", "Pop", "2011")));
+		
+		// Emptied albums are cleaned up, found again once re-added
+		lib.removeSong(deep);
+		assertEquals(lib.getAlbumOfSong(deep), null);
+		lib.removeSong(new Song("Rumour Has It", "21", "Adele"));
+		assertFalse(lib.checkForAlbumPresence(album));
+		assertEquals(lib.getAllAlbumsInLibrary().size(), 0);
+		assertTrue(lib.addAlbumOneSong(album, deep));
+		assertEquals(lib.getAlbumOfSong(deep).getSongs(), List.of("Rolling in the Deep"));
+		assertTrue(lib.addAlbumSong(new Song("Rumour Has It", "21", "Adele")));
+		assertFalse(lib.addAlbumSong(new Song("Rumour Has It", "21", "Adele")));
+		assertTrue(lib.removeAlbum(album));
+		assertFalse(lib.removeAlbum(album));
+		assertEquals(lib.getAlbumOfSong(deep), null);
+	}
+	
+	@Test
+	void testBatch() {
+		LibraryModel lib = new LibraryModel();
+		Album first = new Album("First", "Band", "Jazz", "2000");
+		Album second = new Album("Second", "Band", "Jazz", "2001");
+		for (int i = 1; i <= 6; i++) {
+			first.addSong("f" + i);
+			second.addSong("s" + i);
+		}
+		Song f1 = new Song("f1", "First", "Band");
+		lib.batch(b -> {
+			b.addAlbumWithAllSongs(first);
+			b.addAlbumWithAllSongs(second);
+			b.setRating(f1, 5);
+			b.playSong(f1);
+			// Songs are there right away, derived playlists once it ends
+			assertEquals(b.getAllSongs().size(), 12);
+			assertEquals(b.searchPlaylistByName("Jazz"), null);
+			assertEquals(b.searchPlaylistByName("Favorite Songs").getSongs().size(), 0);
+		});
+		assertEquals(lib.searchPlaylistByName("Jazz").getSongs().size(), 12);
+		assertEquals(lib.searchPlaylistByName("Favorite Songs").getSongs(), List.of(f1));
+		assertEquals(lib.searchPlaylistByName("Most Frequently Played").getSongs(), List.of(f1));
+		
+		// Nested batches refresh once the outermost ends, even if it throws
+		assertThrows(IllegalStateException.class, () -> lib.batch(b -> {
+			b.batch(inner -> inner.removeAlbum(second));
+			assertEquals(b.searchPlaylistByName("Jazz").getSongs().size(), 12);
+			throw new IllegalStateException("stop");
+		}));
+		assertEquals(lib.searchPlaylistByName("Jazz"), null);
+		assertEquals(lib.getAllAlbumsInLibrary().size(), 1);
+	}
+	
+	@Test
+	void testRankSongs() {
+		LibraryModel lib = new LibraryModel();
+		Song deep = new Song("Rolling in the Deep", "21", "Adele");
+		Song stone = new Song("Rolling Stone", "Single", "Other");
+		Song rumour = new Song("Rumour Has It", "21", "Adele");
+		lib.addSong(deep);
+		lib.addSong(stone);
+		lib.addSong(rumour);
+		
+		// The shorter title wins on relevance alone...
+		assertEquals(lib.rankSongs("rolling", 5, false).get(0), stone);
+		assertEquals(lib.rankSongs("rolling", 5).get(0), stone);
+		// ...until the other one is played and rated
+		lib.playSong(deep);
+		lib.playSong(deep);
+		lib.playSong(deep);
+		lib.setRating(deep, 5);
+		assertEquals(lib.rankSongs("rolling", 5).get(0), deep);
+		assertEquals(lib.rankSongs("rolling", 5, false).get(0), stone);
+		assertEquals(lib.rankSongs("adele", 1).size(), 1);
+		
+		// The ranker follows songs removed after it was built
+		lib.removeSong(stone);
+		assertEquals(lib.rankSongs("rolling", 5).size(), 1);
+	}
+	
+	@Test
+	void testComplete() {
+		LibraryModel lib = new LibraryModel();
+		lib.addSong(new Song("Rolling in the Deep", "21", "Adele"));
+		assertEquals(lib.completeSongTitles("roll", 5).toString(), "[Rolling in the Deep]");
+		
+		// Kept in step after the tries were built
+		lib.addSong(new Song("Rumour Has It", "21", "Adele"));
+		Album album = new Album("21", "Adele", "Pop", "2011");
+		album.addSong("Rolling in the Deep");
+		lib.addAlbumWithAllSongs(album);
+		assertEquals(lib.completeSongTitles("r", 5).toString(), "[Rolling in the Deep, Rumour Has It]");
+		assertEquals(lib.completeAlbumTitles("2", 5).toString(), "[21]");
+		assertEquals(lib.completeArtists("ad", 5).toString(), "[Adele]");
+		
+		lib.removeAlbum(album);
+		assertEquals(lib.completeSongTitles("r", 5).toString(), "[Rumour Has It]");
+		assertEquals(lib.completeAlbumTitles("2", 5).toString(), "[]");
+		lib.removeSong(new Song("Rumour Has It", "21", "Adele"));
+		assertEquals(lib.completeArtists("ad", 5).toString(), "[]");
+	}
 }
@@ -11,10 +11,21 @@
 package test;
 
 import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
+import database.FacetFilter;
 import database.MusicStore;
+import database.SearchEngine;
 import model.Album;
+import model.FacetResult;
+import model.SearchPage;
 import model.Song;
 
 
@@ -76,4 +87,290 @@ class MusicStoreTest {
 		assertEquals(list2.size(), 2);
 		assertEquals(list2.get(0).getArtist(), "Adele");
 	}
+	
+	@Test
+	void testSearchSongsByTitlePages() {
+		MusicStore store = new MusicStore();
+		ArrayList<Song> all = store.searchSongsByTitle("The");
+		
+		ArrayList<Song> paged = new ArrayList<Song>();
+		SearchPage<Song> page = store.searchSongsByTitle("The", null, 5);
+		assertEquals(page.getOffset(), 0);
+		while (true) {
+			assertTrue(page.getItems().size() <= 5);
+			paged.addAll(page.getItems());
+			if (!page.hasNext()) {
+				break;
+			}
+			page = store.searchSongsByTitle("The", page.getNextToken(), 5);
+			assertEquals(page.getOffset(), paged.size());
+		}
+		assertEquals(paged, all);
+		
+		assertEquals(store.searchSongsByTitle("No_Songs", null, 5).getItems().size(), 0);
+		assertFalse(store.searchAlbumsByArtist("adele", null, 2).hasNext());
+		assertEquals(store.streamSongsByArtist("adele").limit(3).count(), 3);
+	}
+	
+	@Test
+	void testShardedSearch() {
+		MusicStore single = new MusicStore(Paths.get("resources"), 1);
+		MusicStore sharded = new MusicStore(Paths.get("resources"), 5);
+		assertEquals(sharded.getShardCount(), 5);
+		assertEquals(sharded.searchSongsByTitle("The"), single.searchSongsByTitle("The"));
+		assertEquals(sharded.searchSongsByArtist("a"), single.searchSongsByArtist("a"));
+		assertEquals(sharded.searchAlbumsByArtist("adele"), single.searchAlbumsByArtist("adele"));
+		String token = single.getCatalogVersion() + ":7@3";
+		assertEquals(sharded.searchSongsByTitle("The", token, 4).getItems(),
+				single.searchSongsByTitle("The", token, 4).getItems());
+		assertThrows(IllegalArgumentException.class, () -> new MusicStore(new ArrayList<Album>(), -1));
+	}
+	
+	@Test
+	void testLazy() {
+		MusicStore eager = new MusicStore();
+		MusicStore lazy = MusicStore.lazy(Paths.get("resources"), 2);
+		assertEquals(lazy.getCachedAlbumCount(), 0);
+		
+		assertEquals(lazy.searchSongsByTitle("The"), eager.searchSongsByTitle("The"));
+		assertEquals(lazy.searchSongsByArtist("adele"), eager.searchSongsByArtist("adele"));
+		assertEquals(lazy.getCachedAlbumCount(), 0);
+		
+		ArrayList<Album> albums = lazy.searchAlbumsByTitle("a");
+		assertEquals(albums.size(), eager.searchAlbumsByTitle("a").size());
+		assertEquals(albums.get(0).toString(), eager.searchAlbumsByTitle("a").get(0).toString());
+		assertEquals(lazy.getCachedAlbumCount(), 2);
+		assertThrows(IllegalArgumentException.class, () -> MusicStore.lazy(Paths.get("resources"), 0));
+	}
+	
+	@Test
+	void testLazyUnreadableAlbum() throws IOException {
+		Path dir = Files.createTempDirectory("resources");
+		Files.copy(Paths.get("resources/19_Adele.txt"), dir.resolve("19_Adele.txt"));
+		Files.copy(Paths.get("resources/21_Adele.txt"), dir.resolve("21_Adele.txt"));
+		Files.writeString(dir.resolve("albums.txt"), "19,Adele\n21,Adele\n");
+		MusicStore lazy = MusicStore.lazy(dir, 2);
+		assertFalse(lazy.getLoadReport().contains("unreadable"));
+		
+		// The track list is gone by the time the album is needed: it keeps
+		// its header, and the failure shows in the load report
+		Files.delete(dir.resolve("19_Adele.txt"));
+		Album album = lazy.searchAlbumsByTitle("19").get(0);
+		assertEquals(album.getGenre(), "Pop");
+		assertEquals(album.getYear(), "2008");
+		assertEquals(album.getSongs().size(), 0);
+		assertTrue(lazy.getLoadReport().endsWith("unreadable album files: 19_Adele.txt"));
+	}
+	
+	@Test
+	void testFuzzySearch() {
+		MusicStore store = new MusicStore();
+		assertEquals(store.searchSongsByTitle("Rollin in the deep").size(), 0);
+		ArrayList<Song> list = store.fuzzySearchSongsByTitle("Rollin in the deep", 3);
+		assertEquals(list.get(0).toString(), "Rolling in the Deep by Adele | Album: 21");
+		
+		assertEquals(store.fuzzySearchSongsByArtist("Addele", 100).size(), 24);
+		assertEquals(store.fuzzySearchAlbumsByArtist("Addele", 5).size(), 2);
+		assertEquals(store.fuzzySearchAlbumsByTitle("Tapestri", 5).get(0).getTitle(), "Tapestry");
+	}
+	
+	@Test
+	void testComplete() {
+		MusicStore store = new MusicStore();
+		assertEquals(store.completeSongTitles("set f", 5).toString(), "[Set Fire to the Rain]");
+		assertEquals(store.completeAlbumTitles("t", 5).toString(), "[Tapestry]");
+		// Adele has the most songs of the artists starting with "a"
+		assertEquals(store.completeArtists("a", 1).toString(), "[Adele]");
+	}
+	
+	@Test
+	void testAccentInsensitiveSearch() {
+		MusicStore store = new MusicStore();
+		assertEquals(store.searchAlbumsByArtist("Maná").get(0).getTitle(), "Cuando Los Angeles Lloran");
+		assertEquals(store.searchAlbumsByTitle("ÁNGELES").size(), 1);
+		assertEquals(store.searchSongsByArtist("maná").size(), store.searchSongsByArtist("mana").size());
+		store.setSearchEngine(SearchEngine.COLUMNAR);
+		assertEquals(store.searchAlbumsByTitle("los ángeles").size(), 1);
+		assertEquals(store.completeArtists("MANÁ", 1).toString(), "[Mana]");
+	}
+	
+	@Test
+	void testQueryCache() throws IOException {
+		MusicStore store = new MusicStore(copyResources());
+		ArrayList<Song> list = store.searchSongsByArtist("Adele");
+		list.clear();
+		// Served from the cache, unaffected by changes to an earlier result
+		assertEquals(store.searchSongsByArtist("adele").size(), 12);
+		assertEquals(store.getQueryCacheStats().getHits(), 1);
+		assertEquals(store.getQueryCacheStats().getMisses(), 1);
+		
+		store.reload(Set.of());
+		assertEquals(store.searchSongsByArtist("adele").size(), 12);
+		assertEquals(store.getQueryCacheStats().getMisses(), 2);
+		assertEquals(store.getQueryCacheStats().getInvalidations(), 1);
+	}
+	
+	@Test
+	void testFacetFilter() {
+		MusicStore store = new MusicStore();
+		FacetResult<Album> rock = store.filterAlbums(FacetFilter.genre("ROCK").and(FacetFilter.years(2000, 2019)), 10);
+		assertEquals(rock.getTotal(), 3);
+		assertEquals(rock.getYearCounts(), Map.of(2007, 1, 2009, 1, 2019, 1));
+		assertEquals(store.filterAlbums(FacetFilter.genre("Rock").or(FacetFilter.genre("Pop")), 10).getTotal(), 7);
+		assertEquals(store.filterAlbums(FacetFilter.genre("Pop").not(), 10).getTotal(), 12);
+		
+		// Limited results still count every match
+		FacetResult<Album> pop = store.filterAlbums(FacetFilter.genre("pop"), 1);
+		assertEquals(pop.getItems().size(), 1);
+		assertEquals(pop.getArtistCounts(), Map.of("Adele", 2, "Norah Jones", 1));
+		
+		FacetResult<Song> adele = store.filterSongs(FacetFilter.artist("adele"), 100);
+		assertEquals(adele.getTotal(), 24);
+		assertEquals(adele.getItems(), store.searchSongsByArtist("Adele"));
+		assertEquals(adele.getGenreCounts(), Map.of("Pop", 24));
+		assertEquals(store.filterSongs(FacetFilter.year(1871), 10).getTotal(), 0);
+		assertThrows(IllegalArgumentException.class, () -> FacetFilter.years(2000, 1990));
+	}
+	
+	@Test
+	void testSongQuery() {
+		MusicStore store = new MusicStore();
+		ArrayList<Song> list = store.searchSongs("artist:adele year:>=2010 genre:pop rolling");
+		assertEquals(list.size(), 1);
+		assertEquals(list.get(0).toString(), "Rolling in the Deep by Adele | Album: 21");
+		
+		// Same answer as the single-field search, in the same order
+		assertEquals(store.searchSongs("ARTIST:adele"), store.searchSongsByArtist("adele"));
+		assertEquals(store.searchSongs("artist:adele -year:2011").size(), 12);
+		assertEquals(store.searchSongs("album:\"sigh no more\"").size(), store.searchAlbumsByTitle("sigh no more")
+				.get(0).getSongs().size());
+		assertEquals(store.searchSongs("").size(), store.searchSongsByTitle("").size());
+		
+		// The rare clause drives, the broad ones only filter
+		String explain = store.planSongQuery("genre:pop artist:adele rolling").explain();
+		assertTrue(explain.contains("1. driver  rolling"));
+		assertTrue(explain.contains("filter  genre:pop"));
+		assertTrue(explain.trim().endsWith("-> 1"));
+		assertTrue(store.planSongQuery("album:21").explain().contains("full scan"));
+		
+		SearchPage<Song> page = store.searchSongs("genre:pop", null, 5);
+		assertEquals(page.getItems().size(), 5);
+		assertEquals(store.searchSongs("genre:pop", page.getNextToken(), 100).getItems().get(0),
+				store.searchSongs("genre:pop").get(5));
+		assertThrows(IllegalArgumentException.class, () -> store.searchSongs("label:xl"));
+	}
+	
+	@Test
+	void testRankSongs() {
+		MusicStore store = new MusicStore();
+		ArrayList<Song> list = store.rankSongs("rolling deep adele", 3);
+		assertEquals(list.size(), 3);
+		assertEquals(list.get(0).toString(), "Rolling in the Deep by Adele | Album: 21");
+		
+		// The album title counts too, but less than a song title
+		ArrayList<Song> albums = store.rankSongs("tapestry", 20);
+		assertEquals(albums.get(0).getTitle(), "Tapestry");
+		assertEquals(albums.size(), store.searchAlbumsByTitle("tapestry").get(0).getSongs().size());
+		assertEquals(store.rankSongs("adele", 100).size(), 24);
+		assertEquals(store.rankSongs("zzzz", 5).size(), 0);
+		assertThrows(IllegalArgumentException.class, () -> store.rankSongs("adele", 0));
+	}
+	
+	@Test
+	void testColumnarSearch() {
+		MusicStore store = new MusicStore();
+		ArrayList<Song> titles = store.searchSongsByTitle("The");
+		ArrayList<Song> artists = store.searchSongsByArtist("a");
+		ArrayList<Album> albums = store.searchAlbumsByTitle("o");
+		ArrayList<Album> album_artists = store.searchAlbumsByArtist("adele");
+		int total = store.searchSongsByTitle("").size();
+		
+		store.setSearchEngine(SearchEngine.COLUMNAR);
+		assertEquals(store.getSearchEngine(), SearchEngine.COLUMNAR);
+		assertEquals(store.searchSongsByTitle("The"), titles);
+		assertEquals(store.searchSongsByArtist("a"), artists);
+		assertEquals(store.searchAlbumsByTitle("o"), albums);
+		assertEquals(store.searchAlbumsByArtist("adele"), album_artists);
+		assertEquals(store.searchSongsByTitle("No_Songs").size(), 0);
+		assertEquals(store.searchSongsByTitle("").size(), total);
+		assertEquals(store.searchSongsByTitle("set fire to the rain").get(0).toString(),
+				"Set Fire to the Rain by Adele | Album: 21");
+		
+		SearchPage<Song> page = store.searchSongsByTitle("The", null, 5);
+		assertEquals(page.getItems(), titles.subList(0, 5));
+		assertEquals(store.searchSongsByTitle("The", page.getNextToken(), 5).getItems(), titles.subList(5, 10));
+		assertThrows(IllegalArgumentException.class, () -> store.setSearchEngine(null));
+	}
+	
+	private Path copyResources() throws IOException {
+		Path dir = Files.createTempDirectory("store").resolve("resources");
+		Files.createDirectory(dir);
+		Files.copy(Paths.get("resources/19_Adele.txt"), dir.resolve("19_Adele.txt"));
+		Files.writeString(dir.resolve("albums.txt"), "19,Adele\n");
+		return dir;
+	}
+	
+	@Test
+	void testReload() throws IOException {
+		Path dir = copyResources();
+		MusicStore store = new MusicStore(dir);
+		assertEquals(store.getCatalogVersion(), 1);
+		assertEquals(store.searchSongsByArtist("adele").size(), 12);
+		ArrayList<Album> before = store.searchAlbumsByTitle("19");
+		String token = store.searchSongsByArtist("adele", null, 5).getNextToken();
+		
+		Files.copy(Paths.get("resources/21_Adele.txt"), dir.resolve("21_Adele.txt"));
+		Files.writeString(dir.resolve("albums.txt"), "19,Adele\n21,Adele\n");
+		assertEquals(store.reload(Set.of("21_Adele.txt", "albums.txt")), 2);
+		assertEquals(store.getCatalogVersion(), 2);
+		assertEquals(store.searchSongsByArtist("adele").size(), 24);
+		assertEquals(store.searchSongsByTitle("Set Fire to the Rain").size(), 1);
+		// The unchanged album is carried over rather than parsed again
+		assertSame(store.searchAlbumsByTitle("19").get(0), before.get(0));
+		// Pages of the previous version can't be resumed, only restarted
+		assertThrows(IllegalArgumentException.class, () -> store.searchSongsByArtist("adele", token, 5));
+		assertThrows(IllegalArgumentException.class, () -> store.searchSongsByArtist("adele", "7@3", 5));
+		String next = store.searchSongsByArtist("adele", null, 5).getNextToken();
+		assertEquals(store.searchSongsByArtist("adele", next, 5).getOffset(), 5);
+		
+		// A new store over the same directory maps the recompiled snapshot
+		assertEquals(new MusicStore(dir).searchSongsByArtist("adele").size(), 24);
+		assertThrows(IllegalStateException.class, () -> new MusicStore(new ArrayList<Album>()).reload(Set.of()));
+	}
+	
+	@Test
+	void testReloadAll() throws IOException {
+		Path dir = copyResources();
+		MusicStore store = new MusicStore(dir);
+		assertEquals(store.searchSongsByTitle("Extra Track").size(), 0);
+		
+		// An album file changed without the change being reported (as when
+		// the watcher's events overflow): only a full reload picks it up
+		Files.writeString(dir.resolve("19_Adele.txt"), "\nExtra Track\n", StandardOpenOption.APPEND);
+		store.reload(Set.of());
+		assertEquals(store.searchSongsByTitle("Extra Track").size(), 0);
+		assertEquals(store.reloadAll(), 3);
+		assertEquals(store.searchSongsByTitle("Extra Track").size(), 1);
+		assertEquals(store.searchSongsByArtist("adele").size(), 13);
+		assertThrows(IllegalStateException.class, () -> new MusicStore(new ArrayList<Album>()).reloadAll());
+	}
+	
+	@Test
+	void testWatching() throws IOException, InterruptedException {
+		Path dir = copyResources();
+		MusicStore store = new MusicStore(dir);
+		store.startWatching();
+		try {
+			Files.copy(Paths.get("resources/21_Adele.txt"), dir.resolve("21_Adele.txt"));
+			Files.writeString(dir.resolve("albums.txt"), "19,Adele\n21,Adele\n");
+			long deadline = System.currentTimeMillis() + 10_000;
+			while (store.searchSongsByArtist("adele").size() != 24 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(50);
+			}
+			assertEquals(store.searchSongsByArtist("adele").size(), 24);
+			assertTrue(store.getCatalogVersion() > 1);
+		} finally {
+			store.stopWatching();
+		}
+	}
 }
@@ -0,0 +1,54 @@
+/**
+ *  File: NGramIndexTest.java
+ *  Authors: Kyle Becker / Rishi Doshi
+ *  
+ *  Purpose: This file tests the NGramIndex class, checking its results
+ *  against the plain case-insensitive "contains" scan it replaces.
+ */
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import database.NGramIndex;
+
+class NGramIndexTest {
+	
+	private static final List<String> VALUES = Arrays.asList(
+			"Rolling in the Deep", "Rumour Has It", "Set Fire to the Rain",
+			"The Thrill Is Gone", "Daydreamer", "Hometown Glory", "Tired",
+			"aaaa", "");
+	
+	@Test
+	void testSearchMatchesScan() {
+		NGramIndex index = new NGramIndex(VALUES);
+		String[] queries = {"the", "THE", "e r", "ing", "Deep", "aaa", "aaaa", "aaaaa", 
+				"r", "", "ho", "Glory", "No_Song", "ireda"};
+		for (String query : queries) {
+			ArrayList<Integer> expected = new ArrayList<Integer>();
+			for (int i = 0; i < VALUES.size(); i++) {
+				if (VALUES.get(i).toLowerCase().contains(query.toLowerCase())) {
+					expected.add(i);
+				}
+			}
+			ArrayList<Integer> actual = new ArrayList<Integer>();
+			for (int ordinal : index.search(query)) {
+				actual.add(ordinal);
+			}
+			assertEquals(expected, actual, "query: " + query);
+		}
+	}
+	
+	@Test
+	void testEmptyIndex() {
+		NGramIndex index = new NGramIndex(new ArrayList<String>());
+		assertEquals(index.size(), 0);
+		assertEquals(index.search("the").length, 0);
+		assertEquals(index.search("t").length, 0);
+	}
+}
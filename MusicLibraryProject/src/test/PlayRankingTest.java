@@ -0,0 +1,64 @@
+/**
+ *  File: PlayRankingTest.java
+ *  Authors: Kyle Becker / Rishi Doshi
+ *  
+ *  Purpose: This file tests the PlayRanking class: ranking by play count,
+ *  ties in the order songs reached their count, removal, and rebuilding
+ *  from a play count map.
+ */
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import model.PlayRanking;
+import model.Song;
+
+class PlayRankingTest {
+	
+	private final Song song1 = new Song("1", "1", "1");
+	private final Song song2 = new Song("2", "2", "2");
+	private final Song song3 = new Song("3", "3", "3");
+	
+	@Test
+	void testPlayed() {
+		PlayRanking ranking = new PlayRanking();
+		assertEquals(ranking.maxCount(), 0);
+		ranking.played(song1, 1);
+		ranking.played(song2, 1);
+		ranking.played(song3, 1);
+		assertEquals(ranking.top(10), List.of(song1, song2, song3));
+		
+		// song3 reaches 2 first, so it stays ahead of song1
+		ranking.played(song3, 2);
+		ranking.played(song1, 2);
+		assertEquals(ranking.top(10), List.of(song3, song1, song2));
+		assertEquals(ranking.top(2), List.of(song3, song1));
+		assertEquals(ranking.maxCount(), 2);
+		
+		assertTrue(ranking.remove(song3));
+		assertFalse(ranking.remove(song3));
+		assertEquals(ranking.top(10), List.of(song1, song2));
+		ranking.played(song2, 0);
+		assertEquals(ranking.size(), 1);
+		assertEquals(ranking.maxCount(), 2);
+		ranking.remove(song1);
+		assertEquals(ranking.maxCount(), 0);
+	}
+	
+	@Test
+	void testRebuild() {
+		LinkedHashMap<Song, Integer> plays = new LinkedHashMap<Song, Integer>();
+		plays.put(song1, 3);
+		plays.put(song2, 3);
+		plays.put(song3, 0);
+		ArrayList<Song> first = new ArrayList<Song>(List.of(song2));
+		assertEquals(new PlayRanking(plays, first).top(10), List.of(song2, song1));
+		assertEquals(new PlayRanking(plays, new ArrayList<Song>()).top(10), List.of(song1, song2));
+	}
+}
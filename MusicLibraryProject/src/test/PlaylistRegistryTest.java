@@ -0,0 +1,75 @@
+/**
+ *  File: PlaylistRegistryTest.java
+ *  Authors: Kyle Becker / Rishi Doshi
+ *
+ *  Purpose: This file tests the PlaylistRegistry class: lookups regardless
+ *  of case, names taken only once, and removals and renames keeping the
+ *  order the playlists were added in.
+ */
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import model.PlayList;
+import model.PlaylistRegistry;
+
+class PlaylistRegistryTest {
+
+	@Test
+	void testAddAndGet() {
+		PlaylistRegistry registry = new PlaylistRegistry();
+		PlayList road = new PlayList("Road Trip");
+		assertTrue(registry.add(road));
+		assertTrue(registry.add(new PlayList("Gym")));
+		assertFalse(registry.add(new PlayList("ROAD TRIP")));
+		assertEquals(registry.get("road trip"), road);
+		assertEquals(registry.get("Road"), null);
+		assertEquals(registry.get(null), null);
+		assertEquals(registry.size(), 2);
+		assertEquals(registry.names(), List.of("Road Trip", "Gym"));
+	}
+
+	@Test
+	void testCaseInsensitiveKeys() {
+		PlaylistRegistry registry = new PlaylistRegistry();
+		registry.add(new PlayList("Straße"));
+		registry.add(new PlayList("Café"));
+		// As equalsIgnoreCase: character by character, accents count
+		assertEquals(registry.get("STRASSE"), null);
+		assertEquals(registry.get("STRAẞE").getName(), "Straße");
+		assertEquals(registry.get("CAFÉ").getName(), "Café");
+		assertEquals(registry.get("Cafe"), null);
+	}
+
+	@Test
+	void testRemove() {
+		PlaylistRegistry registry = new PlaylistRegistry(
+				List.of(new PlayList("A"), new PlayList("B"), new PlayList("C")));
+		assertEquals(registry.remove("b").getName(), "B");
+		assertEquals(registry.remove("b"), null);
+		assertEquals(registry.names(), List.of("A", "C"));
+		assertTrue(registry.add(new PlayList("b")));
+		assertEquals(registry.names(), List.of("A", "C", "b"));
+	}
+
+	@Test
+	void testRename() {
+		PlayList a = new PlayList("A");
+		PlaylistRegistry registry = new PlaylistRegistry(List.of(a, new PlayList("B"), new PlayList("C")));
+		assertTrue(registry.rename("a", "Z"));
+		assertEquals(a.getName(), "Z");
+		assertEquals(registry.get("A"), null);
+		assertEquals(registry.get("z"), a);
+		assertEquals(registry.names(), List.of("Z", "B", "C"));
+
+		assertFalse(registry.rename("Z", "b")); // taken
+		assertFalse(registry.rename("missing", "D"));
+		assertTrue(registry.rename("Z", "z")); // only the case changes
+		assertEquals(registry.names(), List.of("z", "B", "C"));
+		assertEquals(registry.playlists().get(0), a);
+	}
+}
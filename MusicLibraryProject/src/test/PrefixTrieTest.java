@@ -0,0 +1,63 @@
+/**
+ *  File: PrefixTrieTest.java
+ *  Authors: Kyle Becker / Rishi Doshi
+ *  
+ *  Purpose: This file tests the PrefixTrie class: completion order, edge
+ *  splitting while adding, and pruning while removing.
+ */
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import database.PrefixTrie;
+
+class PrefixTrieTest {
+	
+	@Test
+	void testComplete() {
+		PrefixTrie trie = new PrefixTrie();
+		for (String value : Arrays.asList("Rolling in the Deep", "Rumour Has It", "Rolling Stone",
+				"Roll", "Adele", "Adele", "adele", "Adam", "Ad")) {
+			trie.add(value);
+		}
+		assertEquals(trie.size(), 7);
+		
+		assertEquals(trie.complete("ro", 10).toString(), "[Roll, Rolling in the Deep, Rolling Stone]");
+		assertEquals(trie.complete("ROLLING ", 10).toString(), "[Rolling in the Deep, Rolling Stone]");
+		assertEquals(trie.complete("r", 2).toString(), "[Roll, Rolling in the Deep]");
+		// Most frequent first, the first spelling added is shown
+		assertEquals(trie.complete("a", 10).toString(), "[Adele, Ad, Adam]");
+		assertEquals(trie.complete("", 1).toString(), "[Adele]");
+		assertEquals(trie.complete("rollx", 10).toString(), "[]");
+		assertEquals(trie.complete("Rolling in the Deep and more", 10).toString(), "[]");
+	}
+	
+	@Test
+	void testRemove() {
+		PrefixTrie trie = new PrefixTrie();
+		trie.add("Rolling in the Deep");
+		trie.add("Rolling Stone");
+		trie.add("Adele");
+		trie.add("Adele");
+		
+		assertFalse(trie.remove("Rolling"));
+		assertFalse(trie.remove("Nothing"));
+		assertTrue(trie.remove("rolling stone"));
+		assertEquals(trie.complete("roll", 10).toString(), "[Rolling in the Deep]");
+		assertFalse(trie.remove("Rolling Stone"));
+		
+		// Removing one occurrence of two keeps the value
+		assertTrue(trie.remove("Adele"));
+		assertEquals(trie.complete("ad", 10).toString(), "[Adele]");
+		assertTrue(trie.remove("Adele"));
+		assertEquals(trie.complete("ad", 10).toString(), "[]");
+		assertEquals(trie.size(), 1);
+		
+		trie.add("Rolling Stone");
+		assertEquals(trie.complete("ROLLING", 10).toString(), "[Rolling in the Deep, Rolling Stone]");
+	}
+}
@@ -0,0 +1,65 @@
+/**
+ *  File: QueryCacheTest.java
+ *  Authors: Kyle Becker / Rishi Doshi
+ *  
+ *  Purpose: This file tests the QueryCache class: hits regardless of case,
+ *  least recently used eviction, and invalidation by version.
+ */
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import database.QueryCache;
+
+class QueryCacheTest {
+	
+	@Test
+	void testHitsAndMisses() {
+		QueryCache<String> cache = new QueryCache<String>(10);
+		int[] searches = {0};
+		assertEquals(cache.computeIfAbsent("artist", "Adele", 1, () -> "result " + ++searches[0]), "result 1");
+		assertEquals(cache.computeIfAbsent("artist", "ADELE", 1, () -> "result " + ++searches[0]), "result 1");
+		// Another kind of search is another entry
+		assertEquals(cache.computeIfAbsent("title", "Adele", 1, () -> "result " + ++searches[0]), "result 2");
+		assertEquals(cache.getStats().getHits(), 1);
+		assertEquals(cache.getStats().getMisses(), 2);
+		assertEquals(cache.getStats().getSize(), 2);
+		assertThrows(IllegalArgumentException.class, () -> new QueryCache<String>(-1));
+		
+		// Capacity 0 disables caching
+		QueryCache<String> none = new QueryCache<String>(0);
+		none.put("artist", "a", 1, "A");
+		assertNull(none.get("artist", "a", 1));
+	}
+	
+	@Test
+	void testEviction() {
+		QueryCache<String> cache = new QueryCache<String>(2);
+		cache.put("artist", "a", 1, "A");
+		cache.put("artist", "b", 1, "B");
+		assertEquals(cache.get("artist", "a", 1), "A");
+		cache.put("artist", "c", 1, "C");
+		// "b" was the least recently used
+		assertNull(cache.get("artist", "b", 1));
+		assertEquals(cache.get("artist", "a", 1), "A");
+		assertEquals(cache.getStats().getEvictions(), 1);
+		assertEquals(cache.getStats().getSize(), 2);
+	}
+	
+	@Test
+	void testVersions() {
+		QueryCache<String> cache = new QueryCache<String>(10);
+		cache.put("artist", "a", 1, "A");
+		cache.put("artist", "b", 1, "B");
+		assertNull(cache.get("artist", "a", 2));
+		assertEquals(cache.getStats().getInvalidations(), 2);
+		// A result computed before the change is not kept
+		cache.put("artist", "a", 1, "A");
+		assertNull(cache.get("artist", "a", 2));
+		cache.put("artist", "a", 2, "A2");
+		assertEquals(cache.get("artist", "a", 2), "A2");
+		assertEquals(cache.getStats().toString(), "hits: 1 | misses: 2 | evictions: 0 | invalidations: 2 | size: 1");
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ *  File: RatingStoreTest.java
+ *  Authors: Kyle Becker / Rishi Doshi
+ *  
+ *  Purpose: This file tests the RatingStore class: lookups by title and
+ *  album regardless of case, per-score buckets, and the favorites and top
+ *  rated views following ratings up and down.
+ */
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import model.Rating;
+import model.RatingStore;
+import model.Song;
+
+class RatingStoreTest {
+	
+	private final Song song1 = new Song("Hello", "25", "Adele");
+	private final Song song2 = new Song("Skyfall", "Single", "Adele");
+	private final Song song3 = new Song("Rumour Has It", "21", "Adele");
+	
+	@Test
+	void testRate() {
+		RatingStore store = new RatingStore(new ArrayList<Rating>());
+		assertEquals(store.find(song1), null);
+		Rating rating = store.rate(song1, 5);
+		store.rate(song2, 4);
+		store.rate(song3, 5);
+		assertEquals(store.find(new Song("HELLO", "25", "Someone Else")), rating);
+		assertEquals(store.size(), 3);
+		assertEquals(List.copyOf(store.withScore(5)), List.of(song1, song3));
+		assertEquals(List.copyOf(store.favorites()), List.of(song1, song3));
+		assertEquals(List.copyOf(store.topRated()), List.of(song1, song2, song3));
+		
+		// 5 -> 4 leaves the favorites but keeps its top rated place
+		assertEquals(store.rate(new Song("hello", "25", "Adele"), 4), rating);
+		assertEquals(rating.getRating(), 4);
+		assertEquals(List.copyOf(store.favorites()), List.of(song3));
+		assertEquals(List.copyOf(store.topRated()), List.of(song1, song2, song3));
+		
+		// Lowering below 4 leaves both
+		store.rate(song2, 2);
+		assertEquals(List.copyOf(store.topRated()), List.of(song1, song3));
+		assertEquals(List.copyOf(store.withScore(2)), List.of(song2));
+		assertTrue(store.withScore(1).isEmpty());
+	}
+	
+	@Test
+	void testFromList() {
+		ArrayList<Rating> ratings = new ArrayList<Rating>();
+		ratings.add(new Rating(song1, 3));
+		ratings.add(new Rating(song2, 5));
+		RatingStore store = new RatingStore(ratings);
+		assertEquals(store.find(song2), ratings.get(1));
+		assertEquals(List.copyOf(store.favorites()), List.of(song2));
+		
+		// The store changes the listed Rating itself
+		store.rate(song1, 5);
+		assertEquals(ratings.get(0).getRating(), 5);
+		assertEquals(List.copyOf(store.favorites()), List.of(song2, song1));
+	}
+}
@@ -0,0 +1,84 @@
+/**
+ *  File: RoaringBitmapTest.java
+ *  Authors: Kyle Becker / Rishi Doshi
+ *  
+ *  Purpose: This file tests the RoaringBitmap class: building, membership,
+ *  and the boolean operations across sparse (array) and dense (bitset)
+ *  containers, checked against sorted sets.
+ */
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import database.RoaringBitmap;
+
+class RoaringBitmapTest {
+	
+	@Test
+	void testBuild() {
+		RoaringBitmap bitmap = RoaringBitmap.of(70_000, 3, 1, 3);
+		assertArrayEquals(bitmap.toArray(), new int[] {1, 3, 70_000});
+		assertEquals(bitmap.cardinality(), 3);
+		assertTrue(bitmap.contains(70_000));
+		assertFalse(bitmap.contains(2));
+		assertFalse(bitmap.contains(-1));
+		assertTrue(RoaringBitmap.empty().isEmpty());
+		assertArrayEquals(bitmap.stream().toArray(), bitmap.toArray());
+		
+		// Dense range spanning containers
+		RoaringBitmap range = RoaringBitmap.range(10, 140_000);
+		assertEquals(range.cardinality(), 139_990);
+		assertTrue(range.contains(65_536));
+		assertEquals(range.stream().count(), 139_990L);
+		
+		RoaringBitmap.Builder builder = new RoaringBitmap.Builder().add(5);
+		assertThrows(IllegalArgumentException.class, () -> builder.add(5));
+	}
+	
+	@Test
+	void testOperations() {
+		Random random = new Random(3);
+		for (int round = 0; round < 20; round++) {
+			// Mix of sparse and dense containers
+			TreeSet<Integer> a = randomSet(random, random.nextInt(10_000));
+			TreeSet<Integer> b = randomSet(random, random.nextInt(10_000));
+			RoaringBitmap x = bitmap(a);
+			RoaringBitmap y = bitmap(b);
+			
+			TreeSet<Integer> and = new TreeSet<Integer>(a);
+			and.retainAll(b);
+			TreeSet<Integer> or = new TreeSet<Integer>(a);
+			or.addAll(b);
+			TreeSet<Integer> and_not = new TreeSet<Integer>(a);
+			and_not.removeAll(b);
+			
+			assertEquals(x.and(y), bitmap(and));
+			assertEquals(x.or(y), bitmap(or));
+			assertEquals(x.andNot(y), bitmap(and_not));
+			assertEquals(x.andCardinality(y), and.size());
+			assertEquals(x.or(y).cardinality(), or.size());
+		}
+	}
+	
+	private static TreeSet<Integer> randomSet(Random random, int size) {
+		TreeSet<Integer> set = new TreeSet<Integer>();
+		int range = random.nextBoolean() ? 8_000 : 200_000;
+		while (set.size() < Math.min(size, range / 2)) {
+			set.add(random.nextInt(range));
+		}
+		return set;
+	}
+	
+	private static RoaringBitmap bitmap(TreeSet<Integer> set) {
+		RoaringBitmap.Builder builder = new RoaringBitmap.Builder();
+		for (int value : set) {
+			builder.add(value);
+		}
+		return builder.build();
+	}
+}
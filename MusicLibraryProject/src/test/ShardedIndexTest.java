@@ -0,0 +1,61 @@
+/**
+ *  File: ShardedIndexTest.java
+ *  Authors: Kyle Becker / Rishi Doshi
+ *  
+ *  Purpose: This file tests the ShardedIndex class, checking that every
+ *  shard count merges to the same ordered results as a single NGramIndex.
+ */
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import database.NGramIndex;
+import database.ShardedIndex;
+
+class ShardedIndexTest {
+	
+	private static final List<String> VALUES = Arrays.asList(
+			"Rolling in the Deep", "Rumour Has It", "Set Fire to the Rain",
+			"The Thrill Is Gone", "Daydreamer", "Hometown Glory", "Tired",
+			"Lovesong", "Someone Like You", "Take It All", "He Won't Go");
+	
+	private static final String[] QUERIES = {"the", "o", "ing", "It", "Glory", "No_Song", ""};
+	
+	@Test
+	void testSearchMatchesSingleIndex() {
+		NGramIndex single = new NGramIndex(VALUES);
+		for (int shards = 1; shards <= VALUES.size() + 2; shards++) {
+			ShardedIndex index = new ShardedIndex(VALUES, shards);
+			assertEquals(index.size(), VALUES.size());
+			assertEquals(index.getShardCount(), Math.min(shards, VALUES.size()));
+			for (String query : QUERIES) {
+				assertEquals(Arrays.toString(index.search(query)), Arrays.toString(single.search(query)));
+			}
+		}
+	}
+	
+	@Test
+	void testStreamFrom() {
+		NGramIndex single = new NGramIndex(VALUES);
+		ShardedIndex index = new ShardedIndex(VALUES, 4);
+		for (String query : QUERIES) {
+			for (int from = 0; from <= VALUES.size(); from++) {
+				assertEquals(Arrays.toString(index.stream(query, from).toArray()),
+						Arrays.toString(single.stream(query, from).toArray()));
+			}
+		}
+	}
+	
+	@Test
+	void testShardsFor() {
+		assertEquals(ShardedIndex.shardsFor(0, 4), 1);
+		assertEquals(ShardedIndex.shardsFor(100, ShardedIndex.AUTO_SHARDS), 1);
+		assertEquals(ShardedIndex.shardsFor(100, 8), 8);
+		assertThrows(IllegalArgumentException.class, () -> ShardedIndex.shardsFor(100, -1));
+	}
+}
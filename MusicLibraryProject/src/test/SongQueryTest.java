@@ -0,0 +1,61 @@
+/**
+ *  File: SongQueryTest.java
+ *  Authors: Kyle Becker / Rishi Doshi
+ *  
+ *  Purpose: This file tests the SongQuery parser: fields, bare terms,
+ *  quoted values, negation, year ranges, and the errors it reports.
+ */
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import database.SongQuery;
+import database.SongQuery.Clause;
+import database.SongQuery.Field;
+
+class SongQueryTest {
+	
+	@Test
+	void testParse() {
+		SongQuery query = SongQuery.parse("Artist:Adele  year:>=2010 genre:POP rolling");
+		List<Clause> clauses = query.getClauses();
+		assertEquals(clauses.size(), 4);
+		assertEquals(clauses.get(0).getField(), Field.ARTIST);
+		assertEquals(clauses.get(0).getValue(), "adele");
+		assertEquals(clauses.get(1).getField(), Field.YEAR);
+		assertEquals(clauses.get(1).getFrom(), 2010);
+		assertEquals(clauses.get(1).getTo(), Integer.MAX_VALUE);
+		assertEquals(clauses.get(3).getField(), Field.TEXT);
+		assertEquals(query.toString(), "artist:adele year:>=2010 genre:pop rolling");
+		
+		assertTrue(SongQuery.parse("").getClauses().isEmpty());
+	}
+	
+	@Test
+	void testQuotesNegationAndYears() {
+		SongQuery query = SongQuery.parse("title:\"Rolling In\" -genre:rock year:<2000 year:1990..1999 \"set fire\"");
+		List<Clause> clauses = query.getClauses();
+		assertEquals(clauses.get(0).getValue(), "rolling in");
+		assertTrue(clauses.get(1).isNegated());
+		assertEquals(clauses.get(2).getTo(), 1999);
+		assertEquals(clauses.get(3).getFrom(), 1990);
+		assertEquals(clauses.get(4).getField(), Field.TEXT);
+		assertEquals(query.toString(), "title:\"rolling in\" -genre:rock year:<=1999 year:1990..1999 \"set fire\"");
+		assertEquals(SongQuery.parse("year:>2010").getClauses().get(0).getFrom(), 2011);
+		assertEquals(SongQuery.parse("year:2011").toString(), "year:2011");
+	}
+	
+	@Test
+	void testErrors() {
+		assertThrows(IllegalArgumentException.class, () -> SongQuery.parse("label:xl"));
+		assertThrows(IllegalArgumentException.class, () -> SongQuery.parse("artist:"));
+		assertThrows(IllegalArgumentException.class, () -> SongQuery.parse("title:\"open"));
+		assertThrows(IllegalArgumentException.class, () -> SongQuery.parse("year:soon"));
+		assertThrows(IllegalArgumentException.class, () -> SongQuery.parse("year:2010..2000"));
+		assertThrows(IllegalArgumentException.class, () -> SongQuery.parse(null));
+	}
+}
@@ -0,0 +1,66 @@
+/**
+ *  File: SymbolTableTest.java
+ *  Authors: Kyle Becker / Rishi Doshi
+ *  
+ *  Purpose: This file tests the SymbolTable class (canonical instances,
+ *  keys, and values released once unused), and that Song and Album fields
+ *  are shared through it.
+ */
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import model.Album;
+import model.Song;
+import model.SymbolTable;
+
+class SymbolTableTest {
+	
+	@Test
+	void testIntern() {
+		String value = SymbolTable.intern(new String("Symbol Table Artist"));
+		
+		assertEquals(value, "Symbol Table Artist");
+		assertSame(SymbolTable.intern(new String("Symbol Table Artist")), value);
+		assertNotSame(SymbolTable.intern(new String("Symbol Table Other")), value);
+		assertNull(SymbolTable.intern(null));
+	}
+	
+	@Test
+	void testKey() {
+		assertEquals(SymbolTable.key(new String("Symbol Key MANÁ")), "symbol key mana");
+		assertEquals(SymbolTable.key("symbol key lower"), "symbol key lower");
+	}
+	
+	@Test
+	void testReleasesUnusedValues() throws InterruptedException {
+		String kept = SymbolTable.intern(new String("Symbol Kept"));
+		for (int i = 0; i < 5000; i++) {
+			SymbolTable.intern(new String("Symbol Dropped " + i));
+		}
+		int before = SymbolTable.size();
+		assertTrue(before >= 5000);
+		
+		// Nothing references the dropped values: they are collected and
+		// their entries removed, while the kept one stays canonical
+		for (int attempt = 0; attempt < 50 && SymbolTable.size() > before - 5000; attempt++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		assertTrue(SymbolTable.size() <= before - 5000);
+		assertSame(SymbolTable.intern(new String("Symbol Kept")), kept);
+	}
+	
+	@Test
+	void testSongAndAlbumShareFields() {
+		Song song1 = new Song("One", new String("Shared Album"), new String("Shared Artist"));
+		Song song2 = new Song("Two", new String("Shared Album"), new String("Shared Artist"));
+		Album album = new Album(new String("Shared Album"), new String("Shared Artist"), "Pop", "2025");
+		
+		assertSame(song1.getArtist(), song2.getArtist());
+		assertSame(song1.getAlbum(), album.getTitle());
+		assertSame(song2.getArtist(), album.getArtist());
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ *  File: TopKTest.java
+ *  Authors: Kyle Becker / Rishi Doshi
+ *  
+ *  Purpose: This file tests the TopK heap, checked against a full sort,
+ *  and the SongRanker built on it: BM25 ordering of short exact matches,
+ *  boosts, and that the early exit returns the same top k as scoring
+ *  every candidate.
+ */
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import database.SongRanker;
+import database.TopK;
+
+class TopKTest {
+	
+	@Test
+	void testTopK() {
+		TopK top = new TopK(3);
+		assertEquals(top.minScore(), Double.NEGATIVE_INFINITY);
+		top.offer(0, 1.0);
+		top.offer(1, 5.0);
+		top.offer(2, 3.0);
+		assertTrue(top.isFull());
+		assertEquals(top.minScore(), 1.0);
+		assertTrue(top.offer(3, 4.0));
+		assertFalse(top.offer(4, 2.0));
+		// Ties go to the lower ordinal
+		assertTrue(top.offer(0, 3.0));
+		assertArrayEquals(top.toArray(), new int[] {1, 3, 0});
+		assertEquals(top.size(), 3);
+		assertThrows(IllegalArgumentException.class, () -> new TopK(0));
+	}
+	
+	@Test
+	void testTopKRandom() {
+		Random random = new Random(19);
+		double[] scores = new double[5000];
+		TopK top = new TopK(2000);
+		for (int i = 0; i < scores.length; i++) {
+			scores[i] = random.nextInt(1000);
+			top.offer(i, scores[i]);
+		}
+		int[] expected = java.util.stream.IntStream.range(0, scores.length).boxed()
+				.sorted(Comparator.<Integer>comparingDouble(i -> -scores[i]).thenComparing(i -> i))
+				.limit(2000).mapToInt(i -> i).toArray();
+		assertArrayEquals(top.toArray(), expected);
+	}
+	
+	@Test
+	void testRank() {
+		// Fields hold folded keys
+		List<String> titles = List.of("hello", "hello from the other side of the world", "someone like you",
+				"rolling in the deep", "hello again");
+		List<String> artists = List.of("adele", "adele", "adele", "adele", "hello band");
+		SongRanker ranker = new SongRanker(titles.size(), List.of(
+				SongRanker.Field.scanned(titles, SongRanker.TITLE_WEIGHT),
+				SongRanker.Field.scanned(artists, SongRanker.ARTIST_WEIGHT)));
+		
+		// Matched in title and artist, then the shortest title
+		assertArrayEquals(ranker.rank("hello", 10), new int[] {4, 0, 1});
+		assertArrayEquals(ranker.rank("HELLO adele", 2), new int[] {4, 0});
+		assertArrayEquals(ranker.rank("nothing", 10), new int[0]);
+		assertArrayEquals(ranker.rank("  ", 10), new int[0]);
+		
+		// A boost reorders otherwise equal songs
+		assertArrayEquals(ranker.rank("adele", 2, o -> (o == 3) ? 2.0 : 1.0, 2.0), new int[] {3, 0});
+		assertEquals(SongRanker.words("Rolling in the Deep (Live)"), 5);
+	}
+	
+	@Test
+	void testRankEarlyExit() {
+		Random random = new Random(21);
+		String[] words = {"love", "night", "fire", "rain", "deep", "blue", "heart", "road", "home", "sky"};
+		ArrayList<String> titles = new ArrayList<String>();
+		ArrayList<String> artists = new ArrayList<String>();
+		for (int i = 0; i < 3000; i++) {
+			titles.add(phrase(random, words, 1 + random.nextInt(6)));
+			artists.add(phrase(random, words, 1 + random.nextInt(2)));
+		}
+		List<SongRanker.Field> fields = List.of(SongRanker.Field.scanned(titles, SongRanker.TITLE_WEIGHT),
+				SongRanker.Field.scanned(artists, SongRanker.ARTIST_WEIGHT));
+		SongRanker ranker = new SongRanker(titles.size(), fields);
+		
+		// Asking for every song scores every candidate; the top 10 must agree
+		for (String query : new String[] {"love", "deep blue", "fire rain road", "sky heart"}) {
+			int[] all = ranker.rank(query, titles.size());
+			int[] top = ranker.rank(query, 10);
+			assertArrayEquals(top, java.util.Arrays.copyOf(all, top.length));
+		}
+	}
+	
+	private static String phrase(Random random, String[] words, int length) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			builder.append((i == 0) ? "" : " ").append(words[random.nextInt(words.length)]);
+		}
+		return builder.toString();
+	}
+}
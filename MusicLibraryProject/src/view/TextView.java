@@ -7,6 +7,7 @@
  * 
  * Functionalities include:
  * - Searching the Music Store for songs (by title or artist) and albums (by title or artist) and adding them to the library.
+ * - Searching store songs with field-qualified queries (artist:adele year:>=2010 rolling), optionally explained.
  * - Accessing the user library to list/search songs, list artists, albums, and playlists.
  * - Managing playlists (creating, removing, adding/removing songs).
  * - Rating songs and marking songs as favorite.
@@ -18,21 +19,28 @@
 package view;
 
 import java.io.Console;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Scanner;
+import java.util.function.Function;
 
 import database.MusicStore;
 import model.Album;
 import model.LibraryModel;
 import model.PlayList;
 import model.Rating;
+import model.SearchPage;
 import model.Song;
 import model.UserAccount;
 import model.UserManager;
 
 public class TextView {
 
+    private static final int PAGE_SIZE = 20; // Store search results shown per page
+    private static final int COMPLETIONS = 10; // Suggestions shown for a "?" query
+
 	private static MusicStore store = new MusicStore();
     private static LibraryModel library = new LibraryModel();
     private static Scanner scanner = new Scanner(System.in);
@@ -45,6 +53,12 @@ public class TextView {
         UserAccount user = displayLoginMenu();
         library = user.getLibrary();
         System.out.println("User's library loaded.");
+        // Pick up albums added to the resources directory while running.
+        try {
+            store.startWatching();
+        } catch (IOException e) {
+            System.out.println("Error With Resources Watcher | " + e);
+        }
         // Then launch the main menu.
         mainMenu();
     }
@@ -238,7 +252,8 @@ public class TextView {
             System.out.println("2. Search songs by artist");
             System.out.println("3. Search albums by title");
             System.out.println("4. Search albums by artist");
-            System.out.println("5. Back to Main Menu");
+            System.out.println("5. Search songs with a query (e.g. artist:adele year:>=2010 rolling)");
+            System.out.println("6. Back to Main Menu");
             System.out.print("Enter choice: ");
             
             String choice = scanner.nextLine().trim();
@@ -256,6 +271,9 @@ public class TextView {
                     storeSearchAlbumByArtist();
                     break;
                 case "5":
+                    storeQuerySongs();
+                    break;
+                case "6":
                     storeRunning = false;
                     break;
                 default:
@@ -265,54 +283,144 @@ public class TextView {
     }
     
     private static void storeSearchSongByTitle() {
-        System.out.print("Enter Song title: ");
-        String title = scanner.nextLine().trim();
-        ArrayList<Song> results = store.searchSongsByTitle(title);
-        if (results.isEmpty()) {
-            System.out.println("No songs found.");
-            return;
-        }
-        printSongList(results);
-        promptAddSongToLibrary(results);
+        String title = readQuery("Enter Song title", prefix -> store.completeSongTitles(prefix, COMPLETIONS));
+        browseSongPages(token -> store.searchSongsByTitle(title, token, PAGE_SIZE));
     }
     
     private static void storeSearchSongByArtist() {
-        System.out.print("Enter Song artist: ");
-        String artist = scanner.nextLine().trim();
-        ArrayList<Song> results = store.searchSongsByArtist(artist);
-        if (results.isEmpty()) {
-            System.out.println("No songs found.");
-            return;
-        }
-        printSongList(results);
-        promptAddSongToLibrary(results);
+        String artist = readQuery("Enter Song artist", prefix -> store.completeArtists(prefix, COMPLETIONS));
+        browseSongPages(token -> store.searchSongsByArtist(artist, token, PAGE_SIZE));
     }
     
     private static void storeSearchAlbumByTitle() {
-        System.out.print("Enter Album title: ");
-        String title = scanner.nextLine().trim();
-        ArrayList<Album> results = store.searchAlbumsByTitle(title);
-        if (results.isEmpty()) {
-            System.out.println("No albums found.");
+        String title = readQuery("Enter Album title", prefix -> store.completeAlbumTitles(prefix, COMPLETIONS));
+        browseAlbumPages(token -> store.searchAlbumsByTitle(title, token, PAGE_SIZE));
+    }
+    
+    private static void storeSearchAlbumByArtist() {
+        String artist = readQuery("Enter Album artist", prefix -> store.completeArtists(prefix, COMPLETIONS));
+        browseAlbumPages(token -> store.searchAlbumsByArtist(artist, token, PAGE_SIZE));
+    }
+    
+    /**
+     * Searches songs with a field-qualified query (title:, artist:, album:,
+     * genre:, year:, plus bare words). Starting the query with "explain"
+     * prints the plan and its per-stage candidate counts first.
+     */
+    private static void storeQuerySongs() {
+        System.out.println("Fields: title: artist: album: genre: year: (2010, >=2010, 2000..2010), "
+                + "\"quoted values\", -negation");
+        System.out.print("Enter query: ");
+        String query = scanner.nextLine().trim();
+        try {
+            if (query.toLowerCase().startsWith("explain ")) {
+                query = query.substring("explain ".length()).trim();
+                System.out.print(store.planSongQuery(query).explain());
+            }
+            String text = query;
+            browseSongPages(token -> store.searchSongs(text, token, PAGE_SIZE));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid query: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Reads a search query. Ending the input with "?" lists completions of
+     * what was typed so far instead; the user can then pick one by number
+     * or type a new query (which may end with "?" again).
+     */
+    private static String readQuery(String prompt, Function<String, List<String>> completer) {
+        System.out.print(prompt + " (end with ? for suggestions): ");
+        String input = scanner.nextLine().trim();
+        while (input.endsWith("?")) {
+            List<String> completions = completer.apply(input.substring(0, input.length() - 1).trim());
+            if (completions.isEmpty()) {
+                System.out.println("No suggestions.");
+            }
+            for (int i = 0; i < completions.size(); i++) {
+                System.out.println(i + ". " + completions.get(i));
+            }
+            System.out.print(prompt + " (or suggestion number): ");
+            input = scanner.nextLine().trim();
+            try {
+                int index = Integer.parseInt(input);
+                if (index >= 0 && index < completions.size()) {
+                    return completions.get(index);
+                }
+            } catch (NumberFormatException e) {
+                // Not a suggestion number, use it as typed
+            }
+        }
+        return input;
+    }
+    
+    // Helper methods for store search
+    
+    /**
+     * Shows store song results one page at a time, so broad searches only
+     * fetch the page being looked at. After each page the user may add songs,
+     * then choose whether to fetch the next page. If the catalog was reloaded
+     * in between, the search has to be started again.
+     */
+    private static void browseSongPages(Function<String, SearchPage<Song>> pages) {
+        SearchPage<Song> page = pages.apply(null);
+        if (page.getItems().isEmpty()) {
+            System.out.println("No songs found.");
             return;
         }
-        printAlbumList(results);
-        promptAddAlbumToLibrary(results);
+        while (true) {
+            ArrayList<Song> results = new ArrayList<>(page.getItems());
+            printSongList(results);
+            printPageFooter(page);
+            promptAddSongToLibrary(results);
+            if (!page.hasNext() || !promptNextPage()) {
+                return;
+            }
+            try {
+                page = pages.apply(page.getNextToken());
+            } catch (IllegalArgumentException e) {
+                // The catalog was reloaded since the first page
+                System.out.println("Error loading the next page, please search again | " + e);
+                return;
+            }
+        }
     }
     
-    private static void storeSearchAlbumByArtist() {
-        System.out.print("Enter Album artist: ");
-        String artist = scanner.nextLine().trim();
-        ArrayList<Album> results = store.searchAlbumsByArtist(artist);
-        if (results.isEmpty()) {
+    private static void browseAlbumPages(Function<String, SearchPage<Album>> pages) {
+        SearchPage<Album> page = pages.apply(null);
+        if (page.getItems().isEmpty()) {
             System.out.println("No albums found.");
             return;
         }
-        printAlbumList(results);
-        promptAddAlbumToLibrary(results);
+        while (true) {
+            ArrayList<Album> results = new ArrayList<>(page.getItems());
+            printAlbumList(results);
+            printPageFooter(page);
+            promptAddAlbumToLibrary(results);
+            if (!page.hasNext() || !promptNextPage()) {
+                return;
+            }
+            try {
+                page = pages.apply(page.getNextToken());
+            } catch (IllegalArgumentException e) {
+                // The catalog was reloaded since the first page
+                System.out.println("Error loading the next page, please search again | " + e);
+                return;
+            }
+        }
+    }
+    
+    private static void printPageFooter(SearchPage<?> page) {
+        int first = page.getOffset() + 1;
+        int last = page.getOffset() + page.getItems().size();
+        System.out.println("(Results " + first + "-" + last + (page.hasNext() ? ", more available)" : ")"));
+    }
+    
+    private static boolean promptNextPage() {
+        System.out.print("Show next page (y/n): ");
+        return scanner.nextLine().trim().equalsIgnoreCase("y");
     }
     
-    // Helper methods for store search
     private static void printSongList(ArrayList<Song> songs) {
         for (int i = 0; i < songs.size(); i++) {
             System.out.println(i + ". " + songs.get(i));
@@ -495,17 +603,10 @@ public class TextView {
             int index = Integer.parseInt(input);
             if (index >= 0 && index < found.size()) {
                 Song selected = found.get(index);
-                ArrayList<Album> targets = library.searchAlbumsByTitle(selected.getAlbum());
-                if (targets.size() > 0) {
+                Album target = library.getAlbumOfSong(selected);
+                if (target != null) {
                 	System.out.println("Album Found:");
-                	for (Album target : targets) {
-                		for (String song_check : target.getSongs()) {
-                			if (song_check.equals(selected.getTitle())) {
-                				System.out.println(target.toString());
-                				return;
-                			}
-                		}
-                	}
+                	System.out.println(target.toString());
                 }
             } else {
                 System.out.println("Invalid index. Try again.");
@@ -538,14 +639,14 @@ public class TextView {
 	    	            break;
         		case "2":
         			System.out.println("\n--- Songs in Your Library By Title ---");
-        			Collections.sort(list, (song1, song2) -> song1.getTitle().compareTo(song2.getTitle()));
+        			Collections.sort(list, Song.TITLE_ORDER);
         			for (Song song : list) {
         				System.out.println(" - " + song.toString());
         			}
         			break;
         		case "3": 
         			System.out.println("\n--- Songs in Your Library By Artist ---");
-        			Collections.sort(list, (song1, song2) -> song1.getArtist().compareTo(song2.getArtist()));
+        			Collections.sort(list, Song.ARTIST_ORDER);
         			for (Song song : list) {
         				System.out.println(" - " + song.toString());
         			}
@@ -579,8 +680,8 @@ public class TextView {
     }
     
     private static void searchSongInLibrary() {
-        System.out.print("Enter song title to search in library: ");
-        String title = scanner.nextLine().trim();
+        String title = readQuery("Enter song title to search in library", 
+        		prefix -> library.completeSongTitles(prefix, COMPLETIONS));
         ArrayList<Song> found = library.searchSongByTitle(title);
         if (found.size() > 0) {
           int i = 0;
@@ -596,17 +697,10 @@ public class TextView {
             int index = Integer.parseInt(input);
             if (index >= 0 && index < found.size()) {
                 Song selected = found.get(index);
-                ArrayList<Album> targets = library.searchAlbumsByTitle(selected.getAlbum());
-                if (targets.size() > 0) {
+                Album target = library.getAlbumOfSong(selected);
+                if (target != null) {
                 	System.out.println("Album Found:");
-                	for (Album target : targets) {
-                		for (String song_check : target.getSongs()) {
-                			if (song_check.equals(selected.getTitle())) {
-                				System.out.println(target.toString());
-                				return;
-                			}
-                		}
-                	}
+                	System.out.println(target.toString());
                 }
                 else {
                 	System.out.println("Album not found..");
@@ -621,8 +715,8 @@ public class TextView {
     }
     
     private static void searchSongInLibraryArtist() {
-    	System.out.print("Enter song artist to search in library: ");
-    	String artist = scanner.nextLine().trim();
+    	String artist = readQuery("Enter song artist to search in library", 
+    			prefix -> library.completeArtists(prefix, COMPLETIONS));
     	ArrayList<Song> found = library.searchSongByArtist(artist);
     	if (found.size() > 0) {
     		int i = 1;
@@ -638,17 +732,10 @@ public class TextView {
             int index = Integer.parseInt(input);
             if (index >= 0 && index < found.size()) {
                 Song selected = found.get(index);
-                ArrayList<Album> targets = library.searchAlbumsByTitle(selected.getAlbum());
-                if (targets.size() > 0) {
+                Album target = library.getAlbumOfSong(selected);
+                if (target != null) {
                 	System.out.println("Album Found:");
-                	for (Album target : targets) {
-                		for (String song_check : target.getSongs()) {
-                			if (song_check.equals(selected.getTitle())) {
-                				System.out.println(target.toString());
-                				return;
-                			}
-                		}
-                	}
+                	System.out.println(target.toString());
                 }
             } else {
                 System.out.println("Invalid index. Try again.");
@@ -799,8 +886,8 @@ public class TextView {
     }
 
     private static void searchAlbumInLibraryByTitle() {
-        System.out.print("Enter album title to search for: ");
-        String title = scanner.nextLine().trim();
+        String title = readQuery("Enter album title to search for", 
+        		prefix -> library.completeAlbumTitles(prefix, COMPLETIONS));
         ArrayList<Album> albums = library.searchAlbumsByTitle(title);
         if (albums.isEmpty()) {
             System.out.println("No albums found with that title.");
@@ -816,8 +903,8 @@ public class TextView {
     }
 
     private static void searchAlbumInLibraryByArtist() {
-        System.out.print("Enter album artist to search for: ");
-        String artist = scanner.nextLine().trim();
+        String artist = readQuery("Enter album artist to search for", 
+        		prefix -> library.completeArtists(prefix, COMPLETIONS));
         ArrayList<Album> albums = library.searchAlbumsByArtist(artist);
         if (albums.isEmpty()) {
             System.out.println("No albums found by that artist.");
@@ -876,7 +963,8 @@ public class TextView {
             System.out.println("4. Remove a song from a playlist");
             System.out.println("5. Search for a playlist");
             System.out.println("6. List all playlists");
-            System.out.println("7. Back to Library Menu");
+            System.out.println("7. Rename a playlist");
+            System.out.println("8. Back to Library Menu");
             System.out.print("Enter choice: ");
             String choice = scanner.nextLine().trim();
             
@@ -900,6 +988,9 @@ public class TextView {
                     listAllPlaylists();
                     break;
                 case "7":
+                    renamePlaylist();
+                    break;
+                case "8":
                     running = false;
                     break;
                 default:
@@ -954,6 +1045,18 @@ public class TextView {
             System.out.println("Invalid input. Please enter a valid index or 'exit'.");
         }
     }
+    
+    private static void renamePlaylist() {
+        System.out.print("Enter the name of the playlist to rename: ");
+        String name = scanner.nextLine().trim();
+        System.out.print("Enter its new name: ");
+        String newName = scanner.nextLine().trim();
+        if (library.renamePlaylist(name, newName)) {
+            System.out.println("Playlist '" + name + "' renamed to '" + newName + "'.");
+        } else {
+            System.out.println("Playlist could not be renamed (not found, updated automatically, or the new name is taken or reserved).");
+        }
+    }
 
     private static void addSongToPlaylist() {
         // Display the list of playlists first
@@ -1008,7 +1111,7 @@ public class TextView {
                 System.out.println("Song added to playlist: " + song.toString());
             } else {
                 System.out.println("Failed to add song: " + song.toString());
-                System.out.println("Playlist might not exist or the song is already in there.");
+                System.out.println("Playlist might not exist, be updated automatically, or the song is already in there.");
             }
         }
     }
@@ -1094,7 +1197,7 @@ public class TextView {
         if (library.removeSongFromPlaylist(playlistName, songToRemove.getTitle())) {
             System.out.println("Song removed from playlist: " + songToRemove.toString());
         } else {
-            System.out.println("Failed to remove song from playlist. It may not be in the playlist.");
+            System.out.println("Failed to remove song from playlist. It may not be in the playlist, or the playlist is updated automatically.");
         }
     }
 